@@ -39,6 +39,20 @@ public enum FxHintNames {
     FRAGMENT_SQL_DATA_SOURCE(""),
     /** SqlFragment 当遇到多条 SQL 同时执行时，结果集的行为（默认：返回最后一个结果） */
     FRAGMENT_SQL_MULTIPLE_QUERIES(FRAGMENT_SQL_MULTIPLE_QUERIES_LAST),
+    /** SqlFragment 是否缓存 select 语句的查询结果（默认：不缓存） */
+    FRAGMENT_SQL_RESULT_CACHE(FRAGMENT_SQL_RESULT_CACHE_DISABLE),
+    /** SqlFragment 查询结果缓存的有效期，单位毫秒（默认：60 秒） */
+    FRAGMENT_SQL_RESULT_CACHE_TTL("60000"),
+    /** SqlFragment 每个 SQL 片段最多缓存的查询结果数（默认：256） */
+    FRAGMENT_SQL_RESULT_CACHE_SIZE("256"),
+    /** SqlFragment 批量执行时每个分块包含的参数组数，每个分块单独执行（默认：0，不分块） */
+    FRAGMENT_SQL_BATCH_CHUNK_SIZE("0"),
+    /** SqlFragment 批量执行 insert 语句时，是否在支持的数据库上改写为多行 values 的语句（默认：不改写） */
+    FRAGMENT_SQL_BATCH_MULTI_VALUES(FRAGMENT_SQL_BATCH_MULTI_VALUES_DISABLE),
+    /** SqlFragment 批量执行 select 语句时，是否把多组参数合并为一条 in 查询（默认：合并） */
+    FRAGMENT_SQL_BATCH_SELECT(FRAGMENT_SQL_BATCH_SELECT_ENABLE),
+    /** SqlFragment 批量执行中某个分块失败时的行为（默认：抛出异常） */
+    FRAGMENT_SQL_BATCH_ON_ERROR(FRAGMENT_SQL_BATCH_ON_ERROR_THROW),
     ;
     //
     private final String defaultVal;
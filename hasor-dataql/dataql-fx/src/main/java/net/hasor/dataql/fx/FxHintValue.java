@@ -5,52 +5,87 @@ public interface FxHintValue extends HintValue {
     /**
      * SqlFragment 返回值不拆开，无论返回数据，都以 List/Map 形式返回。
      */
-    public static final String FRAGMENT_SQL_OPEN_PACKAGE_OFF       = "off";
+    public static final String FRAGMENT_SQL_OPEN_PACKAGE_OFF           = "off";
     /**
      * SqlFragment 返回值拆分到行，如果返回值是多条记录那么行为和 off 相同。
      *  - 当返回 0 或 1 条记录时，自动解开最外层的 List，返回一个 Object。
      */
-    public static final String FRAGMENT_SQL_OPEN_PACKAGE_ROW       = "row";
+    public static final String FRAGMENT_SQL_OPEN_PACKAGE_ROW           = "row";
     /**
      * SqlFragment 返回值拆分到行，如果返回值是多条记录那么行为和 off 相同。
      *  - 如果返回值是 1条记录并且具有多个字段值，那么行为和 row 相同。
      *  - 一条记录中如果只有一个字段，那么会忽略字段名直接返回这个字段的值。
      *  - 如果查询结果为空集合，那么返回 null 值。 */
-    public static final String FRAGMENT_SQL_OPEN_PACKAGE_COLUMN    = "column";
+    public static final String FRAGMENT_SQL_OPEN_PACKAGE_COLUMN        = "column";
     /**
      * SqlFragment 在执行 select 语句时采用分页模式执行，获取数据的步骤：1先获取查询对象，2.设置分页参数，3.获取分页之后的数据。
      */
-    public static final String FRAGMENT_SQL_QUERY_BY_PAGE_ENABLE   = "true";
+    public static final String FRAGMENT_SQL_QUERY_BY_PAGE_ENABLE       = "true";
     /**
      * SqlFragment 在执行 select 语句时不分页，获取数据的步骤：1先获取查询对象，2.获取SQL执行的数据。
      */
-    public static final String FRAGMENT_SQL_QUERY_BY_PAGE_DISABLE  = "false";
+    public static final String FRAGMENT_SQL_QUERY_BY_PAGE_DISABLE      = "false";
     /**
      * SqlFragment 返回的列信息,全部列名保持大小写敏感。
      */
-    public static final String FRAGMENT_SQL_COLUMN_CASE_DEFAULT    = "default";
+    public static final String FRAGMENT_SQL_COLUMN_CASE_DEFAULT        = "default";
     /**
      * SqlFragment 全部列名保持大写，如果在转换过程中发生冲突，那么会产生覆盖问题。
      */
-    public static final String FRAGMENT_SQL_COLUMN_CASE_UPPER      = "upper";
+    public static final String FRAGMENT_SQL_COLUMN_CASE_UPPER          = "upper";
     /**
      * SqlFragment 全部列名保持小写，如果在转换过程中发生冲突，那么会产生覆盖问题。
      */
-    public static final String FRAGMENT_SQL_COLUMN_CASE_LOWER      = "lower";
+    public static final String FRAGMENT_SQL_COLUMN_CASE_LOWER          = "lower";
     /**
      * SqlFragment 返回的列信息,全部列名做一次驼峰转换。如：goods_id => goodsId、GOODS_id => goodsId。
      */
-    public static final String FRAGMENT_SQL_COLUMN_CASE_HUMP       = "hump";
+    public static final String FRAGMENT_SQL_COLUMN_CASE_HUMP           = "hump";
     /**
      * SqlFragment 当遇到多条 SQL 同时执行时，结果集的行为是，返回第一个结果
      */
-    public static final String FRAGMENT_SQL_MULTIPLE_QUERIES_FIRST = "first";
+    public static final String FRAGMENT_SQL_MULTIPLE_QUERIES_FIRST     = "first";
     /**
      * SqlFragment 当遇到多条 SQL 同时执行时，结果集的行为是，返回最后一个结果（默认）
      */
-    public static final String FRAGMENT_SQL_MULTIPLE_QUERIES_LAST  = "last";
+    public static final String FRAGMENT_SQL_MULTIPLE_QUERIES_LAST      = "last";
     /**
      * SqlFragment 当遇到多条 SQL 同时执行时，结果集的行为是，返回所有结果
      */
-    public static final String FRAGMENT_SQL_MULTIPLE_QUERIES_ALL   = "all";
+    public static final String FRAGMENT_SQL_MULTIPLE_QUERIES_ALL       = "all";
+    /**
+     * SqlFragment 缓存 select 语句的查询结果，相同 SQL 和参数的查询在有效期内直接返回缓存的结果（不会访问数据库）。
+     * 同一进程中 SqlFragment 执行的写操作会使涉及到的表上的缓存失效，其它途径对数据的修改只能等待缓存过期。
+     */
+    public static final String FRAGMENT_SQL_RESULT_CACHE_ENABLE        = "true";
+    /**
+     * SqlFragment 不缓存查询结果（默认）
+     */
+    public static final String FRAGMENT_SQL_RESULT_CACHE_DISABLE       = "false";
+    /**
+     * SqlFragment 批量执行 insert 语句时，在支持的数据库上（MySQL、PostgreSQL、SQL Server 等）每个分块改写为一条多行 values 的语句执行。
+     * 改写后单行的影响行数无法区分，全部成功时每行返回 1，否则返回 Statement.SUCCESS_NO_INFO。
+     */
+    public static final String FRAGMENT_SQL_BATCH_MULTI_VALUES_ENABLE  = "true";
+    /**
+     * SqlFragment 批量执行时不改写语句（默认）
+     */
+    public static final String FRAGMENT_SQL_BATCH_MULTI_VALUES_DISABLE = "false";
+    /**
+     * SqlFragment 批量执行 <code>select ... where 列 = ?</code> 形式的语句时（例如 AUTO_BATCH_CALL 合并的逐行查询），在支持的数据库上把数值参数合并为一条
+     * <code>where 列 in (?, ?, ...)</code> 查询，再按照列值拆分回每组参数（默认）。合并后的查询不使用查询结果缓存。
+     */
+    public static final String FRAGMENT_SQL_BATCH_SELECT_ENABLE        = "true";
+    /**
+     * SqlFragment 批量执行 select 语句时每组参数单独查询
+     */
+    public static final String FRAGMENT_SQL_BATCH_SELECT_DISABLE       = "false";
+    /**
+     * SqlFragment 批量执行中某个分块失败时抛出异常，后面的分块不再执行，已执行的分块不会回滚（默认）
+     */
+    public static final String FRAGMENT_SQL_BATCH_ON_ERROR_THROW       = "throw";
+    /**
+     * SqlFragment 批量执行中某个分块失败时继续执行后面的分块，失败分块中的参数组返回 Statement.EXECUTE_FAILED
+     */
+    public static final String FRAGMENT_SQL_BATCH_ON_ERROR_CONTINUE    = "continue";
 }
\ No newline at end of file
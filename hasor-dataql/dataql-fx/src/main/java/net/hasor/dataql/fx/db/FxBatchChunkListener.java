@@ -0,0 +1,100 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.fx.db;
+/**
+ * SqlFragment 批量执行时，每个分块执行之后（无论成功或失败）的通知，可以用来记录批量导入的进度和失败的分块。
+ * 分块大小通过 HINT：FRAGMENT_SQL_BATCH_CHUNK_SIZE 指定。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public interface FxBatchChunkListener extends java.util.EventListener {
+    public void onChunk(FxBatchChunk chunkInfo);
+
+    public final class FxBatchChunk {
+        private final String    sourceName;
+        private final String    queryString;
+        private final int       chunkIndex;
+        private final int       chunkCount;
+        private final int       fromIndex;
+        private final int       toIndex;
+        private final boolean   multiValues;
+        private final int[]     updateCounts;
+        private final Throwable failure;
+
+        public FxBatchChunk(String sourceName, String queryString, int chunkIndex, int chunkCount, int fromIndex, int toIndex,//
+                boolean multiValues, int[] updateCounts, Throwable failure) {
+            this.sourceName = sourceName;
+            this.queryString = queryString;
+            this.chunkIndex = chunkIndex;
+            this.chunkCount = chunkCount;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.multiValues = multiValues;
+            this.updateCounts = updateCounts;
+            this.failure = failure;
+        }
+
+        /** 使用的数据源 */
+        public String getSourceName() {
+            return this.sourceName;
+        }
+
+        /** 分块执行的 SQL（多行 values 改写之后的语句） */
+        public String getQueryString() {
+            return this.queryString;
+        }
+
+        /** 分块的序号，从 0 开始 */
+        public int getChunkIndex() {
+            return this.chunkIndex;
+        }
+
+        /** 分块总数 */
+        public int getChunkCount() {
+            return this.chunkCount;
+        }
+
+        /** 分块中第一组参数在全部参数中的位置 */
+        public int getFromIndex() {
+            return this.fromIndex;
+        }
+
+        /** 分块中最后一组参数在全部参数中的位置 + 1 */
+        public int getToIndex() {
+            return this.toIndex;
+        }
+
+        /** 是否改写为多行 values 的语句执行 */
+        public boolean isMultiValues() {
+            return this.multiValues;
+        }
+
+        /** 分块中每组参数的影响行数 */
+        public int[] getUpdateCounts() {
+            return this.updateCounts.clone();
+        }
+
+        /** 是否执行成功 */
+        public boolean isSuccess() {
+            return this.failure == null;
+        }
+
+        /** 分块执行失败的原因，成功时为 null */
+        public Throwable getFailure() {
+            return this.failure;
+        }
+    }
+}
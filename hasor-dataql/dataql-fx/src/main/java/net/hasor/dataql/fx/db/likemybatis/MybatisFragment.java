@@ -39,8 +39,7 @@ import java.util.Map;
 public class MybatisFragment extends SqlFragment {
     @Override
     public Object runFragment(Hints hint, Map<String, Object> paramMap, String fragmentString) throws Throwable {
-        net.hasor.dataql.fx.db.likemybatis.SqlNode sqlNode = parseSqlNode(fragmentString.trim());
-        DynamicSql fxSql = new MybatisSqlSegmentQuery(sqlNode);
+        DynamicSql fxSql = analysisSQL(hint, fragmentString);
         if (usePage(hint)) {
             return this.usePageFragment(fxSql, hint, paramMap);
         } else {
@@ -48,6 +47,11 @@ public class MybatisFragment extends SqlFragment {
         }
     }
 
+    @Override
+    protected DynamicSql parseSQL(String fragmentString) throws Exception {
+        return new MybatisSqlSegmentQuery(parseSqlNode(fragmentString.trim()));
+    }
+
     private net.hasor.dataql.fx.db.likemybatis.SqlNode parseSqlNode(String fragmentString) throws Exception {
         DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
         Document document = documentBuilder.parse(new ByteArrayInputStream(fragmentString.getBytes()));
@@ -19,6 +19,7 @@ import net.hasor.db.dal.dynamic.QuerySqlBuilder;
 import net.hasor.db.dal.dynamic.BuilderContext;
 import net.hasor.db.dal.dynamic.rule.ParameterSqlBuildRule.SqlArg;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -33,22 +34,19 @@ class MybatisSqlSegmentQuery extends DefaultSqlSegment {
         this.sqlNode = sqlNode;
     }
 
+    /** 参数列表由每次构建各自持有，使同一个 SqlNode 树可以被缓存并发使用 */
     @Override
     public void buildQuery(BuilderContext builderContext, QuerySqlBuilder querySqlBuilder) {
-        String queryString = buildQueryString(builderContext.getContext());
-        List<Object> args = buildParameterSource(builderContext.getContext());
+        List<Object> args = new ArrayList<>();
+        String queryString = buildQueryString(builderContext.getContext(), args);
         querySqlBuilder.appendSql(queryString, args.stream().map(SqlArg::new).toArray(SqlArg[]::new));
     }
 
-    private String buildQueryString(Object context) {
+    private String buildQueryString(Object context, List<Object> args) {
         if (context instanceof Map) {
-            return sqlNode.getSql((Map<String, Object>) context);
+            return sqlNode.getSql((Map<String, Object>) context, args);
         } else {
             throw new IllegalArgumentException("context must be instance of Map");
         }
     }
-
-    private List<Object> buildParameterSource(Object context) {
-        return this.sqlNode.getParameters();
-    }
 }
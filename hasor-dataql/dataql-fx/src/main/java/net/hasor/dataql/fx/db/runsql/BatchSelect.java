@@ -0,0 +1,98 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.fx.db.runsql;
+import net.hasor.db.JdbcUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 把 <code>select a, b from t where pid = ?</code> 的多组参数合并为一条 <code>select a, b, pid from t where pid in (?, ?, ...)</code> 查询，
+ * 再按照最后一列（pid）的值把结果拆分回每组参数。
+ *  - 只改写条件是语句最后一部分、并且是唯一参数的语句；含有 union、字符串、注释的语句以及 select 列表中含有函数（可能是聚合函数）、distinct 的语句不改写。
+ *  - 只合并数值参数：字符串的比较受数据库排序规则影响（例如忽略大小写），拆分时无法还原。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+class BatchSelect {
+    /** 支持 select 列表中 * 之后再跟列名的数据库 */
+    private static final Set<String> SUPPORT_DB_TYPES = new HashSet<>(Arrays.asList(//
+            JdbcUtils.MYSQL, JdbcUtils.MARIADB, JdbcUtils.POSTGRESQL, JdbcUtils.H2, JdbcUtils.HSQL, JdbcUtils.SQL_SERVER,//
+            JdbcUtils.SQLITE, JdbcUtils.OCEANBASE, JdbcUtils.POLARDB, JdbcUtils.KINGBASE));
+    private static final Pattern     SELECT_PATTERN   = Pattern.compile(//
+            "^\\s*select\\s+(.+?)\\s+from\\s+(.+)\\s+where\\s+([\\w.`\"\\[\\]]+)\\s*=\\s*\\?[\\s;]*$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern     REJECT_PATTERN   = Pattern.compile("'|--|/\\*|#|\\b(union|intersect|except|minus)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern     MODIFIER_PATTERN = Pattern.compile("^(distinct|all|top|sql_\\w+|straight_join|high_priority)\\b.*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    /** 一条语句最多包含的参数个数 */
+    public static final  int         MAX_KEYS         = 999;
+    private final        String      selectString;    // select 列表
+    private final        String      fromString;      // from 和 where 之间的部分
+    private final        String      keyColumn;       // 条件列
+
+    private BatchSelect(String selectString, String fromString, String keyColumn) {
+        this.selectString = selectString;
+        this.fromString = fromString;
+        this.keyColumn = keyColumn;
+    }
+
+    /** 数据库是否支持合并查询 */
+    public static boolean isSupport(String dbType) {
+        return dbType != null && SUPPORT_DB_TYPES.contains(dbType.toLowerCase());
+    }
+
+    /** 分析 select 语句，不能改写时返回 null */
+    public static BatchSelect parse(String sqlString) {
+        if (REJECT_PATTERN.matcher(sqlString).find()) {
+            return null;
+        }
+        Matcher matcher = SELECT_PATTERN.matcher(sqlString);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String selectString = matcher.group(1).trim();
+        if (selectString.contains("(") || selectString.contains("?") || MODIFIER_PATTERN.matcher(selectString).matches()) {
+            return null;
+        }
+        return new BatchSelect(selectString, matcher.group(2).trim(), matcher.group(3));
+    }
+
+    /** 合并 keyCount 个参数的查询语句 */
+    public String buildSql(int keyCount) {
+        StringBuilder sqlBuilder = new StringBuilder("select ");
+        sqlBuilder.append(this.selectString).append(", ").append(this.keyColumn);
+        sqlBuilder.append(" from ").append(this.fromString);
+        sqlBuilder.append(" where ").append(this.keyColumn).append(" in (");
+        for (int i = 0; i < keyCount; i++) {
+            sqlBuilder.append((i == 0) ? "?" : ", ?");
+        }
+        return sqlBuilder.append(")").toString();
+    }
+
+    /** 参数或者查询结果中条件列的值在拆分时使用的 Key，不是数值时返回 null（不能合并） */
+    public static Object keyOf(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte || value instanceof BigInteger) {
+            return new BigDecimal(value.toString());
+        }
+        if (value instanceof BigDecimal) {
+            BigDecimal decimal = ((BigDecimal) value).stripTrailingZeros();
+            return (decimal.scale() < 0) ? decimal.setScale(0) : decimal;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.fx.db.runsql;
+import net.hasor.dataql.fx.db.FxBatchChunkListener.FxBatchChunk;
+import net.hasor.db.jdbc.BatchPreparedStatementSetter;
+import net.hasor.db.jdbc.core.ArgPreparedStatementSetter;
+import net.hasor.db.jdbc.core.JdbcTemplate;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 分块执行的批量操作（FRAGMENT_SQL_BATCH_CHUNK_SIZE），每个分块单独执行一次 JDBC 批处理，
+ * 或者改写为一条多行 values 的 insert 语句（FRAGMENT_SQL_BATCH_MULTI_VALUES）。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+class ChunkedBatch {
+    private final String                 sourceName;
+    private final String                 querySQL;
+    private final List<Object[]>         batchArgs;
+    private final int                    chunkSize;
+    private final MultiValuesInsert      multiValues;
+    private final boolean                continueOnError;
+    private final Consumer<FxBatchChunk> chunkListener;
+
+    /**
+     * @param chunkSize 每个分块的参数组数，小于等于 0 表示不分块
+     * @param dbType 数据库类型，为 null 表示不使用多行 values 改写
+     * @param chunkListener 每个分块执行之后的通知，可以为 null
+     */
+    ChunkedBatch(String sourceName, String querySQL, List<Object[]> batchArgs, int chunkSize, String dbType, boolean continueOnError,//
+            Consumer<FxBatchChunk> chunkListener) {
+        this.sourceName = sourceName;
+        this.querySQL = querySQL;
+        this.batchArgs = batchArgs;
+        this.continueOnError = continueOnError;
+        this.chunkListener = chunkListener;
+        //
+        MultiValuesInsert multiValues = null;
+        if (dbType != null && MultiValuesInsert.isSupport(dbType) && !batchArgs.isEmpty()) {
+            int paramCount = batchArgs.get(0).length;
+            if (batchArgs.stream().allMatch(args -> args.length == paramCount)) {
+                multiValues = MultiValuesInsert.parse(querySQL, paramCount);
+            }
+        }
+        this.multiValues = multiValues;
+        //
+        chunkSize = (chunkSize <= 0) ? batchArgs.size() : chunkSize;
+        if (multiValues != null) {
+            chunkSize = Math.min(chunkSize, multiValues.maxRows(dbType)); // 一个分块改写为一条语句
+        }
+        this.chunkSize = Math.max(chunkSize, 1);
+    }
+
+    /** 执行批量操作，返回每组参数的影响行数 */
+    public List<Object> execute(JdbcTemplate jdbcTemplate) throws SQLException {
+        int totalSize = this.batchArgs.size();
+        int chunkCount = (totalSize + this.chunkSize - 1) / this.chunkSize;
+        List<Object> resultList = new ArrayList<>(totalSize);
+        for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++) {
+            int fromIndex = chunkIndex * this.chunkSize;
+            int toIndex = Math.min(fromIndex + this.chunkSize, totalSize);
+            List<Object[]> chunkArgs = this.batchArgs.subList(fromIndex, toIndex);
+            String chunkSQL = (this.multiValues != null) ? this.multiValues.buildSql(chunkArgs.size()) : this.querySQL;
+            //
+            int[] updateCounts = null;
+            SQLException failure = null;
+            try {
+                if (this.multiValues != null) {
+                    updateCounts = this.executeMultiValues(jdbcTemplate, chunkSQL, chunkArgs);
+                } else {
+                    updateCounts = this.executeBatch(jdbcTemplate, chunkSQL, chunkArgs);
+                }
+            } catch (SQLException e) {
+                failure = e;
+                updateCounts = failedCounts(e, chunkArgs.size(), this.multiValues != null);
+            }
+            //
+            if (this.chunkListener != null) {
+                this.chunkListener.accept(new FxBatchChunk(this.sourceName, chunkSQL, chunkIndex, chunkCount, fromIndex, toIndex,//
+                        this.multiValues != null, updateCounts, failure));
+            }
+            if (failure != null && !this.continueOnError) {
+                if (chunkCount == 1) {
+                    throw failure;
+                }
+                String message = "batch chunk " + (chunkIndex + 1) + "/" + chunkCount + " (params " + fromIndex + " ~ " + (toIndex - 1) + ") failed: " + failure.getMessage();
+                throw new SQLException(message, failure.getSQLState(), failure.getErrorCode(), failure);
+            }
+            for (int updateCount : updateCounts) {
+                resultList.add(updateCount);
+            }
+        }
+        return resultList;
+    }
+
+    private int[] executeBatch(JdbcTemplate jdbcTemplate, String chunkSQL, List<Object[]> chunkArgs) throws SQLException {
+        return jdbcTemplate.executeBatch(chunkSQL, new BatchPreparedStatementSetter() {
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                new ArgPreparedStatementSetter(chunkArgs.get(i)).setValues(ps);
+            }
+
+            public int getBatchSize() {
+                return chunkArgs.size();
+            }
+        });
+    }
+
+    /** 多行 values 的影响行数无法区分到每一行：全部成功时每行为 1，否则为 SUCCESS_NO_INFO */
+    private int[] executeMultiValues(JdbcTemplate jdbcTemplate, String chunkSQL, List<Object[]> chunkArgs) throws SQLException {
+        int updateCount = jdbcTemplate.executeUpdate(chunkSQL, new ArgPreparedStatementSetter(this.multiValues.buildArgs(chunkArgs)));
+        int[] updateCounts = new int[chunkArgs.size()];
+        Arrays.fill(updateCounts, (updateCount == chunkArgs.size()) ? 1 : Statement.SUCCESS_NO_INFO);
+        return updateCounts;
+    }
+
+    /** 失败分块的影响行数：JDBC 批处理中已经执行的部分保留驱动返回的结果，其余为 EXECUTE_FAILED */
+    private static int[] failedCounts(SQLException e, int chunkSize, boolean multiValues) {
+        int[] updateCounts = new int[chunkSize];
+        Arrays.fill(updateCounts, Statement.EXECUTE_FAILED);
+        if (!multiValues && e instanceof BatchUpdateException) {
+            int[] executedCounts = ((BatchUpdateException) e).getUpdateCounts();
+            if (executedCounts != null) {
+                System.arraycopy(executedCounts, 0, updateCounts, 0, Math.min(executedCounts.length, chunkSize));
+            }
+        }
+        return updateCounts;
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.fx.db.runsql;
+import net.hasor.dataql.fx.basic.StringUdfSource;
+import net.hasor.db.jdbc.ResultSetExtractor;
+import net.hasor.db.jdbc.mapper.ColumnMapRowMapper;
+import net.hasor.db.types.TypeHandler;
+import net.hasor.utils.ref.LinkedCaseInsensitiveMap;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+
+import static net.hasor.dataql.fx.FxHintValue.*;
+
+/**
+ * SQL 片段的结果集读取器（一次完成读取和列名转换）。
+ *  - 列名（已应用 FRAGMENT_SQL_COLUMN_CASE 规则）和读取列值用到的 TypeHandler 每个 ResultSet 只计算一次。
+ *  - 每一行直接读取为最终的行数据 ColumnRow：所有行共享同一份列名，列值存放在数组中。
+ *  - 列名相同的列与 ColumnMapRowMapper 的规则一致：忽略大小写比较，保留第一个出现的列；列名转换后出现重名时保留后一个列的值。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+class ColumnRowExtractor implements ResultSetExtractor<List<Map<String, Object>>> {
+    /** 只用于查找读取列值的 TypeHandler，规则与 queryForList 一致 */
+    private static final ColumnMapRowMapper TYPE_HANDLER_FINDER = new ColumnMapRowMapper();
+    private final        String             caseModule;
+
+    public ColumnRowExtractor(String caseModule) {
+        this.caseModule = (caseModule == null) ? FRAGMENT_SQL_COLUMN_CASE_DEFAULT : caseModule;
+    }
+
+    @Override
+    public List<Map<String, Object>> extractData(ResultSet rs) throws SQLException {
+        return this.extractData(rs, null);
+    }
+
+    /** 读取结果集，keyList 不为空时最后一列不作为行数据，它的值依次放入 keyList（合并查询附加的分组列） */
+    List<Map<String, Object>> extractData(ResultSet rs, List<Object> keyList) throws SQLException {
+        List<Map<String, Object>> resultList = new ArrayList<>();
+        ColumnKeys columnKeys = null;
+        TypeHandler<?>[] typeHandlers = null;
+        int keyColumn = 0;
+        while (rs.next()) {
+            if (columnKeys == null) {
+                int columnCount = rs.getMetaData().getColumnCount();
+                keyColumn = (keyList != null) ? columnCount : 0;
+                columnKeys = ColumnKeys.of(rs.getMetaData(), (keyList != null) ? columnCount - 1 : columnCount, this.caseModule);
+                typeHandlers = new TypeHandler<?>[columnKeys.size()];
+                for (int i = 0; i < typeHandlers.length; i++) {
+                    typeHandlers[i] = TYPE_HANDLER_FINDER.getResultSetTypeHandler(rs, columnKeys.columnIndexes[i], null);
+                }
+            }
+            Object[] values = new Object[typeHandlers.length];
+            for (int i = 0; i < typeHandlers.length; i++) {
+                values[i] = typeHandlers[i].getResult(rs, columnKeys.columnIndexes[i]);
+            }
+            resultList.add(new ColumnRow(columnKeys, values));
+            if (keyColumn > 0) {
+                keyList.add(rs.getObject(keyColumn));
+            }
+        }
+        return resultList;
+    }
+
+    /** 一个 ResultSet 中所有行共享的列名 */
+    static class ColumnKeys {
+        private final boolean              caseInsensitive;
+        private final String[]             columnKeys;
+        private final int[]                columnIndexes;
+        private final Map<String, Integer> keyIndexMap;
+
+        private ColumnKeys(boolean caseInsensitive, List<String> columnKeys, List<Integer> columnIndexes) {
+            this.caseInsensitive = caseInsensitive;
+            this.columnKeys = columnKeys.toArray(new String[0]);
+            this.columnIndexes = columnIndexes.stream().mapToInt(Integer::intValue).toArray();
+            this.keyIndexMap = caseInsensitive ? new LinkedCaseInsensitiveMap<>(this.columnKeys.length) : new HashMap<>();
+            for (int i = 0; i < this.columnKeys.length; i++) {
+                this.keyIndexMap.put(this.columnKeys[i], i);
+            }
+        }
+
+        static ColumnKeys of(ResultSetMetaData metaData, int columnCount, String caseModule) throws SQLException {
+            boolean toUpper = FRAGMENT_SQL_COLUMN_CASE_UPPER.equalsIgnoreCase(caseModule);
+            boolean toLower = FRAGMENT_SQL_COLUMN_CASE_LOWER.equalsIgnoreCase(caseModule);
+            boolean toHump = FRAGMENT_SQL_COLUMN_CASE_HUMP.equalsIgnoreCase(caseModule);
+            //
+            Set<String> columnNames = new HashSet<>();
+            Map<String, Integer> keyIndexMap = new HashMap<>();
+            List<String> columnKeys = new ArrayList<>();
+            List<Integer> columnIndexes = new ArrayList<>();
+            for (int i = 1; i <= columnCount; i++) {
+                String columnName = metaData.getColumnLabel(i);
+                if (columnName == null || columnName.length() < 1) {
+                    columnName = metaData.getColumnName(i);
+                }
+                if (!columnNames.add(columnName.toLowerCase())) {
+                    continue;
+                }
+                String columnKey = columnName;
+                if (toUpper) {
+                    columnKey = columnName.toUpperCase();
+                } else if (toLower) {
+                    columnKey = columnName.toLowerCase();
+                } else if (toHump) {
+                    columnKey = StringUdfSource.lineToHump(columnName.toLowerCase());
+                }
+                Integer keyIndex = keyIndexMap.putIfAbsent(columnKey, columnKeys.size());
+                if (keyIndex != null) {
+                    columnIndexes.set(keyIndex, i);
+                } else {
+                    columnKeys.add(columnKey);
+                    columnIndexes.add(i);
+                }
+            }
+            boolean caseInsensitive = !(toUpper || toLower || toHump);
+            return new ColumnKeys(caseInsensitive, columnKeys, columnIndexes);
+        }
+
+        public int size() {
+            return this.columnKeys.length;
+        }
+
+        int indexOf(Object key) {
+            Integer index = (key instanceof String) ? this.keyIndexMap.get(key) : null;
+            return (index == null) ? -1 : index;
+        }
+    }
+
+    /** 行数据，新增或删除列时转为普通的 Map */
+    static class ColumnRow extends AbstractMap<String, Object> {
+        private final ColumnKeys          columnKeys;
+        private final Object[]            values;
+        private       Map<String, Object> expandMap;
+
+        ColumnRow(ColumnKeys columnKeys, Object[] values) {
+            this.columnKeys = columnKeys;
+            this.values = values;
+        }
+
+        private Map<String, Object> expand() {
+            if (this.expandMap == null) {
+                Map<String, Object> expandMap = this.columnKeys.caseInsensitive ? new LinkedCaseInsensitiveMap<>(this.values.length) : new LinkedHashMap<>();
+                for (int i = 0; i < this.values.length; i++) {
+                    expandMap.put(this.columnKeys.columnKeys[i], this.values[i]);
+                }
+                this.expandMap = expandMap;
+            }
+            return this.expandMap;
+        }
+
+        @Override
+        public int size() {
+            return (this.expandMap != null) ? this.expandMap.size() : this.values.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return (this.expandMap != null) ? this.expandMap.containsKey(key) : this.columnKeys.indexOf(key) >= 0;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (this.expandMap != null) {
+                return this.expandMap.get(key);
+            }
+            int index = this.columnKeys.indexOf(key);
+            return (index >= 0) ? this.values[index] : null;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            int index = (this.expandMap == null) ? this.columnKeys.indexOf(key) : -1;
+            if (index >= 0) {
+                Object oldValue = this.values[index];
+                this.values[index] = value;
+                return oldValue;
+            }
+            return this.expand().put(key, value);
+        }
+
+        @Override
+        public Object remove(Object key) {
+            return this.expand().remove(key);
+        }
+
+        @Override
+        public void clear() {
+            this.expand().clear();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            if (this.expandMap != null) {
+                return this.expandMap.entrySet();
+            }
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    if (expandMap != null) {
+                        return expandMap.entrySet().iterator();
+                    }
+                    return new Iterator<Entry<String, Object>>() {
+                        private int index = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return this.index < values.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (this.index >= values.length) {
+                                throw new NoSuchElementException();
+                            }
+                            return new ColumnEntry(this.index++);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return ColumnRow.this.size();
+                }
+            };
+        }
+
+        private class ColumnEntry implements Entry<String, Object> {
+            private final int index;
+
+            ColumnEntry(int index) {
+                this.index = index;
+            }
+
+            @Override
+            public String getKey() {
+                return columnKeys.columnKeys[this.index];
+            }
+
+            @Override
+            public Object getValue() {
+                return values[this.index];
+            }
+
+            @Override
+            public Object setValue(Object value) {
+                Object oldValue = values[this.index];
+                values[this.index] = value;
+                return oldValue;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (!(o instanceof Entry)) {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                return Objects.equals(getKey(), entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+            }
+
+            @Override
+            public int hashCode() {
+                return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+            }
+
+            @Override
+            public String toString() {
+                return getKey() + "=" + getValue();
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.fx.db.runsql;
+import net.hasor.db.JdbcUtils;
+import net.hasor.db.jdbc.ConnectionCallback;
+import net.hasor.db.jdbc.core.JdbcTemplate;
+import net.hasor.db.jdbc.core.ParsedSql;
+import net.hasor.db.transaction.TranManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * 数据源的执行上下文，同一个数据源上的所有片段调用共享：
+ *  - JdbcTemplate 只创建一次。它不缓存 SQL 的解析结果：批量执行（多行 values 的语句随行数变化）、动态 SQL 会产生大量不同的语句，
+ *    JdbcTemplate 自带的缓存没有容量限制，共享之后会随着数据源的生命周期一直增长。
+ *  - 数据库类型（用于推断分页方言）和产品名称在第一次使用时通过一次连接读取，之后不再占用连接。
+ *  - 数据库发生切换（例如数据源被重新配置）时，通过 refresh 丢弃已读取的信息。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class DataSourceContext {
+    private final    DataSource   dataSource;
+    private final    JdbcTemplate jdbcTemplate;
+    private volatile DbMetaInfo   metaInfo;
+
+    public DataSourceContext(DataSource dataSource) {
+        this.dataSource = Objects.requireNonNull(dataSource, "dataSource is null.");
+        this.jdbcTemplate = new SharedJdbcTemplate(dataSource);
+    }
+
+    /** 数据源 */
+    public DataSource getDataSource() {
+        return this.dataSource;
+    }
+
+    /** 数据源对应的 JdbcTemplate */
+    public JdbcTemplate getJdbcTemplate() {
+        return this.jdbcTemplate;
+    }
+
+    /** 当前线程上是否绑定了这个数据源的连接（例如正在进行的事务），绑定时 JdbcTemplate 会使用这个连接 */
+    public boolean isThreadBound() {
+        return TranManager.currentConnectionHolder(this.dataSource).isOpen();
+    }
+
+    /** 数据库类型（JdbcUtils.getDbType 的结果），无法识别时返回 null */
+    public String getDbType() throws SQLException {
+        return this.metaInfo().dbType;
+    }
+
+    /** 数据库产品名称 */
+    public String getProductName() throws SQLException {
+        return this.metaInfo().productName;
+    }
+
+    /** 丢弃已读取的数据库信息，下一次使用时重新读取 */
+    public void refresh() {
+        this.metaInfo = null;
+    }
+
+    private DbMetaInfo metaInfo() throws SQLException {
+        DbMetaInfo metaInfo = this.metaInfo;
+        if (metaInfo == null) {
+            synchronized (this) {
+                metaInfo = this.metaInfo;
+                if (metaInfo == null) {
+                    metaInfo = this.jdbcTemplate.execute((ConnectionCallback<DbMetaInfo>) DbMetaInfo::new);
+                    this.metaInfo = metaInfo;
+                }
+            }
+        }
+        return metaInfo;
+    }
+
+    /** 不缓存 SQL 解析结果的 JdbcTemplate */
+    static class SharedJdbcTemplate extends JdbcTemplate {
+        public SharedJdbcTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        protected ParsedSql getParsedSql(String originalSql) {
+            return ParsedSql.getParsedSql(originalSql);
+        }
+    }
+
+    private static class DbMetaInfo {
+        private final String dbType;
+        private final String productName;
+
+        public DbMetaInfo(Connection con) throws SQLException {
+            DatabaseMetaData metaData = con.getMetaData();
+            this.dbType = JdbcUtils.getDbType(metaData.getURL(), metaData.getDriverName());
+            this.productName = metaData.getDatabaseProductName();
+        }
+    }
+}
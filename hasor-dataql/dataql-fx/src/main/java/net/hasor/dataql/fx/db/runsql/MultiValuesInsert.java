@@ -0,0 +1,146 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.fx.db.runsql;
+import net.hasor.db.JdbcUtils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 把单行的 <code>insert into t (a, b) values (?, ?)</code> 改写为多行 values 的语句：<code>insert into t (a, b) values (?, ?), (?, ?) ...</code>
+ * 只处理 values 是语句最后一部分、并且所有参数都在 values 中的 insert 语句，其它语句（insert ... select、on duplicate key update 等）不改写。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+class MultiValuesInsert {
+    /** 支持多行 values 的数据库 */
+    private static final Set<String> SUPPORT_DB_TYPES = new HashSet<>(Arrays.asList(//
+            JdbcUtils.MYSQL, JdbcUtils.MARIADB, JdbcUtils.POSTGRESQL, JdbcUtils.H2, JdbcUtils.HSQL, JdbcUtils.SQL_SERVER,//
+            JdbcUtils.DB2, JdbcUtils.SQLITE, JdbcUtils.OCEANBASE, JdbcUtils.POLARDB, JdbcUtils.KINGBASE));
+    private final        String      headString;   // values 之前的部分（包含 values）
+    private final        String      rowString;    // 一行的 values，例如：(?, ?)
+    private final        int         paramCount;   // 一行的参数个数
+
+    private MultiValuesInsert(String headString, String rowString, int paramCount) {
+        this.headString = headString;
+        this.rowString = rowString;
+        this.paramCount = paramCount;
+    }
+
+    /** 数据库是否支持多行 values */
+    public static boolean isSupport(String dbType) {
+        return dbType != null && SUPPORT_DB_TYPES.contains(dbType.toLowerCase());
+    }
+
+    /** 一条语句最多包含的行数（受数据库对单条语句参数个数的限制） */
+    public int maxRows(String dbType) {
+        int maxParams = 30000;
+        int maxRows = Integer.MAX_VALUE;
+        if (JdbcUtils.SQL_SERVER.equalsIgnoreCase(dbType)) {
+            maxParams = 2000;
+            maxRows = 1000;
+        } else if (JdbcUtils.SQLITE.equalsIgnoreCase(dbType)) {
+            maxParams = 999;
+        }
+        return Math.max(1, Math.min(maxRows, maxParams / Math.max(this.paramCount, 1)));
+    }
+
+    /** 分析 insert 语句，不能改写时返回 null */
+    public static MultiValuesInsert parse(String sqlString, int paramCount) {
+        int valuesAt = -1;
+        int groupStart = -1;
+        int groupEnd = -1;
+        int depth = 0;
+        int markCount = 0;
+        int length = sqlString.length();
+        for (int i = 0; i < length; i++) {
+            char c = sqlString.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int closeAt = sqlString.indexOf(c, i + 1);
+                if (closeAt < 0) {
+                    return null;
+                }
+                i = closeAt;
+            } else if (c == '-' && i + 1 < length && sqlString.charAt(i + 1) == '-') {
+                return null;// 带有注释的语句不改写
+            } else if (c == '/' && i + 1 < length && sqlString.charAt(i + 1) == '*') {
+                return null;
+            } else if (c == '(') {
+                if (depth == 0 && valuesAt >= 0 && groupStart < 0) {
+                    groupStart = i;
+                }
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0 && i > groupStart && groupStart >= 0 && groupEnd < 0) {
+                    groupEnd = i;
+                }
+            } else if (c == '?') {
+                if (groupStart < 0 || groupEnd >= 0) {
+                    return null;// values 之外有参数
+                }
+                markCount++;
+            } else if (depth == 0 && valuesAt < 0 && isKeyword(sqlString, i, "values")) {
+                valuesAt = i;
+                i += 5;
+            } else if (groupEnd >= 0 && !Character.isWhitespace(c) && c != ';') {
+                return null;// values 之后还有其它内容
+            } else if (valuesAt >= 0 && groupStart < 0 && !Character.isWhitespace(c)) {
+                return null;
+            }
+        }
+        if (groupEnd < 0 || markCount != paramCount || !isKeyword(sqlString.trim(), 0, "insert")) {
+            return null;
+        }
+        String headString = sqlString.substring(0, groupStart);
+        String rowString = sqlString.substring(groupStart, groupEnd + 1);
+        return new MultiValuesInsert(headString, rowString, paramCount);
+    }
+
+    private static boolean isKeyword(String sqlString, int index, String keyword) {
+        int end = index + keyword.length();
+        if (end > sqlString.length() || !sqlString.regionMatches(true, index, keyword, 0, keyword.length())) {
+            return false;
+        }
+        boolean startBoundary = index == 0 || !Character.isLetterOrDigit(sqlString.charAt(index - 1)) && sqlString.charAt(index - 1) != '_';
+        boolean endBoundary = end == sqlString.length() || !Character.isLetterOrDigit(sqlString.charAt(end)) && sqlString.charAt(end) != '_';
+        return startBoundary && endBoundary;
+    }
+
+    /** 包含 rowCount 行的语句 */
+    public String buildSql(int rowCount) {
+        StringBuilder builder = new StringBuilder(this.headString.length() + (this.rowString.length() + 2) * rowCount);
+        builder.append(this.headString);
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(this.rowString);
+        }
+        return builder.toString();
+    }
+
+    /** 多行的参数按顺序合并为一个数组 */
+    public Object[] buildArgs(List<Object[]> rowArgs) {
+        Object[] args = new Object[this.paramCount * rowArgs.size()];
+        for (int i = 0; i < rowArgs.size(); i++) {
+            System.arraycopy(rowArgs.get(i), 0, args, i * this.paramCount, this.paramCount);
+        }
+        return args;
+    }
+}
@@ -24,24 +24,24 @@ import net.hasor.dataql.Hints;
 import net.hasor.dataql.fx.FxHintNames;
 import net.hasor.dataql.fx.FxHintValue;
 import net.hasor.dataql.fx.basic.StringUdfSource;
+import net.hasor.dataql.fx.db.FxBatchChunkListener;
+import net.hasor.dataql.fx.db.FxBatchChunkListener.FxBatchChunk;
 import net.hasor.dataql.fx.db.FxSqlCheckChainSpi;
 import net.hasor.dataql.fx.db.FxSqlCheckChainSpi.FxSqlInfo;
 import net.hasor.dataql.fx.db.LookupConnectionListener;
 import net.hasor.dataql.fx.db.LookupDataSourceListener;
+import net.hasor.dataql.fx.db.runsql.SqlResultCache.ResultKey;
 import net.hasor.db.JdbcUtils;
 import net.hasor.db.dal.dynamic.BuilderContext;
+import net.hasor.db.dal.dynamic.DynamicParser;
 import net.hasor.db.dal.dynamic.DynamicSql;
 import net.hasor.db.dal.dynamic.QuerySqlBuilder;
-import net.hasor.db.dal.repository.MapperRegistry;
 import net.hasor.db.dialect.BoundSql;
 import net.hasor.db.dialect.SqlDialect;
 import net.hasor.db.dialect.SqlDialectRegister;
 import net.hasor.db.jdbc.*;
 import net.hasor.db.jdbc.core.ArgPreparedStatementSetter;
 import net.hasor.db.jdbc.core.JdbcTemplate;
-import net.hasor.db.jdbc.extractor.RowMapperResultSetExtractor;
-import net.hasor.db.jdbc.mapper.ColumnMapRowMapper;
-import net.hasor.utils.CommonCodeUtils;
 import net.hasor.utils.ExceptionUtils;
 import net.hasor.utils.StringUtils;
 import net.hasor.utils.io.IOUtils;
@@ -50,13 +50,14 @@ import javax.annotation.PostConstruct;
 import javax.sql.DataSource;
 import java.io.IOException;
 import java.io.StringReader;
-import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static net.hasor.dataql.fx.FxHintNames.*;
@@ -72,11 +73,14 @@ import static net.hasor.dataql.fx.FxHintValue.*;
 @Singleton
 public class SqlFragment implements FragmentProcess {
     @Inject
-    protected AppContext              appContext;
+    protected     AppContext                     appContext;
     @Inject
-    protected SpiTrigger              spiTrigger;
-    private   DataSource              defaultDataSource;
-    private   Map<String, DataSource> dataSourceMap;
+    protected     SpiTrigger                     spiTrigger;
+    private       DataSourceContext              defaultContext;
+    private       Map<String, DataSourceContext> dataSourceMap;
+    private final Map<String, DataSourceContext> lookupContextMap = new ConcurrentHashMap<>();
+    private final SqlFragmentCache               sqlCache         = new SqlFragmentCache();
+    private final SqlResultCache                 resultCache      = new SqlResultCache();
 
     /** SqlMode 目前只会在 '批量' 和 '分页' 两个场景下才参与判断。 */
     public static enum SqlMode {
@@ -95,64 +99,134 @@ public class SqlFragment implements FragmentProcess {
         Other,
     }
 
-    private static final ThreadLocal<ResultSetExtractor<List<Map<String, Object>>>> RESULT_EXTRACTOR = ThreadLocal.withInitial(() -> {
-        return new RowMapperResultSetExtractor<>(new ColumnMapRowMapper());
-    });
-
     @PostConstruct
     public void init() {
-        this.dataSourceMap = new HashMap<>();
+        Map<String, DataSourceContext> dataSourceMap = new HashMap<>();
         List<BindInfo<DataSource>> bindInfos = this.appContext.findBindingRegister(DataSource.class);
         for (BindInfo<DataSource> bindInfo : bindInfos) {
             if (StringUtils.isBlank(bindInfo.getBindName())) {
-                if (this.defaultDataSource == null) {
-                    this.defaultDataSource = this.appContext.getInstance(bindInfo);
+                if (this.defaultContext == null) {
+                    DataSource dataSource = this.appContext.getInstance(bindInfo);
+                    this.defaultContext = (dataSource != null) ? new DataSourceContext(dataSource) : null;
                 }
             } else {
                 DataSource dataSource = this.appContext.getInstance(bindInfo);
                 if (dataSource != null) {
-                    this.dataSourceMap.put(bindInfo.getBindName(), dataSource);
+                    dataSourceMap.put(bindInfo.getBindName(), new DataSourceContext(dataSource));
                 }
             }
         }
+        this.dataSourceMap = dataSourceMap;
     }
 
     protected JdbcTemplate getJdbcTemplate(String sourceName) {
-        // .首先尝试 Connection
-        if (this.spiTrigger.hasSpi(LookupConnectionListener.class)) {
-            // .通过 SPI 查找数据源
-            Connection jdbcConnection = this.spiTrigger.notifySpi(LookupConnectionListener.class, (listener, lastResult) -> {
-                return listener.lookUp(sourceName);
-            }, null);
-            // .构造JdbcTemplate
-            if (jdbcConnection != null) {
-                return new JdbcTemplate(jdbcConnection);
-            }
+        // .首先尝试 Connection（通过 SPI 获取的连接每次都不同，不做缓存）
+        Connection jdbcConnection = this.lookupConnection(sourceName);
+        if (jdbcConnection != null) {
+            return new JdbcTemplate(jdbcConnection);
         }
         // .其次在通过数据源获取
-        DataSource useDataSource = null;
+        return this.getDataSourceContext(sourceName).getJdbcTemplate();
+    }
+
+    /** 通过 SPI LookupConnectionListener 查找数据库连接，没有找到返回 null */
+    private Connection lookupConnection(String sourceName) {
+        if (!this.spiTrigger.hasSpi(LookupConnectionListener.class)) {
+            return null;
+        }
+        return this.spiTrigger.notifySpi(LookupConnectionListener.class, (listener, lastResult) -> {
+            return listener.lookUp(sourceName);
+        }, null);
+    }
+
+    /**
+     * 获取数据源的执行上下文（JdbcTemplate、数据库类型），同一个数据源上的所有片段调用共享同一个上下文。
+     * 通过 SPI LookupDataSourceListener 查找到的数据源按名字缓存，SPI 返回了不同的数据源时上下文随之更换。
+     */
+    public DataSourceContext getDataSourceContext(String sourceName) {
+        DataSourceContext dataSourceContext = this.findDataSourceContext(sourceName);
+        if (dataSourceContext == null) {
+            throw new NullPointerException("DataSource " + sourceName + " is undefined.");
+        }
+        return dataSourceContext;
+    }
+
+    /** 查找数据源的执行上下文，没有找到返回 null */
+    private DataSourceContext findDataSourceContext(String sourceName) {
+        DataSourceContext dataSourceContext = null;
         if (StringUtils.isBlank(sourceName)) {
-            useDataSource = this.defaultDataSource;
+            dataSourceContext = this.defaultContext;
         } else {
-            useDataSource = this.dataSourceMap.get(sourceName);
-        }
-        if (useDataSource == null) {
-            if (this.spiTrigger.hasSpi(LookupDataSourceListener.class)) {
-                // .通过 SPI 查找数据源
-                DataSource dataSource = this.spiTrigger.notifySpi(LookupDataSourceListener.class, (listener, lastResult) -> {
-                    return listener.lookUp(sourceName);
-                }, null);
-                // .构造JdbcTemplate
-                if (dataSource != null) {
-                    return new JdbcTemplate(dataSource);
+            dataSourceContext = this.dataSourceMap.get(sourceName);
+        }
+        if (dataSourceContext != null) {
+            return dataSourceContext;
+        }
+        if (this.spiTrigger.hasSpi(LookupDataSourceListener.class)) {
+            // .通过 SPI 查找数据源
+            DataSource dataSource = this.spiTrigger.notifySpi(LookupDataSourceListener.class, (listener, lastResult) -> {
+                return listener.lookUp(sourceName);
+            }, null);
+            if (dataSource != null) {
+                String lookupKey = StringUtils.isBlank(sourceName) ? "" : sourceName;
+                dataSourceContext = this.lookupContextMap.get(lookupKey);
+                if (dataSourceContext != null && dataSourceContext.getDataSource() == dataSource) {
+                    return dataSourceContext;
                 }
+                return this.lookupContextMap.compute(lookupKey, (key, oldContext) -> {
+                    if (oldContext != null && oldContext.getDataSource() == dataSource) {
+                        return oldContext;
+                    }
+                    return new DataSourceContext(dataSource);
+                });
             }
-            throw new NullPointerException("DataSource " + sourceName + " is undefined.");
         }
-        return new JdbcTemplate(useDataSource);
+        return null;
+    }
+
+    /**
+     * 片段是否依赖当前线程上绑定的连接：数据源在当前线程上绑定了连接（例如正在进行的事务），
+     * 或者通过 SPI LookupConnectionListener 获取连接（连接的生命周期由 SPI 管理，一律按照绑定处理）。
+     * 依赖当前线程时片段不会被 PARALLEL_FIELDS 交给其它线程执行，也不使用查询结果缓存。
+     */
+    @Override
+    public boolean isThreadBound(Hints hint) {
+        if (this.spiTrigger.hasSpi(LookupConnectionListener.class)) {
+            return true;
+        }
+        String sourceName = hint.getOrDefault(FRAGMENT_SQL_DATA_SOURCE.name(), "").toString();
+        DataSourceContext dataSourceContext = this.findDataSourceContext(sourceName);
+        return dataSourceContext != null && dataSourceContext.isThreadBound();
+    }
+
+    /** 写操作执行之后使涉及到的表上的查询结果缓存失效，在事务中执行时连接释放（提交或回滚）之后再失效一次 */
+    private void invalidateResultCache(String sourceName, String updateSqlString) {
+        DataSourceContext dataSourceContext = this.spiTrigger.hasSpi(LookupConnectionListener.class) ? null : this.findDataSourceContext(sourceName);
+        if (dataSourceContext != null && dataSourceContext.isThreadBound()) {
+            this.resultCache.invalidateOnRelease(updateSqlString, () -> !dataSourceContext.isThreadBound());
+        } else {
+            this.resultCache.invalidate(updateSqlString);
+        }
     }
 
+    /** 丢弃所有数据源已读取的数据库信息（下一次使用时重新读取），通过 SPI 查找到的数据源会被重新查找 */
+    public void refreshDataSourceContext() {
+        if (this.defaultContext != null) {
+            this.defaultContext.refresh();
+        }
+        this.dataSourceMap.values().forEach(DataSourceContext::refresh);
+        this.lookupContextMap.clear();
+    }
+
+    /**
+     * 批量执行（AUTO_BATCH_CALL 合并后的调用也会走到这里）。
+     *  - 不含占位符的 insert/update/delete 合并为一次 JDBC 批处理。
+     *  - 不含占位符的 <code>select ... where 列 = ?</code> 合并为 in 查询（FRAGMENT_SQL_BATCH_SELECT），结果按照列值拆分回每组参数。
+     *  - 其它语句按参数逐条执行。
+     */
+    @Override
     public List<Object> batchRunFragment(Hints hint, List<Map<String, Object>> params, String fragmentString) throws Throwable {
+        this.resultCache.releasePending();
         // 如果批量参数为空退：退化为 非批量
         if (params == null || params.size() == 0) {
             return Collections.singletonList(this.runFragment(hint, Collections.emptyMap(), fragmentString));
@@ -175,8 +249,14 @@ public class SqlFragment implements FragmentProcess {
             useBatch = (SqlMode.Insert == sqlMode || SqlMode.Update == sqlMode || SqlMode.Delete == sqlMode);
         }
         //
-        // --- 非批量模式
+        // --- 非批量模式（不能合并的 select 在这里逐条查询）
         if (!useBatch) {
+            if (!fxSql.isHavePlaceholder() && !usePage(hint) && useBatchSelect(hint)) {
+                List<Object> resultList = this.batchSelectFragment(fxSql, hint, params, tempFragmentString);
+                if (resultList != null) {
+                    return resultList;
+                }
+            }
             List<Object> resultList = new ArrayList<>(params.size());
             for (Map<String, Object> paramItem : params) {
                 if (usePage(hint)) {
@@ -195,25 +275,77 @@ public class SqlFragment implements FragmentProcess {
             QuerySqlBuilder builder = fxSql.buildQuery(new BuilderContext(paramItem));
             arrayList.add(builder.getArgs());
         }
+        int chunkSize = batchChunkSize(hint);
+        boolean continueOnError = batchContinueOnError(hint);
+        String dbType = useMultiValues(hint) ? this.findDbType(hint) : null;
+        Consumer<FxBatchChunk> chunkListener = null;
+        if (this.spiTrigger.hasSpi(FxBatchChunkListener.class)) {
+            chunkListener = chunkInfo -> this.spiTrigger.notifySpiWithoutResult(FxBatchChunkListener.class, listener -> {
+                listener.onChunk(chunkInfo);
+            });
+        }
+        Consumer<FxBatchChunk> finalChunkListener = chunkListener;
         return this.executeSQL(true, sourceName, tempFragmentString, arrayList.toArray(), (querySQL, paramArray, useJdbcTemplate) -> {
-            PreparedStatementSetter[] parameterArrays = Arrays.stream(paramArray).map(o -> {
-                return new ArgPreparedStatementSetter((Object[]) o);
-            }).toArray(PreparedStatementSetter[]::new);
-            int[] executeBatch = useJdbcTemplate.executeBatch(querySQL, new BatchPreparedStatementSetter() {
-                public void setValues(PreparedStatement ps, int i) throws SQLException {
-                    parameterArrays[i].setValues(ps);
-                }
+            List<Object[]> batchArgs = Arrays.stream(paramArray).map(o -> (Object[]) o).collect(Collectors.toList());
+            try {
+                return new ChunkedBatch(sourceName, querySQL, batchArgs, chunkSize, dbType, continueOnError, finalChunkListener).execute(useJdbcTemplate);
+            } finally {
+                this.invalidateResultCache(sourceName, querySQL);
+            }
+        });
+    }
 
-                public int getBatchSize() {
-                    return parameterArrays.length;
-                }
+    /** 把多组参数的 select 合并为 in 查询执行，结果按照条件列的值拆分回每组参数，不能合并时返回 null */
+    protected List<Object> batchSelectFragment(DynamicSql fxSql, Hints hint, List<Map<String, Object>> params, String sqlString) throws Throwable {
+        if (evalSqlMode(sqlString) != SqlMode.Query || !SqlTables.isSingleStatement(sqlString) || SqlTables.isLockingRead(sqlString)) {
+            return null;
+        }
+        BatchSelect batchSelect = BatchSelect.parse(sqlString);
+        if (batchSelect == null) {
+            return null;
+        }
+        List<Object> paramKeys = new ArrayList<>(params.size());
+        for (Map<String, Object> paramItem : params) {
+            Object[] args = fxSql.buildQuery(new BuilderContext(paramItem)).getArgs();
+            Object paramKey = (args.length == 1) ? BatchSelect.keyOf(args[0]) : null;
+            if (paramKey == null) {
+                return null;
+            }
+            paramKeys.add(paramKey);
+        }
+        if (!BatchSelect.isSupport(this.findDbType(hint))) {
+            return null;
+        }
+        //
+        // .每条语句最多 MAX_KEYS 个参数
+        String sourceName = hint.getOrDefault(FRAGMENT_SQL_DATA_SOURCE.name(), "").toString();
+        String caseModule = hint.getOrDefault(FRAGMENT_SQL_COLUMN_CASE.name(), FRAGMENT_SQL_COLUMN_CASE.getDefaultVal()).toString();
+        List<Object> distinctKeys = new ArrayList<>(new LinkedHashSet<>(paramKeys));
+        Map<Object, List<Map<String, Object>>> keyRows = new HashMap<>();
+        for (int fromIndex = 0; fromIndex < distinctKeys.size(); fromIndex += BatchSelect.MAX_KEYS) {
+            List<Object> chunkKeys = distinctKeys.subList(fromIndex, Math.min(fromIndex + BatchSelect.MAX_KEYS, distinctKeys.size()));
+            List<Object> rowKeys = new ArrayList<>();
+            List<Map<String, Object>> rows = this.executeSQL(sourceName, batchSelect.buildSql(chunkKeys.size()), chunkKeys.toArray(), (queryString, queryParams, useJdbcTemplate) -> {
+                return useJdbcTemplate.query(queryString, queryParams, rs -> new ColumnRowExtractor(caseModule).extractData(rs, rowKeys));
             });
-            return Arrays.stream(executeBatch).boxed().collect(Collectors.toList());
-        });
+            for (int i = 0; i < rows.size(); i++) {
+                Object rowKey = BatchSelect.keyOf(rowKeys.get(i));
+                if (rowKey == null) {
+                    return null; // 条件列不是数值，无法拆分
+                }
+                keyRows.computeIfAbsent(rowKey, key -> new ArrayList<>()).add(rows.get(i));
+            }
+        }
+        List<Object> resultList = new ArrayList<>(params.size());
+        for (Object paramKey : paramKeys) {
+            resultList.add(this.openPackage(hint, new ArrayList<>(keyRows.getOrDefault(paramKey, Collections.emptyList()))));
+        }
+        return resultList;
     }
 
     @Override
     public Object runFragment(Hints hint, Map<String, Object> paramMap, String fragmentString) throws Throwable {
+        this.resultCache.releasePending();
         DynamicSql fxSql = analysisSQL(hint, fragmentString);
         if (usePage(hint) && evalSqlMode(fragmentString) == SqlMode.Query) {
             return this.usePageFragment(fxSql, hint, paramMap);
@@ -222,20 +354,30 @@ public class SqlFragment implements FragmentProcess {
         }
     }
 
-    /** 分页模式 */
-    protected Object usePageFragment(DynamicSql fxSql, Hints hints, Map<String, Object> paramMap) throws SQLException {
-        // .优先从 hint 中取方言，取不到在自动推断
+    /** 数据库类型（方言），优先从 hint 中取方言，取不到在自动推断 */
+    protected String findDbType(Hints hints) throws SQLException {
         String sqlDialect = hints.getOrDefault(FRAGMENT_SQL_PAGE_DIALECT.name(), "").toString();
-        if (StringUtils.isBlank(sqlDialect)) {
-            String useDataSource = hints.getOrDefault(FRAGMENT_SQL_DATA_SOURCE.name(), "").toString();
-            sqlDialect = getJdbcTemplate(useDataSource).execute((ConnectionCallback<String>) con -> {
+        if (StringUtils.isNotBlank(sqlDialect)) {
+            return sqlDialect;
+        }
+        String useDataSource = hints.getOrDefault(FRAGMENT_SQL_DATA_SOURCE.name(), "").toString();
+        Connection jdbcConnection = this.lookupConnection(useDataSource);
+        if (jdbcConnection != null) {
+            return new JdbcTemplate(jdbcConnection).execute((ConnectionCallback<String>) con -> {
                 String jdbcUrl = con.getMetaData().getURL();
                 String jdbcDriverName = con.getMetaData().getDriverName();
                 return JdbcUtils.getDbType(jdbcUrl, jdbcDriverName);
             });
-            if (StringUtils.isBlank(sqlDialect)) {
-                throw new IllegalArgumentException("Query dialect missing.");
-            }
+        } else {
+            return this.getDataSourceContext(useDataSource).getDbType();
+        }
+    }
+
+    /** 分页模式 */
+    protected Object usePageFragment(DynamicSql fxSql, Hints hints, Map<String, Object> paramMap) throws SQLException {
+        String sqlDialect = this.findDbType(hints);
+        if (StringUtils.isBlank(sqlDialect)) {
+            throw new IllegalArgumentException("Query dialect missing.");
         }
         //
         final SqlDialect pageDialect = SqlDialectRegister.findOrCreate(sqlDialect, this.appContext);
@@ -255,6 +397,7 @@ public class SqlFragment implements FragmentProcess {
         BoundSql boundSql = fxSql.buildQuery(new BuilderContext(paramMap));
         String buildQueryString = boundSql.getSqlString();
         Object[] buildQueryParams = boundSql.getArgs();
+        SqlMode sqlMode = evalSqlMode(buildQueryString);
         // 使用 preparedCallback 执行查询
         return this.executeSQL(useSourceName, buildQueryString, buildQueryParams, (queryString, queryParams, useJdbcTemplate) -> {
             // 准备 preparedCallback
@@ -298,8 +441,28 @@ public class SqlFragment implements FragmentProcess {
                     return resultDataSet;
                 }
             };
-            // 执行查询
-            return useJdbcTemplate.execute(queryString, preparedCallback);
+            // 执行查询（单条 select 语句可以使用查询结果缓存，其它语句执行之后使涉及到的表上的缓存失效）
+            //  - 多条语句中 select 之后可能还有写操作，按照写操作处理。
+            //  - select ... for update 需要真正执行才能加锁，不使用缓存。
+            //  - 事务中（线程上绑定了连接）的查询需要读到事务内的修改，不使用缓存。
+            if (sqlMode == SqlMode.Query && SqlTables.isSingleStatement(queryString)) {
+                if (!useResultCache(hint) || SqlTables.isLockingRead(queryString) || this.isThreadBound(hint)) {
+                    return useJdbcTemplate.execute(queryString, preparedCallback);
+                }
+                ResultKey resultKey = new ResultKey(useSourceName, queryString, queryParams,//
+                        hint.getOrDefault(FRAGMENT_SQL_MULTIPLE_QUERIES.name(), FRAGMENT_SQL_MULTIPLE_QUERIES.getDefaultVal()).toString(),//
+                        hint.getOrDefault(FRAGMENT_SQL_COLUMN_CASE.name(), FRAGMENT_SQL_COLUMN_CASE.getDefaultVal()).toString(),//
+                        hint.getOrDefault(FRAGMENT_SQL_OPEN_PACKAGE.name(), FRAGMENT_SQL_OPEN_PACKAGE.getDefaultVal()).toString());
+                long cacheTtl = Long.parseLong(hint.getOrDefault(FRAGMENT_SQL_RESULT_CACHE_TTL.name(), FRAGMENT_SQL_RESULT_CACHE_TTL.getDefaultVal()).toString());
+                int cacheSize = Integer.parseInt(hint.getOrDefault(FRAGMENT_SQL_RESULT_CACHE_SIZE.name(), FRAGMENT_SQL_RESULT_CACHE_SIZE.getDefaultVal()).toString());
+                return this.resultCache.findOrLoad(fxSql, resultKey, cacheTtl, cacheSize, () -> {
+                    return useJdbcTemplate.execute(queryString, preparedCallback);
+                });
+            } else {
+                Object result = useJdbcTemplate.execute(queryString, preparedCallback);
+                this.invalidateResultCache(useSourceName, queryString);
+                return result;
+            }
         });
     }
 
@@ -334,26 +497,39 @@ public class SqlFragment implements FragmentProcess {
         public T doQuery(String querySQL, Object[] params, JdbcTemplate useJdbcTemplate) throws SQLException;
     }
 
-    /** 分析 SQL */
+    /** 查询结果缓存（FRAGMENT_SQL_RESULT_CACHE） */
+    public SqlResultCache getResultCache() {
+        return this.resultCache;
+    }
+
+    /** 已分析 SQL 片段的缓存 */
+    public SqlFragmentCache getSqlCache() {
+        return this.sqlCache;
+    }
+
+    /** 分析 SQL，分析结果会被缓存 */
     protected DynamicSql analysisSQL(Hints hint, String fragmentString) {
         try {
-            String sqlCacheId = CommonCodeUtils.MD5.getMD5(fragmentString);
-            DynamicSql dynamicSql = MapperRegistry.DEFAULT.findDynamicSql(SqlFragment.class, sqlCacheId);
-            if (dynamicSql != null) {
-                return dynamicSql;
-            } else {
-                MapperRegistry.DEFAULT.loadXmlString(SqlFragment.class.getName(), sqlCacheId, fragmentString);
-                dynamicSql = MapperRegistry.DEFAULT.findDynamicSql(SqlFragment.class, sqlCacheId);
-            }
-            return dynamicSql;
-        } catch (NoSuchAlgorithmException | IOException e) {
+            return this.sqlCache.findOrParse(fragmentString, this::parseSQL);
+        } catch (Exception e) {
             throw ExceptionUtils.toRuntime(e);
         }
     }
 
-    /** 结果转换 */
+    /** 解析 SQL 片段（不带 XML 标签的片段会被当作 select 语句处理），片段为空时返回 null */
+    protected DynamicSql parseSQL(String fragmentString) throws Exception {
+        if (StringUtils.isBlank(fragmentString)) {
+            return null;
+        }
+        String xmlString = fragmentString.trim();
+        if (!(xmlString.startsWith("<") && xmlString.endsWith(">"))) {
+            xmlString = "<select>" + xmlString + "</select>";
+        }
+        return new DynamicParser().parseDynamicSql(xmlString);
+    }
+
+    /** 结果转换：转换列名的大小写（FRAGMENT_SQL_COLUMN_CASE）后拆包 */
     protected Object convertResult(Hints hint, List<Map<String, Object>> mapList) {
-        String openPackage = hint.getOrDefault(FxHintNames.FRAGMENT_SQL_OPEN_PACKAGE.name(), FxHintNames.FRAGMENT_SQL_OPEN_PACKAGE.getDefaultVal()).toString();
         String caseModule = hint.getOrDefault(FxHintNames.FRAGMENT_SQL_COLUMN_CASE.name(), FxHintNames.FRAGMENT_SQL_COLUMN_CASE.getDefaultVal()).toString();
         if (!FRAGMENT_SQL_COLUMN_CASE_DEFAULT.equalsIgnoreCase(caseModule)) {
             final boolean toUpper = FRAGMENT_SQL_COLUMN_CASE_UPPER.equalsIgnoreCase(caseModule);
@@ -376,6 +552,12 @@ public class SqlFragment implements FragmentProcess {
                 mapList.set(i, newMap);
             }
         }
+        return this.openPackage(hint, mapList);
+    }
+
+    /** 按照 FRAGMENT_SQL_OPEN_PACKAGE 拆包（列名已经转换过） */
+    protected Object openPackage(Hints hint, List<Map<String, Object>> mapList) {
+        String openPackage = hint.getOrDefault(FxHintNames.FRAGMENT_SQL_OPEN_PACKAGE.name(), FxHintNames.FRAGMENT_SQL_OPEN_PACKAGE.getDefaultVal()).toString();
         //
         // .结果有多条记录,或者模式为 off，那么直接返回List
         boolean packageOff = FxHintValue.FRAGMENT_SQL_OPEN_PACKAGE_OFF.equalsIgnoreCase(openPackage);
@@ -405,6 +587,41 @@ public class SqlFragment implements FragmentProcess {
         return rowObject;
     }
 
+    /** 判断是否使用查询结果缓存 */
+    protected boolean useResultCache(Hints hint) {
+        FxHintNames resultCache = FxHintNames.FRAGMENT_SQL_RESULT_CACHE;
+        Object hintOrDefault = hint.getOrDefault(resultCache.name(), resultCache.getDefaultVal());
+        return FRAGMENT_SQL_RESULT_CACHE_ENABLE.equalsIgnoreCase(hintOrDefault.toString());
+    }
+
+    /** 批量模式中每个分块的参数组数，小于等于 0 表示不分块 */
+    protected int batchChunkSize(Hints hint) {
+        FxHintNames chunkSize = FxHintNames.FRAGMENT_SQL_BATCH_CHUNK_SIZE;
+        Object hintOrDefault = hint.getOrDefault(chunkSize.name(), chunkSize.getDefaultVal());
+        return Integer.parseInt(hintOrDefault.toString().trim());
+    }
+
+    /** 批量模式中的 insert 语句是否改写为多行 values */
+    protected boolean useMultiValues(Hints hint) {
+        FxHintNames multiValues = FxHintNames.FRAGMENT_SQL_BATCH_MULTI_VALUES;
+        Object hintOrDefault = hint.getOrDefault(multiValues.name(), multiValues.getDefaultVal());
+        return FRAGMENT_SQL_BATCH_MULTI_VALUES_ENABLE.equalsIgnoreCase(hintOrDefault.toString());
+    }
+
+    /** 批量模式中的 select 语句是否合并为 in 查询 */
+    protected boolean useBatchSelect(Hints hint) {
+        FxHintNames batchSelect = FxHintNames.FRAGMENT_SQL_BATCH_SELECT;
+        Object hintOrDefault = hint.getOrDefault(batchSelect.name(), batchSelect.getDefaultVal());
+        return FRAGMENT_SQL_BATCH_SELECT_ENABLE.equalsIgnoreCase(hintOrDefault.toString());
+    }
+
+    /** 批量模式中某个分块失败之后是否继续执行后面的分块 */
+    protected boolean batchContinueOnError(Hints hint) {
+        FxHintNames onError = FxHintNames.FRAGMENT_SQL_BATCH_ON_ERROR;
+        Object hintOrDefault = hint.getOrDefault(onError.name(), onError.getDefaultVal());
+        return FRAGMENT_SQL_BATCH_ON_ERROR_CONTINUE.equalsIgnoreCase(hintOrDefault.toString());
+    }
+
     /** 判断是否需要分页 */
     protected boolean usePage(Hints hint) {
         FxHintNames queryByPage = FxHintNames.FRAGMENT_SQL_QUERY_BY_PAGE;
@@ -477,8 +694,14 @@ public class SqlFragment implements FragmentProcess {
         return sqlMode;
     }
 
+    /** 结果集读取器，读取的同时按照 FRAGMENT_SQL_COLUMN_CASE 转换列名 */
+    protected ResultSetExtractor<List<Map<String, Object>>> resultExtractor(Hints hint) {
+        String caseModule = hint.getOrDefault(FxHintNames.FRAGMENT_SQL_COLUMN_CASE.name(), FxHintNames.FRAGMENT_SQL_COLUMN_CASE.getDefaultVal()).toString();
+        return new ColumnRowExtractor(caseModule);
+    }
+
     protected Object dataExtractor(Hints hint, ResultSet resultSet) throws SQLException {
-        List<Map<String, Object>> tempData = RESULT_EXTRACTOR.get().extractData(resultSet);
-        return convertResult(hint, tempData);
+        List<Map<String, Object>> resultData = this.resultExtractor(hint).extractData(resultSet);
+        return this.openPackage(hint, resultData);
     }
 }
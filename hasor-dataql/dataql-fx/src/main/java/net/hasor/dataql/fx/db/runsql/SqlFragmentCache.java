@@ -0,0 +1,173 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.fx.db.runsql;
+import net.hasor.db.dal.dynamic.DynamicSql;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 已分析 SQL 片段的缓存，缓存 Key 为片段内容本身。该类是线程安全的。
+ *  - 同一个查询每次执行传入的片段是同一个字符串对象，String 缓存了自身的 hashCode，equals 也会先比较引用，因此命中时不需要重新计算摘要或比较内容；
+ *    内容相同的不同字符串对象（例如重新编译的查询）会退化为按内容比较。
+ *  - 超出容量时淘汰最久未使用的条目，每次淘汰一批（容量的 1/8）以分摊排序的开销。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class SqlFragmentCache {
+    /** 默认缓存容量 */
+    public static final int                     DEFAULT_MAX_SIZE = 1024;
+    private final       Map<String, CacheEntry> cacheMap         = new ConcurrentHashMap<>();
+    private final       ReentrantLock           evictLock        = new ReentrantLock();
+    private volatile    int                     maxSize;
+    private final       LongAdder               hitCount         = new LongAdder();
+    private final       LongAdder               missCount        = new LongAdder();
+    private final       LongAdder               evictionCount    = new LongAdder();
+
+    /** 片段分析器 */
+    public static interface SqlParser {
+        /** 分析 SQL 片段，返回 null 表示片段为空 */
+        public DynamicSql parseSql(String fragmentString) throws Exception;
+    }
+
+    public SqlFragmentCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /** @param maxSize 最大缓存条目数，小于等于 0 表示禁用缓存 */
+    public SqlFragmentCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /** 查找已分析的 SQL 片段，不存在时使用 sqlParser 分析并放入缓存（分析过程不持有锁，并发分析同一个片段时以先放入缓存的为准） */
+    public DynamicSql findOrParse(String fragmentString, SqlParser sqlParser) throws Exception {
+        if (this.maxSize <= 0) {
+            this.missCount.increment();
+            return sqlParser.parseSql(fragmentString);
+        }
+        CacheEntry cacheEntry = this.cacheMap.get(fragmentString);
+        if (cacheEntry != null) {
+            this.hitCount.increment();
+            cacheEntry.lastAccess = System.nanoTime();
+            return cacheEntry.dynamicSql;
+        }
+        //
+        this.missCount.increment();
+        DynamicSql dynamicSql = sqlParser.parseSql(fragmentString);
+        if (dynamicSql == null) {
+            return null;
+        }
+        CacheEntry newEntry = new CacheEntry(dynamicSql, System.nanoTime());
+        CacheEntry oldEntry = this.cacheMap.putIfAbsent(fragmentString, newEntry);
+        if (oldEntry != null) {
+            return oldEntry.dynamicSql;
+        }
+        if (this.cacheMap.size() > this.maxSize) {
+            this.evictOverflow(false);
+        }
+        return dynamicSql;
+    }
+
+    /** 淘汰最久未使用的条目，force 为 false 时如果已有其它线程正在淘汰则直接返回 */
+    private void evictOverflow(boolean force) {
+        if (force) {
+            this.evictLock.lock();
+        } else if (!this.evictLock.tryLock()) {
+            return;
+        }
+        try {
+            int maxSize = Math.max(this.maxSize, 0);
+            if (this.cacheMap.size() <= maxSize) {
+                return;
+            }
+            List<Map.Entry<String, CacheEntry>> entryList = new ArrayList<>(this.cacheMap.entrySet());
+            entryList.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+            int keepSize = maxSize - (maxSize >> 3);
+            for (int i = 0; i < entryList.size() && this.cacheMap.size() > keepSize; i++) {
+                Map.Entry<String, CacheEntry> entry = entryList.get(i);
+                if (this.cacheMap.remove(entry.getKey(), entry.getValue())) {
+                    this.evictionCount.increment();
+                }
+            }
+        } finally {
+            this.evictLock.unlock();
+        }
+    }
+
+    /** 最大缓存条目数 */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /** 调整最大缓存条目数，小于等于 0 表示禁用缓存。缩小容量时会立刻淘汰最久未使用的条目。 */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        this.evictOverflow(true);
+    }
+
+    /** 当前缓存的条目数 */
+    public int size() {
+        return this.cacheMap.size();
+    }
+
+    /** 清空缓存（统计数据保留） */
+    public void clear() {
+        this.cacheMap.clear();
+    }
+
+    /** 命中次数 */
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    /** 未命中次数 */
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    /** 因容量限制而被淘汰的条目数 */
+    public long getEvictionCount() {
+        return this.evictionCount.sum();
+    }
+
+    /** 重置统计数据 */
+    public void resetStatistics() {
+        this.hitCount.reset();
+        this.missCount.reset();
+        this.evictionCount.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "SqlFragmentCache{size=" + size() + ", maxSize=" + this.maxSize +//
+                ", hit=" + getHitCount() + ", miss=" + getMissCount() + ", eviction=" + getEvictionCount() + "}";
+    }
+
+    private static class CacheEntry {
+        private final    DynamicSql dynamicSql;
+        private volatile long       lastAccess;
+
+        public CacheEntry(DynamicSql dynamicSql, long lastAccess) {
+            this.dynamicSql = dynamicSql;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -210,8 +210,8 @@ class SqlPageObject implements UdfSourceAssembly {
                 boundSql.getArgs(),     //
                 (querySQL, params, useJdbcTemplate) -> {
                     // 不直接使用 countFxSql, paramArrays 的原因是 doQuery 被调用的时会执行 FxSqlInterceptorChainSpi 拦截器。
-                    List<Map<String, Object>> resultData = useJdbcTemplate.queryForList(querySQL, params);
-                    return sourceSqlFragment.convertResult(hints, resultData);
+                    List<Map<String, Object>> resultData = useJdbcTemplate.query(querySQL, params, sourceSqlFragment.resultExtractor(hints));
+                    return sourceSqlFragment.openPackage(hints, resultData);
                 });
     }
 }
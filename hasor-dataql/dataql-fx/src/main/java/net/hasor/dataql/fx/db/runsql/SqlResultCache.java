@@ -0,0 +1,395 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.fx.db.runsql;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * SQL 片段的查询结果缓存（FRAGMENT_SQL_RESULT_CACHE），按照 SQL 片段分组，每个片段有各自的有效期和容量（LRU）。该类是线程安全的。
+ *  - 缓存 Key 为 数据源 + 最终执行的 SQL + 参数 + 影响结果形态的 Hint。
+ *  - 同一进程中 SqlFragment 执行的写操作会使涉及到的表上的缓存失效，无法分析出表名的写操作会使全部缓存失效。
+ *  - 在事务（线程上绑定的连接）中执行的写操作，在连接释放（提交或回滚）之前涉及到的表不再缓存新的结果，连接释放之后再失效一次。
+ *  - 缓存的结果会被多次查询共享，其中的 List、Map 被包装为只读视图。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class SqlResultCache {
+    /** 默认最多缓存结果的 SQL 片段数 */
+    public static final int                        DEFAULT_MAX_FRAGMENTS = 1024;
+    private final       Map<Object, FragmentCache> fragmentMap           = new ConcurrentHashMap<>();
+    private final       AtomicLong                 invalidateVersion     = new AtomicLong();
+    private volatile    int                        maxFragments;
+    private final       LongAdder                  hitCount              = new LongAdder();
+    private final       LongAdder                  missCount             = new LongAdder();
+    private final       LongAdder                  evictionCount         = new LongAdder();
+    private final       LongAdder                  invalidateCount       = new LongAdder();
+    private final       Map<String, AtomicInteger> pendingTables         = new ConcurrentHashMap<>();
+    private final       AtomicInteger              pendingAll            = new AtomicInteger();
+    private final       ThreadLocal<List<Pending>> localPending          = ThreadLocal.withInitial(ArrayList::new);
+
+    /** 执行查询 */
+    public static interface ResultLoader {
+        public Object load() throws SQLException;
+    }
+
+    public SqlResultCache() {
+        this(DEFAULT_MAX_FRAGMENTS);
+    }
+
+    /** @param maxFragments 最多缓存结果的 SQL 片段数 */
+    public SqlResultCache(int maxFragments) {
+        this.maxFragments = maxFragments;
+    }
+
+    /**
+     * 查找缓存的查询结果，不存在或者已过期时通过 loader 执行查询并放入缓存。
+     * 查询过程中如果发生了写操作引起的缓存失效，那么这次的查询结果不会被缓存（它可能是写操作之前的数据）。
+     * @param fragmentKey SQL 片段（分析之后的 DynamicSql）
+     * @param resultKey 缓存 Key
+     * @param ttl 有效期（毫秒）
+     * @param maxSize 这个 SQL 片段最多缓存的结果数
+     */
+    public Object findOrLoad(Object fragmentKey, ResultKey resultKey, long ttl, int maxSize, ResultLoader loader) throws SQLException {
+        if (ttl <= 0 || maxSize <= 0) {
+            return loader.load();
+        }
+        FragmentCache fragmentCache = this.fragmentMap.get(fragmentKey);
+        if (fragmentCache != null) {
+            CacheEntry cacheEntry = fragmentCache.get(resultKey);
+            if (cacheEntry != null) {
+                this.hitCount.increment();
+                return cacheEntry.result;
+            }
+        }
+        //
+        this.missCount.increment();
+        long version = this.invalidateVersion.get();
+        Object result = loader.load();
+        if (fragmentCache == null) {
+            fragmentCache = this.fragmentMap.computeIfAbsent(fragmentKey, key -> new FragmentCache());
+            if (this.fragmentMap.size() > this.maxFragments) {
+                this.evictFragments(fragmentKey);
+            }
+        }
+        Set<String> tables = SqlTables.queryTables(resultKey.sqlString);
+        CacheEntry cacheEntry = new CacheEntry(readOnly(result), System.currentTimeMillis() + ttl, tables);
+        synchronized (fragmentCache) {
+            if (version == this.invalidateVersion.get() && !this.isPending(tables)) {
+                this.evictionCount.add(fragmentCache.put(resultKey, cacheEntry, maxSize));
+            }
+        }
+        return cacheEntry.result;
+    }
+
+    /** 把结果中的 List、Map 包装为只读视图（结果会被多次查询共享） */
+    private static Object readOnly(Object result) {
+        if (result instanceof List) {
+            List<Object> list = new ArrayList<>((List<?>) result);
+            list.replaceAll(SqlResultCache::readOnly);
+            return Collections.unmodifiableList(list);
+        }
+        if (result instanceof Map) {
+            return Collections.unmodifiableMap((Map<?, ?>) result);
+        }
+        return result;
+    }
+
+    /** 读取这些表（null 表示无法确定）的查询是否有尚未提交的写操作 */
+    private boolean isPending(Set<String> tables) {
+        if (this.pendingAll.get() > 0) {
+            return true;
+        }
+        if (tables == null) {
+            return !this.pendingTables.isEmpty();
+        }
+        for (String table : tables) {
+            if (this.pendingTables.containsKey(table)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 淘汰最久未使用的 SQL 片段（不淘汰 keepKey，它是刚刚创建的片段） */
+    private void evictFragments(Object keepKey) {
+        Object eldestKey = null;
+        long eldestAccess = Long.MAX_VALUE;
+        for (Map.Entry<Object, FragmentCache> entry : this.fragmentMap.entrySet()) {
+            if (entry.getValue().lastAccess < eldestAccess && !entry.getKey().equals(keepKey)) {
+                eldestKey = entry.getKey();
+                eldestAccess = entry.getValue().lastAccess;
+            }
+        }
+        if (eldestKey != null) {
+            FragmentCache fragmentCache = this.fragmentMap.remove(eldestKey);
+            if (fragmentCache != null) {
+                this.evictionCount.add(fragmentCache.size());
+            }
+        }
+    }
+
+    /** 写操作执行之后调用，使写操作涉及到的表上的缓存失效 */
+    public void invalidate(String updateSqlString) {
+        if (this.fragmentMap.isEmpty()) {
+            return;
+        }
+        this.invalidateTables(SqlTables.updateTables(updateSqlString));
+    }
+
+    /**
+     * 在事务（线程上绑定的连接）中执行写操作之后调用。立即使涉及到的表上的缓存失效，并且在 released 返回 true 之前这些表不再缓存新的结果，
+     * 连接释放之后（由当前线程的下一次 {@link #releasePending()} 发现）再失效一次，丢弃提交之前读取到的旧数据。
+     * @param released 线程上绑定的连接是否已经释放（事务已经提交或回滚）
+     */
+    public void invalidateOnRelease(String updateSqlString, BooleanSupplier released) {
+        Set<String> tables = SqlTables.updateTables(updateSqlString);
+        if (tables == null) {
+            this.pendingAll.incrementAndGet();
+        } else {
+            tables.forEach(table -> this.pendingTables.computeIfAbsent(table, key -> new AtomicInteger()).incrementAndGet());
+        }
+        this.localPending.get().add(new Pending(tables, released));
+        this.invalidateTables(tables);
+    }
+
+    /** 检查当前线程上尚未提交的写操作，连接已经释放的使涉及到的表上的缓存再失效一次 */
+    public void releasePending() {
+        List<Pending> pendingList = this.localPending.get();
+        if (pendingList.isEmpty()) {
+            return;
+        }
+        Iterator<Pending> iterator = pendingList.iterator();
+        while (iterator.hasNext()) {
+            Pending pending = iterator.next();
+            if (!pending.released.getAsBoolean()) {
+                continue;
+            }
+            iterator.remove();
+            this.invalidateTables(pending.tables);
+            if (pending.tables == null) {
+                this.pendingAll.decrementAndGet();
+            } else {
+                pending.tables.forEach(table -> this.pendingTables.computeIfPresent(table, (key, count) -> {
+                    return (count.decrementAndGet() <= 0) ? null : count;
+                }));
+            }
+        }
+    }
+
+    /** 使涉及到这些表的缓存失效，tables 为 null 时全部缓存失效 */
+    public void invalidateTables(Set<String> tables) {
+        this.invalidateVersion.incrementAndGet();
+        for (FragmentCache fragmentCache : this.fragmentMap.values()) {
+            synchronized (fragmentCache) {
+                this.invalidateCount.add(fragmentCache.invalidate(tables));
+            }
+        }
+    }
+
+    /** 当前缓存的查询结果数 */
+    public int size() {
+        int size = 0;
+        for (FragmentCache fragmentCache : this.fragmentMap.values()) {
+            synchronized (fragmentCache) {
+                size += fragmentCache.size();
+            }
+        }
+        return size;
+    }
+
+    /** 清空缓存（统计数据保留） */
+    public void clear() {
+        this.invalidateVersion.incrementAndGet();
+        this.fragmentMap.clear();
+    }
+
+    /** 最多缓存结果的 SQL 片段数 */
+    public int getMaxFragments() {
+        return this.maxFragments;
+    }
+
+    /** 调整最多缓存结果的 SQL 片段数 */
+    public void setMaxFragments(int maxFragments) {
+        this.maxFragments = maxFragments;
+        while (this.fragmentMap.size() > Math.max(maxFragments, 0)) {
+            this.evictFragments(null);
+        }
+    }
+
+    /** 命中次数 */
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    /** 未命中次数（包括已过期） */
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    /** 因容量限制而被淘汰的结果数 */
+    public long getEvictionCount() {
+        return this.evictionCount.sum();
+    }
+
+    /** 因写操作而失效的结果数 */
+    public long getInvalidateCount() {
+        return this.invalidateCount.sum();
+    }
+
+    /** 重置统计数据 */
+    public void resetStatistics() {
+        this.hitCount.reset();
+        this.missCount.reset();
+        this.evictionCount.reset();
+        this.invalidateCount.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "SqlResultCache{size=" + size() + ", fragments=" + this.fragmentMap.size() + ", hit=" + getHitCount() +//
+                ", miss=" + getMissCount() + ", eviction=" + getEvictionCount() + ", invalidate=" + getInvalidateCount() + "}";
+    }
+
+    /** 缓存 Key：数据源 + 最终执行的 SQL + 参数 + 影响结果形态的 Hint */
+    public static class ResultKey {
+        private final String   sourceName;
+        private final String   sqlString;
+        private final Object[] args;
+        private final String[] resultHints;
+        private final int      hashCode;
+
+        public ResultKey(String sourceName, String sqlString, Object[] args, String... resultHints) {
+            this.sourceName = Objects.requireNonNull(sourceName, "sourceName is null.");
+            this.sqlString = Objects.requireNonNull(sqlString, "sqlString is null.");
+            this.args = (args == null) ? new Object[0] : args.clone();
+            this.resultHints = resultHints;
+            this.hashCode = Objects.hash(this.sourceName, this.sqlString, Arrays.deepHashCode(this.args), Arrays.hashCode(this.resultHints));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ResultKey)) {
+                return false;
+            }
+            ResultKey resultKey = (ResultKey) o;
+            return this.hashCode == resultKey.hashCode &&//
+                    this.sourceName.equals(resultKey.sourceName) &&//
+                    this.sqlString.equals(resultKey.sqlString) &&//
+                    Arrays.deepEquals(this.args, resultKey.args) &&//
+                    Arrays.equals(this.resultHints, resultKey.resultHints);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+
+    /** 尚未提交的写操作 */
+    private static class Pending {
+        private final Set<String>     tables;   // 修改的表，null 表示无法确定
+        private final BooleanSupplier released;
+
+        public Pending(Set<String> tables, BooleanSupplier released) {
+            this.tables = tables;
+            this.released = released;
+        }
+    }
+
+    private static class CacheEntry {
+        private final Object      result;
+        private final long        expireTime;
+        private final Set<String> tables;     // 查询读取的表，null 表示无法确定
+
+        public CacheEntry(Object result, long expireTime, Set<String> tables) {
+            this.result = result;
+            this.expireTime = expireTime;
+            this.tables = tables;
+        }
+
+        boolean isExpired(long currentTime) {
+            return currentTime >= this.expireTime;
+        }
+
+        boolean isReadFrom(Set<String> updateTables) {
+            if (updateTables == null || this.tables == null) {
+                return true;
+            }
+            for (String table : updateTables) {
+                if (this.tables.contains(table)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** 一个 SQL 片段的缓存（LRU），访问需要持有它自身的锁 */
+    private static class FragmentCache {
+        private final    Map<ResultKey, CacheEntry> entryMap   = new LinkedHashMap<>(16, 0.75f, true);
+        private volatile long                       lastAccess = System.currentTimeMillis();
+
+        synchronized CacheEntry get(ResultKey resultKey) {
+            long currentTime = System.currentTimeMillis();
+            this.lastAccess = currentTime;
+            CacheEntry cacheEntry = this.entryMap.get(resultKey);
+            if (cacheEntry != null && cacheEntry.isExpired(currentTime)) {
+                this.entryMap.remove(resultKey);
+                return null;
+            }
+            return cacheEntry;
+        }
+
+        /** 放入缓存，返回被淘汰的条目数 */
+        int put(ResultKey resultKey, CacheEntry cacheEntry, int maxSize) {
+            this.lastAccess = System.currentTimeMillis();
+            this.entryMap.put(resultKey, cacheEntry);
+            int evictCount = 0;
+            Iterator<CacheEntry> iterator = this.entryMap.values().iterator();
+            while (this.entryMap.size() > maxSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictCount++;
+            }
+            return evictCount;
+        }
+
+        /** 删除读取了这些表的条目，返回删除的条目数 */
+        int invalidate(Set<String> updateTables) {
+            int removeCount = 0;
+            Iterator<CacheEntry> iterator = this.entryMap.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isReadFrom(updateTables)) {
+                    iterator.remove();
+                    removeCount++;
+                }
+            }
+            return removeCount;
+        }
+
+        int size() {
+            return this.entryMap.size();
+        }
+    }
+}
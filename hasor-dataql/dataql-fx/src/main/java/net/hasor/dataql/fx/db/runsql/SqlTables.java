@@ -0,0 +1,246 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.fx.db.runsql;
+import java.util.*;
+
+/**
+ * 从 SQL 语句中粗略地分析出涉及到的表名（只用于查询结果缓存的失效判断）。
+ * 表名会去掉引号和 schema 部分并转为小写，无法确定时返回 null，由调用者按照“涉及所有表”处理。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+final class SqlTables {
+    /** 出现在表名之后，说明后面不是别名 */
+    private static final Set<String> CLAUSE_WORDS = new HashSet<>(Arrays.asList(//
+            "where", "join", "inner", "left", "right", "full", "cross", "outer", "natural", "straight_join", "on", "using",//
+            "group", "order", "having", "limit", "offset", "fetch", "union", "except", "intersect", "minus", "for", "window",//
+            "set", "values", "select", "lateral", "with"));
+
+    private SqlTables() {
+    }
+
+    /** 查询语句读取的表，无法确定时返回 null */
+    public static Set<String> queryTables(String sqlString) {
+        List<String> tokens = tokenize(sqlString);
+        Set<String> tables = new HashSet<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if ("from".equals(token)) {
+                i = readTableList(tokens, i + 1, tables, true) - 1;
+            } else if ("join".equals(token) || "straight_join".equals(token)) {
+                i = readTableList(tokens, i + 1, tables, false) - 1;
+            }
+        }
+        return tables.isEmpty() ? null : tables;
+    }
+
+    /** 是否为单条语句（分号之后没有其它内容） */
+    public static boolean isSingleStatement(String sqlString) {
+        if (sqlString.indexOf(';') < 0) {
+            return true;
+        }
+        List<String> tokens = tokenize(sqlString);
+        int semicolon = tokens.indexOf(";");
+        for (int i = semicolon + 1; semicolon >= 0 && i < tokens.size(); i++) {
+            if (!";".equals(tokens.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** 是否为加锁读（select ... for update、for share、lock in share mode），这类查询不能使用缓存的结果 */
+    public static boolean isLockingRead(String sqlString) {
+        List<String> tokens = tokenize(sqlString);
+        for (int i = 0; i + 1 < tokens.size(); i++) {
+            String token = tokens.get(i);
+            String next = tokens.get(i + 1);
+            if ("for".equals(token) && ("update".equals(next) || "share".equals(next))) {
+                return true;
+            }
+            if ("lock".equals(token) && "in".equals(next)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 写操作语句（insert、update、delete、replace、truncate、create/drop/alter table）修改的表，无法确定时返回 null */
+    public static Set<String> updateTables(String sqlString) {
+        List<String> tokens = tokenize(sqlString);
+        Set<String> tables = new HashSet<>();
+        int start = 0;
+        while (start < tokens.size()) {
+            int end = start;
+            while (end < tokens.size() && !";".equals(tokens.get(end))) {
+                end++;
+            }
+            if (end > start && !readUpdateTables(tokens.subList(start, end), tables)) {
+                return null;
+            }
+            start = end + 1;
+        }
+        return tables.isEmpty() ? null : tables;
+    }
+
+    private static boolean readUpdateTables(List<String> tokens, Set<String> tables) {
+        String command = tokens.get(0);
+        int tableIndex = -1;
+        switch (command) {
+            case "insert":
+            case "replace":
+                tableIndex = tokens.indexOf("into") + 1;
+                break;
+            case "update":
+                tableIndex = 1;
+                while (tableIndex < tokens.size() && isModifier(tokens.get(tableIndex))) {
+                    tableIndex++;
+                }
+                break;
+            case "delete":
+                tableIndex = tokens.indexOf("from") + 1;
+                break;
+            case "truncate":
+                tableIndex = "table".equals(tokens.size() > 1 ? tokens.get(1) : null) ? 2 : 1;
+                break;
+            case "create":
+            case "drop":
+            case "alter":
+                tableIndex = tokens.indexOf("table") + 1;
+                while (tableIndex > 0 && tableIndex < tokens.size() && isModifier(tokens.get(tableIndex))) {
+                    tableIndex++;
+                }
+                break;
+            default:
+                return false;
+        }
+        if (tableIndex <= 0 || tableIndex >= tokens.size()) {
+            return false;
+        }
+        // .update 语句的多个表（update a, b set ...）与 delete 语句的 join 都按照 from 子句读取
+        int endIndex = readTableList(tokens, tableIndex, tables, !"insert".equals(command) && !"replace".equals(command));
+        if (endIndex == tableIndex) {
+            return false;
+        }
+        for (int i = endIndex; i < tokens.size(); i++) {
+            if ("join".equals(tokens.get(i))) {
+                readTableList(tokens, i + 1, tables, false);
+            }
+        }
+        return true;
+    }
+
+    private static boolean isModifier(String token) {
+        return "low_priority".equals(token) || "ignore".equals(token) || "only".equals(token) ||//
+                "if".equals(token) || "not".equals(token) || "exists".equals(token) || "temporary".equals(token);
+    }
+
+    /** 读取表名列表（带有别名，multiple 为 true 时允许逗号分隔多个表），返回读取结束的位置 */
+    private static int readTableList(List<String> tokens, int index, Set<String> tables, boolean multiple) {
+        while (index < tokens.size()) {
+            String tableName = tokens.get(index);
+            if (!isIdentifier(tableName) || CLAUSE_WORDS.contains(tableName)) {
+                return index; // 子查询 from (select ...) 中的表由子查询的 from 读取
+            }
+            tables.add(normalize(tableName));
+            index++;
+            // .跳过别名
+            if (index < tokens.size() && "as".equals(tokens.get(index))) {
+                index++;
+            }
+            if (index < tokens.size() && isIdentifier(tokens.get(index)) && !CLAUSE_WORDS.contains(tokens.get(index))) {
+                index++;
+            }
+            if (multiple && index < tokens.size() && ",".equals(tokens.get(index))) {
+                index++;
+                continue;
+            }
+            return index;
+        }
+        return index;
+    }
+
+    private static boolean isIdentifier(String token) {
+        char first = token.charAt(0);
+        return Character.isLetter(first) || first == '_' || first == '`' || first == '"' || first == '[';
+    }
+
+    private static String normalize(String tableName) {
+        StringBuilder builder = new StringBuilder(tableName.length());
+        for (char c : tableName.toCharArray()) {
+            if (c == '.') {
+                builder.setLength(0);// 去掉 schema 部分
+            } else if (c != '`' && c != '"' && c != '[' && c != ']') {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /** 拆分为小写的单词和符号，去掉注释与字符串常量 */
+    static List<String> tokenize(String sqlString) {
+        List<String> tokens = new ArrayList<>();
+        String sql = sqlString.toLowerCase();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int lineEnd = sql.indexOf('\n', i);
+                i = (lineEnd < 0) ? length : lineEnd + 1;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int commentEnd = sql.indexOf("*/", i + 2);
+                i = (commentEnd < 0) ? length : commentEnd + 2;
+            } else if (c == '\'') {
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                tokens.add("'");
+            } else if (Character.isLetter(c) || c == '_' || c == '`' || c == '"' || c == '[') {
+                // .标识符，可以带有 schema 和引号，例如：`db`.`user`
+                int start = i;
+                while (i < length) {
+                    char t = sql.charAt(i);
+                    if (t == '`' || t == '"' || t == '[') {
+                        char close = (t == '[') ? ']' : t;
+                        int closeAt = sql.indexOf(close, i + 1);
+                        i = (closeAt < 0) ? length : closeAt + 1;
+                    } else if (Character.isLetterOrDigit(t) || t == '_' || t == '$' || t == '.') {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                tokens.add(sql.substring(start, i));
+            } else {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+}
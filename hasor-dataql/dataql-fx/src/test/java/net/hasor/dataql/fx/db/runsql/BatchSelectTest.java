@@ -0,0 +1,61 @@
+package net.hasor.dataql.fx.db.runsql;
+import net.hasor.db.JdbcUtils;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+public class BatchSelectTest {
+    @Test
+    public void parse_1_Test() {
+        BatchSelect batchSelect = BatchSelect.parse("select * from child where pid = ?");
+        assert batchSelect != null;
+        assert batchSelect.buildSql(1).equals("select *, pid from child where pid in (?)");
+        assert batchSelect.buildSql(3).equals("select *, pid from child where pid in (?, ?, ?)");
+        //
+        batchSelect = BatchSelect.parse("SELECT c.id, c.name FROM child c JOIN `parent` p ON p.id = c.pid\n WHERE p.id=? ;");
+        assert batchSelect != null;
+        assert batchSelect.buildSql(2).equals("select c.id, c.name, p.id from child c JOIN `parent` p ON p.id = c.pid where p.id in (?, ?)");
+        // .from 中的子查询
+        batchSelect = BatchSelect.parse("select * from (select * from s where x = 1) t where t.pid = ?");
+        assert batchSelect.buildSql(1).equals("select *, t.pid from (select * from s where x = 1) t where t.pid in (?)");
+    }
+
+    @Test
+    public void reject_1_Test() {
+        // .条件不是最后一部分、不是唯一条件、不是等值条件
+        assert BatchSelect.parse("select * from t where pid = ? order by id") == null;
+        assert BatchSelect.parse("select * from t where pid = ? limit 10") == null;
+        assert BatchSelect.parse("select * from t where a = 1 and pid = ?") == null;
+        assert BatchSelect.parse("select * from t where pid > ?") == null;
+        assert BatchSelect.parse("select * from t where id in (select id from s where pid = ?)") == null;
+        assert BatchSelect.parse("select * from t") == null;
+        // .函数（聚合）、distinct、union、字符串、注释
+        assert BatchSelect.parse("select count(*) from t where pid = ?") == null;
+        assert BatchSelect.parse("select distinct name from t where pid = ?") == null;
+        assert BatchSelect.parse("select a from s union select a from t where pid = ?") == null;
+        assert BatchSelect.parse("select * from t where name = 'x' and pid = ?") == null;
+        assert BatchSelect.parse("select * from t /* c */ where pid = ?") == null;
+    }
+
+    @Test
+    public void keyOf_1_Test() {
+        assert BatchSelect.keyOf(1).equals(BatchSelect.keyOf(1L));
+        assert BatchSelect.keyOf(1).equals(BatchSelect.keyOf(new BigDecimal("1.00")));
+        assert BatchSelect.keyOf(50).equals(BatchSelect.keyOf(new BigDecimal("5E+1")));
+        assert BatchSelect.keyOf(new BigInteger("7")).equals(BatchSelect.keyOf((short) 7));
+        assert !BatchSelect.keyOf(1).equals(BatchSelect.keyOf(2));
+        // .字符串、浮点数不合并
+        assert BatchSelect.keyOf("1") == null;
+        assert BatchSelect.keyOf(1.0d) == null;
+        assert BatchSelect.keyOf(null) == null;
+    }
+
+    @Test
+    public void support_1_Test() {
+        assert BatchSelect.isSupport(JdbcUtils.MYSQL);
+        assert BatchSelect.isSupport("PostgreSQL");
+        assert !BatchSelect.isSupport(JdbcUtils.ORACLE);
+        assert !BatchSelect.isSupport(null);
+    }
+}
@@ -0,0 +1,191 @@
+package net.hasor.dataql.fx.db.runsql;
+import net.hasor.dataql.fx.db.FxBatchChunkListener.FxBatchChunk;
+import net.hasor.db.JdbcUtils;
+import net.hasor.db.jdbc.BatchPreparedStatementSetter;
+import net.hasor.db.jdbc.PreparedStatementSetter;
+import net.hasor.db.jdbc.core.JdbcTemplate;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ChunkedBatchTest {
+    /** 记录每次执行的 SQL 和参数，第 failAt 次执行时失败（从 0 开始，-1 表示不失败） */
+    private static class RecordJdbcTemplate extends JdbcTemplate {
+        private final List<String>       sqlList  = new ArrayList<>();
+        private final List<List<Object>> argsList = new ArrayList<>();
+        private final int                failAt;
+
+        RecordJdbcTemplate(int failAt) {
+            this.failAt = failAt;
+        }
+
+        private static PreparedStatement recordStatement(List<Object> args) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, (p, method, params) -> {
+                if (method.getName().startsWith("set") && params != null && params.length >= 2) {
+                    args.add(params[1]);
+                }
+                return null;
+            });
+        }
+
+        @Override
+        public int[] executeBatch(String sql, BatchPreparedStatementSetter pss) throws SQLException {
+            List<Object> args = new ArrayList<>();
+            PreparedStatement ps = recordStatement(args);
+            for (int i = 0; i < pss.getBatchSize(); i++) {
+                pss.setValues(ps, i);
+            }
+            this.sqlList.add(sql);
+            this.argsList.add(args);
+            if (this.sqlList.size() - 1 == this.failAt) {
+                throw new BatchUpdateException("failed.", new int[] { 1 }); // 只有第一组参数执行成功
+            }
+            int[] updateCounts = new int[pss.getBatchSize()];
+            Arrays.fill(updateCounts, 1);
+            return updateCounts;
+        }
+
+        @Override
+        public int executeUpdate(String sql, PreparedStatementSetter pss) throws SQLException {
+            List<Object> args = new ArrayList<>();
+            pss.setValues(recordStatement(args));
+            this.sqlList.add(sql);
+            this.argsList.add(args);
+            if (this.sqlList.size() - 1 == this.failAt) {
+                throw new SQLException("failed.");
+            }
+            return args.size();
+        }
+    }
+
+    private static List<Object[]> batchArgs(int size) {
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            batchArgs.add(new Object[] { "v" + i });
+        }
+        return batchArgs;
+    }
+
+    @Test
+    public void chunk_1_Test() throws SQLException {
+        RecordJdbcTemplate jdbcTemplate = new RecordJdbcTemplate(-1);
+        List<FxBatchChunk> chunkList = new ArrayList<>();
+        String querySQL = "insert into t (a) values (?)";
+        List<Object> result = new ChunkedBatch("ds", querySQL, batchArgs(10), 4, null, false, chunkList::add).execute(jdbcTemplate);
+        //
+        assert result.equals(Collections.nCopies(10, 1));
+        assert jdbcTemplate.sqlList.equals(Collections.nCopies(3, querySQL));
+        assert jdbcTemplate.argsList.get(0).equals(Arrays.asList("v0", "v1", "v2", "v3"));
+        assert jdbcTemplate.argsList.get(2).equals(Arrays.asList("v8", "v9"));
+        assert chunkList.size() == 3;
+        int[][] chunkRanges = new int[][] { { 0, 4 }, { 4, 8 }, { 8, 10 } };
+        for (int i = 0; i < chunkList.size(); i++) {
+            FxBatchChunk chunk = chunkList.get(i);
+            assert chunk.getChunkIndex() == i && chunk.getChunkCount() == 3;
+            assert chunk.getFromIndex() == chunkRanges[i][0] && chunk.getToIndex() == chunkRanges[i][1];
+            assert chunk.isSuccess() && !chunk.isMultiValues() && "ds".equals(chunk.getSourceName());
+        }
+    }
+
+    @Test
+    public void chunk_2_Test() throws SQLException {
+        // .不分块、刚好整除、参数比分块少
+        RecordJdbcTemplate jdbcTemplate = new RecordJdbcTemplate(-1);
+        new ChunkedBatch("", "insert into t (a) values (?)", batchArgs(10), 0, null, false, null).execute(jdbcTemplate);
+        new ChunkedBatch("", "insert into t (a) values (?)", batchArgs(10), 5, null, false, null).execute(jdbcTemplate);
+        new ChunkedBatch("", "insert into t (a) values (?)", batchArgs(3), 5, null, false, null).execute(jdbcTemplate);
+        assert jdbcTemplate.argsList.size() == 4;
+        assert jdbcTemplate.argsList.get(0).size() == 10;
+        assert jdbcTemplate.argsList.get(1).size() == 5 && jdbcTemplate.argsList.get(2).size() == 5;
+        assert jdbcTemplate.argsList.get(3).size() == 3;
+        //
+        List<Object> result = new ChunkedBatch("", "insert into t (a) values (?)", batchArgs(0), 5, JdbcUtils.MYSQL, false, null).execute(jdbcTemplate);
+        assert result.isEmpty() && jdbcTemplate.argsList.size() == 4;
+    }
+
+    @Test
+    public void multiValues_1_Test() throws SQLException {
+        RecordJdbcTemplate jdbcTemplate = new RecordJdbcTemplate(-1);
+        List<FxBatchChunk> chunkList = new ArrayList<>();
+        List<Object> result = new ChunkedBatch("", "insert into t (a) values (?)", batchArgs(5), 2, JdbcUtils.MYSQL, false, chunkList::add).execute(jdbcTemplate);
+        //
+        assert result.equals(Collections.nCopies(5, 1));
+        assert jdbcTemplate.sqlList.equals(Arrays.asList(//
+                "insert into t (a) values (?), (?)",//
+                "insert into t (a) values (?), (?)",//
+                "insert into t (a) values (?)"));
+        assert jdbcTemplate.argsList.get(1).equals(Arrays.asList("v2", "v3"));
+        assert chunkList.get(2).isMultiValues() && chunkList.get(2).getQueryString().equals("insert into t (a) values (?)");
+    }
+
+    @Test
+    public void multiValues_2_Test() throws SQLException {
+        // .不支持多行 values 的数据库、不能改写的语句、参数个数不一致时使用 JDBC 批处理
+        RecordJdbcTemplate jdbcTemplate = new RecordJdbcTemplate(-1);
+        new ChunkedBatch("", "insert into t (a) values (?)", batchArgs(2), 0, JdbcUtils.ORACLE, false, null).execute(jdbcTemplate);
+        new ChunkedBatch("", "update t set a = ?", batchArgs(2), 0, JdbcUtils.MYSQL, false, null).execute(jdbcTemplate);
+        List<Object[]> batchArgs = Arrays.asList(new Object[] { "a" }, new Object[] { "b", "c" });
+        new ChunkedBatch("", "insert into t (a) values (?)", batchArgs, 0, JdbcUtils.MYSQL, false, null).execute(jdbcTemplate);
+        assert jdbcTemplate.sqlList.equals(Arrays.asList("insert into t (a) values (?)", "update t set a = ?", "insert into t (a) values (?)"));
+    }
+
+    @Test
+    public void failure_1_Test() {
+        RecordJdbcTemplate jdbcTemplate = new RecordJdbcTemplate(1);
+        List<FxBatchChunk> chunkList = new ArrayList<>();
+        try {
+            new ChunkedBatch("", "insert into t (a) values (?)", batchArgs(10), 4, null, false, chunkList::add).execute(jdbcTemplate);
+            assert false;
+        } catch (SQLException e) {
+            assert e.getMessage().startsWith("batch chunk 2/3 (params 4 ~ 7) failed");
+            assert e.getCause() instanceof BatchUpdateException;
+        }
+        assert jdbcTemplate.sqlList.size() == 2; // 失败之后不再执行后面的分块
+        assert chunkList.size() == 2;
+        assert !chunkList.get(1).isSuccess();
+        int failed = Statement.EXECUTE_FAILED;
+        assert Arrays.equals(chunkList.get(1).getUpdateCounts(), new int[] { 1, failed, failed, failed });
+    }
+
+    @Test
+    public void failure_2_Test() {
+        // .只有一个分块时抛出原始异常
+        RecordJdbcTemplate jdbcTemplate = new RecordJdbcTemplate(0);
+        try {
+            new ChunkedBatch("", "insert into t (a) values (?)", batchArgs(3), 0, JdbcUtils.MYSQL, false, null).execute(jdbcTemplate);
+            assert false;
+        } catch (SQLException e) {
+            assert "failed.".equals(e.getMessage());
+        }
+    }
+
+    @Test
+    public void continueOnError_1_Test() throws SQLException {
+        RecordJdbcTemplate jdbcTemplate = new RecordJdbcTemplate(1);
+        List<FxBatchChunk> chunkList = new ArrayList<>();
+        List<Object> result = new ChunkedBatch("", "insert into t (a) values (?)", batchArgs(10), 4, null, true, chunkList::add).execute(jdbcTemplate);
+        //
+        int failed = Statement.EXECUTE_FAILED;
+        assert result.equals(Arrays.asList(1, 1, 1, 1, 1, failed, failed, failed, 1, 1));
+        assert jdbcTemplate.sqlList.size() == 3;
+        assert chunkList.get(0).isSuccess() && !chunkList.get(1).isSuccess() && chunkList.get(2).isSuccess();
+        assert chunkList.get(1).getFailure() instanceof BatchUpdateException;
+    }
+
+    @Test
+    public void continueOnError_2_Test() throws SQLException {
+        // .多行 values 失败时整个分块都是 EXECUTE_FAILED
+        RecordJdbcTemplate jdbcTemplate = new RecordJdbcTemplate(0);
+        List<Object> result = new ChunkedBatch("", "insert into t (a) values (?)", batchArgs(3), 2, JdbcUtils.MYSQL, true, null).execute(jdbcTemplate);
+        int failed = Statement.EXECUTE_FAILED;
+        assert result.equals(Arrays.asList(failed, failed, 1));
+    }
+}
@@ -0,0 +1,143 @@
+package net.hasor.dataql.fx.db.runsql;
+import net.hasor.dataql.Hints;
+import net.hasor.dataql.fx.FxHintNames;
+import net.hasor.dataql.runtime.HintsSet;
+import net.hasor.db.jdbc.extractor.RowMapperResultSetExtractor;
+import net.hasor.db.jdbc.mapper.ColumnMapRowMapper;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+
+import static net.hasor.dataql.fx.FxHintValue.*;
+
+public class ColumnRowExtractorTest {
+    /** 列名：大小写不同的重复列（User_Id）、转换为驼峰之后重名的列（item_1、item1） */
+    private static final String[]   COLUMNS = new String[] { "USER_ID", "user_name", "User_Id", "item_1", "item1" };
+    private static final String[][] ROWS    = new String[][] {//
+            { "1", "tom", "dup-1", "a", "b" },//
+            { "2", null, "dup-2", "c", "d" } };
+
+    /** 所有列都是 VARCHAR 的 ResultSet */
+    private static ResultSet resultSet(String[] columns, String[][] rows) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(), new Class<?>[] { ResultSetMetaData.class }, (p, method, args) -> {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return columns.length;
+                case "getColumnLabel":
+                case "getColumnName":
+                    return columns[(int) args[0] - 1];
+                case "getColumnType":
+                    return Types.VARCHAR;
+                case "getColumnTypeName":
+                    return "VARCHAR";
+                case "getColumnClassName":
+                    return String.class.getName();
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        int[] rowIndex = new int[] { -1 };
+        boolean[] wasNull = new boolean[1];
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, (p, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++rowIndex[0] < rows.length;
+                case "getMetaData":
+                    return metaData;
+                case "getString":
+                case "getObject":
+                    String value = rows[rowIndex[0]][(int) args[0] - 1];
+                    wasNull[0] = value == null;
+                    return value;
+                case "wasNull":
+                    return wasNull[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /** 原来的读取方式：ColumnMapRowMapper 读取之后再由 convertResult 转换列名 */
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> convertResult(String caseModule) throws SQLException {
+        List<Map<String, Object>> mapList = new RowMapperResultSetExtractor<>(new ColumnMapRowMapper()).extractData(resultSet(COLUMNS, ROWS));
+        Hints hints = new HintsSet();
+        hints.setHint(FxHintNames.FRAGMENT_SQL_COLUMN_CASE.name(), caseModule);
+        hints.setHint(FxHintNames.FRAGMENT_SQL_OPEN_PACKAGE.name(), FRAGMENT_SQL_OPEN_PACKAGE_OFF);
+        return (List<Map<String, Object>>) new SqlFragment().convertResult(hints, mapList);
+    }
+
+    private static void assertSameResult(String caseModule) throws SQLException {
+        List<Map<String, Object>> expected = convertResult(caseModule);
+        List<Map<String, Object>> actual = new ColumnRowExtractor(caseModule).extractData(resultSet(COLUMNS, ROWS));
+        assert actual.size() == expected.size();
+        for (int i = 0; i < expected.size(); i++) {
+            Map<String, Object> expectedRow = expected.get(i);
+            Map<String, Object> actualRow = actual.get(i);
+            assert new ArrayList<>(actualRow.keySet()).equals(new ArrayList<>(expectedRow.keySet())) : caseModule + " " + actualRow.keySet();
+            assert new ArrayList<>(actualRow.values()).equals(new ArrayList<>(expectedRow.values())) : caseModule + " " + actualRow.values();
+            assert actualRow.equals(expectedRow) && actualRow.hashCode() == expectedRow.hashCode();
+            for (String key : new String[] { "user_id", "USER_ID", "userName", "item1", "ITEM_1", "none" }) {
+                assert Objects.equals(actualRow.get(key), expectedRow.get(key)) : caseModule + " " + key;
+                assert actualRow.containsKey(key) == expectedRow.containsKey(key) : caseModule + " " + key;
+            }
+        }
+    }
+
+    @Test
+    public void columnCase_1_Test() throws SQLException {
+        assertSameResult(FRAGMENT_SQL_COLUMN_CASE_DEFAULT);
+        List<Map<String, Object>> result = new ColumnRowExtractor(FRAGMENT_SQL_COLUMN_CASE_DEFAULT).extractData(resultSet(COLUMNS, ROWS));
+        assert result.get(0).keySet().equals(new LinkedHashSet<>(Arrays.asList("USER_ID", "user_name", "item_1", "item1")));
+        assert "1".equals(result.get(0).get("user_id")); // 保留第一个出现的列，忽略大小写
+        assert result.get(1).containsKey("USER_NAME") && result.get(1).get("user_name") == null;
+    }
+
+    @Test
+    public void columnCase_2_Test() throws SQLException {
+        assertSameResult(FRAGMENT_SQL_COLUMN_CASE_UPPER);
+        assertSameResult(FRAGMENT_SQL_COLUMN_CASE_LOWER);
+    }
+
+    @Test
+    public void columnCase_3_Test() throws SQLException {
+        assertSameResult(FRAGMENT_SQL_COLUMN_CASE_HUMP);
+        List<Map<String, Object>> result = new ColumnRowExtractor(FRAGMENT_SQL_COLUMN_CASE_HUMP).extractData(resultSet(COLUMNS, ROWS));
+        assert result.get(0).keySet().equals(new LinkedHashSet<>(Arrays.asList("userId", "userName", "item1")));
+        assert "b".equals(result.get(0).get("item1")); // 转换之后重名的列保留后一个列的值
+    }
+
+    @Test
+    public void columnRow_1_Test() throws SQLException {
+        List<Map<String, Object>> result = new ColumnRowExtractor(FRAGMENT_SQL_COLUMN_CASE_LOWER).extractData(resultSet(COLUMNS, ROWS));
+        Map<String, Object> row = result.get(0);
+        assert "tom".equals(row.put("user_name", "jerry"));
+        assert "jerry".equals(row.get("user_name"));
+        assert row.get("USER_NAME") == null; // lower 模式区分大小写
+        //
+        row.put("extra", 1); // 新增列之后转为普通的 Map
+        row.remove("item_1");
+        assert new ArrayList<>(row.keySet()).equals(Arrays.asList("user_id", "user_name", "item1", "extra"));
+        assert result.get(1).size() == 4; // 其它行不受影响
+    }
+
+    @Test
+    public void emptyResult_1_Test() throws SQLException {
+        List<Map<String, Object>> result = new ColumnRowExtractor(null).extractData(resultSet(COLUMNS, new String[0][]));
+        assert result.isEmpty();
+    }
+
+    @Test
+    public void keyColumn_1_Test() throws SQLException {
+        // .最后一列作为合并查询的分组列，不放入行数据
+        List<Object> keyList = new ArrayList<>();
+        List<Map<String, Object>> result = new ColumnRowExtractor(FRAGMENT_SQL_COLUMN_CASE_DEFAULT).extractData(resultSet(COLUMNS, ROWS), keyList);
+        assert keyList.equals(Arrays.asList("b", "d"));
+        assert result.get(0).keySet().equals(new LinkedHashSet<>(Arrays.asList("USER_ID", "user_name", "item_1")));
+    }
+}
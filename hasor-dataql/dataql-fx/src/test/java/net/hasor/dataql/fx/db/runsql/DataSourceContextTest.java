@@ -0,0 +1,130 @@
+package net.hasor.dataql.fx.db.runsql;
+import net.hasor.db.JdbcUtils;
+import net.hasor.db.jdbc.core.JdbcTemplate;
+import net.hasor.db.transaction.TranManager;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+public class DataSourceContextTest {
+    /** 只支持读取 DatabaseMetaData 的数据源，记录打开连接的次数 */
+    private static DataSource metaDataSource(AtomicReference<String> jdbcUrl, AtomicInteger connCount) {
+        DatabaseMetaData metaData = proxy(DatabaseMetaData.class, methodName -> {
+            switch (methodName) {
+                case "getURL":
+                    return jdbcUrl.get();
+                case "getDriverName":
+                    return "test-driver";
+                case "getDatabaseProductName":
+                    return "product:" + jdbcUrl.get();
+                default:
+                    return null;
+            }
+        });
+        Connection conn = proxy(Connection.class, methodName -> "getMetaData".equals(methodName) ? metaData : null);
+        return proxy(DataSource.class, methodName -> {
+            if ("getConnection".equals(methodName)) {
+                connCount.incrementAndGet();
+                return conn;
+            }
+            return null;
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, Function<String, Object> handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (p, method, args) -> {
+            Object result = handler.apply(method.getName());
+            if (result == null && method.getReturnType() == boolean.class) {
+                return false;
+            }
+            if (result == null && method.getReturnType() == int.class) {
+                return 0;
+            }
+            return result;
+        }));
+    }
+
+    @Test
+    public void dbType_1_Test() throws SQLException {
+        AtomicReference<String> jdbcUrl = new AtomicReference<>("jdbc:mysql://localhost:3306/test");
+        AtomicInteger connCount = new AtomicInteger();
+        DataSourceContext context = new DataSourceContext(metaDataSource(jdbcUrl, connCount));
+        assert connCount.get() == 0; // 创建时不占用连接
+        //
+        assert JdbcUtils.MYSQL.equals(context.getDbType());
+        assert JdbcUtils.MYSQL.equals(context.getDbType());
+        assert "product:jdbc:mysql://localhost:3306/test".equals(context.getProductName());
+        assert connCount.get() == 1;
+        assert context.getJdbcTemplate() == context.getJdbcTemplate();
+    }
+
+    @Test
+    public void refresh_1_Test() throws SQLException {
+        AtomicReference<String> jdbcUrl = new AtomicReference<>("jdbc:mysql://localhost:3306/test");
+        AtomicInteger connCount = new AtomicInteger();
+        DataSourceContext context = new DataSourceContext(metaDataSource(jdbcUrl, connCount));
+        assert JdbcUtils.MYSQL.equals(context.getDbType());
+        //
+        jdbcUrl.set("jdbc:h2:mem:test");
+        assert JdbcUtils.MYSQL.equals(context.getDbType()); // 没有 refresh 之前使用已读取的信息
+        context.refresh();
+        assert JdbcUtils.H2.equals(context.getDbType());
+        assert connCount.get() == 2;
+    }
+
+    @Test
+    public void dbType_2_Test() throws SQLException {
+        AtomicReference<String> jdbcUrl = new AtomicReference<>("jdbc:unknown:test");
+        AtomicInteger connCount = new AtomicInteger();
+        DataSourceContext context = new DataSourceContext(metaDataSource(jdbcUrl, connCount));
+        assert context.getDbType() == null;
+        assert context.getDbType() == null;
+        assert connCount.get() == 1; // 无法识别的数据库类型也只读取一次
+    }
+
+    @Test
+    public void threadBound_1_Test() throws Exception {
+        DataSource dataSource = metaDataSource(new AtomicReference<>("jdbc:mysql://localhost:3306/test"), new AtomicInteger());
+        DataSourceContext context = new DataSourceContext(dataSource);
+        assert !context.isThreadBound();
+        try (Connection conn = TranManager.currentConnection(dataSource)) {
+            assert context.isThreadBound(); // 当前线程上持有连接
+            AtomicReference<Boolean> otherThread = new AtomicReference<>();
+            Thread thread = new Thread(() -> otherThread.set(context.isThreadBound()));
+            thread.start();
+            thread.join();
+            assert !otherThread.get();
+        }
+        assert !context.isThreadBound();
+    }
+
+    @Test
+    public void parsedSql_1_Test() throws Exception {
+        // .共享的 JdbcTemplate 不缓存 SQL 解析结果
+        DataSourceContext context = new DataSourceContext(metaDataSource(new AtomicReference<>(""), new AtomicInteger()));
+        DataSourceContext.SharedJdbcTemplate jdbcTemplate = (DataSourceContext.SharedJdbcTemplate) context.getJdbcTemplate();
+        for (int i = 0; i < 10; i++) {
+            assert jdbcTemplate.getParsedSql("insert into t (a) values (?)" + repeat(", (?)", i)).buildSql() != null;
+        }
+        Field cacheField = JdbcTemplate.class.getDeclaredField("parsedSqlCache");
+        cacheField.setAccessible(true);
+        assert ((Map<?, ?>) cacheField.get(jdbcTemplate)).isEmpty();
+    }
+
+    private static String repeat(String str, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(str);
+        }
+        return builder.toString();
+    }
+}
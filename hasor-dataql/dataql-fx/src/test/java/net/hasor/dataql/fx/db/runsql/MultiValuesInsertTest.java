@@ -0,0 +1,67 @@
+package net.hasor.dataql.fx.db.runsql;
+import net.hasor.db.JdbcUtils;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class MultiValuesInsertTest {
+    @Test
+    public void parse_1_Test() {
+        MultiValuesInsert multiValues = MultiValuesInsert.parse("insert into t (a, b) values (?, ?)", 2);
+        assert multiValues != null;
+        assert multiValues.buildSql(1).equals("insert into t (a, b) values (?, ?)");
+        assert multiValues.buildSql(3).equals("insert into t (a, b) values (?, ?), (?, ?), (?, ?)");
+        Object[] args = multiValues.buildArgs(Arrays.asList(new Object[] { 1, "a" }, new Object[] { 2, "b" }));
+        assert Arrays.equals(args, new Object[] { 1, "a", 2, "b" });
+    }
+
+    @Test
+    public void parse_2_Test() {
+        // .函数、字符串中的问号、末尾的分号、大小写
+        MultiValuesInsert multiValues = MultiValuesInsert.parse("INSERT INTO `t` (a, b, c) VALUES (?, concat(?, '?'), now()) ;", 2);
+        assert multiValues != null;
+        assert multiValues.buildSql(2).equals("INSERT INTO `t` (a, b, c) VALUES (?, concat(?, '?'), now()), (?, concat(?, '?'), now())");
+        // .没有列名
+        assert MultiValuesInsert.parse("insert into t values (?)", 1) != null;
+    }
+
+    @Test
+    public void reject_1_Test() {
+        // .insert ... select
+        assert MultiValuesInsert.parse("insert into t (a) select a from s", 0) == null;
+        assert MultiValuesInsert.parse("insert into t (a) select a from s where id = ?", 1) == null;
+        // .on duplicate key update
+        assert MultiValuesInsert.parse("insert into t (a) values (?) on duplicate key update a = ?", 2) == null;
+        assert MultiValuesInsert.parse("insert into t (a) values (?) on duplicate key update a = values(a)", 1) == null;
+        assert MultiValuesInsert.parse("insert into t (a) values (?) returning id", 1) == null;
+    }
+
+    @Test
+    public void reject_2_Test() {
+        // .注释
+        assert MultiValuesInsert.parse("insert into t (a) /* comment */ values (?)", 1) == null;
+        assert MultiValuesInsert.parse("-- comment\ninsert into t (a) values (?)", 1) == null;
+        assert MultiValuesInsert.parse("insert into t (a) values (?) -- comment", 1) == null;
+        // .values 之外的参数
+        assert MultiValuesInsert.parse("insert into t (a) values (?) where ? = 1", 2) == null;
+        assert MultiValuesInsert.parse("insert into t_? (a) values (?)", 2) == null;
+        // .已经是多行 values、参数个数不一致、不是 insert 语句、引号未闭合
+        assert MultiValuesInsert.parse("insert into t (a) values (?), (?)", 2) == null;
+        assert MultiValuesInsert.parse("insert into t (a) values (?)", 2) == null;
+        assert MultiValuesInsert.parse("update t set a = ? where id in (select id from s)", 1) == null;
+        assert MultiValuesInsert.parse("insert into t (a) values ('?)", 0) == null;
+    }
+
+    @Test
+    public void support_1_Test() {
+        assert MultiValuesInsert.isSupport(JdbcUtils.MYSQL);
+        assert MultiValuesInsert.isSupport("MySQL");
+        assert !MultiValuesInsert.isSupport(JdbcUtils.ORACLE);
+        assert !MultiValuesInsert.isSupport(null);
+        //
+        MultiValuesInsert multiValues = MultiValuesInsert.parse("insert into t (a, b, c) values (?, ?, ?)", 3);
+        assert multiValues.maxRows(JdbcUtils.MYSQL) == 10000;
+        assert multiValues.maxRows(JdbcUtils.SQL_SERVER) == 666;
+        assert multiValues.maxRows(JdbcUtils.SQLITE) == 333;
+    }
+}
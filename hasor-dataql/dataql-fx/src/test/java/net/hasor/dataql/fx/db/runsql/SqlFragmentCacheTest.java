@@ -0,0 +1,95 @@
+package net.hasor.dataql.fx.db.runsql;
+import net.hasor.db.dal.dynamic.DynamicSql;
+import net.hasor.db.dal.dynamic.nodes.TextDynamicSql;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SqlFragmentCacheTest {
+    private static DynamicSql findOrParse(SqlFragmentCache cache, String fragmentString, AtomicInteger parseCount) throws Exception {
+        return cache.findOrParse(fragmentString, sql -> {
+            parseCount.incrementAndGet();
+            return new TextDynamicSql(sql);
+        });
+    }
+
+    @Test
+    public void hit_1_Test() throws Exception {
+        SqlFragmentCache cache = new SqlFragmentCache(8);
+        AtomicInteger parseCount = new AtomicInteger();
+        DynamicSql first = findOrParse(cache, "select * from a", parseCount);
+        DynamicSql second = findOrParse(cache, "select * from a", parseCount);
+        DynamicSql other = findOrParse(cache, new String("select * from a"), parseCount); // 内容相同的不同字符串对象
+        //
+        assert first == second && first == other;
+        assert parseCount.get() == 1;
+        assert cache.size() == 1;
+        assert cache.getHitCount() == 2;
+        assert cache.getMissCount() == 1;
+        assert cache.getEvictionCount() == 0;
+        //
+        cache.resetStatistics();
+        assert cache.getHitCount() == 0 && cache.getMissCount() == 0;
+        assert cache.size() == 1;
+    }
+
+    @Test
+    public void eviction_1_Test() throws Exception {
+        SqlFragmentCache cache = new SqlFragmentCache(8);
+        AtomicInteger parseCount = new AtomicInteger();
+        for (int i = 0; i < 8; i++) {
+            findOrParse(cache, "select " + i, parseCount);
+            Thread.sleep(2);
+        }
+        findOrParse(cache, "select 0", parseCount); // 最早放入的条目刚刚被访问过，不会被淘汰
+        Thread.sleep(2);
+        assert cache.getEvictionCount() == 0;
+        //
+        findOrParse(cache, "select 8", parseCount);
+        assert cache.size() == 7; // 超出容量时淘汰到容量的 7/8
+        assert cache.getEvictionCount() == 2;
+        //
+        parseCount.set(0);
+        findOrParse(cache, "select 0", parseCount);
+        findOrParse(cache, "select 8", parseCount);
+        assert parseCount.get() == 0;
+        findOrParse(cache, "select 1", parseCount);
+        assert parseCount.get() == 1; // select 1、select 2 是最久未使用的条目
+    }
+
+    @Test
+    public void eviction_2_Test() throws Exception {
+        SqlFragmentCache cache = new SqlFragmentCache(8);
+        AtomicInteger parseCount = new AtomicInteger();
+        for (int i = 0; i < 8; i++) {
+            findOrParse(cache, "select " + i, parseCount);
+        }
+        cache.setMaxSize(4);
+        assert cache.size() == 4;
+        assert cache.getEvictionCount() == 4;
+        //
+        cache.setMaxSize(0); // 禁用缓存
+        assert cache.size() == 0;
+        parseCount.set(0);
+        findOrParse(cache, "select 0", parseCount);
+        findOrParse(cache, "select 0", parseCount);
+        assert parseCount.get() == 2;
+        assert cache.size() == 0;
+        assert cache.getMissCount() == 10;
+    }
+
+    @Test
+    public void empty_1_Test() throws Exception {
+        SqlFragmentCache cache = new SqlFragmentCache(8);
+        AtomicInteger parseCount = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            DynamicSql dynamicSql = cache.findOrParse("", sql -> {
+                parseCount.incrementAndGet();
+                return null;
+            });
+            assert dynamicSql == null;
+        }
+        assert parseCount.get() == 2; // 空片段不放入缓存
+        assert cache.size() == 0;
+    }
+}
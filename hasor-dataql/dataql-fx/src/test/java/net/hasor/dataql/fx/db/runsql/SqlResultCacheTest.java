@@ -0,0 +1,201 @@
+package net.hasor.dataql.fx.db.runsql;
+import net.hasor.dataql.fx.db.runsql.SqlResultCache.ResultKey;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SqlResultCacheTest {
+    private static ResultKey resultKey(String sqlString, Object... args) {
+        return new ResultKey("", sqlString, args, "last", "default", "off");
+    }
+
+    private static Object findOrLoad(SqlResultCache cache, String sqlString, AtomicInteger loadCount, Object... args) throws SQLException {
+        return cache.findOrLoad(sqlString, resultKey(sqlString, args), 60000, 16, () -> {
+            return sqlString + "#" + loadCount.incrementAndGet();
+        });
+    }
+
+    @Test
+    public void hit_1_Test() throws SQLException {
+        SqlResultCache cache = new SqlResultCache();
+        AtomicInteger loadCount = new AtomicInteger();
+        Object first = findOrLoad(cache, "select * from t where id = ?", loadCount, 1);
+        Object second = findOrLoad(cache, "select * from t where id = ?", loadCount, 1);
+        Object other = findOrLoad(cache, "select * from t where id = ?", loadCount, 2); // 参数不同
+        //
+        assert first == second && first != other;
+        assert loadCount.get() == 2;
+        assert cache.size() == 2;
+        assert cache.getHitCount() == 1;
+        assert cache.getMissCount() == 2;
+        //
+        cache.resetStatistics();
+        assert cache.getHitCount() == 0 && cache.getMissCount() == 0 && cache.size() == 2;
+        cache.clear();
+        assert cache.size() == 0;
+    }
+
+    @Test
+    public void ttl_1_Test() throws SQLException, InterruptedException {
+        SqlResultCache cache = new SqlResultCache();
+        AtomicInteger loadCount = new AtomicInteger();
+        String sqlString = "select * from t";
+        // .ttl 或 maxSize 小于等于 0 时不缓存
+        cache.findOrLoad(sqlString, resultKey(sqlString), 0, 16, loadCount::incrementAndGet);
+        cache.findOrLoad(sqlString, resultKey(sqlString), 60000, 0, loadCount::incrementAndGet);
+        assert cache.size() == 0 && loadCount.get() == 2;
+        // .过期之后重新加载
+        cache.findOrLoad(sqlString, resultKey(sqlString), 5, 16, loadCount::incrementAndGet);
+        Thread.sleep(20);
+        cache.findOrLoad(sqlString, resultKey(sqlString), 5, 16, loadCount::incrementAndGet);
+        assert loadCount.get() == 4;
+        assert cache.getHitCount() == 0;
+    }
+
+    @Test
+    public void eviction_1_Test() throws SQLException, InterruptedException {
+        SqlResultCache cache = new SqlResultCache();
+        AtomicInteger loadCount = new AtomicInteger();
+        String sqlString = "select * from t where id = ?";
+        for (int i = 0; i < 3; i++) {
+            cache.findOrLoad(sqlString, resultKey(sqlString, i), 60000, 2, loadCount::incrementAndGet);
+        }
+        assert cache.size() == 2; // 每个片段最多缓存 maxSize 个结果
+        assert cache.getEvictionCount() == 1;
+        //
+        SqlResultCache fragmentCache = new SqlResultCache(2);
+        for (int i = 0; i < 3; i++) {
+            findOrLoad(fragmentCache, "select * from t" + i, loadCount);
+            Thread.sleep(5);
+        }
+        assert fragmentCache.size() == 2; // 超出片段数时淘汰最久未使用的片段
+        assert fragmentCache.getEvictionCount() == 1;
+        loadCount.set(0);
+        findOrLoad(fragmentCache, "select * from t2", loadCount);
+        assert loadCount.get() == 0;
+        findOrLoad(fragmentCache, "select * from t0", loadCount);
+        assert loadCount.get() == 1;
+    }
+
+    @Test
+    public void invalidate_1_Test() throws SQLException {
+        SqlResultCache cache = new SqlResultCache();
+        AtomicInteger loadCount = new AtomicInteger();
+        findOrLoad(cache, "select * from a", loadCount);
+        findOrLoad(cache, "select * from b join c on b.id = c.id", loadCount);
+        findOrLoad(cache, "select * from d", loadCount);
+        //
+        cache.invalidate("update `db`.a set x = 1");
+        assert cache.size() == 2 && cache.getInvalidateCount() == 1;
+        cache.invalidate("delete from c where id = ?");
+        assert cache.size() == 1 && cache.getInvalidateCount() == 2;
+        cache.invalidate("insert into e (x) values (?)");
+        assert cache.size() == 1;
+        //
+        loadCount.set(0);
+        findOrLoad(cache, "select * from d", loadCount);
+        findOrLoad(cache, "select * from a", loadCount);
+        assert loadCount.get() == 1;
+    }
+
+    @Test
+    public void invalidate_2_Test() throws SQLException {
+        SqlResultCache cache = new SqlResultCache();
+        AtomicInteger loadCount = new AtomicInteger();
+        findOrLoad(cache, "select * from a", loadCount);
+        findOrLoad(cache, "select 1", loadCount);
+        // .无法确定读取的表的结果在任何写操作之后失效
+        cache.invalidate("update b set x = 1");
+        assert cache.size() == 1;
+        // .无法确定修改的表时全部失效
+        findOrLoad(cache, "select 1", loadCount);
+        cache.invalidate("call proc()");
+        assert cache.size() == 0;
+    }
+
+    @Test
+    public void invalidate_3_Test() throws SQLException {
+        SqlResultCache cache = new SqlResultCache();
+        AtomicInteger loadCount = new AtomicInteger();
+        findOrLoad(cache, "select * from b", loadCount);
+        // .加载期间发生写操作，加载的结果不放入缓存
+        String sqlString = "select * from a";
+        cache.findOrLoad(sqlString, resultKey(sqlString), 60000, 16, () -> {
+            cache.invalidate("update a set x = 1");
+            return loadCount.incrementAndGet();
+        });
+        assert cache.size() == 1;
+        findOrLoad(cache, sqlString, loadCount);
+        assert loadCount.get() == 3;
+    }
+
+    @Test
+    public void pending_1_Test() throws SQLException {
+        SqlResultCache cache = new SqlResultCache();
+        AtomicInteger loadCount = new AtomicInteger();
+        findOrLoad(cache, "select * from a", loadCount);
+        // .事务中的写操作：立即失效，提交之前不再缓存涉及到的表
+        AtomicBoolean released = new AtomicBoolean(false);
+        cache.invalidateOnRelease("update a set x = 1", released::get);
+        assert cache.size() == 0;
+        findOrLoad(cache, "select * from a", loadCount);
+        findOrLoad(cache, "select 1", loadCount);
+        findOrLoad(cache, "select * from b", loadCount);
+        assert cache.size() == 1; // 只有 b 被缓存
+        cache.releasePending();
+        findOrLoad(cache, "select * from a", loadCount);
+        assert cache.size() == 1;
+        // .提交之后再失效一次，之后恢复缓存
+        released.set(true);
+        cache.releasePending();
+        assert cache.size() == 1;
+        findOrLoad(cache, "select * from a", loadCount);
+        assert cache.size() == 2;
+    }
+
+    @Test
+    public void pending_2_Test() throws SQLException, InterruptedException {
+        SqlResultCache cache = new SqlResultCache();
+        AtomicInteger loadCount = new AtomicInteger();
+        cache.invalidateOnRelease("call proc()", () -> true);
+        // .其它线程不会释放当前线程的写操作
+        Thread thread = new Thread(cache::releasePending);
+        thread.start();
+        thread.join();
+        findOrLoad(cache, "select * from b", loadCount);
+        assert cache.size() == 0;
+        cache.releasePending();
+        findOrLoad(cache, "select * from b", loadCount);
+        assert cache.size() == 1;
+    }
+
+    @Test
+    public void readOnly_1_Test() throws SQLException {
+        SqlResultCache cache = new SqlResultCache();
+        String sqlString = "select * from t";
+        Object result = cache.findOrLoad(sqlString, resultKey(sqlString), 60000, 16, () -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", 1);
+            return new ArrayList<>(Collections.singletonList(row));
+        });
+        // .缓存的结果被多次查询共享，是只读的
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) result;
+        assert rows.get(0).get("id").equals(1);
+        try {
+            rows.get(0).put("id", 2);
+            assert false;
+        } catch (UnsupportedOperationException e) {
+            assert e.getClass() == UnsupportedOperationException.class;
+        }
+        try {
+            rows.clear();
+            assert false;
+        } catch (UnsupportedOperationException e) {
+            assert e.getClass() == UnsupportedOperationException.class;
+        }
+        assert cache.findOrLoad(sqlString, resultKey(sqlString), 60000, 16, () -> null) == result;
+    }
+}
@@ -0,0 +1,86 @@
+package net.hasor.dataql.fx.db.runsql;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class SqlTablesTest {
+    private static Set<String> tables(String... tables) {
+        return new HashSet<>(Arrays.asList(tables));
+    }
+
+    @Test
+    public void queryTables_1_Test() {
+        assert SqlTables.queryTables("select * from user u where u.id = ?").equals(tables("user"));
+        assert SqlTables.queryTables("SELECT * FROM User AS u WHERE u.id = ?").equals(tables("user"));
+        assert SqlTables.queryTables("select a.x from a, b b2, c where a.id = b2.id").equals(tables("a", "b", "c"));
+        assert SqlTables.queryTables("select * from t where name = 'from x' -- from y\n /* join z */ order by id").equals(tables("t"));
+        assert SqlTables.queryTables("select 1") == null;
+        assert SqlTables.queryTables("select now() from dual").equals(tables("dual"));
+    }
+
+    @Test
+    public void queryTables_2_Test() {
+        // .join、子查询
+        String sqlString = "select * from `db`.`user` as u left join orders o on u.id = o.uid inner join (select * from items) i on i.oid = o.id";
+        assert SqlTables.queryTables(sqlString).equals(tables("user", "orders", "items"));
+        assert SqlTables.queryTables("select * from a straight_join b on a.id = b.id cross join c").equals(tables("a", "b", "c"));
+        // .引号、schema
+        assert SqlTables.queryTables("select * from \"Public\".\"Users\" u").equals(tables("users"));
+        assert SqlTables.queryTables("select * from [dbo].[Users] u where u.id = 1").equals(tables("users"));
+        assert SqlTables.queryTables("select * from db.t1 where id in (select id from `other`.t2)").equals(tables("t1", "t2"));
+        // .多条语句
+        assert SqlTables.queryTables("select * from t1; select * from t2 where id = ?").equals(tables("t1", "t2"));
+    }
+
+    @Test
+    public void updateTables_1_Test() {
+        assert SqlTables.updateTables("insert into `db`.user (a, b) values (?, ?)").equals(tables("user"));
+        assert SqlTables.updateTables("replace into t (a) values (?)").equals(tables("t"));
+        assert SqlTables.updateTables("update low_priority ignore user u set u.name = ? where u.id = ?").equals(tables("user"));
+        assert SqlTables.updateTables("update a, b set a.x = b.x where a.id = b.id").equals(tables("a", "b"));
+        assert SqlTables.updateTables("update a join b on a.id = b.id set a.x = 'from c'").equals(tables("a", "b"));
+        assert SqlTables.updateTables("delete from \"Public\".\"T1\" where id = ?").equals(tables("t1"));
+        assert SqlTables.updateTables("delete t1 from t1 join t2 on t1.id = t2.id").equals(tables("t1", "t2"));
+        assert SqlTables.updateTables("truncate table t3").equals(tables("t3"));
+        assert SqlTables.updateTables("truncate t3").equals(tables("t3"));
+        assert SqlTables.updateTables("create table if not exists t4 (id int)").equals(tables("t4"));
+        assert SqlTables.updateTables("drop temporary table if exists t5").equals(tables("t5"));
+        assert SqlTables.updateTables("alter table [dbo].[T6] add c int").equals(tables("t6"));
+    }
+
+    @Test
+    public void updateTables_2_Test() {
+        // .多条语句
+        assert SqlTables.updateTables("insert into t1 (a) values (1); delete from t2;").equals(tables("t1", "t2"));
+        // .无法确定的语句按照涉及所有表处理
+        assert SqlTables.updateTables("insert into t1 (a) values (1); call proc()") == null;
+        assert SqlTables.updateTables("select * from t1") == null;
+        assert SqlTables.updateTables("exec proc") == null;
+        assert SqlTables.updateTables("insert t1 values (1)") == null;
+        assert SqlTables.updateTables("") == null;
+    }
+
+    @Test
+    public void singleStatement_1_Test() {
+        assert SqlTables.isSingleStatement("select * from t");
+        assert SqlTables.isSingleStatement("select * from t;");
+        assert SqlTables.isSingleStatement("select * from t ; ; ");
+        assert SqlTables.isSingleStatement("select ';' from t");
+        assert SqlTables.isSingleStatement("select * from t -- ; delete from t\n");
+        assert !SqlTables.isSingleStatement("select * from t; update t set a = 1");
+        assert !SqlTables.isSingleStatement("select * from t1;select * from t2");
+    }
+
+    @Test
+    public void lockingRead_1_Test() {
+        assert SqlTables.isLockingRead("select * from t where id = ? for update");
+        assert SqlTables.isLockingRead("SELECT * FROM t FOR UPDATE NOWAIT");
+        assert SqlTables.isLockingRead("select * from t for share");
+        assert SqlTables.isLockingRead("select * from t lock in share mode");
+        assert !SqlTables.isLockingRead("select * from t");
+        assert !SqlTables.isLockingRead("select 'for update' from t");
+        assert !SqlTables.isLockingRead("select * from t -- for update\n");
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.mojo.dataql;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.compiler.ImportModuleCache;
+import net.hasor.utils.StringUtils;
+
+import java.io.*;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预编译时使用的资源加载器，<code>import @"/net/hasor/demo.ql"</code> 的资源从被构建项目的源码、资源目录和编译 classpath 中查找，
+ * 而不是插件自身的 classpath。
+ * @version : 2020-10-17
+ * @author 赵永春 (zyc@hasor.net)
+ */
+class ProjectFinder implements Finder, Closeable {
+    private final List<File>        resourceDirs;
+    private final URLClassLoader    classLoader;
+    private final ImportModuleCache moduleCache = new ImportModuleCache(ImportModuleCache.DEFAULT_MAX_SIZE);
+
+    /**
+     * @param resourceDirs 优先查找的目录（源码目录、资源目录），按顺序查找
+     * @param classpathElements 项目的编译 classpath（输出目录、依赖的 jar）
+     */
+    public ProjectFinder(List<File> resourceDirs, List<String> classpathElements) throws MalformedURLException {
+        this.resourceDirs = new ArrayList<>(resourceDirs);
+        List<URL> urlList = new ArrayList<>();
+        for (String element : classpathElements) {
+            urlList.add(new File(element).toURI().toURL());
+        }
+        this.classLoader = new URLClassLoader(urlList.toArray(new URL[0]), null);
+    }
+
+    @Override
+    public InputStream findResource(String resourceName) throws IOException {
+        String resourcePath = formatResource(resourceName);
+        if (resourcePath == null) {
+            return Finder.super.findResource(resourceName);
+        }
+        File resourceFile = this.findFile(resourcePath);
+        if (resourceFile != null) {
+            return new FileInputStream(resourceFile);
+        }
+        return this.classLoader.getResourceAsStream(resourcePath);
+    }
+
+    @Override
+    public URL resourceUrl(String resourceName) {
+        String resourcePath = formatResource(resourceName);
+        if (resourcePath == null) {
+            return Finder.super.resourceUrl(resourceName);
+        }
+        File resourceFile = this.findFile(resourcePath);
+        try {
+            return (resourceFile != null) ? resourceFile.toURI().toURL() : this.classLoader.getResource(resourcePath);
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public long resourceStamp(String resourceName) {
+        String resourcePath = formatResource(resourceName);
+        File resourceFile = (resourcePath == null) ? null : this.findFile(resourcePath);
+        return (resourceFile == null) ? -1 : resourceFile.lastModified();
+    }
+
+    @Override
+    public ImportModuleCache importModuleCache() {
+        return this.moduleCache;
+    }
+
+    private File findFile(String resourcePath) {
+        for (File resourceDir : this.resourceDirs) {
+            File resourceFile = new File(resourceDir, resourcePath);
+            if (resourceFile.isFile()) {
+                return resourceFile;
+            }
+        }
+        return null;
+    }
+
+    /** classpath 形式的资源名去掉前缀和开头的 '/'，其它形式（http:、file: 等）返回 null */
+    private static String formatResource(String resourceName) {
+        if (StringUtils.isBlank(resourceName)) {
+            return null;
+        }
+        if (resourceName.startsWith("classpath:")) {
+            resourceName = resourceName.substring("classpath:".length());
+        } else if (resourceName.matches("^[a-zA-Z]{2,}:.*")) {
+            return null;
+        }
+        while (resourceName.startsWith("/")) {
+            resourceName = resourceName.substring(1);
+        }
+        return resourceName;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.classLoader.close();
+    }
+}
@@ -14,9 +14,12 @@
  * limitations under the License.
  */
 package net.hasor.mojo.dataql;
+import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.compiler.qil.QilFormat;
 import net.hasor.dataql.parser.ast.inst.HintInst;
 import net.hasor.dataql.parser.ast.inst.RootBlockSet;
 import net.hasor.dataql.parser.ast.value.PrimitiveVariable;
+import net.hasor.dataql.runtime.CompilerArguments;
 import net.hasor.dataql.runtime.QueryHelper;
 import net.hasor.utils.ResourcesUtils;
 import net.hasor.utils.StringUtils;
@@ -39,6 +42,7 @@ import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -93,6 +97,12 @@ public class QueryMojo extends AbstractMojo {
     /** continue generate DataQL file , when parsing failed. */
     @Parameter(defaultValue = "false")
     private   boolean      ignoreError;
+    /** compile each query into a binary QIL file ({@code *.qil}) next to the copied query, so it can be loaded without parsing at runtime. */
+    @Parameter(defaultValue = "false")
+    private   boolean      precompile;
+    /** compiler variables (share var names) used when precompiling; the precompiled QIL is used at runtime only when the share vars match. */
+    @Parameter
+    protected Set<String>  compilerVars = new HashSet<>();
 
     /**
      * The main entry point for this Mojo, it is responsible for converting
@@ -144,7 +154,7 @@ public class QueryMojo extends AbstractMojo {
         }
         //
         log.info("DataQL : Processing source directory " + outputSourceDirectory.getAbsolutePath());
-        try {
+        try (ProjectFinder projectFinder = this.precompile ? this.createProjectFinder() : null) {
             List<String> stringList = IOUtils.readLines(ResourcesUtils.getResourceAsStream("/META-INF/dataql-codegen-template.tpl"), "UTF-8");
             final String javaTemp = StringUtils.join(stringList.toArray(new String[0]), "\n");
             //
@@ -162,8 +172,9 @@ public class QueryMojo extends AbstractMojo {
                 // 进行一次解析操作，过滤掉语法有问题的查询文件
                 boolean javaxInject = false;
                 String javaxInjectName = "";
+                RootBlockSet queryModel = null;
                 try {
-                    RootBlockSet queryModel = (RootBlockSet) QueryHelper.queryParser(new AutoCloseInputStream(new FileInputStream(qlFile)));
+                    queryModel = (RootBlockSet) QueryHelper.queryParser(new AutoCloseInputStream(new FileInputStream(qlFile)));
                     List<HintInst> optionSet = queryModel.getOptionSet();
                     for (HintInst inst : optionSet) {
                         if ("javax_inject".equalsIgnoreCase(inst.getHint().getValue())) {
@@ -200,6 +211,20 @@ public class QueryMojo extends AbstractMojo {
                         targetQueryFile.flush();
                     }
                 }
+                // 预编译为二进制 QIL，编译失败时运行期自动回退到解析原始查询文件
+                String qilRelPath = relPath.substring(0, relPath.length() - ".ql".length()) + QilFormat.FILE_SUFFIX;
+                if (this.precompile && queryModel != null) {
+                    try {
+                        QIL qil = QueryHelper.queryCompiler(queryModel, new CompilerArguments(this.compilerVars), projectFinder);
+                        File outFile = new File(outputResourceDirectory, qilRelPath);
+                        try (OutputStream targetQilFile = FileUtils.openOutputStream(outFile)) {
+                            QilFormat.writeTo(qil, targetQilFile);
+                            targetQilFile.flush();
+                        }
+                    } catch (Exception e) {
+                        getLog().warn("Query file '" + qlFile.getPath() + "' precompile failed, skip it. -> " + e.getMessage());
+                    }
+                }
                 // .build
                 String className = qlFile.getName().split("\\.")[0] + "Query";
                 String targetPackageName = "";
@@ -211,6 +236,7 @@ public class QueryMojo extends AbstractMojo {
                 String tempClass = new String(javaTemp.toCharArray().clone());
                 tempClass = tempClass.replace("%target_pacakge%", targetPackageName);
                 tempClass = tempClass.replace("%source_resource%", "/" + relPath.replace(File.separator, "/"));
+                tempClass = tempClass.replace("%qil_resource%", "/" + qilRelPath.replace(File.separator, "/"));
                 tempClass = tempClass.replace("%target_name%", className);
                 tempClass = tempClass.replace("%inject_name%", injectReplaceString);
                 File outFile = new File(new File(outputSourceDirectory, relPath).getParentFile(), className + ".java");
@@ -225,6 +251,19 @@ public class QueryMojo extends AbstractMojo {
         }
     }
 
+    /** 预编译时 import 的资源从项目的源码目录、资源目录和编译 classpath 中加载 */
+    private ProjectFinder createProjectFinder() throws Exception {
+        List<File> resourceDirs = new ArrayList<>();
+        resourceDirs.add(this.sourceDirectory);
+        for (Object resource : this.project.getResources()) {
+            String resourceDir = ((Resource) resource).getDirectory();
+            if (resourceDir != null && !resourceDir.equals(this.outputResourceDirectory.getAbsolutePath())) {
+                resourceDirs.add(new File(resourceDir));
+            }
+        }
+        return new ProjectFinder(resourceDirs, this.project.getCompileClasspathElements());
+    }
+
     private Set<String> getIncludesPatterns() {
         if (includes == null || includes.isEmpty()) {
             return Collections.singleton("**/*.ql");
@@ -1,6 +1,7 @@
 %target_pacakge%
 import net.hasor.dataql.*;
 import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.compiler.qil.QilFormat;
 import net.hasor.dataql.parser.QueryModel;
 import net.hasor.dataql.parser.QueryParseException;
 import net.hasor.dataql.runtime.CompilerArguments;
@@ -22,6 +23,7 @@ import java.util.function.Supplier;
 %inject_name%
 public class %target_name% extends HintsSet implements Query {
     protected final String sourceCode = "%source_resource%";
+    protected final String sourceQil  = "%qil_resource%";
     protected       Query  dataQuery;
 
     private %target_name%(HintsSet hintsSet) {
@@ -38,9 +40,23 @@ public class %target_name% extends HintsSet implements Query {
 
     public %target_name%(Finder finder, Map<String, Supplier<?>> shareVarMap) throws IOException, QueryParseException {
         Set<String> keySet = shareVarMap.keySet();
-        InputStream inputStream = Objects.requireNonNull(ResourcesUtils.getResourceAsStream(sourceCode), sourceCode);
-        QueryModel queryModel = QueryHelper.queryParser(inputStream, Charset.forName("UTF-8"));
-        QIL queryQil = QueryHelper.queryCompiler(queryModel, new CompilerArguments(keySet), finder);
+        QIL queryQil = null;
+        InputStream qilStream = ResourcesUtils.getResourceAsStream(sourceQil);
+        if (qilStream != null) {
+            try {
+                queryQil = QilFormat.readFrom(qilStream);
+            } finally {
+                qilStream.close();
+            }
+            if (!queryQil.getCompilerVar().keySet().equals(keySet)) {
+                queryQil = null; // 预编译时的编译变量和运行时不一致，需要重新编译
+            }
+        }
+        if (queryQil == null) {
+            InputStream inputStream = Objects.requireNonNull(ResourcesUtils.getResourceAsStream(sourceCode), sourceCode);
+            QueryModel queryModel = QueryHelper.queryParser(inputStream, Charset.forName("UTF-8"));
+            queryQil = QueryHelper.queryCompiler(queryModel, new CompilerArguments(keySet), finder);
+        }
         this.dataQuery = QueryHelper.createQuery(queryQil, finder);
         this.dataQuery.putShareVar(shareVarMap);
     }
@@ -0,0 +1,58 @@
+package net.hasor.mojo.dataql;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.compiler.qil.QilFormat;
+import net.hasor.dataql.domain.ValueModel;
+import net.hasor.dataql.runtime.CompilerArguments;
+import net.hasor.dataql.runtime.QueryHelper;
+import net.hasor.utils.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.UUID;
+
+public class ProjectFinderTest {
+    private static File writeFile(File baseDir, String path, String content) throws Exception {
+        File file = new File(baseDir, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void precompile_1_Test() throws Exception {
+        File baseDir = Files.createTempDirectory("dataql-finder").toFile();
+        try {
+            String name = UUID.randomUUID().toString().replace("-", "");
+            File sourceDir = new File(baseDir, "src");
+            File classesDir = new File(baseDir, "classes");
+            writeFile(sourceDir, "net/demo/" + name + "/inc.ql", "return (a) -> { return a * 2; };");
+            writeFile(classesDir, "lib/" + name + "/lib.ql", "return 1 + 2;");
+            String queryString = "import @'/net/demo/" + name + "/inc.ql' as m; " +//
+                    "import @'classpath:/lib/" + name + "/lib.ql' as n; " +//
+                    "var a = 10 + 10; if (false) { return 0; } return m()(21) + n() + a;";
+            //
+            // .插件自身的 classpath 中不存在这些资源
+            assert Finder.DEFAULT.findResource("/net/demo/" + name + "/inc.ql") == null;
+            //
+            QIL qil;
+            try (ProjectFinder finder = new ProjectFinder(Collections.singletonList(sourceDir), Collections.singletonList(classesDir.getAbsolutePath()))) {
+                assert finder.resourceStamp("/net/demo/" + name + "/inc.ql") > 0;
+                assert finder.resourceStamp("/lib/" + name + "/lib.ql") == -1;
+                qil = QueryHelper.queryCompiler(QueryHelper.queryParser(queryString), CompilerArguments.FAST, finder);
+            }
+            assert qil.getOptimizedCount() > 0;
+            //
+            QIL loadQil = QilFormat.fromBytes(QilFormat.toBytes(qil));
+            assert loadQil.getOptimizedCount() == qil.getOptimizedCount();
+            assert loadQil.toString().equals(qil.toString());
+            Object data = QueryHelper.createQuery(loadQil, Finder.DEFAULT).execute().getData();
+            assert ((ValueModel) data).asInt() == 65;
+        } finally {
+            FileUtils.deleteDirectory(baseDir);
+        }
+    }
+}
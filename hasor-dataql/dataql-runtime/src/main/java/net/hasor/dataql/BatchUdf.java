@@ -0,0 +1,28 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql;
+import java.util.List;
+
+/**
+ * 支持批量调用的 UDF。集合转换（list => [ ... ]）中对每个元素发起的调用会被收集起来，
+ * 在转换结束时通过 batchCall 一次性执行，然后再按顺序将结果回填给每个元素（常用于解决 N+1 查询问题）。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public interface BatchUdf extends Udf {
+    /** 批量调用，paramsList 中的每一项为一次调用的参数。返回结果的个数和顺序必须与 paramsList 一致 */
+    public List<Object> batchCall(Hints readOnly, List<Object[]> paramsList) throws Throwable;
+}
@@ -17,6 +17,7 @@ package net.hasor.dataql;
 import net.hasor.core.BindInfo;
 import net.hasor.dataql.compiler.qil.QIL;
 import net.hasor.dataql.parser.QueryModel;
+import net.hasor.dataql.runtime.QueryCache;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 
@@ -38,6 +39,10 @@ public interface DataQL extends Hints {
     public enum ConfigOption {
         /** 代码行号的编译模式 */
         CODE_LOCATION("codeLocation"),
+        /** 是否启用 QIL 优化（常量折叠、死代码删除、LABEL/LINE 精简） */
+        OPTIMIZE("optimize"),
+        /** 已编译 QIL 缓存的最大条目数，小于等于 0 表示禁用缓存 */
+        QUERY_CACHE_SIZE("queryCacheSize"),
         ;
         //
         private final String configName;
@@ -85,6 +90,9 @@ public interface DataQL extends Hints {
     /** 获取默认的 Finder */
     public Finder getFinder();
 
+    /** 获取已编译 QIL 的缓存，可用于查看命中率等统计信息 */
+    public QueryCache getQueryCache();
+
     /**
      * 解析 DataQL 执行脚本
      * @param queryString 脚本字符串
@@ -185,4 +193,12 @@ public interface DataQL extends Hints {
 
     /** 创建查询实例 */
     public Query createQuery(QIL compilerQIL);
+
+    /** 创建预编译查询，可以被多个线程同时执行，无需 clone */
+    public default PreparedQuery prepareQuery(String queryString) throws IOException {
+        return prepareQuery(compilerQuery(queryString));
+    }
+
+    /** 创建预编译查询，可以被多个线程同时执行，无需 clone */
+    public PreparedQuery prepareQuery(QIL compilerQIL);
 }
@@ -16,6 +16,7 @@
 package net.hasor.dataql;
 import net.hasor.core.AppContext;
 import net.hasor.core.TypeSupplier;
+import net.hasor.dataql.compiler.ImportModuleCache;
 import net.hasor.utils.ClassUtils;
 import net.hasor.utils.ExceptionUtils;
 import net.hasor.utils.ResourcesUtils;
@@ -23,6 +24,8 @@ import net.hasor.utils.supplier.SingleProvider;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -73,6 +76,31 @@ public interface Finder {
         return inputStream;
     }
 
+    /**
+     * 资源的实际位置，import 模块缓存以它作为缓存 Key（同名资源在不同的 ClassLoader 中是不同的模块）。
+     * 返回 null 表示未知，此时使用资源名称作为缓存 Key。
+     */
+    public default URL resourceUrl(String resourceName) {
+        try {
+            return ResourcesUtils.getResource(resourceName);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 资源的修改标记（例如最后修改时间），import 模块缓存用它判断资源是否发生了变化。
+     * 返回值小于等于 0 表示未知，此时模块缓存使用 resourceUrl 所指向文件的修改时间，仍然无法确定时读取资源内容进行比较。
+     */
+    public default long resourceStamp(String resourceName) {
+        return -1;
+    }
+
+    /** import 模块的缓存，返回 null 表示不缓存（每次编译都重新解析导入的模块） */
+    public default ImportModuleCache importModuleCache() {
+        return null;
+    }
+
     /** 负责处理 <code>import 'net.hasor.dataql.sdk.CollectionUdfSource' as collect;</code>方式的资源的加载。 */
     public default Object findBean(Class<?> beanType) {
         return ClassUtils.newInstance(beanType);
@@ -81,4 +109,9 @@ public interface Finder {
     public default FragmentProcess findFragmentProcess(String fragmentType) {
         throw new RuntimeException(fragmentType + " fragment undefine.");
     }
+
+    /** 开启 PARALLEL_FIELDS 之后并发调用使用的线程池，返回 null 表示使用 DataQL 内置的线程池 */
+    public default Executor parallelExecutor() {
+        return null;
+    }
 }
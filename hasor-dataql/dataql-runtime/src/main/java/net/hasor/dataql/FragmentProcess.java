@@ -35,4 +35,9 @@ public interface FragmentProcess {
 
     /** 常规执行 */
     public Object runFragment(Hints hint, Map<String, Object> params, String fragmentString) throws Throwable;
+
+    /** 片段的执行是否依赖当前线程（例如绑定在线程上的事务连接），依赖时 PARALLEL_FIELDS 不会把片段交给其它线程执行 */
+    public default boolean isThreadBound(Hints hint) {
+        return false;
+    }
 }
\ No newline at end of file
@@ -31,7 +31,25 @@ public enum HintNames {
     /** 浮点数计算使用的最小数值宽度，可选值有：float,double,big。默认为：double */
     MIN_DECIMAL_WIDTH(MIN_DECIMAL_WIDTH_DOUBLE),
     /** 整数计算使用的最小数值宽度，可选值有：byte,short,int,long,big。默认为：int */
-    MIN_INTEGER_WIDTH(MIN_INTEGER_WIDTH_INT);
+    MIN_INTEGER_WIDTH(MIN_INTEGER_WIDTH_INT),
+    /** 指令序列被执行多少次之后编译为 JVM 字节码执行，默认为：0（不启用）。 */
+    JIT_THRESHOLD("0"),
+    /** 外部数据（UDF 返回值、查询结果）是否使用延迟转换的 DataModel，属性和元素在第一次被访问时才转换，默认为：false */
+    LAZY_DATA_MODEL("false"),
+    /** 集合转换（list => [ ... ]）中对 BatchUdf 和 Fragment 的逐个调用是否自动合并为一次批量调用，结果在转换结束时回填（调用会推迟到转换结束时执行，SQL 片段中只有 insert/update/delete 会合并为 JDBC 批处理，select 仍然逐条查询），默认为：false */
+    AUTO_BATCH_CALL("false"),
+    /** 单次执行最多允许执行的指令数，超出后抛出 QueryLimitException，默认为：0（不限制） */
+    MAX_INSTRUCTIONS("0"),
+    /** 单次执行的最长时间（毫秒），超出后抛出 QueryLimitException，默认为：0（不限制） */
+    EXECUTION_TIMEOUT("0"),
+    /** 单个指令序列的数据栈最多允许的元素个数，超出后抛出 QueryLimitException，默认为：0（不限制） */
+    MAX_STACK_SIZE("0"),
+    /** 性能剖析模式，可选值有：off、full、sample，默认为：off */
+    PROFILER_MODE(PROFILER_MODE_OFF),
+    /** 采样模式下的采样间隔（每多少条指令计时一次），默认为：64 */
+    PROFILER_SAMPLE_INTERVAL("64"),
+    /** 对象字面量中多个字段的值直接来自 UDF、Fragment 调用时，这些调用是否使用 Finder.parallelExecutor() 并发执行，默认为：false */
+    PARALLEL_FIELDS("false");
     //
     private String defaultVal;
 
@@ -28,6 +28,24 @@ public interface HintValue {
     public static final String MIN_DECIMAL_WIDTH           = "MIN_DECIMAL_WIDTH";
     /** 整数计算使用的最小数值宽度，可选值有：byte,short,int,long,big。默认为：int */
     public static final String MIN_INTEGER_WIDTH           = "MIN_INTEGER_WIDTH";
+    /** 指令序列被执行多少次之后编译为 JVM 字节码执行，默认为：0（不启用）。 */
+    public static final String JIT_THRESHOLD               = "JIT_THRESHOLD";
+    /** 外部数据（UDF 返回值、查询结果）是否使用延迟转换的 DataModel，默认为：false */
+    public static final String LAZY_DATA_MODEL             = "LAZY_DATA_MODEL";
+    /** 集合转换中对 BatchUdf 和 Fragment 的逐个调用是否自动合并为一次批量调用，默认为：false */
+    public static final String AUTO_BATCH_CALL             = "AUTO_BATCH_CALL";
+    /** 单次执行最多允许执行的指令数，默认为：0（不限制）。只在查询开始时读取，脚本中的 hint 语句不能修改。 */
+    public static final String MAX_INSTRUCTIONS            = "MAX_INSTRUCTIONS";
+    /** 单次执行的最长时间（毫秒），默认为：0（不限制）。只在查询开始时读取，脚本中的 hint 语句不能修改。 */
+    public static final String EXECUTION_TIMEOUT           = "EXECUTION_TIMEOUT";
+    /** 单个指令序列的数据栈最多允许的元素个数，默认为：0（不限制）。只在查询开始时读取，脚本中的 hint 语句不能修改。 */
+    public static final String MAX_STACK_SIZE              = "MAX_STACK_SIZE";
+    /** 性能剖析模式，可选值有：off、full、sample，默认为：off。剖析结果通过 QueryResult.getProfiler() 获取 */
+    public static final String PROFILER_MODE               = "PROFILER_MODE";
+    /** 采样模式下的采样间隔（每多少条指令计时一次），默认为：64 */
+    public static final String PROFILER_SAMPLE_INTERVAL    = "PROFILER_SAMPLE_INTERVAL";
+    /** 对象字面量中多个字段的 UDF、Fragment 调用是否并发执行，默认为：false */
+    public static final String PARALLEL_FIELDS             = "PARALLEL_FIELDS";
     //
     //
     //
@@ -45,6 +63,14 @@ public interface HintValue {
     public static final String INDEX_OVERFLOW_NEAR         = "near";
     //
     //
+    /** 不进行性能剖析 */
+    public static final String PROFILER_MODE_OFF           = "off";
+    /** 对每条指令计时，统计结果精确，开销较大 */
+    public static final String PROFILER_MODE_FULL          = "full";
+    /** 按照 PROFILER_SAMPLE_INTERVAL 采样计时，统计结果为估算值，开销较小可用于生产环境 */
+    public static final String PROFILER_MODE_SAMPLE        = "sample";
+    //
+    //
     /** 浮点数计算使用的最小数值宽度，可选值有：float,double,big。默认为：double */
     public static final String MIN_DECIMAL_WIDTH_FLOAT     = "float";
     public static final String MIN_DECIMAL_WIDTH_DOUBLE    = "double";
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql;
+import net.hasor.dataql.runtime.QueryRuntimeException;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 预编译查询。创建后不可修改，可以被多个线程同时执行（无需 clone），每次执行只会创建独立的执行上下文。
+ * Hint 和全局变量在创建时确定，执行时可以传入各自的环境数据和附加的全局变量。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public interface PreparedQuery {
+    /** 执行查询 */
+    public default QueryResult execute() throws QueryRuntimeException {
+        return this.execute(symbol -> Collections.emptyMap());
+    }
+
+    /** 执行查询 */
+    public default QueryResult execute(Map<String, ?> envData) throws QueryRuntimeException {
+        return this.execute(symbol -> envData);
+    }
+
+    /** 执行查询 */
+    public default QueryResult execute(Object[] envData) throws QueryRuntimeException {
+        if (envData == null) {
+            return this.execute(Collections.emptyMap());
+        }
+        Map<String, Object> objectMap = new HashMap<>();
+        for (int i = 0; i < envData.length; i++) {
+            objectMap.put("_" + i, envData[i]);
+        }
+        return this.execute(objectMap);
+    }
+
+    /** 执行查询 */
+    public default QueryResult execute(CustomizeScope customizeScope) throws QueryRuntimeException {
+        return this.execute(customizeScope, Collections.emptyMap());
+    }
+
+    /**
+     * 执行查询
+     * @param customizeScope 本次执行的环境数据
+     * @param shareVarMap 本次执行附加的全局变量，会覆盖创建时确定的同名全局变量
+     */
+    public QueryResult execute(CustomizeScope customizeScope, Map<String, ?> shareVarMap) throws QueryRuntimeException;
+
+    /** 获取创建时确定的 Hint（只读） */
+    public Object getHint(String optionKey);
+}
@@ -15,14 +15,20 @@
  */
 package net.hasor.dataql;
 import net.hasor.dataql.domain.DataModel;
+import net.hasor.dataql.domain.JsonDataWriter;
+import net.hasor.dataql.runtime.QueryProfiler;
 import net.hasor.dataql.runtime.mem.ExitType;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
 /**
  * 结果集
  * @author 赵永春 (zyc@hasor.net)
  * @version : 2017-03-23
  */
-public interface QueryResult {
+public interface QueryResult extends AutoCloseable {
     /** 执行结果是否通过 EXIT 形式返回的 */
     public default boolean isExit() {
         return ExitType.Exit == getExitType();
@@ -39,4 +45,24 @@ public interface QueryResult {
 
     /** 获得本次执行耗时 */
     public long executionTime();
+
+    /** 获得本次执行的性能剖析数据，未开启 PROFILER_MODE 时返回 null */
+    public default QueryProfiler getProfiler() {
+        return null;
+    }
+
+    /** 关闭查询结果中尚未被读取完的游标，包括查询结束之后延迟转换出来的游标（游标在被 writeTo 输出或者遍历完之后会自动关闭） */
+    @Override
+    public default void close() {
+    }
+
+    /** 将返回值以 JSON 格式直接写入 Writer，不需要先 unwrap 再进行序列化 */
+    public default void writeTo(Writer writer) throws IOException {
+        new JsonDataWriter(writer).write(getData());
+    }
+
+    /** 将返回值以 JSON 格式（UTF-8 编码）直接写入输出流，不需要先 unwrap 再进行序列化 */
+    public default void writeTo(OutputStream outputStream) throws IOException {
+        JsonDataWriter.writeTo(getData(), outputStream);
+    }
 }
@@ -16,17 +16,23 @@
 package net.hasor.dataql;
 import net.hasor.dataql.domain.DataModel;
 import net.hasor.utils.BeanUtils;
+import net.hasor.utils.ClassUtils;
 import net.hasor.utils.StringUtils;
 import net.hasor.utils.convert.ConverterUtils;
 import net.hasor.utils.supplier.SingleProvider;
 
 import java.lang.annotation.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
@@ -73,6 +79,19 @@ public interface UdfSourceAssembly extends UdfSource {
     }
 
     public static class TypeUdfMap extends HashMap<String, Udf> {
+        /** 类型的方法列表，每个类型只扫描一次 */
+        private static final ClassValue<List<Method>>            METHOD_CACHE  = new ClassValue<List<Method>>() {
+            protected List<Method> computeValue(Class<?> type) {
+                return BeanUtils.getMethods(type);
+            }
+        };
+        /** 方法的调用器（MethodHandle + 参数转换），每个方法只创建一次 */
+        private static final ClassValue<Map<Method, UdfInvoker>> INVOKER_CACHE = new ClassValue<Map<Method, UdfInvoker>>() {
+            protected Map<Method, UdfInvoker> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+
         public TypeUdfMap(Class<?> utilType) {
             this(utilType, method -> true);
         }
@@ -82,7 +101,7 @@ public interface UdfSourceAssembly extends UdfSource {
         }
 
         public TypeUdfMap(Class<?> utilType, Supplier<?> provider, Predicate<Method> methodTypeMatcher) {
-            List<Method> methodList = BeanUtils.getMethods(utilType);
+            List<Method> methodList = METHOD_CACHE.get(utilType);
             for (Method method : methodList) {
                 initMethod(provider, methodTypeMatcher, method);
             }
@@ -137,49 +156,118 @@ public interface UdfSourceAssembly extends UdfSource {
             }
         }
 
-        private static Object doInvoke(Method targetMethod, Object target, Object[] values, Hints readOnly) throws Exception {
-            Class<?>[] parameterTypes = targetMethod.getParameterTypes();
-            Object[] inData = new Object[parameterTypes.length];
-            for (int i = 0; i < parameterTypes.length; i++) {
-                Object paramData;
-                if (Hints.class.isAssignableFrom(parameterTypes[i])) {
-                    paramData = readOnly;
-                } else if (UdfParams.class.isAssignableFrom(parameterTypes[i])) {
-                    paramData = (UdfParams) () -> values;
-                } else {
-                    paramData = (i < values.length) ? values[i] : null;
+        private static UdfInvoker invokerOf(Method method) {
+            Map<Method, UdfInvoker> invokerMap = INVOKER_CACHE.get(method.getDeclaringClass());
+            UdfInvoker invoker = invokerMap.get(method);
+            if (invoker == null) {
+                invoker = invokerMap.computeIfAbsent(method, UdfInvoker::new);
+            }
+            return invoker;
+        }
+
+        /** 预先解析好的方法调用器：通过 MethodHandle 调用，参数的转换方式在创建时确定 */
+        private static class UdfInvoker {
+            private static final int          ARG_VALUE  = 0;
+            private static final int          ARG_HINTS  = 1;
+            private static final int          ARG_PARAMS = 2;
+            private static final int          ARG_OBJECT = 3;
+            private final        String       name;
+            private final        MethodHandle handle;
+            private final        boolean      isStatic;
+            private final        Class<?>[]   parameterTypes;
+            private final        Class<?>[]   boxedTypes;
+            private final        int[]        argKinds;
+
+            public UdfInvoker(Method targetMethod) {
+                this.name = targetMethod.getDeclaringClass().getSimpleName() + "." + targetMethod.getName();
+                targetMethod.setAccessible(true);
+                try {
+                    MethodHandle handle = MethodHandles.lookup().unreflect(targetMethod);
+                    int handleParamCount = handle.type().parameterCount();
+                    this.handle = handle.asType(MethodType.genericMethodType(handleParamCount)).asSpreader(Object[].class, handleParamCount);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+                this.isStatic = Modifier.isStatic(targetMethod.getModifiers());
+                this.parameterTypes = targetMethod.getParameterTypes();
+                this.boxedTypes = new Class<?>[this.parameterTypes.length];
+                this.argKinds = new int[this.parameterTypes.length];
+                for (int i = 0; i < this.parameterTypes.length; i++) {
+                    Class<?> paramType = this.parameterTypes[i];
+                    this.boxedTypes[i] = ClassUtils.primitiveToWrapper(paramType);
+                    if (Hints.class.isAssignableFrom(paramType)) {
+                        this.argKinds[i] = ARG_HINTS;
+                    } else if (UdfParams.class.isAssignableFrom(paramType)) {
+                        this.argKinds[i] = ARG_PARAMS;
+                    } else if (paramType == Object.class) {
+                        this.argKinds[i] = ARG_OBJECT;
+                    } else {
+                        this.argKinds[i] = ARG_VALUE;
+                    }
+                }
+            }
+
+            public Object invoke(Object target, Object[] values, Hints readOnly) throws Exception {
+                int offset = this.isStatic ? 0 : 1;
+                Object[] inData = new Object[this.parameterTypes.length + offset];
+                if (!this.isStatic) {
+                    inData[0] = target;
                 }
-                //
-                if (paramData instanceof DataModel) {
-                    paramData = ((DataModel) paramData).asOri();
+                for (int i = 0; i < this.parameterTypes.length; i++) {
+                    Object paramData;
+                    switch (this.argKinds[i]) {
+                        case ARG_HINTS:
+                            paramData = readOnly;
+                            break;
+                        case ARG_PARAMS:
+                            paramData = (UdfParams) () -> values;
+                            break;
+                        default:
+                            paramData = (i < values.length) ? values[i] : null;
+                    }
+                    //
+                    if (paramData instanceof DataModel) {
+                        paramData = ((DataModel) paramData).asOri();
+                    }
+                    //
+                    if (this.argKinds[i] == ARG_OBJECT || this.boxedTypes[i].isInstance(paramData)) {
+                        inData[i + offset] = paramData;
+                    } else {
+                        inData[i + offset] = ConverterUtils.convert(this.parameterTypes[i], paramData);
+                    }
+                }
+                try {
+                    return this.handle.invokeExact(inData);
+                } catch (Throwable e) {
+                    throw new InvocationTargetException(e); // 和 Method.invoke 保持一致
                 }
-                //
-                inData[i] = ConverterUtils.convert(parameterTypes[i], paramData);
             }
-            return targetMethod.invoke(target, inData);
         }
 
         private static class StaticUdf implements Udf {
-            private final Method target;
+            private final UdfInvoker target;
 
             public StaticUdf(Method target) {
-                this.target = target;
-                this.target.setAccessible(true);
+                this.target = invokerOf(target);
             }
 
             @Override
             public Object call(Hints readOnly, Object... values) throws Throwable {
-                return doInvoke(target, null, values, readOnly);
+                return this.target.invoke(null, values, readOnly);
+            }
+
+            @Override
+            public String toString() {
+                return this.target.name;
             }
         }
 
         private static class ObjectUdf implements Udf {
-            private final Method      target;
+            private final UdfInvoker  target;
             private final Supplier<?> provider;
 
             public ObjectUdf(Method target, Supplier<?> provider) {
-                this.target = target;
-                this.target.setAccessible(true);
+                this.target = invokerOf(target);
                 this.provider = provider;
             }
 
@@ -189,7 +277,12 @@ public interface UdfSourceAssembly extends UdfSource {
                 if (targetObject == null) {
                     throw new NullPointerException("target Object is null.");
                 }
-                return doInvoke(target, targetObject, values, readOnly);
+                return this.target.invoke(targetObject, values, readOnly);
+            }
+
+            @Override
+            public String toString() {
+                return this.target.name;
             }
         }
     }
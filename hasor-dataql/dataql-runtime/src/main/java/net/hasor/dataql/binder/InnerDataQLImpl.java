@@ -19,11 +19,14 @@ import net.hasor.core.BindInfo;
 import net.hasor.dataql.DataQL;
 import net.hasor.dataql.Finder;
 import net.hasor.dataql.FragmentProcess;
+import net.hasor.dataql.PreparedQuery;
 import net.hasor.dataql.Query;
+import net.hasor.dataql.compiler.ImportModuleCache;
 import net.hasor.dataql.compiler.qil.QIL;
 import net.hasor.dataql.parser.QueryModel;
 import net.hasor.dataql.runtime.CompilerArguments;
 import net.hasor.dataql.runtime.HintsSet;
+import net.hasor.dataql.runtime.QueryCache;
 import net.hasor.dataql.runtime.QueryHelper;
 import net.hasor.utils.BeanUtils;
 import net.hasor.utils.ResourcesUtils;
@@ -32,11 +35,13 @@ import org.antlr.v4.runtime.CharStream;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
 /**
@@ -45,12 +50,14 @@ import java.util.function.Supplier;
  * @version : 2017-03-23
  */
 class InnerDataQLImpl extends HintsSet implements DataQL, Finder {
-    private final Map<String, Supplier<?>> compilerVarMap   = new HashMap<>();
-    private final Map<String, Supplier<?>> fragmentMap      = new LinkedCaseInsensitiveMap<>();
-    private final Map<String, Supplier<?>> importPrepareMap = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<?>> compilerVarMap    = new HashMap<>();
+    private final Map<String, Supplier<?>> fragmentMap       = new LinkedCaseInsensitiveMap<>();
+    private final Map<String, Supplier<?>> importPrepareMap  = new ConcurrentHashMap<>();
     private       AppContext               appContext;
     private       Finder                   parentFinder;
-    private final CompilerArguments        useArguments     = CompilerArguments.DEFAULT.copyAsNew();
+    private final CompilerArguments        useArguments      = CompilerArguments.DEFAULT.copyAsNew();
+    private final QueryCache               queryCache        = new QueryCache();
+    private final ImportModuleCache        importModuleCache = new ImportModuleCache(ImportModuleCache.DEFAULT_MAX_SIZE);
 
     public void initConfig(AppContext appContext) {
         this.appContext = appContext;
@@ -88,6 +95,26 @@ class InnerDataQLImpl extends HintsSet implements DataQL, Finder {
         return inputStream;
     }
 
+    /** 与 findResource 使用相同的 ClassLoader 定位资源，import 模块缓存据此区分不同 ClassLoader 中的同名资源 */
+    @Override
+    public URL resourceUrl(String resourceName) {
+        ClassLoader classLoader = this.appContext.getEnvironment().getClassLoader();
+        if (classLoader != null) {
+            return classLoader.getResource(ResourcesUtils.formatResource(resourceName));
+        }
+        return Finder.super.resourceUrl(resourceName);
+    }
+
+    @Override
+    public ImportModuleCache importModuleCache() {
+        return this.importModuleCache;
+    }
+
+    @Override
+    public Executor parallelExecutor() {
+        return (this.parentFinder != null) ? this.parentFinder.parallelExecutor() : null;
+    }
+
     @Override
     public Object findBean(Class<?> beanType) {
         String typeName = beanType.getName();
@@ -115,6 +142,10 @@ class InnerDataQLImpl extends HintsSet implements DataQL, Finder {
     /* -------------- DataQL -------------- */
     @Override
     public void configOption(ConfigOption optionKey, Object value) {
+        if (optionKey == ConfigOption.QUERY_CACHE_SIZE) {
+            this.queryCache.setMaxSize(Integer.parseInt(value.toString()));
+            return;
+        }
         BeanUtils.writePropertyOrField(this.useArguments, optionKey.getConfigName(), value);
     }
 
@@ -123,6 +154,11 @@ class InnerDataQLImpl extends HintsSet implements DataQL, Finder {
         return this;
     }
 
+    @Override
+    public QueryCache getQueryCache() {
+        return this.queryCache;
+    }
+
     @Override
     public <T> DataQL addShareVar(String name, Class<? extends T> implementation) {
         this.compilerVarMap.put(name, () -> findBean(implementation));
@@ -163,11 +199,20 @@ class InnerDataQLImpl extends HintsSet implements DataQL, Finder {
         return QueryHelper.queryParser(charStream);
     }
 
+    @Override
+    public QIL compilerQuery(String queryString) throws IOException {
+        return this.queryCache.queryCompiler(queryString, this.buildArguments(), getFinder());
+    }
+
     @Override
     public QIL compilerQuery(QueryModel queryModel) throws IOException {
+        return QueryHelper.queryCompiler(queryModel, this.buildArguments(), getFinder());
+    }
+
+    private CompilerArguments buildArguments() {
         CompilerArguments compilerArguments = this.useArguments.copyAsNew();
         compilerArguments.getCompilerVar().addAll(this.compilerVarMap.keySet());
-        return QueryHelper.queryCompiler(queryModel, compilerArguments, getFinder());
+        return compilerArguments;
     }
 
     @Override
@@ -177,4 +222,9 @@ class InnerDataQLImpl extends HintsSet implements DataQL, Finder {
         query.setHints(this);
         return query;
     }
+
+    @Override
+    public PreparedQuery prepareQuery(QIL compilerQIL) {
+        return QueryHelper.createPreparedQuery(compilerQIL, this, this, this.compilerVarMap);
+    }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.compiler;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.parser.QueryModel;
+import net.hasor.dataql.runtime.QueryHelper;
+import net.hasor.utils.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <code>import @"/net/hasor/demo.ql" as demo;</code> 导入模块的缓存（LRU），缓存的是模块解析之后的 AST，
+ * 同一个模块被多个查询导入时只需要解析一次。AST 在编译过程中只读，因此可以被多次编译共享。
+ * <p>缓存由 Finder.importModuleCache 提供（例如每个 DataQL 实例一个），缓存 Key 为 Finder.resourceUrl 解析出来的资源位置，未知时为资源名称。
+ * 修改标记（Finder.resourceStamp，未知时为 file、jar 资源所在文件的修改时间）和文件长度都与缓存时相同时直接命中缓存，
+ * 否则读取资源内容并与缓存时的内容比较，内容发生变化时重新解析。该类是线程安全的。</p>
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class ImportModuleCache {
+    /** 默认缓存容量 */
+    public static final int                      DEFAULT_MAX_SIZE = 256;
+    private final       Map<String, ModuleEntry> cacheMap         = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile    int                      maxSize;
+    private final       AtomicLong               hitCount         = new AtomicLong();
+    private final       AtomicLong               missCount        = new AtomicLong();
+
+    /** @param maxSize 最大缓存条目数，小于等于 0 表示禁用缓存 */
+    public ImportModuleCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    private static class ModuleEntry {
+        private final long       resourceStamp;
+        private final long       resourceLength;
+        private final String     content;
+        private final QueryModel module;
+
+        public ModuleEntry(long resourceStamp, long resourceLength, String content, QueryModel module) {
+            this.resourceStamp = resourceStamp;
+            this.resourceLength = resourceLength;
+            this.content = content;
+            this.module = module;
+        }
+    }
+
+    /**
+     * 加载并解析导入的模块，模块未发生变化时返回缓存的 AST。
+     * @param resourceName 资源名称
+     * @param finder 资源加载器
+     */
+    public QueryModel loadModule(String resourceName, Finder finder) throws IOException {
+        URL resourceUrl = finder.resourceUrl(resourceName);
+        String cacheKey = (resourceUrl != null) ? resourceUrl.toExternalForm() : resourceName;
+        long resourceStamp = finder.resourceStamp(resourceName);
+        long resourceLength = -1;
+        File resourceFile = localFile(resourceUrl);
+        if (resourceFile != null) {
+            resourceStamp = (resourceStamp > 0) ? resourceStamp : resourceFile.lastModified();
+            resourceLength = resourceFile.length();
+        }
+        ModuleEntry entry = null;
+        if (this.maxSize > 0) {
+            synchronized (this.cacheMap) {
+                entry = this.cacheMap.get(cacheKey);
+            }
+        }
+        if (entry != null && resourceStamp > 0 && entry.resourceStamp == resourceStamp && entry.resourceLength == resourceLength) {
+            this.hitCount.incrementAndGet();
+            return entry.module;
+        }
+        //
+        // .修改标记未知或者不同时比较资源内容
+        String content = null;
+        try (InputStream inputStream = Objects.requireNonNull(finder.findResource(resourceName), "import resource '" + resourceName + "' not found.")) {
+            content = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+        }
+        if (entry != null && entry.content.equals(content)) {
+            this.hitCount.incrementAndGet();
+            if (entry.resourceStamp != resourceStamp || entry.resourceLength != resourceLength) {
+                this.putEntry(cacheKey, new ModuleEntry(resourceStamp, resourceLength, content, entry.module));
+            }
+            return entry.module;
+        }
+        this.missCount.incrementAndGet();
+        QueryModel module = QueryHelper.queryParser(content);
+        if (this.maxSize > 0) {
+            this.putEntry(cacheKey, new ModuleEntry(resourceStamp, resourceLength, content, module));
+        }
+        return module;
+    }
+
+    /** 资源所在的本地文件：file 资源为文件本身，jar 资源为 jar 文件（只读取文件属性，不打开 jar）。其它资源返回 null */
+    private static File localFile(URL resourceUrl) {
+        if (resourceUrl == null) {
+            return null;
+        }
+        try {
+            URL fileUrl = resourceUrl;
+            if ("jar".equalsIgnoreCase(resourceUrl.getProtocol())) {
+                String jarPath = resourceUrl.getPath();
+                int separator = jarPath.indexOf("!/");
+                fileUrl = new URL((separator < 0) ? jarPath : jarPath.substring(0, separator));
+            }
+            if (!"file".equalsIgnoreCase(fileUrl.getProtocol())) {
+                return null;
+            }
+            File file = new File(fileUrl.toURI());
+            return file.isFile() ? file : null;
+        } catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void putEntry(String resourceName, ModuleEntry entry) {
+        synchronized (this.cacheMap) {
+            this.cacheMap.put(resourceName, entry);
+            Iterator<Map.Entry<String, ModuleEntry>> iterator = this.cacheMap.entrySet().iterator();
+            while (this.cacheMap.size() > Math.max(this.maxSize, 0) && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 使某个模块的缓存失效
+     * @param resourceKey 资源位置（Finder.resourceUrl 的 toExternalForm），资源位置未知的模块为资源名称
+     */
+    public void invalidate(String resourceKey) {
+        synchronized (this.cacheMap) {
+            this.cacheMap.remove(resourceKey);
+        }
+    }
+
+    /** 调整最大缓存条目数，小于等于 0 表示禁用缓存 */
+    public void setMaxSize(int maxSize) {
+        synchronized (this.cacheMap) {
+            this.maxSize = maxSize;
+            if (maxSize <= 0) {
+                this.cacheMap.clear();
+            }
+        }
+    }
+
+    /** 当前缓存的条目数 */
+    public int size() {
+        synchronized (this.cacheMap) {
+            return this.cacheMap.size();
+        }
+    }
+
+    /** 清空缓存（统计数据保留） */
+    public void clear() {
+        synchronized (this.cacheMap) {
+            this.cacheMap.clear();
+        }
+    }
+
+    /** 命中次数 */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /** 未命中（需要解析）次数 */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+}
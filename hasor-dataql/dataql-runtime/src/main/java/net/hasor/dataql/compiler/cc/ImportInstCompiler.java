@@ -22,12 +22,8 @@ import net.hasor.dataql.parser.ast.inst.ImportInst;
 import net.hasor.dataql.parser.ast.inst.ImportInst.ImportType;
 import net.hasor.dataql.parser.ast.inst.RootBlockSet;
 import net.hasor.dataql.parser.ast.token.StringToken;
-import net.hasor.dataql.runtime.QueryHelper;
 import net.hasor.utils.ExceptionUtils;
 
-import java.io.InputStream;
-import java.util.Objects;
-
 /**
  * import 语法
  * @author 赵永春 (zyc@hasor.net)
@@ -74,8 +70,7 @@ public class ImportInstCompiler implements InstCompiler<ImportInst> {
         // .parser资源
         RootBlockSet queryModel = null;
         try {
-            InputStream inputStream = Objects.requireNonNull(compilerContext.findResource(importName), "import resource '" + importName + "' not found.");
-            queryModel = (RootBlockSet) QueryHelper.queryParser(inputStream);
+            queryModel = (RootBlockSet) compilerContext.loadModule(importName);
         } catch (Exception e) {
             throw ExceptionUtils.toRuntime(e, throwable -> new QueryCompilerException("import compiler failed -> parser failed.", throwable));
         }
@@ -14,7 +14,10 @@
  * limitations under the License.
  */
 package net.hasor.dataql.compiler.qil;
+import net.hasor.dataql.compiler.ImportModuleCache;
+import net.hasor.dataql.parser.QueryModel;
 import net.hasor.dataql.parser.ast.Inst;
+import net.hasor.dataql.runtime.QueryHelper;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -40,6 +43,17 @@ public class CompilerContext {
         return this.compilerEnvironment.findResource(resourceName);
     }
 
+    /** 加载 import 导入的模块，Finder 提供了 ImportModuleCache 时模块的解析结果由它缓存 */
+    public QueryModel loadModule(String resourceName) throws IOException {
+        ImportModuleCache moduleCache = this.compilerEnvironment.importModuleCache();
+        if (moduleCache != null) {
+            return moduleCache.loadModule(resourceName, this.compilerEnvironment);
+        }
+        try (InputStream inputStream = Objects.requireNonNull(this.findResource(resourceName), "import resource '" + resourceName + "' not found.")) {
+            return QueryHelper.queryParser(inputStream);
+        }
+    }
+
     public <T extends Inst> InstCompilerExecutor findInstCompilerByInst(T instObject) {
         Class<T> instClass = (Class<T>) instObject.getClass();
         return findInstCompilerByInst(instObject, instClass);
@@ -15,6 +15,7 @@
  */
 package net.hasor.dataql.compiler.qil;
 import net.hasor.dataql.Finder;
+import net.hasor.dataql.compiler.ImportModuleCache;
 import net.hasor.dataql.compiler.cc.*;
 import net.hasor.dataql.parser.ast.Inst;
 import net.hasor.dataql.parser.ast.expr.*;
@@ -25,6 +26,7 @@ import net.hasor.dataql.parser.ast.value.*;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -46,6 +48,21 @@ public class CompilerEnvironment implements Finder {
         return this.finder.findResource(resourceName);
     }
 
+    @Override
+    public URL resourceUrl(String resourceName) {
+        return this.finder.resourceUrl(resourceName);
+    }
+
+    @Override
+    public long resourceStamp(String resourceName) {
+        return this.finder.resourceStamp(resourceName);
+    }
+
+    @Override
+    public ImportModuleCache importModuleCache() {
+        return this.finder.importModuleCache();
+    }
+
     public <T extends Inst> InstCompiler<T> findInstCompilerByType(Class<T> instType) {
         return (InstCompiler<T>) Objects.requireNonNull(typeMappingToInstCompiler.get(instType), "not found " + instType.getName() + " InstCompiler.");
     }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.compiler.qil;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对象字面量（NEW_O ... PUT）的字段依赖分析。
+ * 对象的字段之间不能互相引用，当字段的值直接来自一次调用（CALL 之后紧跟 PUT）时，这些调用可以并发执行，
+ * 只需在对象的最后一个 PUT 之后等待全部结果。只有两个及以上的字段是调用时才会被标记。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+class ParallelFieldAnalyzer implements Opcodes {
+    /**
+     * 分析一个指令序列
+     * @param parallelCalls 输出：可以并发执行的 CALL 指令
+     * @param parallelJoins 输出：需要等待并发调用结果的 PUT 指令（对象字面量的最后一个字段）
+     */
+    public static void analyze(Instruction[] instList, boolean[] parallelCalls, boolean[] parallelJoins) {
+        for (int i = 0; i < instList.length; i++) {
+            if (instList[i].getInstCode() != NEW_O) {
+                continue;
+            }
+            List<Integer> callList = new ArrayList<>();
+            int lastPut = -1;
+            int fieldStart = i + 1;
+            while (true) {
+                while (fieldStart < instList.length && instList[fieldStart].getInstCode() == LINE) {
+                    fieldStart++;
+                }
+                int fieldPut = findFieldPut(instList, fieldStart);
+                if (fieldPut < 0) {
+                    break;
+                }
+                int valueEnd = fieldPut - 1;
+                while (valueEnd > fieldStart && instList[valueEnd].getInstCode() == LINE) {
+                    valueEnd--;
+                }
+                if (instList[valueEnd].getInstCode() == CALL) {
+                    callList.add(valueEnd);
+                }
+                lastPut = fieldPut;
+                fieldStart = fieldPut + 1;
+            }
+            if (callList.size() > 1) {
+                callList.forEach(callIndex -> parallelCalls[callIndex] = true);
+                parallelJoins[lastPut] = true;
+            }
+        }
+    }
+
+    /** 从 start 开始模拟栈深度（对象位于深度 1），找到将字段值放入对象的 PUT 指令，不是一个字段时返回 -1 */
+    private static int findFieldPut(Instruction[] instList, int start) {
+        Map<Integer, Integer> jumpDepth = new HashMap<>();
+        int depth = 1;
+        boolean afterGoto = false;
+        for (int i = start; i < instList.length; i++) {
+            Instruction inst = instList[i];
+            if (afterGoto) {
+                Integer targetDepth = jumpDepth.get(i);
+                if (targetDepth == null) {
+                    return -1;
+                }
+                depth = targetDepth;
+                afterGoto = false;
+            }
+            byte instCode = inst.getInstCode();
+            if (instCode == PUT && depth == 2 && i > start) {
+                return i;
+            }
+            if (instCode == RETURN || instCode == EXIT || instCode == THROW) {
+                return -1;
+            }
+            depth = depth + stackEffect(inst);
+            if (depth < 1 || (i == start && depth < 2)) {
+                return -1; // 消费了对象本身，或者不是以产生字段值开始
+            }
+            if (instCode == IF) {
+                jumpDepth.put(inst.getInt(0), depth);
+            } else if (instCode == GOTO) {
+                jumpDepth.put(inst.getInt(0), depth);
+                afterGoto = true;
+            }
+        }
+        return -1;
+    }
+
+    /** 指令对数据栈深度的影响 */
+    private static int stackEffect(Instruction inst) {
+        switch (inst.getInstCode()) {
+            case LDC_D:
+            case LDC_B:
+            case LDC_S:
+            case LDC_N:
+            case NEW_O:
+            case NEW_A:
+            case LOAD:
+            case COPY:
+            case E_LOAD:
+            case LOAD_C:
+            case M_REF:
+            case M_TYP:
+            case M_FRAG:
+                return 1;
+            case STORE:
+            case PUT:
+            case PUSH:
+            case DO:
+            case IF:
+            case E_PUSH:
+            case POP:
+                return -1;
+            case GET:
+            case PULL:
+                return (inst.getArrays().length > 0) ? 0 : -1;
+            case CALL:
+                return -inst.getInt(0);
+            case HINT:
+                return -2;
+            default:
+                return 0;
+        }
+    }
+}
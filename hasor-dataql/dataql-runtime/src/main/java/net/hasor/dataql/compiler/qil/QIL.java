@@ -27,16 +27,50 @@ import java.util.Map;
 public class QIL {
     private final Instruction[][]      queueSet;
     private final Map<String, Integer> compilerVar;
+    private final int                  optimizedCount;
+    private final int[]                localSizes;
+    private final boolean[]            closures;
+    private volatile ParallelFields    parallelFields; // 第一次使用时分析（只有启用 PARALLEL_FIELDS 时才会用到）
 
     public QIL(Instruction[][] queueSet, Map<String, Integer> compilerVar) {
+        this(queueSet, compilerVar, 0);
+    }
+
+    public QIL(Instruction[][] queueSet, Map<String, Integer> compilerVar, int optimizedCount) {
         this.queueSet = queueSet;
         this.compilerVar = compilerVar;
+        this.optimizedCount = optimizedCount;
+        this.localSizes = new int[queueSet.length];
+        this.closures = new boolean[queueSet.length];
+        for (int address = 0; address < queueSet.length; address++) {
+            for (Instruction inst : queueSet[address]) {
+                byte instCode = inst.getInstCode();
+                if (instCode == Opcodes.STORE) {
+                    this.localSizes[address] = Math.max(this.localSizes[address], inst.getInt(0) + 1);
+                } else if (instCode == Opcodes.LOCAL) {
+                    this.localSizes[address] = Math.max(this.localSizes[address], inst.getInt(1) + 1);
+                } else if (instCode == Opcodes.M_REF) {
+                    this.closures[address] = true;
+                }
+            }
+        }
+        // .编译期变量由 QueryImpl 预先写入入口方法的堆
+        for (Integer varIndex : compilerVar.values()) {
+            if (this.localSizes.length > 0) {
+                this.localSizes[0] = Math.max(this.localSizes[0], varIndex + 1);
+            }
+        }
     }
 
     public Map<String, Integer> getCompilerVar() {
         return Collections.unmodifiableMap(this.compilerVar);
     }
 
+    /** 编译期被 QilOptimizer 优化掉的指令数，未启用优化时为 0 */
+    public int getOptimizedCount() {
+        return this.optimizedCount;
+    }
+
     @Override
     public String toString() {
         StringBuilder strBuffer = new StringBuilder();
@@ -73,6 +107,67 @@ public class QIL {
         return this.queueSet[address].length;
     }
 
+    /** 方法使用的本地变量槽位数（STORE、LOCAL 用到的最大位置 + 1） */
+    public int localSize(int address) {
+        return this.localSizes[address];
+    }
+
+    /** 方法中是否会创建闭包（M_REF），闭包会引用方法的堆 */
+    public boolean hasClosure(int address) {
+        return this.closures[address];
+    }
+
+    /** CALL 指令的结果是否直接作为对象字面量的字段值，并且可以与同一对象的其它字段调用并发执行 */
+    public boolean isParallelCall(int address, int index) {
+        boolean[] parallelCalls = this.parallelFields().parallelCalls[address];
+        return parallelCalls != null && parallelCalls[index];
+    }
+
+    /** PUT 指令是否为含有并发调用的对象字面量的最后一个字段，执行后需要等待所有并发调用的结果 */
+    public boolean isParallelJoin(int address, int index) {
+        boolean[] parallelJoins = this.parallelFields().parallelJoins[address];
+        return parallelJoins != null && parallelJoins[index];
+    }
+
+    private ParallelFields parallelFields() {
+        ParallelFields parallelFields = this.parallelFields;
+        if (parallelFields == null) {
+            parallelFields = new ParallelFields(this.queueSet); // 分析结果相同，并发时重复分析也没有问题
+            this.parallelFields = parallelFields;
+        }
+        return parallelFields;
+    }
+
+    /** 对象字面量的并发字段分析结果，没有并发调用的方法为 null */
+    private static class ParallelFields {
+        private final boolean[][] parallelCalls;
+        private final boolean[][] parallelJoins;
+
+        ParallelFields(Instruction[][] queueSet) {
+            this.parallelCalls = new boolean[queueSet.length][];
+            this.parallelJoins = new boolean[queueSet.length][];
+            for (int address = 0; address < queueSet.length; address++) {
+                boolean hasObject = false;
+                for (Instruction inst : queueSet[address]) {
+                    hasObject = hasObject || inst.getInstCode() == Opcodes.NEW_O;
+                }
+                if (!hasObject) {
+                    continue;
+                }
+                boolean[] parallelCalls = new boolean[queueSet[address].length];
+                boolean[] parallelJoins = new boolean[queueSet[address].length];
+                ParallelFieldAnalyzer.analyze(queueSet[address], parallelCalls, parallelJoins);
+                for (boolean parallelJoin : parallelJoins) {
+                    if (parallelJoin) {
+                        this.parallelCalls[address] = parallelCalls;
+                        this.parallelJoins[address] = parallelJoins;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
     /** 获取指令 */
     public Instruction instOf(int address, int index) {
         return this.queueSet[address][index];
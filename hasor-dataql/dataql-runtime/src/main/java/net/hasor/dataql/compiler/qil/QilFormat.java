@@ -0,0 +1,237 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.compiler.qil;
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * QIL 的二进制格式，用于把编译好的 QIL 持久化并在之后直接加载（无需再经过 parser 和 compiler）。
+ * <pre>
+ * magic(int) + version(short) + optimizedCount(int)
+ * + 字符串常量池：count(int) + [ length(int) + utf8 bytes ]...
+ * + 编译变量表：count(int) + [ nameIdx(int) + localIdx(int) ]...
+ * + 指令序列集：count(int) + [ instCount(int) + [ instCode(byte) + paramCount(short) + [ tag(byte) + value ]... ]... ]...
+ * </pre>
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class QilFormat {
+    /** 文件魔数："DQIL" */
+    public static final  int    MAGIC          = 0x4451494C;
+    /** 当前格式版本 */
+    public static final  short  VERSION        = 1;
+    /** 预编译 QIL 文件的推荐扩展名 */
+    public static final  String FILE_SUFFIX    = ".qil";
+    //
+    private static final byte   TAG_NULL       = 0;
+    private static final byte   TAG_BOOLEAN    = 1;
+    private static final byte   TAG_BYTE       = 2;
+    private static final byte   TAG_SHORT      = 3;
+    private static final byte   TAG_INT        = 4;
+    private static final byte   TAG_LONG       = 5;
+    private static final byte   TAG_FLOAT      = 6;
+    private static final byte   TAG_DOUBLE     = 7;
+    private static final byte   TAG_BIGINTEGER = 8;
+    private static final byte   TAG_BIGDECIMAL = 9;
+    private static final byte   TAG_STRING     = 10;
+
+    /** 将 QIL 写入到输出流（不关闭流） */
+    public static void writeTo(QIL qil, OutputStream outputStream) throws IOException {
+        DataOutputStream dataOutput = new DataOutputStream(outputStream);
+        Map<String, Integer> stringPool = new LinkedHashMap<>();
+        qil.getCompilerVar().keySet().forEach(varName -> stringPool.putIfAbsent(varName, stringPool.size()));
+        for (int address = 0; address < qil.iqlPoolSize(); address++) {
+            for (Instruction inst : qil.iqlArrays(address)) {
+                for (Object param : inst.getArrays()) {
+                    if (param instanceof String) {
+                        stringPool.putIfAbsent((String) param, stringPool.size());
+                    }
+                }
+            }
+        }
+        //
+        dataOutput.writeInt(MAGIC);
+        dataOutput.writeShort(VERSION);
+        dataOutput.writeInt(qil.getOptimizedCount());
+        // .字符串常量池
+        dataOutput.writeInt(stringPool.size());
+        for (String str : stringPool.keySet()) {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            dataOutput.writeInt(bytes.length);
+            dataOutput.write(bytes);
+        }
+        // .编译变量表
+        Map<String, Integer> compilerVar = qil.getCompilerVar();
+        dataOutput.writeInt(compilerVar.size());
+        for (Map.Entry<String, Integer> ent : compilerVar.entrySet()) {
+            dataOutput.writeInt(stringPool.get(ent.getKey()));
+            dataOutput.writeInt(ent.getValue());
+        }
+        // .指令序列集
+        dataOutput.writeInt(qil.iqlPoolSize());
+        for (int address = 0; address < qil.iqlPoolSize(); address++) {
+            Instruction[] instList = qil.iqlArrays(address);
+            dataOutput.writeInt(instList.length);
+            for (Instruction inst : instList) {
+                Object[] params = inst.getArrays();
+                dataOutput.writeByte(inst.getInstCode());
+                dataOutput.writeShort(params.length);
+                for (Object param : params) {
+                    writeParam(dataOutput, param, stringPool);
+                }
+            }
+        }
+        dataOutput.flush();
+    }
+
+    /** 将 QIL 序列化为字节数组 */
+    public static byte[] toBytes(QIL qil) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeTo(qil, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /** 从输入流中加载 QIL（不关闭流） */
+    public static QIL readFrom(InputStream inputStream) throws IOException {
+        DataInputStream dataInput = new DataInputStream(inputStream);
+        int magic = dataInput.readInt();
+        if (magic != MAGIC) {
+            throw new IOException("not a QIL binary stream, bad magic 0x" + Integer.toHexString(magic));
+        }
+        short version = dataInput.readShort();
+        if (version != VERSION) {
+            throw new IOException("unsupported QIL binary version " + version + ", expected " + VERSION);
+        }
+        int optimizedCount = dataInput.readInt();
+        // .字符串常量池
+        String[] stringPool = new String[dataInput.readInt()];
+        for (int i = 0; i < stringPool.length; i++) {
+            byte[] bytes = new byte[dataInput.readInt()];
+            dataInput.readFully(bytes);
+            stringPool[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        // .编译变量表
+        int varCount = dataInput.readInt();
+        Map<String, Integer> compilerVar = new HashMap<>();
+        for (int i = 0; i < varCount; i++) {
+            String varName = stringPool[dataInput.readInt()];
+            compilerVar.put(varName, dataInput.readInt());
+        }
+        // .指令序列集
+        Instruction[][] queueSet = new Instruction[dataInput.readInt()][];
+        for (int address = 0; address < queueSet.length; address++) {
+            Instruction[] instList = new Instruction[dataInput.readInt()];
+            for (int i = 0; i < instList.length; i++) {
+                byte instCode = dataInput.readByte();
+                Object[] params = new Object[dataInput.readShort()];
+                for (int p = 0; p < params.length; p++) {
+                    params[p] = readParam(dataInput, stringPool);
+                }
+                instList[i] = new InstructionInfo(instCode, params);
+            }
+            queueSet[address] = instList;
+        }
+        return new QIL(queueSet, compilerVar, optimizedCount);
+    }
+
+    /** 从字节数组中加载 QIL */
+    public static QIL fromBytes(byte[] qilBytes) throws IOException {
+        return readFrom(new ByteArrayInputStream(qilBytes));
+    }
+
+    private static void writeParam(DataOutputStream dataOutput, Object param, Map<String, Integer> stringPool) throws IOException {
+        if (param == null) {
+            dataOutput.writeByte(TAG_NULL);
+        } else if (param instanceof String) {
+            dataOutput.writeByte(TAG_STRING);
+            dataOutput.writeInt(stringPool.get(param));
+        } else if (param instanceof Boolean) {
+            dataOutput.writeByte(TAG_BOOLEAN);
+            dataOutput.writeBoolean((Boolean) param);
+        } else if (param instanceof Integer) {
+            dataOutput.writeByte(TAG_INT);
+            dataOutput.writeInt((Integer) param);
+        } else if (param instanceof Long) {
+            dataOutput.writeByte(TAG_LONG);
+            dataOutput.writeLong((Long) param);
+        } else if (param instanceof Double) {
+            dataOutput.writeByte(TAG_DOUBLE);
+            dataOutput.writeDouble((Double) param);
+        } else if (param instanceof Float) {
+            dataOutput.writeByte(TAG_FLOAT);
+            dataOutput.writeFloat((Float) param);
+        } else if (param instanceof Short) {
+            dataOutput.writeByte(TAG_SHORT);
+            dataOutput.writeShort((Short) param);
+        } else if (param instanceof Byte) {
+            dataOutput.writeByte(TAG_BYTE);
+            dataOutput.writeByte((Byte) param);
+        } else if (param instanceof BigInteger) {
+            dataOutput.writeByte(TAG_BIGINTEGER);
+            byte[] bytes = ((BigInteger) param).toByteArray();
+            dataOutput.writeInt(bytes.length);
+            dataOutput.write(bytes);
+        } else if (param instanceof BigDecimal) {
+            dataOutput.writeByte(TAG_BIGDECIMAL);
+            byte[] bytes = ((BigDecimal) param).unscaledValue().toByteArray();
+            dataOutput.writeInt(((BigDecimal) param).scale());
+            dataOutput.writeInt(bytes.length);
+            dataOutput.write(bytes);
+        } else {
+            throw new IOException("unsupported QIL param type " + param.getClass().getName());
+        }
+    }
+
+    private static Object readParam(DataInputStream dataInput, String[] stringPool) throws IOException {
+        byte tag = dataInput.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return stringPool[dataInput.readInt()];
+            case TAG_BOOLEAN:
+                return dataInput.readBoolean();
+            case TAG_INT:
+                return dataInput.readInt();
+            case TAG_LONG:
+                return dataInput.readLong();
+            case TAG_DOUBLE:
+                return dataInput.readDouble();
+            case TAG_FLOAT:
+                return dataInput.readFloat();
+            case TAG_SHORT:
+                return dataInput.readShort();
+            case TAG_BYTE:
+                return dataInput.readByte();
+            case TAG_BIGINTEGER: {
+                byte[] bytes = new byte[dataInput.readInt()];
+                dataInput.readFully(bytes);
+                return new BigInteger(bytes);
+            }
+            case TAG_BIGDECIMAL: {
+                int scale = dataInput.readInt();
+                byte[] bytes = new byte[dataInput.readInt()];
+                dataInput.readFully(bytes);
+                return new BigDecimal(new BigInteger(bytes), scale);
+            }
+            default:
+                throw new IOException("bad QIL param tag " + tag);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.compiler.qil;
+import net.hasor.dataql.parser.location.LocationUtils;
+import net.hasor.dataql.runtime.HintsSet;
+import net.hasor.dataql.runtime.operator.OperatorManager;
+import net.hasor.dataql.runtime.operator.OperatorProcess;
+import net.hasor.dataql.runtime.operator.ops.BinaryDOP;
+import net.hasor.dataql.runtime.operator.ops.NumberDOP;
+import net.hasor.dataql.runtime.operator.ops.NumberUOP;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * QIL 优化器，在指令序列生成之后（Label 已经替换为指令位置）、构建 QIL 之前执行：
+ * <ul>
+ *     <li>死代码：删除无法到达的指令（例如 RETURN 之后的指令），以及没有被任何 M_REF 引用到的指令序列。</li>
+ *     <li>LABEL：LABEL 指令没有实际作用，全部删除，跳转目标调整到其后的第一条指令。</li>
+ *     <li>LINE：连续的 LINE 指令只保留最后一条。</li>
+ *     <li>常量折叠：LDC 常量参与的 UO/DO 运算，在编译期计算结果并替换为一条 LDC 指令。</li>
+ * </ul>
+ * 数值的精度宽度和舍入方式是在运行期由 Hint 决定的，因此数值运算（NumberDOP、NumberUOP、BinaryDOP）以及数值参与的字符串拼接不做折叠。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class QilOptimizer implements Opcodes {
+    private static final Object          NOT_CONSTANT = new Object();
+    private final        Instruction[][] queueSet;
+    private              int             removedCount;
+
+    public QilOptimizer(Instruction[][] queueSet) {
+        this.queueSet = queueSet;
+    }
+
+    /** 执行优化，返回优化之后的指令序列集 */
+    public Instruction[][] optimize() {
+        // .删除没有被引用的指令序列（0号为入口）
+        int[] addressMapping = new int[this.queueSet.length];
+        Arrays.fill(addressMapping, -1);
+        List<Instruction[]> methodList = new ArrayList<>();
+        List<Integer> pending = new ArrayList<>();
+        pending.add(0);
+        addressMapping[0] = 0;
+        for (int p = 0; p < pending.size(); p++) {
+            int address = pending.get(p);
+            Instruction[] instList = optimizeMethod(this.queueSet[address]);
+            methodList.add(instList);
+            for (Instruction inst : instList) {
+                if (inst.getInstCode() == M_REF && addressMapping[inst.getInt(0)] < 0) {
+                    addressMapping[inst.getInt(0)] = pending.size();
+                    pending.add(inst.getInt(0));
+                }
+            }
+        }
+        for (int address = 0; address < this.queueSet.length; address++) {
+            if (addressMapping[address] < 0) {
+                this.removedCount += this.queueSet[address].length;
+            }
+        }
+        // .调整 M_REF 引用的地址
+        Instruction[][] optimized = methodList.toArray(new Instruction[0][]);
+        for (Instruction[] instList : optimized) {
+            for (int i = 0; i < instList.length; i++) {
+                if (instList[i].getInstCode() == M_REF) {
+                    instList[i] = replaceParam(instList[i], addressMapping[instList[i].getInt(0)]);
+                }
+            }
+        }
+        return optimized;
+    }
+
+    /** 被优化掉的指令总数 */
+    public int getRemovedCount() {
+        return this.removedCount;
+    }
+
+    private Instruction[] optimizeMethod(Instruction[] instList) {
+        if (instList.length == 0) {
+            return instList;
+        }
+        instList = instList.clone();
+        boolean[] removed = new boolean[instList.length];
+        boolean[] jumpTarget = new boolean[instList.length + 1];
+        //
+        // .死代码：从入口开始沿着控制流标记可以到达的指令
+        boolean[] reachable = new boolean[instList.length];
+        List<Integer> pending = new ArrayList<>();
+        pending.add(0);
+        while (!pending.isEmpty()) {
+            int index = pending.remove(pending.size() - 1);
+            while (index < instList.length && !reachable[index]) {
+                reachable[index] = true;
+                byte instCode = instList[index].getInstCode();
+                if (instCode == IF) {
+                    pending.add(instList[index].getInt(0));
+                } else if (instCode == GOTO) {
+                    pending.add(instList[index].getInt(0));
+                    break;
+                } else if (instCode == RETURN || instCode == EXIT || instCode == THROW) {
+                    break;
+                }
+                index++;
+            }
+        }
+        for (int i = 0; i < instList.length; i++) {
+            removed[i] = !reachable[i];
+            if (reachable[i] && isJump(instList[i])) {
+                jumpTarget[instList[i].getInt(0)] = true;
+            }
+        }
+        //
+        // .LABEL（最后一条指令保留，防止跳转目标越界）
+        for (int i = 0; i < instList.length - 1; i++) {
+            removed[i] = removed[i] || instList[i].getInstCode() == LABEL;
+        }
+        //
+        // .常量折叠（运算结果放在原 UO/DO 的位置上，操作数指令删除，操作数之间的 LINE 不影响折叠。被折叠的范围内不能存在跳转目标）
+        for (int i = 0; i < instList.length; i++) {
+            if (removed[i]) {
+                continue;
+            }
+            byte instCode = instList[i].getInstCode();
+            if (instCode == UO) {
+                int fst = prevOperand(instList, removed, i);
+                if (fst < 0 || hasJumpTarget(jumpTarget, fst, i)) {
+                    continue;
+                }
+                Object result = evalUnary(instList[i].getString(0), constantOf(instList[fst]));
+                if (result != NOT_CONSTANT) {
+                    instList[i] = constantInst(result);
+                    removed[fst] = true;
+                }
+            } else if (instCode == DO) {
+                int sec = prevOperand(instList, removed, i);
+                int fst = (sec < 0) ? -1 : prevOperand(instList, removed, sec);
+                if (fst < 0 || hasJumpTarget(jumpTarget, fst, i)) {
+                    continue;
+                }
+                Object result = evalDyadic(instList[i].getString(0), constantOf(instList[fst]), constantOf(instList[sec]));
+                if (result != NOT_CONSTANT) {
+                    instList[i] = constantInst(result);
+                    removed[fst] = true;
+                    removed[sec] = true;
+                }
+            }
+        }
+        //
+        // .LINE：连续的 LINE 只保留最后一条（常量折叠之后会产生新的连续 LINE）
+        for (int i = 0; i < instList.length - 1; i++) {
+            if (!removed[i] && instList[i].getInstCode() == LINE) {
+                int next = nextIndex(removed, i);
+                removed[i] = next < instList.length && instList[next].getInstCode() == LINE && !jumpTarget[next];
+            }
+        }
+        //
+        // .重建指令序列，并调整跳转地址（跳转到被删除的指令时，改为跳转到其后的第一条指令）
+        int[] indexMapping = new int[instList.length + 1];
+        List<Instruction> resultList = new ArrayList<>(instList.length);
+        for (int i = 0, newIndex = 0; i < instList.length; i++) {
+            indexMapping[i] = newIndex;
+            newIndex = removed[i] ? newIndex : newIndex + 1;
+            indexMapping[i + 1] = newIndex;
+        }
+        for (int i = 0; i < instList.length; i++) {
+            if (removed[i]) {
+                this.removedCount++;
+                continue;
+            }
+            Instruction inst = instList[i];
+            if (isJump(inst)) {
+                inst = replaceParam(inst, indexMapping[inst.getInt(0)]);
+            }
+            resultList.add(inst);
+        }
+        return resultList.toArray(new Instruction[0]);
+    }
+
+    private static boolean isJump(Instruction inst) {
+        return inst.getInstCode() == IF || inst.getInstCode() == GOTO;
+    }
+
+    private static int prevOperand(Instruction[] instList, boolean[] removed, int index) {
+        for (int i = index - 1; i >= 0; i--) {
+            if (!removed[i] && instList[i].getInstCode() != LINE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int nextIndex(boolean[] removed, int index) {
+        for (int i = index + 1; i < removed.length; i++) {
+            if (!removed[i]) {
+                return i;
+            }
+        }
+        return removed.length;
+    }
+
+    private static boolean hasJumpTarget(boolean[] jumpTarget, int fromExclusive, int toInclusive) {
+        for (int i = fromExclusive + 1; i <= toInclusive; i++) {
+            if (jumpTarget[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Instruction replaceParam(Instruction inst, int param) {
+        Object[] params = inst.getArrays().clone();
+        params[0] = param;
+        return new InstructionInfo(inst.getInstCode(), params);
+    }
+
+    private static Object constantOf(Instruction inst) {
+        switch (inst.getInstCode()) {
+            case LDC_N:
+                return null;
+            case LDC_B:
+                return inst.getBoolean(0);
+            case LDC_S:
+                return inst.getString(0);
+            case LDC_D:
+                return inst.getNumber(0);
+            default:
+                return NOT_CONSTANT;
+        }
+    }
+
+    private static Instruction constantInst(Object result) {
+        if (result == null) {
+            return new InstructionInfo(LDC_N, new Object[0]);
+        } else if (result instanceof Boolean) {
+            return new InstructionInfo(LDC_B, new Object[] { result });
+        } else {
+            return new InstructionInfo(LDC_S, new Object[] { result });
+        }
+    }
+
+    private static Object evalUnary(String symbol, Object expData) {
+        if (expData == NOT_CONSTANT) {
+            return NOT_CONSTANT;
+        }
+        Class<?> expType = (expData == null) ? Void.class : expData.getClass();
+        OperatorProcess process = OperatorManager.defaultManager().findUnaryProcess(symbol, expType);
+        if (process == null || process instanceof NumberUOP) {
+            return NOT_CONSTANT;
+        }
+        return evalProcess(process, symbol, new Object[] { expData });
+    }
+
+    private static Object evalDyadic(String symbol, Object fstData, Object secData) {
+        if (fstData == NOT_CONSTANT || secData == NOT_CONSTANT || "/".equals(symbol)) {
+            return NOT_CONSTANT;
+        }
+        // .数值转换为字符串的结果受运行期精度宽度的影响
+        if ("+".equals(symbol) && (fstData instanceof Number || secData instanceof Number)) {
+            return NOT_CONSTANT;
+        }
+        Class<?> fstType = (fstData == null) ? Void.class : fstData.getClass();
+        Class<?> secType = (secData == null) ? Void.class : secData.getClass();
+        OperatorProcess process = OperatorManager.defaultManager().findDyadicProcess(symbol, fstType, secType);
+        if (process == null || process instanceof NumberDOP || process instanceof BinaryDOP) {
+            return NOT_CONSTANT;
+        }
+        return evalProcess(process, symbol, new Object[] { fstData, secData });
+    }
+
+    private static Object evalProcess(OperatorProcess process, String symbol, Object[] args) {
+        try {
+            Object result = process.doProcess(LocationUtils.unknownLocation(), symbol, args, new HintsSet());
+            if (result == null || result instanceof Boolean || result instanceof String) {
+                return result;
+            }
+            return NOT_CONSTANT;
+        } catch (Exception e) {
+            return NOT_CONSTANT; // 运算出错的留给运行期处理，以便得到正确的错误位置
+        }
+    }
+}
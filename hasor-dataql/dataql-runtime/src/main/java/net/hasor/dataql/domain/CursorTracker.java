@@ -0,0 +1,154 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.domain;
+import net.hasor.dataql.Udf;
+
+import java.util.*;
+
+/**
+ * 一次查询中创建的游标模式 ListModel 的登记表。该类是线程安全的。
+ *  - UDF、片段调用返回的游标，以及 DomainHelper 转换 Java 对象（包括延迟转换）时创建的游标都会被登记。
+ *  - 查询结束时（release）关闭无法从查询结果访问到的游标；可以访问到的游标，以及查询结束之后延迟转换创建的游标由 closeAll（QueryResult.close）关闭。
+ *  - 查询结果中含有无法检查的对象（例如延迟转换的 Bean）时，所有游标都保留到 closeAll。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class CursorTracker {
+    private static final ThreadLocal<CursorTracker> CURRENT   = new ThreadLocal<>();
+    private final        Set<ListModel>             cursorSet = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /** 当前线程上启用的 CursorTracker，没有时返回 null */
+    public static CursorTracker current() {
+        return CURRENT.get();
+    }
+
+    /** 在当前线程上启用，之后 DomainHelper 创建的游标都登记到这里。返回之前启用的 CursorTracker（用于 restore） */
+    public CursorTracker attach() {
+        CursorTracker previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    /** 恢复 attach 之前启用的 CursorTracker */
+    public static void restore(CursorTracker previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /** 登记一个游标模式的 ListModel，不是游标或者游标已经被读取时忽略 */
+    public synchronized void track(DataModel dataModel) {
+        if (dataModel instanceof ListModel && ((ListModel) dataModel).isCursor()) {
+            this.cursorSet.add((ListModel) dataModel);
+        }
+    }
+
+    /**
+     * 查询结束，关闭无法从查询结果访问到的游标。
+     * @param result 查询结果，为 null 表示查询异常结束，此时所有游标都会被关闭
+     */
+    public void release(DataModel result) {
+        List<ListModel> closeList = new ArrayList<>();
+        synchronized (this) {
+            if (result != null) {
+                Set<ListModel> escapeSet = Collections.newSetFromMap(new IdentityHashMap<>());
+                if (!collectCursors(result, escapeSet)) {
+                    return; // 无法确定哪些游标可以访问到，全部保留到 closeAll
+                }
+                this.cursorSet.removeIf(listModel -> {
+                    return !escapeSet.contains(listModel) && closeList.add(listModel);
+                });
+            } else {
+                closeList.addAll(this.cursorSet);
+                this.cursorSet.clear();
+            }
+        }
+        closeCursors(closeList);
+    }
+
+    /** 关闭所有尚未关闭的游标 */
+    public void closeAll() {
+        List<ListModel> closeList;
+        synchronized (this) {
+            closeList = new ArrayList<>(this.cursorSet);
+            this.cursorSet.clear();
+        }
+        closeCursors(closeList);
+    }
+
+    private static void closeCursors(List<ListModel> closeList) {
+        RuntimeException closeError = null;
+        for (ListModel listModel : closeList) {
+            try {
+                listModel.closeCursor();
+            } catch (RuntimeException e) {
+                closeError = (closeError == null) ? e : closeError;
+            }
+        }
+        if (closeError != null) {
+            throw closeError;
+        }
+    }
+
+    /** 收集 result 中（递归）可以访问到的游标，不会触发延迟转换和游标读取。遇到无法检查的对象时返回 false */
+    private static boolean collectCursors(DataModel result, Set<ListModel> escapeSet) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(result);
+        while (!pending.isEmpty()) {
+            Object value = pending.pop();
+            if (value instanceof CharSequence || value instanceof Number || value instanceof Boolean ||//
+                    value instanceof Character || value instanceof Date || value instanceof UUID || value instanceof Enum ||//
+                    value instanceof ValueModel || value instanceof UdfModel || value instanceof Udf || value instanceof DataCursor) {
+                continue;
+            }
+            if (!visited.add(value)) {
+                continue;
+            }
+            Collection<?> items;
+            if (value instanceof ListModel) {
+                if (((ListModel) value).isCursor()) {
+                    escapeSet.add((ListModel) value);
+                    continue;
+                }
+                items = ((ListModel) value).peekItems();
+            } else if (value instanceof ObjectModel) {
+                items = ((ObjectModel) value).peekValues();
+            } else if (value instanceof Map) {
+                items = ((Map<?, ?>) value).values();
+            } else if (value instanceof Collection) {
+                items = (Collection<?>) value;
+            } else if (value instanceof Object[]) {
+                items = Arrays.asList((Object[]) value);
+            } else if (value.getClass().isArray()) {
+                continue; // 基本类型数组
+            } else {
+                return false; // Bean
+            }
+            if (items == null) {
+                return false;
+            }
+            for (Object item : items) {
+                if (item != null) {
+                    pending.push(item);
+                }
+            }
+        }
+        return true;
+    }
+}
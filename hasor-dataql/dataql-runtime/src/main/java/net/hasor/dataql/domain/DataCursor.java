@@ -0,0 +1,47 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.domain;
+import java.util.Iterator;
+
+/**
+ * 只能遍历一次的数据游标（例如仍处于打开状态的 JDBC ResultSet），UDF 或片段返回游标时会被包装为游标模式的 ListModel。
+ * 游标的数据在被 CAST_I、结果输出直接遍历时不会整体加载到内存，游标遍历结束或查询结束时会被关闭。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public interface DataCursor extends Iterator<Object>, AutoCloseable {
+    /** 使用迭代器创建游标，closeable 会在游标关闭时被调用（可以为 null） */
+    public static DataCursor of(Iterator<?> iterator, AutoCloseable closeable) {
+        return new DataCursor() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() throws Exception {
+                if (closeable != null) {
+                    closeable.close();
+                }
+            }
+        };
+    }
+}
@@ -14,6 +14,7 @@
  * limitations under the License.
  */
 package net.hasor.dataql.domain;
+import net.hasor.dataql.Hints;
 import net.hasor.dataql.Udf;
 import net.hasor.dataql.runtime.operator.OperatorUtils;
 import net.hasor.utils.ArrayUtils;
@@ -34,10 +35,58 @@ public class DomainHelper {
         return new ObjectModel();
     }
 
+    /** 创建紧凑模式的 ObjectModel，相同 Key 序列的对象共享 shape 树中的同一个节点 */
+    public static ObjectModel newObject(ObjectShape rootShape) {
+        return new ObjectModel(rootShape);
+    }
+
     public static DataModel convertTo(Object object) {
+        return convertTo(object, false);
+    }
+
+    /** 根据 LAZY_DATA_MODEL 选项转换数据 */
+    public static DataModel convertTo(Object object, Hints hints) {
+        return convertTo(object, isLazyDataModel(hints));
+    }
+
+    /** 判断 Hints 中是否开启了 LAZY_DATA_MODEL 选项 */
+    public static boolean isLazyDataModel(Hints hints) {
+        if (hints == null) {
+            return false;
+        }
+        return hints.getOrMap(Hints.LAZY_DATA_MODEL, val -> {
+            if (val instanceof Boolean) {
+                return (Boolean) val;
+            }
+            return val != null && Boolean.parseBoolean(val.toString());
+        });
+    }
+
+    /**
+     * 将对象转换为 DataModel。
+     * @param lazy 为 true 时 Map、Bean、数组、集合不会被立刻递归转换，而是包装为延迟转换的 ObjectModel/ListModel，
+     *             其中的元素或属性在第一次被访问时才进行转换。此时 unwrap() 会直接返回原始的 Map 或 List。
+     */
+    public static DataModel convertTo(Object object, boolean lazy) {
+        return convertTo(object, lazy, null);
+    }
+
+    /** 当前线程上启用的 CursorTracker */
+    private static CursorTracker trackerOf(CursorTracker tracker) {
+        return (tracker != null) ? tracker : CursorTracker.current();
+    }
+
+    /**
+     * 将对象转换为 DataModel，创建的游标登记到 tracker（为 null 时使用当前线程上启用的 CursorTracker）。
+     * 延迟转换的 ObjectModel/ListModel 会记住 tracker，查询结束之后才转换出来的游标同样会被登记。
+     */
+    static DataModel convertTo(Object object, boolean lazy, CursorTracker tracker) {
         if (object instanceof DataModel) {
             // 已经是 DataModel
             return (DataModel) object;
+        } else if (object instanceof DataCursor) {
+            // 外部类型：游标 -> 游标模式的 ListModel
+            return ListModel.cursorOf((DataCursor) object, trackerOf(tracker));
         } else if (object == null) {
             // 基础类型：空
             return ValueModel.NULL;
@@ -65,6 +114,9 @@ public class DomainHelper {
             return new ValueModel(((Enum<?>) object).name());
         } else if (object instanceof Map) {
             // 外部类型：Map -> ObjectModel
+            if (lazy) {
+                return new ObjectModel((Map<?, ?>) object, false, trackerOf(tracker));
+            }
             Map mapData = (Map) object;
             Set entrySet = mapData.entrySet();
             ObjectModel objectModel = new ObjectModel();
@@ -103,9 +155,13 @@ public class DomainHelper {
             } else {
                 objectArrays = (Object[]) object;
             }
-            return new ListModel(Arrays.asList(objectArrays));
+            return lazy ? ListModel.lazyOf(Arrays.asList(objectArrays), trackerOf(tracker)) : new ListModel(Arrays.asList(objectArrays));
         } else if (object instanceof Collection) {
             // 外部类型：集合 -> ListModel
+            if (lazy) {
+                boolean randomList = object instanceof List && object instanceof RandomAccess;
+                return ListModel.lazyOf(randomList ? (List<?>) object : new ArrayList<>((Collection<?>) object), trackerOf(tracker));
+            }
             return new ListModel((Collection<?>) object);
         } else if (object instanceof Udf) {
             // 外部类型：UDF -> CallModel
@@ -113,6 +169,9 @@ public class DomainHelper {
         } else {
             // 外部类型：Bean -> ObjectModel
             BeanMap beanMap = new BeanMap(object);
+            if (lazy) {
+                return new ObjectModel(beanMap, true, trackerOf(tracker));
+            }
             ObjectModel objectModel = new ObjectModel();
             for (String entryKey : beanMap.keySet()) {
                 if ("class".equals(entryKey)) {
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.domain;
+import net.hasor.utils.ExceptionUtils;
+import net.hasor.utils.StringUtils;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 将 DataModel 以 JSON 格式直接写入到输出流中，不需要先 unwrap 为 Map/List 再进行序列化。
+ * 延迟转换（LAZY_DATA_MODEL）的 ObjectModel/ListModel 会直接遍历原始数据，元素在输出时转换，转换结果不会被保留。
+ * 游标模式的 ListModel 会直接遍历游标，输出完成后游标被关闭。
+ * 每输出 flushInterval 个集合元素会执行一次 flush，以便大集合可以边生成边发送。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class JsonDataWriter {
+    public static final int    DEFAULT_FLUSH_INTERVAL = 512;
+    private final       Writer writer;
+    private final       int    flushInterval;
+    private             int    pendingCount;
+
+    public JsonDataWriter(Writer writer) {
+        this(writer, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /** @param flushInterval 每输出多少个集合元素执行一次 flush，小于等于 0 表示只在最后 flush */
+    public JsonDataWriter(Writer writer, int flushInterval) {
+        this.writer = writer;
+        this.flushInterval = flushInterval;
+    }
+
+    /** 以 JSON 格式写入数据，使用 UTF-8 编码 */
+    public static void writeTo(DataModel dataModel, OutputStream outputStream) throws IOException {
+        writeTo(dataModel, outputStream, StandardCharsets.UTF_8);
+    }
+
+    /** 以 JSON 格式写入数据 */
+    public static void writeTo(DataModel dataModel, OutputStream outputStream, Charset charset) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, charset));
+        new JsonDataWriter(writer).write(dataModel);
+    }
+
+    /** 以 JSON 格式写入数据，写入完成后会执行 flush（输出流不会被关闭） */
+    public void write(DataModel dataModel) throws IOException {
+        this.writeData(dataModel);
+        this.writer.flush();
+        this.pendingCount = 0;
+    }
+
+    private void writeData(DataModel dataModel) throws IOException {
+        if (dataModel == null || dataModel instanceof UdfModel) {
+            this.writer.write("null");
+        } else if (dataModel instanceof ValueModel) {
+            this.writeValue(((ValueModel) dataModel).asOri());
+        } else if (dataModel instanceof ListModel) {
+            this.writeList((ListModel) dataModel);
+        } else if (dataModel instanceof ObjectModel) {
+            this.writeObject((ObjectModel) dataModel);
+        } else {
+            this.writeValue(String.valueOf(dataModel.unwrap()));
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            this.writer.write("null");
+        } else if (value instanceof String) {
+            this.writeString((String) value);
+        } else if (!isFinite(value)) {
+            this.writer.write("null"); // NaN、Infinity 不是合法的 JSON 数字
+        } else {
+            this.writer.write(String.valueOf(value)); // Boolean、Number
+        }
+    }
+
+    private static boolean isFinite(Object value) {
+        if (value instanceof Double) {
+            return !((Double) value).isNaN() && !((Double) value).isInfinite();
+        }
+        if (value instanceof Float) {
+            return !((Float) value).isNaN() && !((Float) value).isInfinite();
+        }
+        return true;
+    }
+
+    private void writeString(String value) throws IOException {
+        try {
+            StringUtils.quote(this.writer, value);
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void writeList(ListModel listModel) throws IOException {
+        DataCursor dataCursor = listModel.openCursor();
+        if (dataCursor != null) {
+            this.writeCursor(dataCursor);
+            return;
+        }
+        List<?> lazySource = listModel.lazySource();
+        List<?> dataList = (lazySource != null) ? lazySource : listModel.asOri();
+        this.writer.write('[');
+        boolean first = true;
+        for (Object item : dataList) {
+            if (!first) {
+                this.writer.write(',');
+            }
+            first = false;
+            this.writeData(DomainHelper.convertTo(item, true));
+            this.afterItem();
+        }
+        this.writer.write(']');
+    }
+
+    /** 游标模式的集合直接边读边写，不会整体加载到内存 */
+    private void writeCursor(DataCursor dataCursor) throws IOException {
+        try {
+            this.writer.write('[');
+            boolean first = true;
+            while (dataCursor.hasNext()) {
+                if (!first) {
+                    this.writer.write(',');
+                }
+                first = false;
+                this.writeData(DomainHelper.convertTo(dataCursor.next(), true));
+                this.afterItem();
+            }
+            this.writer.write(']');
+        } finally {
+            try {
+                dataCursor.close();
+            } catch (Exception e) {
+                throw ExceptionUtils.toRuntime(e);
+            }
+        }
+    }
+
+    private void writeObject(ObjectModel objectModel) throws IOException {
+        Map<?, ?> lazySource = objectModel.lazySource();
+        Map<?, ?> dataMap = (lazySource != null) ? lazySource : objectModel.asOri();
+        this.writer.write('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : dataMap.entrySet()) {
+            if (!first) {
+                this.writer.write(',');
+            }
+            first = false;
+            this.writeString(String.valueOf(entry.getKey()));
+            this.writer.write(':');
+            this.writeData(DomainHelper.convertTo(entry.getValue(), true));
+        }
+        this.writer.write('}');
+    }
+
+    private void afterItem() throws IOException {
+        if (this.flushInterval > 0 && ++this.pendingCount >= this.flushInterval) {
+            this.writer.flush();
+            this.pendingCount = 0;
+        }
+    }
+}
@@ -14,9 +14,9 @@
  * limitations under the License.
  */
 package net.hasor.dataql.domain;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import net.hasor.utils.ExceptionUtils;
+
+import java.util.*;
 
 /**
  * 集合类型结果集
@@ -25,10 +25,29 @@ import java.util.List;
  */
 public class ListModel implements DataModel {
     private List<DataModel> dataModel = new ArrayList<>();
+    private List<?>         lazySource;
 
     public ListModel() {
     }
 
+    /** 延迟转换模式：包装原始的 List，元素只有在第一次被访问时才会转换为 DataModel */
+    static ListModel lazyOf(List<?> source, CursorTracker tracker) {
+        ListModel listModel = new ListModel();
+        listModel.dataModel = new LazyDataList(source, tracker);
+        listModel.lazySource = source;
+        return listModel;
+    }
+
+    /** 游标模式：只有在随机访问时才会读取全部数据，CAST_I 和结果输出可以通过 openCursor 直接遍历游标 */
+    static ListModel cursorOf(DataCursor cursor, CursorTracker tracker) {
+        ListModel listModel = new ListModel();
+        listModel.dataModel = new CursorDataList(cursor, tracker);
+        if (tracker != null) {
+            tracker.track(listModel);
+        }
+        return listModel;
+    }
+
     public ListModel(Collection<?> dataItem) {
         if (dataItem != null) {
             for (Object object : dataItem) {
@@ -39,9 +58,67 @@ public class ListModel implements DataModel {
 
     /** 向集合的末尾追加一个元素 */
     public void add(Object object) {
+        if (this.dataModel instanceof LazyDataList || this.dataModel instanceof CursorDataList) {
+            this.dataModel = new ArrayList<>(this.dataModel);
+            this.lazySource = null;
+        }
         this.dataModel.add(DomainHelper.convertTo(object));
     }
 
+    /** 替换集合中指定位置的元素 */
+    public void set(int index, Object object) {
+        if (this.dataModel instanceof LazyDataList || this.dataModel instanceof CursorDataList) {
+            this.dataModel = new ArrayList<>(this.dataModel);
+            this.lazySource = null;
+        }
+        this.dataModel.set(index, DomainHelper.convertTo(object));
+    }
+
+    /** 是否为尚未被修改过的延迟转换模式 */
+    public boolean isLazy() {
+        return this.dataModel instanceof LazyDataList;
+    }
+
+    /** 延迟转换模式下被包装的原始 List（已经被修改过时返回 null） */
+    List<?> lazySource() {
+        return (this.dataModel instanceof LazyDataList) ? this.lazySource : null;
+    }
+
+    /** 不触发转换和游标读取时可以访问到的元素：延迟模式下为已经转换的元素或者原始元素，游标模式下为已经读取的数据 */
+    List<?> peekItems() {
+        if (this.dataModel instanceof LazyDataList) {
+            return ((LazyDataList) this.dataModel).peek();
+        }
+        if (this.dataModel instanceof CursorDataList) {
+            List<DataModel> rows = ((CursorDataList) this.dataModel).rows;
+            return (rows == null) ? Collections.emptyList() : rows;
+        }
+        return this.dataModel;
+    }
+
+    /** 是否为尚未被读取的游标模式 */
+    public boolean isCursor() {
+        return this.dataModel instanceof CursorDataList && ((CursorDataList) this.dataModel).isOpen();
+    }
+
+    /**
+     * 游标模式下接管游标进行单次遍历，遍历结束时游标会被自动关闭。游标被接管之后就不能再访问集合中的元素。
+     * 非游标模式或者游标已经被读取时返回 null。
+     */
+    public DataCursor openCursor() {
+        if (this.dataModel instanceof CursorDataList) {
+            return ((CursorDataList) this.dataModel).open();
+        }
+        return null;
+    }
+
+    /** 关闭游标模式中尚未读取完的游标 */
+    public void closeCursor() {
+        if (this.dataModel instanceof CursorDataList) {
+            ((CursorDataList) this.dataModel).close();
+        }
+    }
+
     /** 集合大小 */
     public int size() {
         return this.dataModel.size();
@@ -49,11 +126,17 @@ public class ListModel implements DataModel {
 
     @Override
     public List<DataModel> asOri() {
+        if (this.dataModel instanceof CursorDataList) {
+            return ((CursorDataList) this.dataModel).rows(); // 游标模式下读取全部数据
+        }
         return this.dataModel;
     }
 
     @Override
     public List<Object> unwrap() {
+        if (this.lazySource != null && this.dataModel instanceof LazyDataList) {
+            return (List<Object>) this.lazySource; // 延迟模式下直接返回原始对象
+        }
         List<Object> unwrap = new ArrayList<>(this.dataModel.size());
         this.dataModel.forEach(dataModel -> {
             unwrap.add(dataModel.unwrap());
@@ -126,4 +209,134 @@ public class ListModel implements DataModel {
         }
         throw new ClassCastException(dataItem.getClass() + " not Cast to UdfModel.");
     }
-}
\ No newline at end of file
+
+    /** 延迟转换的只读 List 视图，转换结果会被缓存 */
+    private static class LazyDataList extends AbstractList<DataModel> implements RandomAccess {
+        private final List<?>       source;
+        private final DataModel[]   converted;
+        private final CursorTracker tracker;
+
+        public LazyDataList(List<?> source, CursorTracker tracker) {
+            this.source = source;
+            this.converted = new DataModel[source.size()];
+            this.tracker = tracker;
+        }
+
+        @Override
+        public DataModel get(int index) {
+            DataModel dataModel = this.converted[index];
+            if (dataModel == null) {
+                dataModel = DomainHelper.convertTo(this.source.get(index), true, this.tracker);
+                this.converted[index] = dataModel;
+            }
+            return dataModel;
+        }
+
+        /** 已经转换的元素或者原始元素 */
+        public List<Object> peek() {
+            List<Object> items = new ArrayList<>(this.converted.length);
+            for (int i = 0; i < this.converted.length; i++) {
+                items.add((this.converted[i] != null) ? this.converted[i] : this.source.get(i));
+            }
+            return items;
+        }
+
+        @Override
+        public int size() {
+            return this.converted.length;
+        }
+    }
+
+    /** 游标模式的只读 List 视图，第一次随机访问时读取游标中的全部数据 */
+    private static class CursorDataList extends AbstractList<DataModel> {
+        private final CursorTracker   tracker;
+        private       DataCursor      cursor;
+        private       List<DataModel> rows;
+        private       boolean         consumed;
+
+        public CursorDataList(DataCursor cursor, CursorTracker tracker) {
+            this.cursor = cursor;
+            this.tracker = tracker;
+        }
+
+        public boolean isOpen() {
+            return this.rows == null && !this.consumed;
+        }
+
+        public DataCursor open() {
+            if (!this.isOpen()) {
+                return null;
+            }
+            this.consumed = true;
+            return new DataCursor() {
+                @Override
+                public boolean hasNext() {
+                    if (cursor == null) {
+                        return false;
+                    }
+                    if (cursor.hasNext()) {
+                        return true;
+                    }
+                    CursorDataList.this.close();
+                    return false;
+                }
+
+                @Override
+                public Object next() {
+                    if (cursor == null) {
+                        throw new NoSuchElementException("cursor is closed.");
+                    }
+                    return cursor.next();
+                }
+
+                @Override
+                public void close() {
+                    CursorDataList.this.close();
+                }
+            };
+        }
+
+        public void close() {
+            if (this.cursor == null) {
+                return;
+            }
+            DataCursor dataCursor = this.cursor;
+            this.cursor = null;
+            this.consumed = this.rows == null;
+            try {
+                dataCursor.close();
+            } catch (Exception e) {
+                throw ExceptionUtils.toRuntime(e);
+            }
+        }
+
+        public List<DataModel> rows() {
+            if (this.rows == null) {
+                if (this.consumed) {
+                    throw new IllegalStateException("cursor has been consumed or closed, it can only be traversed once.");
+                }
+                List<DataModel> rows = new ArrayList<>();
+                try {
+                    while (this.cursor.hasNext()) {
+                        rows.add(DomainHelper.convertTo(this.cursor.next(), true, this.tracker));
+                    }
+                } finally {
+                    this.close();
+                }
+                this.rows = rows;
+                this.consumed = false;
+            }
+            return this.rows;
+        }
+
+        @Override
+        public DataModel get(int index) {
+            return this.rows().get(index);
+        }
+
+        @Override
+        public int size() {
+            return this.rows().size();
+        }
+    }
+}
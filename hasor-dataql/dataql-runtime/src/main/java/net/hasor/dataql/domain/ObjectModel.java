@@ -14,10 +14,8 @@
  * limitations under the License.
  */
 package net.hasor.dataql.domain;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 对象结果
@@ -25,9 +23,45 @@ import java.util.Map;
  * @version : 2017-03-23
  */
 public class ObjectModel implements DataModel {
-    private Map<String, DataModel> dataModel = new LinkedHashMap<>();
+    private Map<String, DataModel> dataModel;
+    private Map<?, ?>              lazySource;
 
     public ObjectModel() {
+        this.dataModel = new LinkedHashMap<>();
+    }
+
+    /** 紧凑模式：Key 保存在共享的 ObjectShape 中，自身只保存值数组，Key 无法使用 ObjectShape 表示时自动退化为 LinkedHashMap */
+    ObjectModel(ObjectShape shape) {
+        this.dataModel = new ShapedDataMap(shape);
+    }
+
+    /** 是否为紧凑模式（Key 保存在共享的 ObjectShape 中） */
+    boolean isShaped() {
+        return this.dataModel instanceof ShapedDataMap && ((ShapedDataMap) this.dataModel).isShaped();
+    }
+
+    /** 延迟转换模式：包装原始的 Map（或者 Bean 的 BeanMap），属性只有在第一次被访问时才会转换为 DataModel */
+    ObjectModel(Map<?, ?> source, boolean beanSource, CursorTracker tracker) {
+        this.dataModel = new LazyDataMap(source, beanSource, tracker);
+        this.lazySource = beanSource ? null : source;
+    }
+
+    /** 是否为尚未被修改过的延迟转换模式 */
+    public boolean isLazy() {
+        return this.dataModel instanceof LazyDataMap;
+    }
+
+    /** 延迟转换模式下被包装的原始 Map（Bean 或者已经被修改过时返回 null） */
+    Map<?, ?> lazySource() {
+        return (this.dataModel instanceof LazyDataMap) ? this.lazySource : null;
+    }
+
+    /** 不触发转换时可以访问到的值：延迟模式下为已经转换的值或者原始值，Bean 的延迟模式返回 null（读取属性会调用 getter） */
+    Collection<?> peekValues() {
+        if (this.dataModel instanceof LazyDataMap) {
+            return ((LazyDataMap) this.dataModel).peek();
+        }
+        return this.dataModel.values();
     }
 
     public List<String> fieldNames() {
@@ -35,6 +69,10 @@ public class ObjectModel implements DataModel {
     }
 
     public void put(String key, Object value) {
+        if (this.dataModel instanceof LazyDataMap) {
+            this.dataModel = new LinkedHashMap<>(this.dataModel);
+            this.lazySource = null;
+        }
         this.dataModel.put(key, DomainHelper.convertTo(value));
     }
 
@@ -55,6 +93,9 @@ public class ObjectModel implements DataModel {
 
     @Override
     public Map<String, Object> unwrap() {
+        if (this.lazySource != null && this.dataModel instanceof LazyDataMap) {
+            return (Map<String, Object>) this.lazySource; // 延迟模式下直接返回原始对象
+        }
         Map<String, Object> unwrap = new LinkedHashMap<>(this.dataModel.size());
         this.dataModel.forEach((key, dataModel) -> {
             unwrap.put(key, dataModel.unwrap());
@@ -130,4 +171,142 @@ public class ObjectModel implements DataModel {
         }
         throw new ClassCastException(dataItem.getClass() + " not Cast to UdfModel.");
     }
-}
\ No newline at end of file
+
+    /** 延迟转换的只读 Map 视图，转换结果会被缓存 */
+    private static class LazyDataMap extends AbstractMap<String, DataModel> {
+        private final Map<?, ?>              source;
+        private final boolean                beanSource;
+        private final CursorTracker          tracker;
+        private final Map<String, DataModel> converted = new ConcurrentHashMap<>();
+        private       Boolean                stringKeys;
+
+        public LazyDataMap(Map<?, ?> source, boolean beanSource, CursorTracker tracker) {
+            this.source = source;
+            this.beanSource = beanSource;
+            this.tracker = tracker;
+        }
+
+        /** 已经转换的值或者原始值，Bean 返回 null */
+        public List<Object> peek() {
+            if (this.beanSource) {
+                return null;
+            }
+            List<Object> values = new ArrayList<>(this.source.size());
+            for (Map.Entry<?, ?> entry : this.source.entrySet()) {
+                DataModel dataModel = (entry.getKey() == null) ? null : this.converted.get(entry.getKey().toString());
+                values.add((dataModel != null) ? dataModel : entry.getValue());
+            }
+            return values;
+        }
+
+        private boolean ignoreKey(Object key) {
+            return this.beanSource && "class".equals(key);
+        }
+
+        private DataModel convert(String key, Object value) {
+            DataModel dataModel = this.converted.get(key);
+            if (dataModel == null) {
+                dataModel = DomainHelper.convertTo(value, true, this.tracker);
+                this.converted.put(key, dataModel);
+            }
+            return dataModel;
+        }
+
+        private boolean isStringKeys() {
+            if (this.stringKeys == null) {
+                boolean stringKeys = true;
+                for (Object key : this.source.keySet()) {
+                    stringKeys = stringKeys && key instanceof String;
+                }
+                this.stringKeys = stringKeys;
+            }
+            return this.stringKeys;
+        }
+
+        @Override
+        public DataModel get(Object key) {
+            if (!(key instanceof String) || ignoreKey(key)) {
+                return null;
+            }
+            DataModel dataModel = this.converted.get(key);
+            if (dataModel != null) {
+                return dataModel;
+            }
+            if (this.source.containsKey(key)) {
+                return convert((String) key, this.source.get(key));
+            }
+            if (!isStringKeys()) {
+                for (Map.Entry<?, ?> entry : this.source.entrySet()) {
+                    if (entry.getKey() != null && key.equals(entry.getKey().toString())) {
+                        return convert((String) key, entry.getValue());
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<String, DataModel>> entrySet() {
+            return new AbstractSet<Entry<String, DataModel>>() {
+                @Override
+                public Iterator<Entry<String, DataModel>> iterator() {
+                    Iterator<? extends Entry<?, ?>> iterator = source.entrySet().iterator();
+                    return new Iterator<Entry<String, DataModel>>() {
+                        private Entry<?, ?> next = findNext();
+
+                        private Entry<?, ?> findNext() {
+                            while (iterator.hasNext()) {
+                                Entry<?, ?> entry = iterator.next();
+                                if (entry.getKey() != null && !ignoreKey(entry.getKey())) {
+                                    return entry;
+                                }
+                            }
+                            return null;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return this.next != null;
+                        }
+
+                        @Override
+                        public Entry<String, DataModel> next() {
+                            if (this.next == null) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<?, ?> entry = this.next;
+                            this.next = findNext();
+                            String key = entry.getKey().toString();
+                            return new SimpleImmutableEntry<>(key, convert(key, entry.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return LazyDataMap.this.size();
+                }
+            };
+        }
+
+        /** 与 entrySet 的遍历规则一致：不包含 null 和被忽略的 Key */
+        @Override
+        public int size() {
+            if (!this.beanSource && isStringKeys()) {
+                return this.source.size();
+            }
+            int size = 0;
+            for (Object key : this.source.keySet()) {
+                if (key != null && !ignoreKey(key)) {
+                    size++;
+                }
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.domain;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 对象的 Key 结构（Hidden Class）。具有相同 Key 序列的对象共享同一个 ObjectShape，对象本身只保存值数组，按照下标访问属性。
+ * <p>ObjectShape 通过 transition 形成一棵树：在 Key 序列末尾追加一个 Key 会得到（并缓存）子节点。
+ * 超出 MAX_FIELDS 或 MAX_TRANSITIONS 时不再创建新的结构，对象会退化为普通的 LinkedHashMap。</p>
+ * <p>ObjectShape 一般由单次查询执行的上下文创建，执行结果在其它线程中被修改时也可以安全的创建新的子节点。</p>
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public final class ObjectShape {
+    static final         int                      MAX_FIELDS      = 64;
+    static final         int                      MAX_TRANSITIONS = 64;
+    private static final int                      INDEX_THRESHOLD = 8;
+    private final        String[]                 keys;
+    private final        Map<String, Integer>     keyIndex;        // Key 较多时使用 Map 定位下标，否则顺序查找
+    private volatile     Map<String, ObjectShape> transitions;
+
+    private ObjectShape(String[] keys) {
+        this.keys = keys;
+        if (keys.length > INDEX_THRESHOLD) {
+            this.keyIndex = new HashMap<>(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                this.keyIndex.put(keys[i], i);
+            }
+        } else {
+            this.keyIndex = null;
+        }
+    }
+
+    /** 创建一个不含任何 Key 的根结构 */
+    public static ObjectShape newRoot() {
+        return new ObjectShape(new String[0]);
+    }
+
+    /** Key 的个数 */
+    int size() {
+        return this.keys.length;
+    }
+
+    /** 获取第 index 个 Key */
+    String keyAt(int index) {
+        return this.keys[index];
+    }
+
+    /** Key 的下标，不存在时返回 -1 */
+    int indexOf(Object key) {
+        if (this.keyIndex != null) {
+            Integer index = this.keyIndex.get(key);
+            return (index == null) ? -1 : index;
+        }
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** 追加一个 Key 之后的结构，超出限制或者 Key 为 null 时返回 null */
+    ObjectShape transition(String key) {
+        if (key == null) {
+            return null;
+        }
+        ObjectShape nextShape = (this.transitions == null) ? null : this.transitions.get(key);
+        if (nextShape != null) {
+            return nextShape;
+        }
+        if (this.keys.length >= MAX_FIELDS) {
+            return null;
+        }
+        if (this.transitions == null) {
+            synchronized (this) {
+                if (this.transitions == null) {
+                    this.transitions = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        if (this.transitions.size() >= MAX_TRANSITIONS) {
+            return null;
+        }
+        String[] nextKeys = new String[this.keys.length + 1];
+        System.arraycopy(this.keys, 0, nextKeys, 0, this.keys.length);
+        nextKeys[this.keys.length] = key;
+        nextShape = new ObjectShape(nextKeys);
+        ObjectShape existsShape = this.transitions.putIfAbsent(key, nextShape);
+        return (existsShape != null) ? existsShape : nextShape;
+    }
+}
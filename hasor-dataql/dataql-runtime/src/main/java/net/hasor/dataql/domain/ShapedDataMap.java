@@ -0,0 +1,219 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.domain;
+import java.util.*;
+
+/**
+ * 基于 ObjectShape 的紧凑 Map：Key 由共享的 ObjectShape 保存，自身只保存值数组。
+ * 删除 Key、放入 null Key 或者 ObjectShape 超出限制时，透明的退化为 LinkedHashMap。Key 的顺序与 LinkedHashMap 相同（插入顺序）。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+class ShapedDataMap extends AbstractMap<String, DataModel> {
+    private static final DataModel[]            EMPTY_VALUES = new DataModel[0];
+    private              ObjectShape            shape;
+    private              DataModel[]            values       = EMPTY_VALUES;
+    private              Map<String, DataModel> fallback;
+
+    public ShapedDataMap(ObjectShape shape) {
+        this.shape = shape;
+    }
+
+    /** 是否仍然使用 ObjectShape 存储 */
+    boolean isShaped() {
+        return this.fallback == null;
+    }
+
+    ObjectShape getShape() {
+        return this.shape;
+    }
+
+    private Map<String, DataModel> toFallback() {
+        if (this.fallback == null) {
+            Map<String, DataModel> fallback = new LinkedHashMap<>();
+            for (int i = 0; i < this.shape.size(); i++) {
+                fallback.put(this.shape.keyAt(i), this.values[i]);
+            }
+            this.fallback = fallback;
+            this.shape = null;
+            this.values = null;
+        }
+        return this.fallback;
+    }
+
+    @Override
+    public int size() {
+        return (this.fallback != null) ? this.fallback.size() : this.shape.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return (this.fallback != null) ? this.fallback.containsKey(key) : this.shape.indexOf(key) >= 0;
+    }
+
+    @Override
+    public DataModel get(Object key) {
+        if (this.fallback != null) {
+            return this.fallback.get(key);
+        }
+        int index = this.shape.indexOf(key);
+        return (index >= 0) ? this.values[index] : null;
+    }
+
+    @Override
+    public DataModel put(String key, DataModel value) {
+        if (this.fallback != null || key == null) {
+            return toFallback().put(key, value); // ObjectShape 不保存 null Key
+        }
+        int index = this.shape.indexOf(key);
+        if (index >= 0) {
+            DataModel oldValue = this.values[index];
+            this.values[index] = value;
+            return oldValue;
+        }
+        ObjectShape nextShape = this.shape.transition(key);
+        if (nextShape == null) {
+            return toFallback().put(key, value);
+        }
+        int size = this.shape.size();
+        if (size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(size + (size >> 1), 4));
+        }
+        this.values[size] = value;
+        this.shape = nextShape;
+        return null;
+    }
+
+    @Override
+    public DataModel remove(Object key) {
+        if (this.fallback == null && this.shape.indexOf(key) < 0) {
+            return null;
+        }
+        return toFallback().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        toFallback().clear();
+    }
+
+    @Override
+    public Set<Entry<String, DataModel>> entrySet() {
+        if (this.fallback != null) {
+            return this.fallback.entrySet();
+        }
+        return new AbstractSet<Entry<String, DataModel>>() {
+            @Override
+            public Iterator<Entry<String, DataModel>> iterator() {
+                return new Iterator<Entry<String, DataModel>>() {
+                    private final ObjectShape                        iteratorShape = shape;
+                    private       int                                index         = 0;
+                    private       int                                lastIndex     = -1;
+                    private       Iterator<Entry<String, DataModel>> delegate;      // remove 之后改为遍历 LinkedHashMap
+
+                    @Override
+                    public boolean hasNext() {
+                        return (this.delegate != null) ? this.delegate.hasNext() : this.index < this.iteratorShape.size();
+                    }
+
+                    @Override
+                    public Entry<String, DataModel> next() {
+                        if (this.delegate != null) {
+                            return this.delegate.next();
+                        }
+                        if (shape != this.iteratorShape) {
+                            throw new ConcurrentModificationException();
+                        }
+                        if (this.index >= this.iteratorShape.size()) {
+                            throw new NoSuchElementException();
+                        }
+                        this.lastIndex = this.index;
+                        return new ShapedEntry(this.index++);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (this.delegate != null) {
+                            this.delegate.remove();
+                            return;
+                        }
+                        if (this.lastIndex < 0) {
+                            throw new IllegalStateException();
+                        }
+                        if (shape != this.iteratorShape) {
+                            throw new ConcurrentModificationException();
+                        }
+                        // .退化为 LinkedHashMap，并跳过已经遍历过的 Key
+                        this.delegate = toFallback().entrySet().iterator();
+                        for (int i = 0; i <= this.lastIndex; i++) {
+                            this.delegate.next();
+                        }
+                        this.delegate.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ShapedDataMap.this.size();
+            }
+        };
+    }
+
+    private class ShapedEntry implements Entry<String, DataModel> {
+        private final String key;
+        private final int    index;
+
+        ShapedEntry(int index) {
+            this.key = shape.keyAt(index);
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return this.key;
+        }
+
+        @Override
+        public DataModel getValue() {
+            return (fallback != null) ? fallback.get(this.key) : values[this.index];
+        }
+
+        @Override
+        public DataModel setValue(DataModel value) {
+            return put(this.key, value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            return Objects.equals(this.key, e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(this.key) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return this.key + "=" + getValue();
+        }
+    }
+}
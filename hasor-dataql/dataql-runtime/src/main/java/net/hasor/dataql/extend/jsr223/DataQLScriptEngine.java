@@ -17,10 +17,10 @@ package net.hasor.dataql.extend.jsr223;
 import net.hasor.dataql.Finder;
 import net.hasor.dataql.Hints;
 import net.hasor.dataql.compiler.qil.QIL;
-import net.hasor.dataql.parser.QueryModel;
 import net.hasor.dataql.runtime.CompilerArguments;
 import net.hasor.dataql.runtime.HintsSet;
-import net.hasor.dataql.runtime.QueryHelper;
+import net.hasor.dataql.runtime.QueryCache;
+import net.hasor.utils.io.IOUtils;
 
 import javax.script.*;
 import java.io.IOException;
@@ -34,9 +34,10 @@ import java.util.Objects;
  * @version : 2017-10-19
  */
 public class DataQLScriptEngine extends AbstractScriptEngine implements ScriptEngine, Compilable, Hints {
-    private final HintsSet                  optionSet = new HintsSet();
+    private final HintsSet                  optionSet  = new HintsSet();
+    private final QueryCache                queryCache = new QueryCache();
     private final DataQLScriptEngineFactory engineFactory;
-    private       Finder                    finder    = Finder.DEFAULT;
+    private       Finder                    finder     = Finder.DEFAULT;
 
     DataQLScriptEngine(DataQLScriptEngineFactory engineFactory) {
         this.engineFactory = engineFactory;
@@ -79,6 +80,12 @@ public class DataQLScriptEngine extends AbstractScriptEngine implements ScriptEn
 
     public void setFinder(Finder finder) {
         this.finder = Objects.requireNonNull(finder, "finder is null.");
+        this.queryCache.clear();
+    }
+
+    /** 获取已编译 QIL 的缓存 */
+    public QueryCache getQueryCache() {
+        return this.queryCache;
     }
     // -------------------------------------------------------------------------------------------- ScriptEngine
 
@@ -102,10 +109,9 @@ public class DataQLScriptEngine extends AbstractScriptEngine implements ScriptEn
                 this.setBindings(createBindings(), ScriptContext.GLOBAL_SCOPE);
             }
             //
-            QueryModel queryModel = QueryHelper.queryParser(queryString);
             CompilerArguments compilerArguments = CompilerArguments.DEFAULT.copyAsNew();
             compilerArguments.getCompilerVar().addAll(global.keySet());
-            QIL compilerQIL = QueryHelper.queryCompiler(queryModel, compilerArguments, this.getFinder());
+            QIL compilerQIL = this.queryCache.queryCompiler(IOUtils.toString(queryString), compilerArguments, this.getFinder());
             return new DataQLCompiledScript(compilerQIL, this);
         } catch (IOException e) {
             throw new ScriptException(e);
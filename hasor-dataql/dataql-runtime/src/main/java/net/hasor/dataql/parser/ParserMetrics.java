@@ -0,0 +1,72 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.parser;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DataQL 解析耗时统计（进程级别）。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public final class ParserMetrics {
+    private static final LongAdder parseCount      = new LongAdder();
+    private static final LongAdder sllSuccessCount = new LongAdder();
+    private static final LongAdder llParseCount    = new LongAdder();
+    private static final LongAdder parseNanos      = new LongAdder();
+
+    private ParserMetrics() {
+    }
+
+    /** 记录一次解析，sllSuccess 表示 SLL 阶段解析成功，llParsed 表示执行了 LL 解析 */
+    public static void record(boolean sllSuccess, boolean llParsed, long nanos) {
+        parseCount.increment();
+        if (sllSuccess) {
+            sllSuccessCount.increment();
+        }
+        if (llParsed) {
+            llParseCount.increment();
+        }
+        parseNanos.add(nanos);
+    }
+
+    /** 解析次数（包含失败的解析） */
+    public static long getParseCount() {
+        return parseCount.sum();
+    }
+
+    /** SLL 阶段就解析成功的次数 */
+    public static long getSllSuccessCount() {
+        return sllSuccessCount.sum();
+    }
+
+    /** 使用 LL 预测解析的次数（LL 模式下的解析和 SLL 失败后的重新解析） */
+    public static long getLlParseCount() {
+        return llParseCount.sum();
+    }
+
+    /** 解析累计耗时（纳秒），包含词法分析和 AST 构建 */
+    public static long getParseNanos() {
+        return parseNanos.sum();
+    }
+
+    /** 清空统计数据 */
+    public static void reset() {
+        parseCount.reset();
+        sllSuccessCount.reset();
+        llParseCount.reset();
+        parseNanos.reset();
+    }
+}
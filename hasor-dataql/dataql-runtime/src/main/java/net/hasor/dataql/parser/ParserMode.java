@@ -0,0 +1,27 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.parser;
+/**
+ * DataQL 解析器的预测模式。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public enum ParserMode {
+    /** 始终使用完整的 LL 预测 */
+    LL,
+    /** 先使用更快的 SLL 预测解析，遇到语法错误时立即放弃并使用 LL 预测重新解析（默认）。两种模式的解析结果和错误信息相同 */
+    SLL_LL,
+}
@@ -34,16 +34,19 @@ public class CompilerArguments {
     /** 快速模式：最小化编译结果，极致的运行性能为目标 */
     public static final CompilerArguments FAST         = new CompilerArguments() {{
         setCodeLocation(CodeLocationEnum.NONE);
+        setOptimize(true);
     }};
     //
     //
     private final       Set<String>       compilerVar  = new HashSet<>();
     private             CodeLocationEnum  codeLocation = CodeLocationEnum.LINE;
+    private             boolean           optimize     = false;
 
     public CompilerArguments copyAsNew() {
         CompilerArguments arguments = new CompilerArguments();
         arguments.compilerVar.addAll(this.compilerVar);
         arguments.codeLocation = this.codeLocation;
+        arguments.optimize = this.optimize;
         return arguments;
     }
 
@@ -74,4 +77,13 @@ public class CompilerArguments {
     public void setCodeLocation(CodeLocationEnum codeLocation) {
         this.codeLocation = codeLocation;
     }
+
+    /** 是否启用 QIL 优化（常量折叠、死代码删除、LABEL/LINE 精简），参见 {@link net.hasor.dataql.compiler.qil.QilOptimizer} */
+    public boolean isOptimize() {
+        return this.optimize;
+    }
+
+    public void setOptimize(boolean optimize) {
+        this.optimize = optimize;
+    }
 }
@@ -18,6 +18,14 @@ import net.hasor.dataql.CustomizeScope;
 import net.hasor.dataql.Finder;
 import net.hasor.dataql.FragmentProcess;
 import net.hasor.dataql.Hints;
+import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.domain.CursorTracker;
+import net.hasor.dataql.domain.ListModel;
+import net.hasor.dataql.domain.ObjectShape;
+import net.hasor.dataql.runtime.jit.CompiledBlock;
+import net.hasor.dataql.runtime.jit.QilJit;
+import net.hasor.dataql.runtime.mem.DataStack;
+import net.hasor.dataql.runtime.mem.ParallelCallQueue;
 import net.hasor.dataql.runtime.operator.OperatorManager;
 import net.hasor.dataql.runtime.operator.OperatorProcess;
 
@@ -30,11 +38,25 @@ import java.util.Stack;
  * @version : 2017-07-14
  */
 public class InsetProcessContext implements CustomizeScope {
-    private final static OperatorManager opeManager = OperatorManager.defaultManager();
-    private final        long            startTime  = System.currentTimeMillis();
-    private final        CustomizeScope  customizeScope;
-    private final        Finder          finder;
-    private final        Stack<HintsSet> hintStack  = new Stack<>();
+    private final static OperatorManager   opeManager    = OperatorManager.defaultManager();
+    private final        long              startTime     = System.currentTimeMillis();
+    private final        CustomizeScope    customizeScope;
+    private final        Finder            finder;
+    private final        Stack<HintsSet>   hintStack     = new Stack<>();
+    private              QIL               qil           = null;
+    private              QilJit            qilJit        = null;
+    private              int               jitThreshold;
+    private              UdfLinkage        udfLinkage    = null;
+    private              boolean           limitEnabled;
+    private              long              maxInstructions;
+    private              long              executionTimeout;
+    private              long              deadline;
+    private              int               maxStackSize;
+    private              long              executedCount;
+    private              QueryProfiler     profiler      = null;
+    private              ObjectShape       rootShape     = null;
+    private final        CursorTracker     cursorTracker = new CursorTracker();
+    private              ParallelCallQueue parallelQueue = null;
 
     InsetProcessContext(CustomizeScope customizeScope, Finder finder) {
         if (finder == null) {
@@ -62,6 +84,147 @@ public class InsetProcessContext implements CustomizeScope {
         }
     }
 
+    void enableJit(QIL qil, QilJit qilJit, int jitThreshold) {
+        this.qil = qil;
+        this.qilJit = qilJit;
+        this.jitThreshold = jitThreshold;
+    }
+
+    void enableLinkage(UdfLinkage udfLinkage) {
+        this.udfLinkage = udfLinkage;
+    }
+
+    /** 启用执行限制，参数小于等于 0 表示不限制 */
+    void enableLimit(long maxInstructions, long executionTimeout, int maxStackSize) {
+        this.maxInstructions = maxInstructions;
+        this.executionTimeout = executionTimeout;
+        this.deadline = (executionTimeout > 0) ? (this.startTime + executionTimeout) : 0;
+        this.maxStackSize = maxStackSize;
+        this.limitEnabled = maxInstructions > 0 || executionTimeout > 0 || maxStackSize > 0;
+    }
+
+    /** EXECUTION_TIMEOUT 限制的结束时间（毫秒时间戳），0 表示不限制 */
+    public long getDeadline() {
+        return this.deadline;
+    }
+
+    /** EXECUTION_TIMEOUT 限制（毫秒），小于等于 0 表示不限制 */
+    public long getExecutionTimeout() {
+        return this.executionTimeout;
+    }
+
+    /** 是否启用了执行限制 */
+    public boolean isLimitEnabled() {
+        return this.limitEnabled;
+    }
+
+    /** 在执行每条指令之前检查执行限制，超出时引发 QueryLimitException（时间每执行 1024 条指令检查一次） */
+    public void checkLimit(InstSequence sequence, DataStack dataStack) throws QueryLimitException {
+        if (!this.limitEnabled) {
+            return;
+        }
+        long executedCount = ++this.executedCount;
+        if (this.maxInstructions > 0 && executedCount > this.maxInstructions) {
+            throw new QueryLimitException(sequence.programLocation(), Hints.MAX_INSTRUCTIONS, this.maxInstructions);
+        }
+        if (this.deadline > 0 && (executedCount & 0x3FF) == 0 && System.currentTimeMillis() > this.deadline) {
+            throw new QueryLimitException(sequence.programLocation(), Hints.EXECUTION_TIMEOUT, this.executionTimeout);
+        }
+        if (this.maxStackSize > 0 && dataStack.size() > this.maxStackSize) {
+            throw new QueryLimitException(sequence.programLocation(), Hints.MAX_STACK_SIZE, this.maxStackSize);
+        }
+    }
+
+    void enableProfiler(QueryProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /** 本次执行中对象字面量使用的 ObjectShape 树的根节点，相同 Key 序列的对象共享同一个 ObjectShape */
+    public ObjectShape rootShape() {
+        if (this.rootShape == null) {
+            this.rootShape = ObjectShape.newRoot();
+        }
+        return this.rootShape;
+    }
+
+    /** 登记 UDF、片段调用返回的游标模式 ListModel，查询结束时未被读取完的游标会被关闭。返回值为参数本身 */
+    public <T> T trackCursor(T dataModel) {
+        if (dataModel instanceof ListModel) {
+            this.cursorTracker.track((ListModel) dataModel);
+        }
+        return dataModel;
+    }
+
+    /** 本次执行的游标登记表，执行期间在查询线程（以及 PARALLEL_FIELDS 的执行线程）上启用，DomainHelper 转换时创建的游标也会登记到这里 */
+    public CursorTracker getCursorTracker() {
+        return this.cursorTracker;
+    }
+
+    /** 性能剖析数据，未启用性能剖析时返回 null */
+    public QueryProfiler getProfiler() {
+        return this.profiler;
+    }
+
+    /** 已经执行的指令数，只在启用执行限制时统计 */
+    public long getExecutedCount() {
+        return this.executedCount;
+    }
+
+    /** 查找指令序列的字节码实现，未启用或者尚未达到编译阈值时返回 null（使用解释器执行） */
+    public CompiledBlock findCompiledBlock(int address) {
+        if (this.qilJit == null) {
+            return null;
+        }
+        return this.qilJit.findCompiledBlock(this.qil, address, this.jitThreshold);
+    }
+
+    /** 集合转换中的 BatchUdf、Fragment 调用是否自动合并为批量调用（AUTO_BATCH_CALL，默认关闭） */
+    public boolean isAutoBatchCall() {
+        return currentHints().getOrMap(Hints.AUTO_BATCH_CALL, val -> {
+            if (val instanceof Boolean) {
+                return (Boolean) val;
+            }
+            return val != null && Boolean.parseBoolean(val.toString());
+        });
+    }
+
+    /** 对象字面量中多个字段的调用是否并发执行（PARALLEL_FIELDS，默认关闭） */
+    public boolean isParallelFields() {
+        return currentHints().getOrMap(Hints.PARALLEL_FIELDS, val -> {
+            if (val instanceof Boolean) {
+                return (Boolean) val;
+            }
+            return val != null && Boolean.parseBoolean(val.toString());
+        });
+    }
+
+    /** 并发调用队列，第一次使用时创建 */
+    public ParallelCallQueue parallelCallQueue() {
+        if (this.parallelQueue == null) {
+            this.parallelQueue = new ParallelCallQueue(this);
+        }
+        return this.parallelQueue;
+    }
+
+    /** 是否有尚未等待结果的并发调用 */
+    public boolean hasParallelCalls() {
+        return this.parallelQueue != null && !this.parallelQueue.isEmpty();
+    }
+
+    /** 等待所有并发调用的结果（对象字面量的最后一个字段放入之后） */
+    public void joinParallelCalls() {
+        if (this.parallelQueue != null && !this.parallelQueue.isEmpty()) {
+            this.parallelQueue.join();
+        }
+    }
+
+    /** 查询异常结束，取消尚未结束的并发调用 */
+    void cancelParallelCalls() {
+        if (this.parallelQueue != null) {
+            this.parallelQueue.cancel();
+        }
+    }
+
     public long executionTime() {
         return System.currentTimeMillis() - this.startTime;
     }
@@ -95,6 +258,15 @@ public class InsetProcessContext implements CustomizeScope {
         return this.finder.findBean(loadClass);
     }
 
+    /** 加载 import 的 UDF 类型（UdfSource 会被展开），启用链接缓存时同一个 QIL 中的类型只加载一次 */
+    public Object linkUdfType(String udfType) throws ClassNotFoundException {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (this.udfLinkage == null) {
+            return UdfLinkage.resolve(udfType, this.finder, classLoader);
+        }
+        return this.udfLinkage.link(udfType, this.finder, classLoader);
+    }
+
     public FragmentProcess findFragmentProcess(String fragmentType) {
         return this.finder.findFragmentProcess(fragmentType);
     }
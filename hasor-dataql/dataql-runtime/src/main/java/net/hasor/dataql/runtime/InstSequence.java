@@ -22,28 +22,27 @@ import net.hasor.dataql.parser.location.LocationUtils;
 import net.hasor.dataql.parser.location.RuntimeLocation;
 import net.hasor.utils.StringUtils;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 /**
  * 指令序列集
  * @author 赵永春 (zyc@hasor.net)
  * @version : 2017-07-14
  */
 public class InstSequence {
-    private final int           address;        // 指令集中的序列地址
-    private final QIL           queueSet;       // 指令集
-    private final int           startPosition;  // 有效的起始位置
-    private final int           endPosition;    // 有效的终止位置
-    private final AtomicInteger sequenceIndex;  // 当前指令指针指向的序列位置
-    private       int[]         codeLocation;   // 长度为4的一个数组,分为两段(1-起始位置，2-终止位置)。每段的结构相同(行，列)。 -1 表示未知
-    private       boolean       jumpMark = false;
+    private static final int[]   UNKNOWN_LOCATION = new int[] { -1, -1, -1, -1 };
+    private final        int     address;        // 指令集中的序列地址
+    private final        QIL     queueSet;       // 指令集
+    private final        int     startPosition;  // 有效的起始位置
+    private final        int     endPosition;    // 有效的终止位置
+    private              int     sequenceIndex;  // 当前指令指针指向的序列位置（指令序列只会被单个线程执行）
+    private              int[]   codeLocation;   // 长度为4的一个数组,分为两段(1-起始位置，2-终止位置)。每段的结构相同(行，列)。 -1 表示未知
+    private              boolean jumpMark         = false;
 
     InstSequence(int address, QIL queueSet) {
         this.address = address;
         this.queueSet = queueSet;
         this.startPosition = 0;
         this.endPosition = this.queueSet.iqlSize(address);
-        this.sequenceIndex = new AtomicInteger(this.startPosition);
+        this.sequenceIndex = this.startPosition;
         this.codeLocation = new int[] { -1, -1, -1, -1 };
     }
 
@@ -52,7 +51,7 @@ public class InstSequence {
         this.queueSet = queueSet;
         this.startPosition = startPosition;
         this.endPosition = endPosition;
-        this.sequenceIndex = new AtomicInteger(this.startPosition);
+        this.sequenceIndex = this.startPosition;
         this.codeLocation = new int[] { -1, -1, -1, -1 };
     }
 
@@ -63,7 +62,12 @@ public class InstSequence {
 
     /** 获取当前程序指令指针位置 */
     public int programPointer() {
-        return this.sequenceIndex.get();
+        return this.sequenceIndex;
+    }
+
+    /** 当前的代码位置信息（由 LINE 指令更新，数组本身不会被修改，因此可以安全的保存引用） */
+    public int[] codeLocation() {
+        return this.codeLocation;
     }
 
     public void updateCodeLocation(int[] ints) {
@@ -72,15 +76,23 @@ public class InstSequence {
 
     /** 获取当前程序指令指针位置以及运行的代码位置信息 */
     public RuntimeLocation programLocation() {
+        return this.programLocation(this.programPointer(), this.codeLocation);
+    }
+
+    /**
+     * 根据事先记录的指针位置和代码位置构建位置信息。
+     * 执行循环只记录 int 和数组引用，仅当发生异常时才通过该方法生成位置对象，从而避免每条指令都产生对象分配。
+     */
+    public RuntimeLocation programLocation(int programPointer, int[] codeLocation) {
         BlockLocation blockLocation = new BlockLocation();
-        if (this.codeLocation.length == 4) {
-            blockLocation.setStartPosition(new CodeLocation(this.codeLocation[0], this.codeLocation[1]));
-            blockLocation.setEndPosition(new CodeLocation(this.codeLocation[2], this.codeLocation[3]));
+        if (codeLocation.length == 4) {
+            blockLocation.setStartPosition(new CodeLocation(codeLocation[0], codeLocation[1]));
+            blockLocation.setEndPosition(new CodeLocation(codeLocation[2], codeLocation[3]));
         } else {
-            blockLocation.setStartPosition(new CodeLocation(this.codeLocation[0], -1));
+            blockLocation.setStartPosition(new CodeLocation(codeLocation[0], -1));
             blockLocation.setEndPosition(new CodeLocation(-1, -1));
         }
-        return LocationUtils.atRuntime(blockLocation, this.address, this.programPointer());
+        return LocationUtils.atRuntime(blockLocation, this.address, programPointer);
     }
 
     /** 克隆一个 */
@@ -94,7 +106,36 @@ public class InstSequence {
             return null;
         }
         //
-        return this.queueSet.instOf(this.address, this.sequenceIndex.get());
+        return this.queueSet.instOf(this.address, this.sequenceIndex);
+    }
+
+    /** 当前指令之后的第 offset 条指令，超出序列范围时返回 null */
+    public Instruction peekInst(int offset) {
+        int position = this.sequenceIndex + offset;
+        if (this.queueSet == null || position < this.startPosition || position >= this.endPosition) {
+            return null;
+        }
+        return this.queueSet.instOf(this.address, position);
+    }
+
+    /** 指令序列使用的本地变量槽位数（编译期确定） */
+    public int localSize() {
+        return this.queueSet.localSize(this.address);
+    }
+
+    /** 指令序列中是否会创建引用当前堆的闭包 */
+    public boolean hasClosure() {
+        return this.queueSet.hasClosure(this.address);
+    }
+
+    /** 当前的 CALL 指令是否可以与对象字面量中其它字段的调用并发执行（编译期分析的结果） */
+    public boolean isParallelCall() {
+        return this.queueSet.isParallelCall(this.address, this.sequenceIndex);
+    }
+
+    /** 当前的 PUT 指令执行之后是否需要等待对象字面量中所有并发调用的结果 */
+    public boolean isParallelJoin() {
+        return this.queueSet.isParallelJoin(this.address, this.sequenceIndex);
     }
 
     /** 另一个方法序列 */
@@ -108,7 +149,7 @@ public class InstSequence {
     /** 根据 filter，来决定圈定  form to 范围的指令集。 */
     public InstSequence findSubSequence(InstFilter instFilter) {
         Instruction[] curInstSet = this.queueSet.iqlArrays(this.address);
-        int startIndex = this.sequenceIndex.get();              // 从下一条指令作为开始
+        int startIndex = this.sequenceIndex;        // 从下一条指令作为开始
         int endIndex = curInstSet.length - 1;       // 结束位置，默认为最长
         for (int i = startIndex; i < endIndex; i++) {
             if (instFilter.isExit(curInstSet[i])) {
@@ -121,7 +162,7 @@ public class InstSequence {
 
     /** 是否还有更多指令等待执行。 */
     public boolean hasNext() {
-        return this.sequenceIndex.get() < this.endPosition;
+        return this.sequenceIndex < this.endPosition;
     }
 
     /** 移动指令序列指针，到下一个位置。 */
@@ -133,15 +174,15 @@ public class InstSequence {
         if (nextSkip < 0) {
             throw new QueryRuntimeException(programLocation(), "nextSkip must be > 0");
         }
-        int newPosition = this.sequenceIndex.get() + nextSkip;
+        int newPosition = this.sequenceIndex + nextSkip;
         if (newPosition > this.endPosition) {
             return false;
         }
         //
         if (nextSkip > 0) {
-            this.sequenceIndex.addAndGet(nextSkip);
+            this.sequenceIndex = newPosition;
         } else {
-            this.sequenceIndex.incrementAndGet();
+            this.sequenceIndex++;
         }
         return true;
     }
@@ -153,13 +194,20 @@ public class InstSequence {
 
     /**重置执行指针到序列指定位置*/
     public void jumpTo(int position) {
-        this.sequenceIndex.set(position);
+        this.sequenceIndex = position;
         this.jumpMark = true;
     }
 
+    /**移动执行指针到序列指定位置（不同于 jumpTo，调用 doNext 时指针会正常前进）*/
+    public void moveTo(int position) {
+        this.sequenceIndex = position;
+    }
+
     /**重置执行指针到序列最开始*/
     public void reset() {
-        this.sequenceIndex.set(this.startPosition);
+        this.sequenceIndex = this.startPosition;
+        this.jumpMark = false;
+        this.codeLocation = UNKNOWN_LOCATION;
     }
 
     @Override
@@ -172,7 +220,7 @@ public class InstSequence {
         Instruction[] instList = this.queueSet.iqlArrays(this.address);
         int length = String.valueOf(instList.length).length();
         for (int i = this.startPosition; i < this.endPosition; i++) {
-            if (i == this.sequenceIndex.get()) {
+            if (i == this.sequenceIndex) {
                 strBuffer.append("> #");
             } else {
                 strBuffer.append("  #");
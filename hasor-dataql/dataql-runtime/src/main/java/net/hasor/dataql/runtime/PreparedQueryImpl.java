@@ -0,0 +1,171 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.runtime;
+import net.hasor.dataql.CustomizeScope;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.Hints;
+import net.hasor.dataql.PreparedQuery;
+import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.domain.CursorTracker;
+import net.hasor.dataql.domain.DataModel;
+import net.hasor.dataql.runtime.inset.OpcodesPool;
+import net.hasor.dataql.runtime.jit.CompiledBlock;
+import net.hasor.dataql.runtime.jit.QilJit;
+import net.hasor.dataql.runtime.mem.DataHeap;
+import net.hasor.dataql.runtime.mem.DataStack;
+import net.hasor.dataql.runtime.mem.EnvStack;
+import net.hasor.dataql.runtime.mem.ExitType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static net.hasor.dataql.HintValue.*;
+
+/**
+ * 预编译查询，所有字段在创建后均不再修改，因此可以被多个线程同时执行。
+ * 每次执行只创建 InsetProcessContext 和堆栈等执行期数据。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+class PreparedQueryImpl implements PreparedQuery {
+    private final QIL                      qil;
+    private final UdfLinkage               udfLinkage;
+    private final Finder                   finder;
+    private final HintsSet                 hintsSet;
+    private final Map<String, Supplier<?>> shareVarMap;
+    private final int                      jitThreshold;
+
+    PreparedQueryImpl(QIL qil, Finder finder, Hints hints, Map<String, Supplier<?>> shareVarMap) {
+        this.qil = qil;
+        this.udfLinkage = UdfLinkage.of(qil);
+        this.finder = finder;
+        this.hintsSet = (hints == null) ? new HintsSet() : new HintsSet(hints);
+        this.shareVarMap = (shareVarMap == null) ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(shareVarMap));
+        this.jitThreshold = jitThreshold(this.hintsSet);
+    }
+
+    @Override
+    public Object getHint(String optionKey) {
+        return this.hintsSet.getHint(optionKey);
+    }
+
+    @Override
+    public QueryResultImpl execute(CustomizeScope customizeScope, Map<String, ?> shareVarMap) throws QueryRuntimeException {
+        Map<String, Object> useShareVar = new HashMap<>();
+        this.shareVarMap.forEach((key, valueSupplier) -> {
+            useShareVar.put(key, valueSupplier.get());
+        });
+        if (shareVarMap != null) {
+            useShareVar.putAll(shareVarMap);
+        }
+        return execute(this.qil, this.udfLinkage, this.finder, this.hintsSet, this.jitThreshold, useShareVar, customizeScope);
+    }
+
+    static int jitThreshold(Hints hints) {
+        return hints.getOrMap(JIT_THRESHOLD, val -> {
+            if (val instanceof Number) {
+                return ((Number) val).intValue();
+            }
+            return (val == null) ? 0 : Integer.parseInt(val.toString());
+        });
+    }
+
+    private static long longHint(Hints hints, String hintName) {
+        return hints.getOrMap(hintName, val -> {
+            if (val instanceof Number) {
+                return ((Number) val).longValue();
+            }
+            return (val == null) ? 0 : Long.parseLong(val.toString());
+        });
+    }
+
+    private static QueryProfiler createProfiler(Hints hints) {
+        String profilerMode = hints.getOrDefault(PROFILER_MODE, PROFILER_MODE_OFF).toString();
+        if (PROFILER_MODE_FULL.equalsIgnoreCase(profilerMode)) {
+            return new QueryProfiler(1);
+        }
+        if (PROFILER_MODE_SAMPLE.equalsIgnoreCase(profilerMode)) {
+            long sampleInterval = longHint(hints, PROFILER_SAMPLE_INTERVAL);
+            return new QueryProfiler((sampleInterval > 0) ? (int) sampleInterval : 64);
+        }
+        return null;
+    }
+
+    /** 执行查询，除参数外不访问任何共享的可变状态 */
+    static QueryResultImpl execute(QIL qil, UdfLinkage udfLinkage, Finder finder, Hints hints, int jitThreshold, //
+            Map<String, ?> shareVarMap, CustomizeScope customize) throws QueryRuntimeException {
+        InstSequence instSequence = new InstSequence(0, qil);
+        //
+        // .创建指令执行环境
+        if (customize == null) {
+            customize = symbol -> Collections.emptyMap();
+        }
+        InsetProcessContext processContext = new InsetProcessContext(customize, finder);
+        processContext.enableLinkage(udfLinkage);
+        // .汇总Option
+        processContext.currentHints().setHints(hints);
+        processContext.enableLimit(longHint(hints, MAX_INSTRUCTIONS), longHint(hints, EXECUTION_TIMEOUT), (int) longHint(hints, MAX_STACK_SIZE));
+        QueryProfiler profiler = createProfiler(hints);
+        processContext.enableProfiler(profiler);
+        if (jitThreshold > 0 && !processContext.isLimitEnabled() && profiler == null) {
+            processContext.enableJit(qil, QilJit.of(qil), jitThreshold);
+        }
+        // .创建堆栈
+        DataStack dataStack = new DataStack();  // 指令执行 - 栈
+        DataHeap dataHeap = new DataHeap(null, instSequence.localSize()); // 指令执行 - 堆
+        EnvStack envStack = new EnvStack();     // 环境数据 - 栈
+        qil.getCompilerVar().forEach((varName, varLocalIdx) -> {
+            Object varVal = shareVarMap.get(varName);
+            dataHeap.saveData(varLocalIdx, varVal);
+        });
+        //
+        // .执行指令序列
+        OpcodesPool opcodesPool = OpcodesPool.defaultOpcodesPool();
+        CompiledBlock compiledBlock = processContext.findCompiledBlock(instSequence.getAddress());
+        CursorTracker cursorTracker = processContext.getCursorTracker();
+        CursorTracker previousTracker = cursorTracker.attach();
+        try {
+            while (instSequence.hasNext()) {
+                if (compiledBlock != null) {
+                    compiledBlock.doWork(instSequence, dataHeap, dataStack, envStack, processContext);
+                } else {
+                    opcodesPool.doWork(instSequence, dataHeap, dataStack, envStack, processContext);
+                }
+                instSequence.doNext(1);
+            }
+            processContext.joinParallelCalls();
+        } catch (RuntimeException | Error e) {
+            processContext.cancelParallelCalls();
+            try {
+                cursorTracker.release(null);
+            } catch (RuntimeException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        } finally {
+            CursorTracker.restore(previousTracker);
+        }
+        // .结果处理（查询结束，无法从结果访问到的游标会被关闭，其余的由 QueryResult.close 关闭）
+        ExitType exitType = (dataStack.getExitType() == null) ? ExitType.Return : dataStack.getExitType();
+        int resultCode = dataStack.getResultCode();
+        DataModel result = dataStack.getResult();
+        cursorTracker.release(result);
+        long executionTime = processContext.executionTime();
+        return new QueryResultImpl(exitType, resultCode, result, executionTime, profiler, cursorTracker);
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.runtime;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.compiler.ImportModuleCache;
+import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.parser.QueryModel;
+import net.hasor.dataql.parser.ast.inst.ImportInst;
+import net.hasor.dataql.parser.ast.inst.ImportInst.ImportType;
+import net.hasor.dataql.parser.ast.inst.RootBlockSet;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已编译 QIL 的缓存（LRU），缓存 Key 由 脚本内容 + 编译参数（编译变量、代码行号模式、是否优化）组成。
+ * 命中缓存时可以同时省去 ANTLR 解析和 QIL 编译两个阶段。该类是线程安全的。
+ * <p>import 导入的模块被编译进了 QIL，因此缓存条目同时记录编译时（包括间接）导入的模块。命中缓存时通过 ImportModuleCache 检查这些模块，
+ * 任何一个模块被重新加载（内容发生变化）时重新编译。Finder 没有提供 ImportModuleCache 时使用 QueryCache 自己的模块缓存进行检查。</p>
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class QueryCache {
+    /** 默认缓存容量 */
+    public static final int                      DEFAULT_MAX_SIZE = 1024;
+    private final       Map<CacheKey, CacheItem> cacheMap         = new LinkedHashMap<>(16, 0.75f, true);
+    private final       ImportModuleCache        moduleCache      = new ImportModuleCache(ImportModuleCache.DEFAULT_MAX_SIZE);
+    private volatile    int                      maxSize;
+    private final       AtomicLong               hitCount         = new AtomicLong();
+    private final       AtomicLong               missCount        = new AtomicLong();
+    private final       AtomicLong               evictionCount    = new AtomicLong();
+
+    public QueryCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /** @param maxSize 最大缓存条目数，小于等于 0 表示禁用缓存 */
+    public QueryCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 解析并编译 DataQL 执行脚本，若相同脚本和编译参数的 QIL 已在缓存中则直接返回缓存结果。
+     * @param queryString 脚本字符串
+     * @param compilerArguments 编译参数
+     * @param importFinder import 导入用到的资源加载器。
+     */
+    public QIL queryCompiler(String queryString, CompilerArguments compilerArguments, Finder importFinder) throws IOException {
+        compilerArguments = (compilerArguments == null) ? CompilerArguments.DEFAULT : compilerArguments;
+        if (this.maxSize <= 0) {
+            this.missCount.incrementAndGet();
+            return QueryHelper.queryCompiler(QueryHelper.queryParser(queryString), compilerArguments, importFinder);
+        }
+        //
+        CacheKey cacheKey = new CacheKey(queryString, compilerArguments);
+        CacheItem cacheItem = null;
+        synchronized (this.cacheMap) {
+            cacheItem = this.cacheMap.get(cacheKey);
+        }
+        if (cacheItem != null && this.isImportValid(cacheItem, importFinder)) {
+            this.hitCount.incrementAndGet();
+            return cacheItem.qil;
+        }
+        //
+        // .编译过程不持有锁，并发编译同一个脚本时以先放入缓存的为准。导入的模块在编译之前记录，编译期间模块发生变化时下次命中会重新编译
+        this.missCount.incrementAndGet();
+        QueryModel queryModel = QueryHelper.queryParser(queryString);
+        Map<String, QueryModel> importModules = this.loadImports(queryModel, importFinder);
+        QIL qil = QueryHelper.queryCompiler(queryModel, compilerArguments, importFinder);
+        if (importModules == null) {
+            return qil; // 导入的模块无法加载（编译会报告错误），不缓存
+        }
+        synchronized (this.cacheMap) {
+            CacheItem oldItem = this.cacheMap.get(cacheKey);
+            if (oldItem != null && oldItem != cacheItem) {
+                return oldItem.qil;
+            }
+            this.cacheMap.put(cacheKey, new CacheItem(qil, importModules));
+            this.evictOverflow();
+        }
+        return qil;
+    }
+
+    private ImportModuleCache moduleCacheOf(Finder importFinder) {
+        ImportModuleCache finderCache = (importFinder == null) ? null : importFinder.importModuleCache();
+        return (finderCache != null) ? finderCache : this.moduleCache;
+    }
+
+    /** 加载 queryModel 直接或者间接导入的模块（资源名称 -> 模块），无法加载时返回 null */
+    private Map<String, QueryModel> loadImports(QueryModel queryModel, Finder importFinder) {
+        Map<String, QueryModel> importModules = new LinkedHashMap<>();
+        Deque<QueryModel> pending = new ArrayDeque<>();
+        pending.push(queryModel);
+        try {
+            while (!pending.isEmpty()) {
+                QueryModel model = pending.pop();
+                if (!(model instanceof RootBlockSet)) {
+                    continue;
+                }
+                for (ImportInst importInst : ((RootBlockSet) model).getImportSet()) {
+                    String resourceName = importInst.getImportName().getValue();
+                    if (importInst.getImportType() != ImportType.Resource || importModules.containsKey(resourceName)) {
+                        continue;
+                    }
+                    if (importFinder == null) {
+                        return null;
+                    }
+                    QueryModel module = this.moduleCacheOf(importFinder).loadModule(resourceName, importFinder);
+                    importModules.put(resourceName, module);
+                    pending.push(module);
+                }
+            }
+        } catch (Exception e) {
+            return null;
+        }
+        return importModules;
+    }
+
+    /** 编译时导入的模块是否都没有被重新加载 */
+    private boolean isImportValid(CacheItem cacheItem, Finder importFinder) {
+        if (cacheItem.importModules.isEmpty()) {
+            return true;
+        }
+        ImportModuleCache moduleCache = this.moduleCacheOf(importFinder);
+        try {
+            for (Map.Entry<String, QueryModel> entry : cacheItem.importModules.entrySet()) {
+                if (moduleCache.loadModule(entry.getKey(), importFinder) != entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<CacheKey, CacheItem>> iterator = this.cacheMap.entrySet().iterator();
+        while (this.cacheMap.size() > Math.max(this.maxSize, 0) && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            this.evictionCount.incrementAndGet();
+        }
+    }
+
+    /** 最大缓存条目数 */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /** 调整最大缓存条目数，小于等于 0 表示禁用缓存。缩小容量时会立刻淘汰最久未使用的条目。 */
+    public void setMaxSize(int maxSize) {
+        synchronized (this.cacheMap) {
+            this.maxSize = maxSize;
+            this.evictOverflow();
+        }
+    }
+
+    /** 当前缓存的条目数 */
+    public int size() {
+        synchronized (this.cacheMap) {
+            return this.cacheMap.size();
+        }
+    }
+
+    /** 清空缓存（统计数据保留） */
+    public void clear() {
+        synchronized (this.cacheMap) {
+            this.cacheMap.clear();
+        }
+        this.moduleCache.clear();
+    }
+
+    /** 命中次数 */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /** 未命中次数 */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /** 因容量限制而被淘汰的条目数 */
+    public long getEvictionCount() {
+        return this.evictionCount.get();
+    }
+
+    /** 重置统计数据 */
+    public void resetStatistics() {
+        this.hitCount.set(0);
+        this.missCount.set(0);
+        this.evictionCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryCache{size=" + size() + ", maxSize=" + this.maxSize +//
+                ", hit=" + getHitCount() + ", miss=" + getMissCount() + ", eviction=" + getEvictionCount() + "}";
+    }
+
+    private static class CacheItem {
+        private final QIL                     qil;
+        private final Map<String, QueryModel> importModules;
+
+        public CacheItem(QIL qil, Map<String, QueryModel> importModules) {
+            this.qil = qil;
+            this.importModules = importModules;
+        }
+    }
+
+    private static class CacheKey {
+        private final String                             queryString;
+        private final CompilerArguments.CodeLocationEnum codeLocation;
+        private final boolean                            optimize;
+        private final Set<String>                        compilerVar;
+        private final int                                hashCode;
+
+        public CacheKey(String queryString, CompilerArguments compilerArguments) {
+            this.queryString = Objects.requireNonNull(queryString, "queryString is null.");
+            this.codeLocation = compilerArguments.getCodeLocation();
+            this.optimize = compilerArguments.isOptimize();
+            Set<String> compilerVar = compilerArguments.getCompilerVar();
+            this.compilerVar = (compilerVar == null) ? Collections.emptySet() : new HashSet<>(compilerVar);
+            this.hashCode = Objects.hash(this.queryString, this.codeLocation, this.optimize, this.compilerVar);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey cacheKey = (CacheKey) o;
+            return this.hashCode == cacheKey.hashCode &&//
+                    this.codeLocation == cacheKey.codeLocation &&//
+                    this.optimize == cacheKey.optimize &&//
+                    this.queryString.equals(cacheKey.queryString) &&//
+                    this.compilerVar.equals(cacheKey.compilerVar);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+}
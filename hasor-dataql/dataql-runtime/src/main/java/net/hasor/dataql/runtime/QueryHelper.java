@@ -15,13 +15,20 @@
  */
 package net.hasor.dataql.runtime;
 import net.hasor.dataql.Finder;
+import net.hasor.dataql.Hints;
+import net.hasor.dataql.PreparedQuery;
 import net.hasor.dataql.Query;
 import net.hasor.dataql.compiler.qil.*;
 import net.hasor.dataql.parser.*;
 import net.hasor.dataql.parser.ast.inst.RootBlockSet;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -30,6 +37,7 @@ import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * DataQL 小工具。
@@ -71,15 +79,53 @@ public class QueryHelper {
     }
 
     public static QueryModel queryParser(CharStream charStream) throws QueryParseException {
-        DataQLLexer lexer = new DataQLLexer(charStream);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(ThrowingErrorListener.INSTANCE);
-        //
-        DataQLParser qlParser = new DataQLParser(new CommonTokenStream(lexer));
-        qlParser.removeErrorListeners();
-        qlParser.addErrorListener(ThrowingErrorListener.INSTANCE);
-        DataQLParserVisitor visitor = new DefaultDataQLVisitor();
-        return (RootBlockSet) visitor.visit(qlParser.rootInstSet());
+        return queryParser(charStream, ParserMode.SLL_LL);
+    }
+
+    /**
+     * 解析 DataQL 执行脚本
+     * @param charStream 脚本字符流
+     * @param parserMode 解析器的预测模式
+     */
+    public static QueryModel queryParser(CharStream charStream, ParserMode parserMode) throws QueryParseException {
+        long startTime = System.nanoTime();
+        boolean sllSuccess = false;
+        boolean llParsed = false;
+        try {
+            DataQLLexer lexer = new DataQLLexer(charStream);
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(ThrowingErrorListener.INSTANCE);
+            CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+            DataQLParser qlParser = new DataQLParser(tokenStream);
+            //
+            // .SLL 预测不处理语法错误，遇到错误直接放弃（错误可能是 SLL 预测能力不足造成的）
+            ParserRuleContext rootContext = null;
+            if (parserMode == ParserMode.SLL_LL) {
+                qlParser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+                qlParser.removeErrorListeners();
+                qlParser.setErrorHandler(new BailErrorStrategy());
+                try {
+                    rootContext = qlParser.rootInstSet();
+                    sllSuccess = true;
+                } catch (ParseCancellationException e) {
+                    tokenStream.seek(0);
+                    qlParser.reset();
+                }
+            }
+            // .LL 预测，语法错误在这一阶段报告
+            if (rootContext == null) {
+                llParsed = true;
+                qlParser.getInterpreter().setPredictionMode(PredictionMode.LL);
+                qlParser.removeErrorListeners();
+                qlParser.addErrorListener(ThrowingErrorListener.INSTANCE);
+                qlParser.setErrorHandler(new DefaultErrorStrategy());
+                rootContext = qlParser.rootInstSet();
+            }
+            DataQLParserVisitor visitor = new DefaultDataQLVisitor();
+            return (RootBlockSet) visitor.visit(rootContext);
+        } finally {
+            ParserMetrics.record(sllSuccess, llParsed, System.nanoTime() - startTime);
+        }
     }
 
     /**
@@ -149,6 +195,11 @@ public class QueryHelper {
         });
         compilerContext.findInstCompilerByInst(rootBlockSet).doCompiler(queue);
         Instruction[][] queueSet = queue.buildArrays();
+        if (compilerArguments.isOptimize()) {
+            QilOptimizer optimizer = new QilOptimizer(queueSet);
+            queueSet = optimizer.optimize();
+            return new QIL(queueSet, compilerVarMap, optimizer.getRemovedCount());
+        }
         return new QIL(queueSet, compilerVarMap);
     }
 
@@ -181,4 +232,18 @@ public class QueryHelper {
     public static Query createQuery(QIL qil, Finder finder) {
         return new QueryImpl(qil, finder);
     }
+
+    /** 创建预编译查询，可以被多个线程同时执行 */
+    public static PreparedQuery createPreparedQuery(QIL qil, Finder finder) {
+        return createPreparedQuery(qil, finder, null, null);
+    }
+
+    /**
+     * 创建预编译查询，可以被多个线程同时执行
+     * @param hints 查询使用的 Hint，创建时复制一份，之后的修改不会影响预编译查询
+     * @param shareVarMap 全局变量，每次执行时调用 Supplier 获取变量值
+     */
+    public static PreparedQuery createPreparedQuery(QIL qil, Finder finder, Hints hints, Map<String, Supplier<?>> shareVarMap) {
+        return new PreparedQueryImpl(qil, finder, hints, shareVarMap);
+    }
 }
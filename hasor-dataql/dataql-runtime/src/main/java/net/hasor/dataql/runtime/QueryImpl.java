@@ -18,14 +18,7 @@ import net.hasor.dataql.CustomizeScope;
 import net.hasor.dataql.Finder;
 import net.hasor.dataql.Query;
 import net.hasor.dataql.compiler.qil.QIL;
-import net.hasor.dataql.domain.DataModel;
-import net.hasor.dataql.runtime.inset.OpcodesPool;
-import net.hasor.dataql.runtime.mem.DataHeap;
-import net.hasor.dataql.runtime.mem.DataStack;
-import net.hasor.dataql.runtime.mem.EnvStack;
-import net.hasor.dataql.runtime.mem.ExitType;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -36,11 +29,13 @@ import java.util.Map;
  */
 class QueryImpl extends HintsSet implements Query {
     private final QIL                 qil;
+    private final UdfLinkage          udfLinkage;
     private final Finder              finder;
     private final Map<String, Object> shareVarMap;
 
     QueryImpl(QIL qil, Finder finder) {
         this.qil = qil;
+        this.udfLinkage = UdfLinkage.of(qil);
         this.finder = finder;
         this.shareVarMap = new HashMap<>();
     }
@@ -59,35 +54,7 @@ class QueryImpl extends HintsSet implements Query {
 
     @Override
     public QueryResultImpl execute(CustomizeScope customize) throws QueryRuntimeException {
-        InstSequence instSequence = new InstSequence(0, this.qil);
-        //
-        // .创建指令执行环境
-        if (customize == null) {
-            customize = symbol -> Collections.emptyMap();
-        }
-        InsetProcessContext processContext = new InsetProcessContext(customize, this.finder);
-        // .汇总Option
-        processContext.currentHints().setHints(this);
-        // .创建堆栈
-        DataStack dataStack = new DataStack();  // 指令执行 - 栈
-        DataHeap dataHeap = new DataHeap();     // 指令执行 - 堆
-        EnvStack envStack = new EnvStack();     // 环境数据 - 栈
-        this.qil.getCompilerVar().forEach((varName, varLocalIdx) -> {
-            Object varVal = shareVarMap.get(varName);
-            dataHeap.saveData(varLocalIdx, varVal);
-        });
-        //
-        // .执行指令序列
-        OpcodesPool opcodesPool = OpcodesPool.defaultOpcodesPool();
-        while (instSequence.hasNext()) {
-            opcodesPool.doWork(instSequence, dataHeap, dataStack, envStack, processContext);
-            instSequence.doNext(1);
-        }
-        // .结果处理
-        ExitType exitType = (dataStack.getExitType() == null) ? ExitType.Return : dataStack.getExitType();
-        int resultCode = dataStack.getResultCode();
-        DataModel result = dataStack.getResult();
-        long executionTime = processContext.executionTime();
-        return new QueryResultImpl(exitType, resultCode, result, executionTime);
+        int jitThreshold = PreparedQueryImpl.jitThreshold(this);
+        return PreparedQueryImpl.execute(this.qil, this.udfLinkage, this.finder, this, jitThreshold, this.shareVarMap, customize);
     }
 }
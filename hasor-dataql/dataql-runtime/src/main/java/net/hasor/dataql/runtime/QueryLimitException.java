@@ -0,0 +1,43 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.runtime;
+import net.hasor.dataql.parser.location.RuntimeLocation;
+
+/**
+ * 查询执行超出了 MAX_INSTRUCTIONS、EXECUTION_TIMEOUT、MAX_STACK_SIZE 限制时引发的异常，异常中包含超限时正在执行的指令位置。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class QueryLimitException extends QueryRuntimeException {
+    private final String limitName;
+    private final long   limitValue;
+
+    public QueryLimitException(RuntimeLocation location, String limitName, long limitValue) {
+        super(location, limitName + " exceeded, limit is " + limitValue + ".");
+        this.limitName = limitName;
+        this.limitValue = limitValue;
+    }
+
+    /** 超出的限制，值为 HintValue 中的 MAX_INSTRUCTIONS、EXECUTION_TIMEOUT、MAX_STACK_SIZE 之一 */
+    public String getLimitName() {
+        return this.limitName;
+    }
+
+    /** 限制的值 */
+    public long getLimitValue() {
+        return this.limitValue;
+    }
+}
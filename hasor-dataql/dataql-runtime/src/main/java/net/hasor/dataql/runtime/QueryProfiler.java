@@ -0,0 +1,158 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.runtime;
+import net.hasor.dataql.compiler.qil.Opcodes;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * 查询执行的性能剖析数据，按照指令、源码行、UDF/Fragment 调用三个维度统计执行次数和累计耗时。
+ * <p>耗时为包含式统计：CALL 指令和调用它的源码行都包含了被调用 Lambda 的执行时间。</p>
+ * <p>采样模式下每 sampleInterval 条指令只对其中一条计时，结果按照采样间隔放大（为估算值）；UDF/Fragment 调用始终完整统计。</p>
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class QueryProfiler {
+    private static final String[]                  OPCODE_NAMES    = opcodeNames();
+    private final        int                       sampleInterval;
+    private              int                       sampleCountdown;
+    private final        long[]                    opcodeCount     = new long[256];
+    private final        long[]                    opcodeNanos     = new long[256];
+    private final        Map<Integer, ProfileItem> lineMap         = new TreeMap<>();
+    private final        Map<String, ProfileItem>  callMap         = new LinkedHashMap<>();
+
+    /** @param sampleInterval 采样间隔，小于等于 1 表示对每条指令计时 */
+    public QueryProfiler(int sampleInterval) {
+        this.sampleInterval = Math.max(sampleInterval, 1);
+        this.sampleCountdown = this.sampleInterval;
+    }
+
+    /** 剖析数据项 */
+    public static class ProfileItem {
+        private long count;
+        private long totalNanos;
+
+        /** 执行次数 */
+        public long getCount() {
+            return this.count;
+        }
+
+        /** 累计耗时（纳秒） */
+        public long getTotalNanos() {
+            return this.totalNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + this.count + ", time=" + (this.totalNanos / 1000) + "us";
+        }
+    }
+
+    /** 采样间隔，1 表示完整统计 */
+    public int getSampleInterval() {
+        return this.sampleInterval;
+    }
+
+    /** 是否为采样模式（统计结果为估算值） */
+    public boolean isSampled() {
+        return this.sampleInterval > 1;
+    }
+
+    /** 当前指令是否需要计时 */
+    public boolean sample() {
+        if (--this.sampleCountdown > 0) {
+            return false;
+        }
+        this.sampleCountdown = this.sampleInterval;
+        return true;
+    }
+
+    /** 记录一条被计时的指令，line 为 -1 表示位置未知 */
+    public void recordInst(byte opcode, int line, long nanos) {
+        int weight = this.sampleInterval;
+        int index = opcode & 0xFF;
+        this.opcodeCount[index] += weight;
+        this.opcodeNanos[index] += nanos * weight;
+        if (line >= 0) {
+            ProfileItem lineItem = this.lineMap.computeIfAbsent(line, key -> new ProfileItem());
+            lineItem.count += weight;
+            lineItem.totalNanos += nanos * weight;
+        }
+    }
+
+    /** 记录 UDF/Fragment 调用，批量调用时 callCount 为合并的调用次数 */
+    public void recordCall(String callName, int callCount, long nanos) {
+        ProfileItem callItem = this.callMap.computeIfAbsent(callName, key -> new ProfileItem());
+        callItem.count += callCount;
+        callItem.totalNanos += nanos;
+    }
+
+    /** 按照指令统计，Key 为指令名称 */
+    public Map<String, ProfileItem> getOpcodeProfile() {
+        Map<String, ProfileItem> opcodeMap = new LinkedHashMap<>();
+        for (int i = 0; i < this.opcodeCount.length; i++) {
+            if (this.opcodeCount[i] > 0) {
+                ProfileItem item = new ProfileItem();
+                item.count = this.opcodeCount[i];
+                item.totalNanos = this.opcodeNanos[i];
+                opcodeMap.put(OPCODE_NAMES[i], item);
+            }
+        }
+        return opcodeMap;
+    }
+
+    /** 按照源码行统计，Key 为行号 */
+    public Map<Integer, ProfileItem> getLineProfile() {
+        return Collections.unmodifiableMap(this.lineMap);
+    }
+
+    /** 按照 UDF/Fragment 调用统计，Key 为调用目标的名称 */
+    public Map<String, ProfileItem> getCallProfile() {
+        return Collections.unmodifiableMap(this.callMap);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder strBuffer = new StringBuilder();
+        strBuffer.append(isSampled() ? "[sampled 1/" + this.sampleInterval + "]\n" : "");
+        strBuffer.append("opcodes:\n");
+        getOpcodeProfile().forEach((key, item) -> strBuffer.append("  ").append(key).append(" ").append(item).append("\n"));
+        strBuffer.append("lines:\n");
+        this.lineMap.forEach((key, item) -> strBuffer.append("  ").append(key).append(" ").append(item).append("\n"));
+        strBuffer.append("calls:\n");
+        this.callMap.forEach((key, item) -> strBuffer.append("  ").append(key).append(" ").append(item).append("\n"));
+        return strBuffer.toString().trim();
+    }
+
+    private static String[] opcodeNames() {
+        String[] opcodeNames = new String[256];
+        for (int i = 0; i < opcodeNames.length; i++) {
+            opcodeNames[i] = "OPCODE_" + i;
+        }
+        for (Field field : Opcodes.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == byte.class) {
+                try {
+                    opcodeNames[field.getByte(null) & 0xFF] = field.getName();
+                } catch (IllegalAccessException e) {
+                    /* 保留默认名称 */
+                }
+            }
+        }
+        return opcodeNames;
+    }
+}
@@ -15,6 +15,7 @@
  */
 package net.hasor.dataql.runtime;
 import net.hasor.dataql.QueryResult;
+import net.hasor.dataql.domain.CursorTracker;
 import net.hasor.dataql.domain.DataModel;
 import net.hasor.dataql.runtime.mem.ExitType;
 
@@ -24,16 +25,28 @@ import net.hasor.dataql.runtime.mem.ExitType;
  * @version : 2017-03-23
  */
 class QueryResultImpl implements QueryResult {
-    private final ExitType  exitType;
-    private final int       exitCode;
-    private final DataModel dataModel;
-    private final long      executionTime;
+    private final ExitType      exitType;
+    private final int           exitCode;
+    private final DataModel     dataModel;
+    private final long          executionTime;
+    private final QueryProfiler profiler;
+    private final CursorTracker cursorTracker;
 
     QueryResultImpl(ExitType exitType, int exitCode, DataModel dataModel, long executionTime) {
+        this(exitType, exitCode, dataModel, executionTime, null);
+    }
+
+    QueryResultImpl(ExitType exitType, int exitCode, DataModel dataModel, long executionTime, QueryProfiler profiler) {
+        this(exitType, exitCode, dataModel, executionTime, profiler, null);
+    }
+
+    QueryResultImpl(ExitType exitType, int exitCode, DataModel dataModel, long executionTime, QueryProfiler profiler, CursorTracker cursorTracker) {
         this.exitType = exitType;
         this.exitCode = exitCode;
         this.dataModel = dataModel;
         this.executionTime = executionTime;
+        this.profiler = profiler;
+        this.cursorTracker = cursorTracker;
     }
 
     @Override
@@ -55,4 +68,16 @@ class QueryResultImpl implements QueryResult {
     public long executionTime() {
         return this.executionTime;
     }
+
+    @Override
+    public QueryProfiler getProfiler() {
+        return this.profiler;
+    }
+
+    @Override
+    public void close() {
+        if (this.cursorTracker != null) {
+            this.cursorTracker.closeAll();
+        }
+    }
 }
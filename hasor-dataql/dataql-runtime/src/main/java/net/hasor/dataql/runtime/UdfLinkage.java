@@ -0,0 +1,74 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.runtime;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.UdfSource;
+import net.hasor.dataql.compiler.qil.QIL;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一个 QIL 中 import 的 UDF 类型（M_TYP 指令）的链接结果。
+ * 同一个 QIL 在相同的 Finder 和 ClassLoader 下，每个类型只加载一次，UdfSource 也只展开一次。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class UdfLinkage {
+    private static final Map<QIL, UdfLinkage>      linkageMap = Collections.synchronizedMap(new WeakHashMap<>());
+    private final        Map<String, LinkedTarget> linkedMap  = new ConcurrentHashMap<>();
+
+    /** 获取 QIL 对应的链接结果（同一个 QIL 共享） */
+    public static UdfLinkage of(QIL qil) {
+        return linkageMap.computeIfAbsent(qil, k -> new UdfLinkage());
+    }
+
+    /** 加载类型并展开 UdfSource，返回值不会被缓存 */
+    public static Object resolve(String udfType, Finder finder, ClassLoader classLoader) throws ClassNotFoundException {
+        Object loadObject = finder.findBean(classLoader.loadClass(udfType));
+        if (loadObject instanceof UdfSource) {
+            loadObject = ((UdfSource) loadObject).getUdfResource(finder).get();
+        }
+        return loadObject;
+    }
+
+    /** 获取类型的链接结果，首次使用时（或者 Finder、ClassLoader 发生变化时）进行加载 */
+    public Object link(String udfType, Finder finder, ClassLoader classLoader) throws ClassNotFoundException {
+        LinkedTarget linked = this.linkedMap.get(udfType);
+        if (linked != null && linked.finder == finder && linked.classLoader == classLoader) {
+            return linked.target;
+        }
+        Object target = resolve(udfType, finder, classLoader);
+        if (target != null) {
+            this.linkedMap.put(udfType, new LinkedTarget(finder, classLoader, target));
+        }
+        return target;
+    }
+
+    private static class LinkedTarget {
+        private final Finder      finder;
+        private final ClassLoader classLoader;
+        private final Object      target;
+
+        public LinkedTarget(Finder finder, ClassLoader classLoader, Object target) {
+            this.finder = finder;
+            this.classLoader = classLoader;
+            this.target = target;
+        }
+    }
+}
@@ -15,11 +15,11 @@
  */
 package net.hasor.dataql.runtime.inset;
 import net.hasor.dataql.compiler.qil.Instruction;
+import net.hasor.dataql.domain.DataModel;
 import net.hasor.dataql.runtime.*;
-import net.hasor.dataql.runtime.mem.DataHeap;
-import net.hasor.dataql.runtime.mem.DataStack;
-import net.hasor.dataql.runtime.mem.EnvStack;
-import net.hasor.dataql.runtime.mem.RefCall;
+import net.hasor.dataql.runtime.mem.*;
+
+import java.util.concurrent.Callable;
 
 /**
  * CALL    // 发起服务调用（例：CALL,2）
@@ -54,7 +54,58 @@ class CALL implements InsetProcess {
         }
         //
         RefCall refCall = (RefCall) refCallObj;
-        Object result = refCall.invokeMethod(paramArrays, new HintsReadOnly(context.currentHints()), context.getFinder());
-        dataStack.push(result);
+        HintsReadOnly optionSet = new HintsReadOnly(context.currentHints());
+        BatchCallQueue callQueue = refCall.isBatchCall() ? findBatchCallQueue(sequence, envStack) : null;
+        if (callQueue != null) {
+            dataStack.push(callQueue.addCall(refCall, paramArrays, optionSet));
+            return;
+        }
+        if (context.isParallelFields() && sequence.isParallelCall()) {
+            HintsSet hintsSnapshot = new HintsSet();
+            hintsSnapshot.setHints(context.currentHints());
+            Callable<DataModel> asyncCall = refCall.prepareAsync(paramArrays, new HintsReadOnly(hintsSnapshot), context.getFinder());
+            if (asyncCall != null) {
+                dataStack.push(context.parallelCallQueue().addCall(refCall, asyncCall));
+                return;
+            }
+        }
+        QueryProfiler profiler = context.getProfiler();
+        if (profiler == null) {
+            dataStack.push(context.trackCursor(refCall.invokeMethod(paramArrays, optionSet, context.getFinder())));
+            return;
+        }
+        long startTime = System.nanoTime();
+        try {
+            dataStack.push(context.trackCursor(refCall.invokeMethod(paramArrays, optionSet, context.getFinder())));
+        } finally {
+            profiler.recordCall(refCall.getTargetName(), 1, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * 当前位于集合转换中，并且调用结果直接作为转换结果的一部分（紧接着的指令是 PUT 或 PUSH）时，返回所在集合转换的批量调用队列。
+     * 调用结果只会被放入结果容器，因此可以延迟到集合转换结束时合并执行。
+     */
+    private static BatchCallQueue findBatchCallQueue(InstSequence sequence, EnvStack envStack) {
+        for (int offset = 1; ; offset++) {
+            Instruction nextInst = sequence.peekInst(offset);
+            if (nextInst == null) {
+                return null;
+            }
+            byte instCode = nextInst.getInstCode();
+            if (instCode == PUT || instCode == PUSH) {
+                break;
+            }
+            if (instCode != LINE && instCode != E_POP) {
+                return null;
+            }
+        }
+        for (int depth = 0; depth < envStack.size(); depth++) {
+            Object envData = envStack.peekOfDepth(depth);
+            if (envData instanceof DataIterator) {
+                return ((DataIterator) envData).getBatchCallQueue(sequence);
+            }
+        }
+        return null;
     }
 }
@@ -14,6 +14,8 @@
  * limitations under the License.
  */
 package net.hasor.dataql.runtime.inset;
+import net.hasor.dataql.domain.DataCursor;
+import net.hasor.dataql.domain.DomainHelper;
 import net.hasor.dataql.domain.ListModel;
 import net.hasor.dataql.domain.ValueModel;
 import net.hasor.dataql.runtime.InsetProcess;
@@ -54,8 +56,14 @@ class CAST_I implements InsetProcess {
             oriData = Collections.EMPTY_LIST;
             iterator = Collections.EMPTY_LIST.iterator();
         } else if (data instanceof ListModel) {
-            oriData = ((ListModel) data).asOri();
-            iterator = ((ListModel) data).asOri().iterator();
+            DataCursor dataCursor = ((ListModel) data).openCursor();
+            if (dataCursor != null) {
+                oriData = data; // 游标只能遍历一次，直接遍历游标而不读取全部数据
+                iterator = dataCursor;
+            } else {
+                oriData = ((ListModel) data).asOri();
+                iterator = ((ListModel) data).asOri().iterator();
+            }
         } else if (data instanceof Collection) {
             oriData = data;
             iterator = ((Collection) data).iterator();
@@ -69,6 +77,10 @@ class CAST_I implements InsetProcess {
             iterator = objects.iterator();
         }
         //
-        dataStack.push(new DataIterator(oriData, iterator));
+        DataIterator dataIterator = new DataIterator(oriData, iterator, DomainHelper.isLazyDataModel(context.currentHints()));
+        if (context.isAutoBatchCall()) {
+            dataIterator.enableBatchCall(sequence, context);
+        }
+        dataStack.push(dataIterator);
     }
 }
\ No newline at end of file
@@ -35,7 +35,7 @@ import net.hasor.dataql.runtime.operator.OperatorUtils;
  * @author 赵永春 (zyc@hasor.net)
  * @version : 2017-07-19
  */
-class DO implements InsetProcess {
+public class DO implements InsetProcess {
     @Override
     public int getOpcode() {
         return DO;
@@ -43,7 +43,11 @@ class DO implements InsetProcess {
 
     @Override
     public void doWork(InstSequence sequence, DataHeap dataHeap, DataStack dataStack, EnvStack envStack, InsetProcessContext context) throws QueryRuntimeException {
-        String dyadicSymbol = sequence.currentInst().getString(0);
+        doDyadic(sequence, dataStack, context, sequence.currentInst().getString(0));
+    }
+
+    /** 执行二元运算，字节码层（BlockCompiler）在编译期取出运算符后直接调用 */
+    public static void doDyadic(InstSequence sequence, DataStack dataStack, InsetProcessContext context, String dyadicSymbol) throws QueryRuntimeException {
         Object secExpData = dataStack.pop();
         Object fstExpData = dataStack.pop();
         //
@@ -46,7 +46,7 @@ class EXIT implements InsetProcess {
         int resultCode = sequence.currentInst().getInt(0);
         Object result = dataStack.pop();
         dataStack.setResultCode(resultCode);
-        dataStack.setResult(DomainHelper.convertTo(result));
+        dataStack.setResult(DomainHelper.convertTo(result, context.currentHints()));
         dataStack.setExitType(ExitType.Exit);
         sequence.jumpTo(sequence.exitPosition());
     }
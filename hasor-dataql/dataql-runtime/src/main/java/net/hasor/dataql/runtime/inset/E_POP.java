@@ -18,6 +18,7 @@ import net.hasor.dataql.runtime.InsetProcess;
 import net.hasor.dataql.runtime.InsetProcessContext;
 import net.hasor.dataql.runtime.InstSequence;
 import net.hasor.dataql.runtime.mem.DataHeap;
+import net.hasor.dataql.runtime.mem.DataIterator;
 import net.hasor.dataql.runtime.mem.DataStack;
 import net.hasor.dataql.runtime.mem.EnvStack;
 
@@ -39,6 +40,9 @@ class E_POP implements InsetProcess {
 
     @Override
     public void doWork(InstSequence sequence, DataHeap dataHeap, DataStack dataStack, EnvStack envStack, InsetProcessContext context) {
-        envStack.pop();
+        Object envData = envStack.pop();
+        if (envData instanceof DataIterator) {
+            ((DataIterator) envData).finish(); // 集合转换结束，执行合并的批量调用
+        }
     }
 }
\ No newline at end of file
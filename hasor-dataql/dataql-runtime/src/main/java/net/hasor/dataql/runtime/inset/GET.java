@@ -21,6 +21,7 @@ import net.hasor.dataql.runtime.InsetProcessContext;
 import net.hasor.dataql.runtime.InstSequence;
 import net.hasor.dataql.runtime.mem.DataHeap;
 import net.hasor.dataql.runtime.mem.DataStack;
+import net.hasor.dataql.runtime.mem.DeferredCall;
 import net.hasor.dataql.runtime.mem.EnvStack;
 import net.hasor.utils.BeanUtils;
 
@@ -56,6 +57,9 @@ class GET implements InsetProcess {
         }
         Object useData = dataStack.pop();
         useData = readProperty(useData, nodeName);
+        if (useData instanceof DeferredCall) {
+            useData = ((DeferredCall) useData).resolve();
+        }
         dataStack.push(useData);
     }
 
@@ -14,7 +14,6 @@
  * limitations under the License.
  */
 package net.hasor.dataql.runtime.inset;
-import net.hasor.dataql.UdfSource;
 import net.hasor.dataql.runtime.InsetProcess;
 import net.hasor.dataql.runtime.InsetProcessContext;
 import net.hasor.dataql.runtime.InstSequence;
@@ -43,7 +42,7 @@ class M_TYP implements InsetProcess {
         String udfType = sequence.currentInst().getString(0);
         Object loadObject = null;
         try {
-            loadObject = context.loadObject(udfType);
+            loadObject = context.linkUdfType(udfType);
         } catch (ClassNotFoundException e) {
             throw new QueryRuntimeException(sequence.programLocation(), udfType + " ClassNotFoundException.", e);
         }
@@ -51,10 +50,6 @@ class M_TYP implements InsetProcess {
             throw new QueryRuntimeException(sequence.programLocation(), "loadObject is null.");
         }
         //
-        if (loadObject instanceof UdfSource) {
-            loadObject = ((UdfSource) loadObject).getUdfResource(context.getFinder()).get();
-        }
-        //
         dataStack.push(loadObject);
     }
 }
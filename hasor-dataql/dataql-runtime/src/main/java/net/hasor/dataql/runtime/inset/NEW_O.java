@@ -39,6 +39,6 @@ class NEW_O implements InsetProcess {
 
     @Override
     public void doWork(InstSequence sequence, DataHeap dataHeap, DataStack dataStack, EnvStack envStack, InsetProcessContext context) {
-        dataStack.push(DomainHelper.newObject());
+        dataStack.push(DomainHelper.newObject(context.rootShape()));
     }
 }
\ No newline at end of file
@@ -14,10 +14,10 @@
  * limitations under the License.
  */
 package net.hasor.dataql.runtime.inset;
-import net.hasor.dataql.parser.location.RuntimeLocation;
 import net.hasor.dataql.runtime.InsetProcess;
 import net.hasor.dataql.runtime.InsetProcessContext;
 import net.hasor.dataql.runtime.InstSequence;
+import net.hasor.dataql.runtime.QueryProfiler;
 import net.hasor.dataql.runtime.QueryRuntimeException;
 import net.hasor.dataql.runtime.mem.DataHeap;
 import net.hasor.dataql.runtime.mem.DataStack;
@@ -38,17 +38,39 @@ public class OpcodesPool {
         this.processes[inst.getOpcode()] = inst;
     }
 
+    /** 获取指令的执行器，不存在时返回 null */
+    public InsetProcess findInsetProcess(int opcode) {
+        if (opcode < 0 || opcode >= this.processes.length) {
+            return null;
+        }
+        return this.processes[opcode];
+    }
+
     public void doWork(InstSequence sequence, DataHeap dataHeap, DataStack dataStack, EnvStack envStack, InsetProcessContext context) throws QueryRuntimeException {
-        RuntimeLocation location = sequence.programLocation();
+        // .只记录指针和位置数组的引用，位置对象仅在出错时才创建
+        int programPointer = sequence.programPointer();
+        int[] codeLocation = sequence.codeLocation();
+        context.checkLimit(sequence, dataStack);
         try {
-            InsetProcess process = this.processes[sequence.currentInst().getInstCode()];
-            process.doWork(sequence, dataHeap, dataStack, envStack, context);
+            byte instCode = sequence.currentInst().getInstCode();
+            InsetProcess process = this.processes[instCode];
+            QueryProfiler profiler = context.getProfiler();
+            if (profiler == null || !profiler.sample()) {
+                process.doWork(sequence, dataHeap, dataStack, envStack, context);
+            } else {
+                long startTime = System.nanoTime();
+                try {
+                    process.doWork(sequence, dataHeap, dataStack, envStack, context);
+                } finally {
+                    profiler.recordInst(instCode, codeLocation[0], System.nanoTime() - startTime);
+                }
+            }
         } catch (Exception e) {
             QueryRuntimeException ire = null;
             if (e instanceof QueryRuntimeException) {
                 ire = (QueryRuntimeException) e;
             } else {
-                ire = new QueryRuntimeException(location, e);
+                ire = new QueryRuntimeException(sequence.programLocation(programPointer, codeLocation), e);
             }
             throw ire;
         }
@@ -22,6 +22,7 @@ import net.hasor.dataql.runtime.InstSequence;
 import net.hasor.dataql.runtime.QueryRuntimeException;
 import net.hasor.dataql.runtime.mem.DataHeap;
 import net.hasor.dataql.runtime.mem.DataStack;
+import net.hasor.dataql.runtime.mem.DeferredCall;
 import net.hasor.dataql.runtime.mem.EnvStack;
 import net.hasor.utils.convert.ConverterUtils;
 
@@ -113,6 +114,9 @@ class PULL implements InsetProcess {
             pullData = ((Collection) data).toArray()[point];
         }
         //
+        if (pullData instanceof DeferredCall) {
+            pullData = ((DeferredCall) pullData).resolve();
+        }
         dataStack.push(pullData);
     }
 }
@@ -21,6 +21,7 @@ import net.hasor.dataql.runtime.InstSequence;
 import net.hasor.dataql.runtime.QueryRuntimeException;
 import net.hasor.dataql.runtime.mem.DataHeap;
 import net.hasor.dataql.runtime.mem.DataStack;
+import net.hasor.dataql.runtime.mem.DeferredCall;
 import net.hasor.dataql.runtime.mem.EnvStack;
 
 /**
@@ -44,6 +45,9 @@ class PUSH implements InsetProcess {
         Object ors = dataStack.peek();
         //
         if (ors instanceof ListModel) {
+            if (data instanceof DeferredCall) {
+                data = ((DeferredCall) data).bindTo((ListModel) ors, ((ListModel) ors).size());
+            }
             ((ListModel) ors).add(data);
             return;
         }
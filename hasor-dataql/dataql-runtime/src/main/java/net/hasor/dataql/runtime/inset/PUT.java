@@ -21,6 +21,7 @@ import net.hasor.dataql.runtime.InstSequence;
 import net.hasor.dataql.runtime.QueryRuntimeException;
 import net.hasor.dataql.runtime.mem.DataHeap;
 import net.hasor.dataql.runtime.mem.DataStack;
+import net.hasor.dataql.runtime.mem.DeferredCall;
 import net.hasor.dataql.runtime.mem.EnvStack;
 
 /**
@@ -45,7 +46,13 @@ class PUT implements InsetProcess {
         Object containerData = dataStack.peek();
         //
         if (containerData instanceof ObjectModel) {
+            if (useData instanceof DeferredCall) {
+                useData = ((DeferredCall) useData).bindTo((ObjectModel) containerData, fieldName);
+            }
             ((ObjectModel) containerData).put(fieldName, useData);
+            if (context.hasParallelCalls() && sequence.isParallelJoin()) {
+                context.joinParallelCalls(); // 对象字面量的最后一个字段，等待并发调用的结果
+            }
             return;
         }
         throw new QueryRuntimeException(sequence.programLocation(), "output data error, target type must be ObjectModel.");
@@ -45,7 +45,7 @@ class RETURN implements InsetProcess {
         int resultCode = sequence.currentInst().getInt(0);
         Object result = dataStack.pop();
         dataStack.setResultCode(resultCode);
-        dataStack.setResult(DomainHelper.convertTo(result));
+        dataStack.setResult(DomainHelper.convertTo(result, context.currentHints()));
         dataStack.setExitType(ExitType.Return);
         sequence.jumpTo(sequence.exitPosition());
     }
@@ -47,7 +47,7 @@ class THROW implements InsetProcess {
     public void doWork(InstSequence sequence, DataHeap dataHeap, DataStack dataStack, EnvStack envStack, InsetProcessContext context) {
         int resultCode = sequence.currentInst().getInt(0);
         Object result = dataStack.pop();
-        DataModel dataModel = DomainHelper.convertTo(result);
+        DataModel dataModel = DomainHelper.convertTo(result, context.currentHints());
         dataStack.setResultCode(resultCode);
         dataStack.setResult(dataModel);
         dataStack.setExitType(ExitType.Throw);
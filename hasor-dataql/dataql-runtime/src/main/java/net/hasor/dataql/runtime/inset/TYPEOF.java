@@ -48,7 +48,7 @@ class TYPEOF implements InsetProcess {
 
     @Override
     public void doWork(InstSequence sequence, DataHeap dataHeap, DataStack dataStack, EnvStack envStack, InsetProcessContext context) {
-        DataModel dataModel = DomainHelper.convertTo(dataStack.pop());
+        DataModel dataModel = DomainHelper.convertTo(dataStack.pop(), true);
         if (dataModel.isObject()) {
             dataStack.push(Object.typeCode());
             return;
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.runtime.jit;
+import net.hasor.dataql.compiler.qil.Instruction;
+import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.runtime.InsetProcess;
+import net.hasor.dataql.runtime.InsetProcessContext;
+import net.hasor.dataql.runtime.InstSequence;
+import net.hasor.dataql.runtime.inset.OpcodesPool;
+import net.hasor.dataql.runtime.mem.DataHeap;
+import net.hasor.dataql.runtime.mem.DataStack;
+import net.hasor.dataql.runtime.mem.EnvStack;
+import net.hasor.utils.asm.ClassWriter;
+import net.hasor.utils.asm.Label;
+import net.hasor.utils.asm.MethodVisitor;
+import net.hasor.utils.asm.Type;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.hasor.utils.asm.Opcodes.*;
+
+/**
+ * 把 QIL 中的一个指令序列翻译为 JVM 字节码，生成 CompiledBlock 的子类。
+ * <ul>
+ *     <li>GOTO、IF、LABEL 翻译为字节码分支，不再经过 OpcodesPool 分派。</li>
+ *     <li>LDC_S、LDC_B、LDC_N、LDC_D、LOAD、STORE、POP、COPY、LINE、DO、NEW_O、NEW_A、PUT、PUSH 的参数在编译期解码，直接调用 CompiledBlock 的静态方法。</li>
+ *     <li>其余指令委托给解释器的 InsetProcess 执行（回退到解释器），保证语义一致。</li>
+ * </ul>
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class BlockCompiler implements net.hasor.dataql.compiler.qil.Opcodes {
+    /** 与 QIL 指令同名的 JVM 字节码指令 */
+    private static final int             JVM_RETURN      = net.hasor.utils.asm.Opcodes.RETURN;
+    private static final int             JVM_GOTO        = net.hasor.utils.asm.Opcodes.GOTO;
+    private static final AtomicLong      classIndex      = new AtomicLong();
+    private static final String          BLOCK_TYPE      = Type.getInternalName(CompiledBlock.class);
+    private static final String          SEQUENCE_TYPE   = Type.getInternalName(InstSequence.class);
+    private static final String          STACK_TYPE      = Type.getDescriptor(DataStack.class);
+    private static final String          HEAP_TYPE       = Type.getDescriptor(DataHeap.class);
+    private static final String          CONTEXT_TYPE    = Type.getDescriptor(InsetProcessContext.class);
+    private static final String          SEQUENCE_DESC   = Type.getDescriptor(InstSequence.class);
+    private static final String          PROCESS_TYPE    = Type.getInternalName(InsetProcess.class);
+    private static final String          EXECUTE_DESC    = "(" + Type.getDescriptor(InstSequence.class) + HEAP_TYPE + STACK_TYPE + Type.getDescriptor(EnvStack.class) + Type.getDescriptor(InsetProcessContext.class) + ")V";
+    private static final String          CONSTRUCTOR_DESC = "([Ljava/lang/Object;[" + Type.getDescriptor(InsetProcess.class) + ")V";
+    private final        OpcodesPool     opcodesPool;
+    private final        BlockClassLoader classLoader;
+
+    public BlockCompiler(OpcodesPool opcodesPool, ClassLoader parentLoader) {
+        this.opcodesPool = opcodesPool;
+        this.classLoader = new BlockClassLoader(parentLoader);
+    }
+
+    /** 编译指令序列，如果序列中存在解释器也不支持的指令那么返回 null */
+    public CompiledBlock compiler(QIL qil, int address) throws ReflectiveOperationException {
+        Instruction[] instList = qil.iqlArrays(address);
+        Object[] constants = new Object[instList.length];
+        InsetProcess[] processes = new InsetProcess[instList.length];
+        for (int i = 0; i < instList.length; i++) {
+            processes[i] = this.opcodesPool.findInsetProcess(instList[i].getInstCode());
+            if (processes[i] == null) {
+                return null;
+            }
+        }
+        //
+        String className = BLOCK_TYPE + "$$Block_" + address + "_" + classIndex.incrementAndGet();
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        classWriter.visit(V1_6, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, className, null, BLOCK_TYPE, null);
+        // .构造方法
+        MethodVisitor mv = classWriter.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESC, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitMethodInsn(INVOKESPECIAL, BLOCK_TYPE, "<init>", CONSTRUCTOR_DESC, false);
+        mv.visitInsn(JVM_RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        // .execute
+        mv = classWriter.visitMethod(ACC_PROTECTED, "execute", EXECUTE_DESC, null, null);
+        mv.visitCode();
+        Label exitLabel = new Label();
+        Label[] instLabels = new Label[instList.length];
+        for (int i = 0; i < instLabels.length; i++) {
+            instLabels[i] = new Label();
+        }
+        if (instList.length > 0) {
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitMethodInsn(INVOKEVIRTUAL, SEQUENCE_TYPE, "programPointer", "()I", false);
+            mv.visitTableSwitchInsn(0, instLabels.length - 1, exitLabel, instLabels);
+        }
+        for (int i = 0; i < instList.length; i++) {
+            Instruction inst = instList[i];
+            mv.visitLabel(instLabels[i]);
+            pushInt(mv, 1, i);
+            mv.visitMethodInsn(INVOKEVIRTUAL, SEQUENCE_TYPE, "moveTo", "(I)V", false);
+            switch (inst.getInstCode()) {
+                case LABEL:
+                    break;
+                case LDC_N:
+                    mv.visitVarInsn(ALOAD, 3);
+                    mv.visitInsn(ACONST_NULL);
+                    mv.visitMethodInsn(INVOKESTATIC, BLOCK_TYPE, "push", "(" + STACK_TYPE + "Ljava/lang/Object;)V", false);
+                    break;
+                case LDC_S:
+                case LDC_B:
+                    constants[i] = inst.getArrays()[0];
+                    mv.visitVarInsn(ALOAD, 3);
+                    loadConstant(mv, className, i);
+                    mv.visitMethodInsn(INVOKESTATIC, BLOCK_TYPE, "push", "(" + STACK_TYPE + "Ljava/lang/Object;)V", false);
+                    break;
+                case LDC_D:
+                    constants[i] = inst.getNumber(0);
+                    mv.visitVarInsn(ALOAD, 3);
+                    mv.visitVarInsn(ALOAD, 5);
+                    loadConstant(mv, className, i);
+                    mv.visitTypeInsn(CHECKCAST, "java/lang/Number");
+                    mv.visitMethodInsn(INVOKESTATIC, BLOCK_TYPE, "pushNumber", "(" + STACK_TYPE + CONTEXT_TYPE + "Ljava/lang/Number;)V", false);
+                    break;
+                case NEW_O:
+                    mv.visitVarInsn(ALOAD, 3);
+                    mv.visitVarInsn(ALOAD, 5);
+                    mv.visitMethodInsn(INVOKESTATIC, BLOCK_TYPE, "newObject", "(" + STACK_TYPE + CONTEXT_TYPE + ")V", false);
+                    break;
+                case NEW_A:
+                    mv.visitVarInsn(ALOAD, 3);
+                    mv.visitMethodInsn(INVOKESTATIC, BLOCK_TYPE, "newList", "(" + STACK_TYPE + ")V", false);
+                    break;
+                case PUT:
+                case DO:
+                    constants[i] = inst.getString(0);
+                    mv.visitVarInsn(ALOAD, 1);
+                    mv.visitVarInsn(ALOAD, 3);
+                    mv.visitVarInsn(ALOAD, 5);
+                    loadConstant(mv, className, i);
+                    mv.visitTypeInsn(CHECKCAST, "java/lang/String");
+                    String methodName = (inst.getInstCode() == PUT) ? "put" : "dyadic";
+                    mv.visitMethodInsn(INVOKESTATIC, BLOCK_TYPE, methodName, "(" + SEQUENCE_DESC + STACK_TYPE + CONTEXT_TYPE + "Ljava/lang/String;)V", false);
+                    break;
+                case PUSH:
+                    mv.visitVarInsn(ALOAD, 1);
+                    mv.visitVarInsn(ALOAD, 3);
+                    mv.visitMethodInsn(INVOKESTATIC, BLOCK_TYPE, "pushItem", "(" + SEQUENCE_DESC + STACK_TYPE + ")V", false);
+                    break;
+                case LINE:
+                    constants[i] = lineOf(inst);
+                    mv.visitVarInsn(ALOAD, 1);
+                    loadConstant(mv, className, i);
+                    mv.visitTypeInsn(CHECKCAST, "[I");
+                    mv.visitMethodInsn(INVOKEVIRTUAL, SEQUENCE_TYPE, "updateCodeLocation", "([I)V", false);
+                    break;
+                case LOAD:
+                    mv.visitVarInsn(ALOAD, 2);
+                    pushInt(mv, 3, inst.getInt(0));
+                    pushInt(mv, -1, inst.getInt(1));
+                    mv.visitMethodInsn(INVOKESTATIC, BLOCK_TYPE, "load", "(" + HEAP_TYPE + STACK_TYPE + "II)V", false);
+                    break;
+                case STORE:
+                    mv.visitVarInsn(ALOAD, 2);
+                    pushInt(mv, 3, inst.getInt(0));
+                    mv.visitMethodInsn(INVOKESTATIC, BLOCK_TYPE, "store", "(" + HEAP_TYPE + STACK_TYPE + "I)V", false);
+                    break;
+                case POP:
+                    mv.visitVarInsn(ALOAD, 3);
+                    mv.visitMethodInsn(INVOKESTATIC, BLOCK_TYPE, "pop", "(" + STACK_TYPE + ")V", false);
+                    break;
+                case COPY:
+                    mv.visitVarInsn(ALOAD, 3);
+                    mv.visitMethodInsn(INVOKESTATIC, BLOCK_TYPE, "copy", "(" + STACK_TYPE + ")V", false);
+                    break;
+                case GOTO:
+                    jumpTo(mv, instLabels, inst.getInt(0));
+                    break;
+                case IF: {
+                    Label nextLabel = new Label();
+                    mv.visitVarInsn(ALOAD, 3);
+                    mv.visitMethodInsn(INVOKESTATIC, BLOCK_TYPE, "testFailed", "(" + STACK_TYPE + ")Z", false);
+                    mv.visitJumpInsn(IFEQ, nextLabel);
+                    jumpTo(mv, instLabels, inst.getInt(0));
+                    mv.visitLabel(nextLabel);
+                    break;
+                }
+                default:
+                    // .回退到解释器
+                    mv.visitVarInsn(ALOAD, 0);
+                    mv.visitFieldInsn(GETFIELD, className, "processes", "[" + Type.getDescriptor(InsetProcess.class));
+                    pushInt(mv, -1, i);
+                    mv.visitInsn(AALOAD);
+                    for (int slot = 1; slot <= 5; slot++) {
+                        mv.visitVarInsn(ALOAD, slot);
+                    }
+                    mv.visitMethodInsn(INVOKEINTERFACE, PROCESS_TYPE, "doWork", EXECUTE_DESC, true);
+                    // .这三条指令会把指针移动到出口，交还给解释器循环处理
+                    if (inst.getInstCode() == RETURN || inst.getInstCode() == EXIT || inst.getInstCode() == THROW) {
+                        mv.visitInsn(JVM_RETURN);
+                    }
+                    break;
+            }
+        }
+        mv.visitLabel(exitLabel);
+        mv.visitInsn(JVM_RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        classWriter.visitEnd();
+        //
+        Class<?> blockClass = this.classLoader.defineBlock(className.replace('/', '.'), classWriter.toByteArray());
+        return (CompiledBlock) blockClass.getConstructor(Object[].class, InsetProcess[].class).newInstance(constants, processes);
+    }
+
+    private static Object lineOf(Instruction inst) {
+        Object[] arrays = inst.getArrays();
+        if (arrays.length == 4) {
+            return new int[] { inst.getInt(0), inst.getInt(1), inst.getInt(2), inst.getInt(3) };
+        } else {
+            return new int[] { inst.getInt(0) };
+        }
+    }
+
+    private static void jumpTo(MethodVisitor mv, Label[] instLabels, int position) {
+        if (position >= 0 && position < instLabels.length) {
+            mv.visitJumpInsn(JVM_GOTO, instLabels[position]);
+        } else {
+            // .跳出序列范围（一般是出口位置），交给解释器循环处理
+            pushInt(mv, 1, position);
+            mv.visitMethodInsn(INVOKEVIRTUAL, SEQUENCE_TYPE, "jumpTo", "(I)V", false);
+            mv.visitInsn(JVM_RETURN);
+        }
+    }
+
+    private static void loadConstant(MethodVisitor mv, String className, int index) {
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, className, "constants", "[Ljava/lang/Object;");
+        pushInt(mv, -1, index);
+        mv.visitInsn(AALOAD);
+    }
+
+    /** 加载局部变量（slot &gt;= 0 时）后压入一个 int 常量 */
+    private static void pushInt(MethodVisitor mv, int slot, int value) {
+        if (slot >= 0) {
+            mv.visitVarInsn(ALOAD, slot);
+        }
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    private static class BlockClassLoader extends ClassLoader {
+        BlockClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> defineBlock(String className, byte[] bytes) {
+            return this.defineClass(className, bytes, 0, bytes.length);
+        }
+    }
+}
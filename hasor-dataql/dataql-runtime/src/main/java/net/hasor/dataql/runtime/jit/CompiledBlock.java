@@ -0,0 +1,163 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.runtime.jit;
+import net.hasor.dataql.Hints;
+import net.hasor.dataql.domain.DomainHelper;
+import net.hasor.dataql.domain.ListModel;
+import net.hasor.dataql.domain.ObjectModel;
+import net.hasor.dataql.domain.ValueModel;
+import net.hasor.dataql.runtime.InsetProcess;
+import net.hasor.dataql.runtime.InsetProcessContext;
+import net.hasor.dataql.runtime.InstSequence;
+import net.hasor.dataql.runtime.QueryRuntimeException;
+import net.hasor.dataql.runtime.inset.DO;
+import net.hasor.dataql.runtime.mem.DataHeap;
+import net.hasor.dataql.runtime.mem.DataStack;
+import net.hasor.dataql.runtime.mem.DeferredCall;
+import net.hasor.dataql.runtime.mem.EnvStack;
+import net.hasor.dataql.runtime.operator.OperatorUtils;
+
+import java.util.function.Supplier;
+
+import static net.hasor.dataql.HintValue.MIN_DECIMAL_WIDTH;
+import static net.hasor.dataql.HintValue.MIN_INTEGER_WIDTH;
+
+/**
+ * 由 BlockCompiler 将一个指令序列翻译成的 JVM 字节码类的基类。
+ * <p>生成的 execute 方法从指令指针当前位置开始执行，跳转指令被翻译为字节码的分支，
+ * 简单指令直接调用本类的静态方法，其余指令委托给解释器的 InsetProcess 执行。
+ * 遇到 RETURN/EXIT/THROW 后 execute 返回，由解释器循环继续处理 doNext。</p>
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public abstract class CompiledBlock {
+    protected final Object[]       constants;  // 指令序号 -> 预先解码的指令参数
+    protected final InsetProcess[] processes;  // 指令序号 -> 委托执行的解释器指令
+
+    protected CompiledBlock(Object[] constants, InsetProcess[] processes) {
+        this.constants = constants;
+        this.processes = processes;
+    }
+
+    /** 执行指令序列，异常位置信息与解释器保持一致 */
+    public final void doWork(InstSequence sequence, DataHeap dataHeap, DataStack dataStack, EnvStack envStack, InsetProcessContext context) throws QueryRuntimeException {
+        try {
+            this.execute(sequence, dataHeap, dataStack, envStack, context);
+        } catch (QueryRuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new QueryRuntimeException(sequence.programLocation(), e);
+        }
+    }
+
+    /** 由生成的字节码实现 */
+    protected abstract void execute(InstSequence sequence, DataHeap dataHeap, DataStack dataStack, EnvStack envStack, InsetProcessContext context) throws QueryRuntimeException;
+
+    /** LDC_S、LDC_B、LDC_N */
+    public static void push(DataStack dataStack, Object data) {
+        dataStack.push(data);
+    }
+
+    /** POP */
+    public static void pop(DataStack dataStack) {
+        dataStack.pop();
+    }
+
+    /** COPY */
+    public static void copy(DataStack dataStack) {
+        dataStack.push(dataStack.peek());
+    }
+
+    /** LOAD，与 LOAD 指令的语义相同 */
+    public static void load(DataHeap dataHeap, DataStack dataStack, int depth, int index) {
+        Object data = dataHeap.loadData(depth, index);
+        if (data instanceof Supplier) {
+            data = ((Supplier<?>) data).get();
+        }
+        dataStack.push(data);
+    }
+
+    /** STORE，与 STORE 指令的语义相同 */
+    public static void store(DataHeap dataHeap, DataStack dataStack, int index) {
+        dataHeap.saveData(index, dataStack.pop());
+    }
+
+    /** IF，与 IF 指令的语义相同。返回 true 表示条件不成立需要跳转 */
+    public static boolean testFailed(DataStack dataStack) {
+        Object test = dataStack.pop();
+        if (test instanceof ValueModel) {
+            test = ((ValueModel) test).asOri();
+        }
+        boolean testFailed = (test == null || Boolean.FALSE.equals(test));
+        if (!testFailed) {
+            String testStr = test.toString();
+            testFailed = ("false".equalsIgnoreCase(testStr) || "off".equalsIgnoreCase(testStr) || "0".equalsIgnoreCase(testStr));
+        }
+        return testFailed;
+    }
+
+    /** LDC_D，与 LDC_D 指令的语义相同（数字在编译期解码） */
+    public static void pushNumber(DataStack dataStack, InsetProcessContext context, Number number) {
+        Hints hints = context.currentHints();
+        String decimalWidth = (String) hints.getHint(MIN_DECIMAL_WIDTH);
+        String integerWidth = (String) hints.getHint(MIN_INTEGER_WIDTH);
+        dataStack.push(OperatorUtils.fixNumberWidth(number, decimalWidth, integerWidth));
+    }
+
+    /** NEW_O */
+    public static void newObject(DataStack dataStack, InsetProcessContext context) {
+        dataStack.push(DomainHelper.newObject(context.rootShape()));
+    }
+
+    /** NEW_A */
+    public static void newList(DataStack dataStack) {
+        dataStack.push(DomainHelper.newList());
+    }
+
+    /** PUT，与 PUT 指令的语义相同（属性名在编译期解码） */
+    public static void put(InstSequence sequence, DataStack dataStack, InsetProcessContext context, String fieldName) throws QueryRuntimeException {
+        Object useData = dataStack.pop();
+        Object containerData = dataStack.peek();
+        if (!(containerData instanceof ObjectModel)) {
+            throw new QueryRuntimeException(sequence.programLocation(), "output data error, target type must be ObjectModel.");
+        }
+        if (useData instanceof DeferredCall) {
+            useData = ((DeferredCall) useData).bindTo((ObjectModel) containerData, fieldName);
+        }
+        ((ObjectModel) containerData).put(fieldName, useData);
+        if (context.hasParallelCalls() && sequence.isParallelJoin()) {
+            context.joinParallelCalls();
+        }
+    }
+
+    /** PUSH，与 PUSH 指令的语义相同 */
+    public static void pushItem(InstSequence sequence, DataStack dataStack) throws QueryRuntimeException {
+        Object data = dataStack.pop();
+        Object ors = dataStack.peek();
+        if (!(ors instanceof ListModel)) {
+            throw new QueryRuntimeException(sequence.programLocation(), "output data error, target type must be ListModel.");
+        }
+        if (data instanceof DeferredCall) {
+            data = ((DeferredCall) data).bindTo((ListModel) ors, ((ListModel) ors).size());
+        }
+        ((ListModel) ors).add(data);
+    }
+
+    /** DO，运算符在编译期解码 */
+    public static void dyadic(InstSequence sequence, DataStack dataStack, InsetProcessContext context, String dyadicSymbol) throws QueryRuntimeException {
+        DO.doDyadic(sequence, dataStack, context, dyadicSymbol);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.runtime.jit;
+import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.runtime.inset.OpcodesPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 一个 QIL 的分层执行状态：统计每个指令序列的执行次数，超过阈值后将其编译为字节码。
+ * 编译失败（例如方法体过大）的序列会被标记，之后始终使用解释器执行。
+ * <p>QilJit 不引用 QIL（QIL 由调用方传入），因此 QIL 不再使用后 QilJit 会从弱引用表中移除；
+ * 每个 QilJit 使用自己的 ClassLoader 定义字节码类，QilJit 被回收后这些类也可以被卸载。</p>
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class QilJit {
+    private static final Logger                              logger        = LoggerFactory.getLogger(QilJit.class);
+    private static final Map<QIL, QilJit>                    qilJitMap     = Collections.synchronizedMap(new WeakHashMap<>());
+    private final        AtomicIntegerArray                  invokeCounter;
+    private final        AtomicReferenceArray<CompiledBlock> compiledBlocks;
+    private final        AtomicIntegerArray                  compileFailed; // 1 表示编译失败，始终使用解释器执行
+    private              BlockCompiler                       blockCompiler;
+
+    private QilJit(QIL qil) {
+        this.invokeCounter = new AtomicIntegerArray(qil.iqlPoolSize());
+        this.compiledBlocks = new AtomicReferenceArray<>(qil.iqlPoolSize());
+        this.compileFailed = new AtomicIntegerArray(qil.iqlPoolSize());
+    }
+
+    /** 获取 QIL 对应的分层执行状态（同一个 QIL 共享执行次数统计） */
+    public static QilJit of(QIL qil) {
+        return qilJitMap.computeIfAbsent(qil, QilJit::new);
+    }
+
+    /**
+     * 记录一次指令序列的执行，并返回可用的字节码实现。
+     * @param qil 创建 QilJit 时使用的 QIL
+     * @param address 指令序列地址
+     * @param threshold 编译阈值，执行次数达到阈值时进行编译，小于等于 0 表示不启用
+     * @return 尚未编译或者无法编译时返回 null，此时应使用解释器执行。
+     */
+    public CompiledBlock findCompiledBlock(QIL qil, int address, int threshold) {
+        if (threshold <= 0 || address < 0 || address >= this.compiledBlocks.length()) {
+            return null;
+        }
+        CompiledBlock compiledBlock = this.compiledBlocks.get(address);
+        if (compiledBlock != null || this.compileFailed.get(address) != 0) {
+            return compiledBlock;
+        }
+        if (this.invokeCounter.incrementAndGet(address) < threshold) {
+            return null;
+        }
+        synchronized (this) {
+            compiledBlock = this.compiledBlocks.get(address);
+            if (compiledBlock != null || this.compileFailed.get(address) != 0) {
+                return compiledBlock;
+            }
+            try {
+                if (this.blockCompiler == null) {
+                    this.blockCompiler = new BlockCompiler(OpcodesPool.defaultOpcodesPool(), CompiledBlock.class.getClassLoader());
+                }
+                compiledBlock = this.blockCompiler.compiler(qil, address);
+            } catch (Throwable e) {
+                logger.warn("compiler QIL block " + address + " to bytecode failed, use interpreter. -> " + e.getMessage(), e);
+                compiledBlock = null;
+            }
+            if (compiledBlock == null) {
+                this.compileFailed.set(address, 1);
+            } else {
+                this.compiledBlocks.set(address, compiledBlock);
+            }
+            return compiledBlock;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.runtime.mem;
+import net.hasor.dataql.DataQueryException;
+import net.hasor.dataql.Hints;
+import net.hasor.dataql.Udf;
+import net.hasor.dataql.domain.DataModel;
+import net.hasor.dataql.runtime.InsetProcessContext;
+import net.hasor.dataql.runtime.QueryProfiler;
+
+import java.util.*;
+
+/**
+ * 集合转换中等待批量执行的调用队列，相同目标 UDF 的调用会合并为一次批量调用。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class BatchCallQueue {
+    private final InsetProcessContext          context;
+    private final Map<Udf, List<DeferredCall>> pendingMap = new LinkedHashMap<>();
+
+    public BatchCallQueue(InsetProcessContext context) {
+        this.context = context;
+    }
+
+    /** 加入一个调用，返回的 DeferredCall 在队列执行之后才会有结果 */
+    public DeferredCall addCall(RefCall refCall, Object[] paramArrays, Hints optionSet) {
+        DeferredCall deferredCall = new DeferredCall(this, refCall, paramArrays, optionSet);
+        this.pendingMap.computeIfAbsent(refCall.getTarget(), key -> new ArrayList<>()).add(deferredCall);
+        return deferredCall;
+    }
+
+    /** 是否有等待执行的调用 */
+    public boolean isEmpty() {
+        return this.pendingMap.isEmpty();
+    }
+
+    /** 执行所有等待中的调用，并将结果回填 */
+    public void flush() throws DataQueryException {
+        while (!this.pendingMap.isEmpty()) {
+            List<List<DeferredCall>> groupList = new ArrayList<>(this.pendingMap.values());
+            this.pendingMap.clear();
+            for (List<DeferredCall> callList : groupList) {
+                List<Object[]> paramsList = new ArrayList<>(callList.size());
+                for (DeferredCall deferredCall : callList) {
+                    paramsList.add(deferredCall.getParamArrays());
+                }
+                DeferredCall first = callList.get(0);
+                long startTime = System.nanoTime();
+                List<DataModel> resultList = first.getRefCall().invokeBatch(paramsList, first.getOptionSet(), this.context.getFinder());
+                QueryProfiler profiler = this.context.getProfiler();
+                if (profiler != null) {
+                    profiler.recordCall(first.getRefCall().getTargetName(), callList.size(), System.nanoTime() - startTime);
+                }
+                for (int i = 0; i < callList.size(); i++) {
+                    this.context.trackCursor(resultList.get(i));
+                    callList.get(i).complete(resultList.get(i));
+                }
+            }
+        }
+    }
+}
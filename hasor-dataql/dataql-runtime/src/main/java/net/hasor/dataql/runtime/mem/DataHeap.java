@@ -14,58 +14,70 @@
  * limitations under the License.
  */
 package net.hasor.dataql.runtime.mem;
+import java.util.Arrays;
+
 /**
  * 堆数据
  * @author 赵永春 (zyc@hasor.net)
  * @version : 2019-11-22
  */
 public class DataHeap implements Cloneable {
-    private DataHeap parent        = null;
-    private int      depth         = 0;
-    private Object[] heapDataPool  = new Object[10];
-    private String[] heapDataNames = new String[10];
+    private static final int        DEFAULT_HEAP_SIZE = 10;
+    private              DataHeap   parent            = null;
+    private              int        depth             = 0;
+    private              DataHeap[] scopes;
+    private              Object[]   heapDataPool;
+    private              String[]   heapDataNames;
 
     public DataHeap() {
         this(null);
     }
 
     public DataHeap(DataHeap parent) {
+        this(parent, DEFAULT_HEAP_SIZE);
+    }
+
+    /** 按照编译期确定的本地变量槽位数创建堆，避免执行过程中扩容 */
+    public DataHeap(DataHeap parent, int heapSize) {
         if (parent != null) {
             this.parent = parent;
             this.depth = parent.depth + 1;
         }
+        // .scopes[i] 为向上第 i 层的堆，LOAD 指令按照 (depth, index) 直接定位，无需逐层遍历 parent
+        this.scopes = new DataHeap[this.depth + 1];
+        this.scopes[0] = this;
+        if (parent != null) {
+            System.arraycopy(parent.scopes, 0, this.scopes, 1, parent.scopes.length);
+        }
+        this.heapDataPool = new Object[heapSize];
+        this.heapDataNames = new String[heapSize];
+    }
+
+    /** 清空堆中的数据，以便复用（变量名由 LOCAL 指令定义，在同一个指令序列中是固定的，因此保留） */
+    public void reset() {
+        Arrays.fill(this.heapDataPool, null);
     }
 
     public void defineName(int position, String name) {
         if (position >= this.heapDataNames.length) {
-            String[] newHeapDataPool = new String[heapDataNames.length + 5];
-            System.arraycopy(this.heapDataNames, 0, newHeapDataPool, 0, heapDataNames.length);
-            this.heapDataNames = newHeapDataPool;
+            this.heapDataNames = Arrays.copyOf(this.heapDataNames, position + 1);
         }
         this.heapDataNames[position] = name;
     }
 
     public void saveData(int position, Object data) {
         if (position >= this.heapDataPool.length) {
-            Object[] newHeapDataPool = new Object[heapDataPool.length + 5];
-            System.arraycopy(this.heapDataPool, 0, newHeapDataPool, 0, heapDataPool.length);
-            this.heapDataPool = newHeapDataPool;
+            this.heapDataPool = Arrays.copyOf(this.heapDataPool, position + 1);
         }
         this.heapDataPool[position] = data;
     }
 
     public Object loadData(int depth, int position) {
-        DataHeap heapData = this;
-        for (int i = 0; i <= depth; i++) {
-            if (i == depth) {
-                return heapData.heapDataPool[position];
-            }
-            heapData = heapData.parent;
-            if (heapData == null) {
-                break;
-            }
+        if (depth >= this.scopes.length) {
+            return null;
         }
-        return null;
+        Object[] dataPool = this.scopes[depth].heapDataPool;
+        return (position < dataPool.length) ? dataPool[position] : null;
     }
 
     @Override
@@ -74,9 +86,9 @@ public class DataHeap implements Cloneable {
         if (this.parent != null) {
             parent = this.parent.clone();
         }
-        DataHeap dataHeap = new DataHeap(parent);
-        dataHeap.depth = this.depth;
+        DataHeap dataHeap = new DataHeap(parent, 0);
         dataHeap.heapDataPool = this.heapDataPool.clone();
+        dataHeap.heapDataNames = this.heapDataNames.clone();
         return dataHeap;
     }
-}
\ No newline at end of file
+}
@@ -15,6 +15,7 @@
  */
 package net.hasor.dataql.runtime.mem;
 import net.hasor.dataql.domain.DomainHelper;
+import net.hasor.dataql.runtime.InsetProcessContext;
 
 import java.util.Iterator;
 
@@ -24,22 +25,52 @@ import java.util.Iterator;
  * @version : 2019-11-22
  */
 public class DataIterator {
-    private Iterator iterator = null;
-    private Object   oriData  = null;
-    private Object   data     = null;
+    private Iterator       iterator  = null;
+    private Object         oriData   = null;
+    private Object         data      = null;
+    private boolean        lazy      = false;
+    private Object         owner     = null;
+    private BatchCallQueue callQueue = null;
 
     public DataIterator(Object oriData, Iterator iterator) {
         this.oriData = oriData;
         this.iterator = iterator;
     }
 
+    public DataIterator(Object oriData, Iterator iterator, boolean lazy) {
+        this(oriData, iterator);
+        this.lazy = lazy;
+    }
+
+    /** 开启批量调用合并，只有 owner 指令序列中的调用才会被合并 */
+    public void enableBatchCall(Object owner, InsetProcessContext context) {
+        this.owner = owner;
+        this.callQueue = new BatchCallQueue(context);
+    }
+
+    /** 获取批量调用队列，owner 不是创建迭代器的指令序列时返回 null（例如迭代过程中调用的 lambda） */
+    public BatchCallQueue getBatchCallQueue(Object owner) {
+        return (this.owner == owner) ? this.callQueue : null;
+    }
+
+    /** 迭代结束，执行所有等待中的批量调用 */
+    public void finish() {
+        if (this.callQueue != null && !this.callQueue.isEmpty()) {
+            this.callQueue.flush();
+        }
+    }
+
     public Object getData() {
         return data;
     }
 
     public boolean isNext() {
         if (this.iterator.hasNext()) {
-            this.data = DomainHelper.convertTo(iterator.next());
+            Object next = iterator.next();
+            if (next instanceof DeferredCall) {
+                next = ((DeferredCall) next).resolve();
+            }
+            this.data = DomainHelper.convertTo(next, this.lazy);
             return true;
         }
         return false;
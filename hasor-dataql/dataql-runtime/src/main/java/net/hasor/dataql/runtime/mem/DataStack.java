@@ -16,14 +16,12 @@
 package net.hasor.dataql.runtime.mem;
 import net.hasor.dataql.domain.DataModel;
 
-import java.util.Stack;
-
 /**
  * 栈数据
  * @author 赵永春 (zyc@hasor.net)
  * @version : 2019-11-22
  */
-public class DataStack extends Stack<Object> {
+public class DataStack extends SingleThreadStack {
     private int       resultCode = 0;
     private DataModel result     = null;
     private ExitType  exitType   = null;
@@ -52,6 +50,14 @@ public class DataStack extends Stack<Object> {
         this.exitType = exitType;
     }
 
+    /** 清空栈和执行结果，以便复用 */
+    public void reset() {
+        this.clear();
+        this.resultCode = 0;
+        this.result = null;
+        this.exitType = null;
+    }
+
     @Override
     public DataStack clone() {
         DataStack dataStack = new DataStack();
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.runtime.mem;
+import net.hasor.dataql.Hints;
+import net.hasor.dataql.domain.DataModel;
+import net.hasor.dataql.domain.ListModel;
+import net.hasor.dataql.domain.ObjectModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 等待批量执行（或并发执行）的调用结果（占位符）。
+ * 占位符只会被放入 ObjectModel/ListModel 中（PUT、PUSH），批量执行（或并发调用结束）之后会被替换为真实的结果。
+ * 如果在此之前占位符被读取（GET、PULL、unwrap 等），那么会立刻执行所在的调用队列（或等待并发调用的结果）。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class DeferredCall implements DataModel {
+    private final BatchCallQueue    callQueue;
+    private final ParallelCallQueue parallelQueue;
+    private final RefCall           refCall;
+    private final Object[]          paramArrays;
+    private final Hints             optionSet;
+    private final List<Object[]>    bindList = new ArrayList<>(1);
+    private       DataModel         result;
+
+    DeferredCall(BatchCallQueue callQueue, RefCall refCall, Object[] paramArrays, Hints optionSet) {
+        this.callQueue = callQueue;
+        this.parallelQueue = null;
+        this.refCall = refCall;
+        this.paramArrays = paramArrays;
+        this.optionSet = optionSet;
+    }
+
+    DeferredCall(ParallelCallQueue parallelQueue, RefCall refCall) {
+        this.callQueue = null;
+        this.parallelQueue = parallelQueue;
+        this.refCall = refCall;
+        this.paramArrays = null;
+        this.optionSet = null;
+    }
+
+    RefCall getRefCall() {
+        return this.refCall;
+    }
+
+    Object[] getParamArrays() {
+        return this.paramArrays;
+    }
+
+    Hints getOptionSet() {
+        return this.optionSet;
+    }
+
+    /** 记录占位符被放入的位置，返回需要放入的值（已经有结果时直接返回结果） */
+    public DataModel bindTo(ObjectModel objectModel, String fieldName) {
+        if (this.result != null) {
+            return this.result;
+        }
+        this.bindList.add(new Object[] { objectModel, fieldName });
+        return this;
+    }
+
+    /** 记录占位符被放入的位置，返回需要放入的值（已经有结果时直接返回结果） */
+    public DataModel bindTo(ListModel listModel, int index) {
+        if (this.result != null) {
+            return this.result;
+        }
+        this.bindList.add(new Object[] { listModel, index });
+        return this;
+    }
+
+    /** 获取调用结果，如果尚未执行那么立刻执行所在的调用队列（并发调用会等待所有调用的结果） */
+    public DataModel resolve() {
+        if (this.result == null) {
+            if (this.parallelQueue != null) {
+                this.parallelQueue.join();
+            } else {
+                this.callQueue.flush();
+            }
+        }
+        return this.result;
+    }
+
+    void complete(DataModel result) {
+        this.result = result;
+        for (Object[] bind : this.bindList) {
+            if (bind[0] instanceof ObjectModel) {
+                ((ObjectModel) bind[0]).put((String) bind[1], result);
+            } else {
+                ((ListModel) bind[0]).set((Integer) bind[1], result);
+            }
+        }
+        this.bindList.clear();
+    }
+
+    @Override
+    public Object asOri() {
+        return this.resolve().asOri();
+    }
+
+    @Override
+    public Object unwrap() {
+        return this.resolve().unwrap();
+    }
+}
@@ -14,14 +14,12 @@
  * limitations under the License.
  */
 package net.hasor.dataql.runtime.mem;
-import java.util.Stack;
-
 /**
  * 栈数据
  * @author 赵永春 (zyc@hasor.net)
  * @version : 2019-11-22
  */
-public class EnvStack extends Stack<Object> {
+public class EnvStack extends SingleThreadStack {
     /** 从栈顶乡下获取指定深度位置的数据 */
     public Object peekOfDepth(int depth) {
         if (depth < 0) {
@@ -30,7 +28,7 @@ public class EnvStack extends Stack<Object> {
         if (depth >= elementCount) {
             throw new ArrayIndexOutOfBoundsException(depth);
         }
-        return this.get(elementCount - depth - 1);
+        return this.elementData[elementCount - depth - 1];
     }
 
     @Override
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.runtime.mem;
+import net.hasor.dataql.runtime.InstSequence;
+
+/**
+ * Lambda 的调用帧（指令序列、堆、栈），调用结束之后会被重置并放回 RefLambdaCall 的帧池中，供下一次调用复用。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+class LambdaFrame {
+    final InstSequence        instSequence;
+    final DataHeap            dataHeap;
+    final DataStack           dataStack;
+    final RefLambdaCallStruts callStruts;
+
+    LambdaFrame(InstSequence instSequence, DataHeap parentHeap) {
+        this.instSequence = instSequence;
+        this.dataHeap = new DataHeap(parentHeap, instSequence.localSize());
+        this.dataStack = new DataStack();
+        this.callStruts = new RefLambdaCallStruts(null);
+    }
+
+    /** 准备一次新的调用 */
+    void prepare(Object[] params) {
+        this.instSequence.reset();
+        this.callStruts.setParams(params);
+        this.dataStack.push(this.callStruts);
+    }
+
+    /** 调用结束，清理帧中的数据（避免帧池持有数据的引用） */
+    void clear() {
+        this.dataHeap.reset();
+        this.dataStack.reset();
+        this.callStruts.setParams(null);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.runtime.mem;
+import net.hasor.dataql.Hints;
+import net.hasor.dataql.domain.CursorTracker;
+import net.hasor.dataql.domain.DataModel;
+import net.hasor.dataql.parser.location.RuntimeLocation;
+import net.hasor.dataql.runtime.InsetProcessContext;
+import net.hasor.dataql.runtime.QueryLimitException;
+import net.hasor.dataql.runtime.QueryProfiler;
+import net.hasor.utils.ExceptionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对象字面量中并发执行的字段调用（PARALLEL_FIELDS）。调用被提交到线程池之后立刻返回占位符，
+ * 在对象的最后一个字段放入之后（或者占位符被读取时）等待所有调用的结果并回填。
+ * 只有 UDF、Fragment 调用会在其它线程中执行，执行上下文（Hint、剖析数据、执行限制等）只会在查询线程中访问。
+ * 依赖当前线程的 Fragment（例如事务中的 SQL）不会进入这里，参考 FragmentProcess.isThreadBound。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+public class ParallelCallQueue {
+    private static volatile ExecutorService     defaultExecutor;
+    private final           InsetProcessContext context;
+    private final           Executor            executor;
+    private final           List<PendingCall>   pendingList = new ArrayList<>();
+
+    public ParallelCallQueue(InsetProcessContext context) {
+        Executor executor = context.getFinder().parallelExecutor();
+        this.context = context;
+        this.executor = (executor != null) ? executor : defaultExecutor();
+    }
+
+    /**
+     * 内置线程池：最多 max(4, CPU 核数 × 2) 个守护线程，空闲 60 秒后回收。
+     * 线程全部繁忙时不排队，调用直接在查询线程中执行，因此并发查询再多也不会无限制的创建线程。
+     */
+    private static Executor defaultExecutor() {
+        if (defaultExecutor == null) {
+            synchronized (ParallelCallQueue.class) {
+                if (defaultExecutor == null) {
+                    AtomicInteger threadIndex = new AtomicInteger();
+                    int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "dataql-parallel-" + threadIndex.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.allowCoreThreadTimeOut(true);
+                    defaultExecutor = executor;
+                }
+            }
+        }
+        return defaultExecutor;
+    }
+
+    /** 提交一个调用，返回的 DeferredCall 在 join 之后才会有结果。线程池拒绝执行时在当前线程中执行 */
+    public DeferredCall addCall(RefCall refCall, Callable<DataModel> callable) {
+        PendingCall pendingCall = new PendingCall(new DeferredCall(this, refCall), callable, this.context.getCursorTracker());
+        this.pendingList.add(pendingCall);
+        try {
+            this.executor.execute(pendingCall.task);
+        } catch (RejectedExecutionException e) {
+            pendingCall.task.run();
+        }
+        return pendingCall.deferredCall;
+    }
+
+    /** 是否有等待结果的调用 */
+    public boolean isEmpty() {
+        return this.pendingList.isEmpty();
+    }
+
+    /**
+     * 等待所有调用结束并回填结果，有调用失败时在所有调用结束之后抛出第一个异常。
+     * 启用了 EXECUTION_TIMEOUT 时最多等待到查询的结束时间，超时后取消剩余的调用并引发 QueryLimitException。
+     */
+    public void join() {
+        List<PendingCall> callList = new ArrayList<>(this.pendingList);
+        this.pendingList.clear();
+        QueryProfiler profiler = this.context.getProfiler();
+        long deadline = this.context.getDeadline();
+        RuntimeException failure = null;
+        for (int i = 0; i < callList.size(); i++) {
+            PendingCall pendingCall = callList.get(i);
+            try {
+                DataModel result = pendingCall.await(deadline);
+                if (profiler != null) {
+                    profiler.recordCall(pendingCall.deferredCall.getRefCall().getTargetName(), 1, pendingCall.nanos);
+                }
+                pendingCall.deferredCall.complete(this.context.trackCursor(result));
+            } catch (TimeoutException e) {
+                for (PendingCall cancelCall : callList.subList(i, callList.size())) {
+                    cancelCall.task.cancel(true);
+                }
+                RuntimeLocation location = pendingCall.deferredCall.getRefCall().getLocation();
+                throw new QueryLimitException(location, Hints.EXECUTION_TIMEOUT, this.context.getExecutionTimeout());
+            } catch (RuntimeException e) {
+                failure = (failure == null) ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /** 查询异常结束，取消所有尚未结束的调用 */
+    public void cancel() {
+        for (PendingCall pendingCall : this.pendingList) {
+            pendingCall.task.cancel(true);
+        }
+        this.pendingList.clear();
+    }
+
+    private static class PendingCall {
+        private final    DeferredCall          deferredCall;
+        private final    FutureTask<DataModel> task;
+        private volatile long                  nanos;
+
+        /** 调用期间在执行线程上启用查询的 CursorTracker，转换调用结果时创建的游标同样会被登记 */
+        public PendingCall(DeferredCall deferredCall, Callable<DataModel> callable, CursorTracker cursorTracker) {
+            this.deferredCall = deferredCall;
+            this.task = new FutureTask<>(() -> {
+                long startTime = System.nanoTime();
+                CursorTracker previousTracker = cursorTracker.attach();
+                try {
+                    return callable.call();
+                } finally {
+                    CursorTracker.restore(previousTracker);
+                    this.nanos = System.nanoTime() - startTime;
+                }
+            });
+        }
+
+        /** 等待调用结束，deadline 大于 0 时最多等待到这个时间 */
+        public DataModel await(long deadline) throws TimeoutException {
+            try {
+                if (deadline <= 0) {
+                    return this.task.get();
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 && !this.task.isDone()) {
+                    throw new TimeoutException();
+                }
+                return this.task.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                throw ExceptionUtils.toRuntime(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.task.cancel(true);
+                throw ExceptionUtils.toRuntime(e);
+            }
+        }
+    }
+}
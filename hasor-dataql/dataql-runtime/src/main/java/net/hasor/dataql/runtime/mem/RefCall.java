@@ -21,6 +21,10 @@ import net.hasor.dataql.parser.location.RuntimeLocation;
 import net.hasor.dataql.runtime.QueryRuntimeException;
 import net.hasor.utils.ExceptionUtils;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
 /**
  * 栈数据
  * @author 赵永春 (zyc@hasor.net)
@@ -37,29 +41,127 @@ public class RefCall {
         this.refCall = refCall;
     }
 
+    /** 目标 UDF 是否支持批量调用 */
+    public boolean isBatchCall() {
+        if (this.refCall instanceof RefLambdaCall) {
+            return ((RefLambdaCall) this.refCall).isFragmentCall();
+        }
+        return this.refCall instanceof BatchUdf;
+    }
+
+    /** 调用所在的代码位置 */
+    RuntimeLocation getLocation() {
+        return this.location;
+    }
+
+    /** 调用的目标 UDF，可用于判断两次调用是否可以合并 */
+    public Udf getTarget() {
+        return this.refCall;
+    }
+
+    /** 调用目标的名称，用于性能剖析 */
+    public String getTargetName() {
+        return String.valueOf(this.refCall);
+    }
+
     public Object invokeMethod(Object[] paramArrays, Hints optionSet, Finder finder) throws DataQueryException {
         try {
-            Object[] objects = paramArrays.clone();
-            if (this.autoUnwrap) {
-                for (int i = 0; i < objects.length; i++) {
-                    if (objects[i] instanceof DataModel) {
-                        objects[i] = ((DataModel) objects[i]).unwrap();
-                    }
-                }
+            Object result = this.refCall.call(optionSet, this.unwrapParams(paramArrays));
+            return this.convertResult(result, optionSet, finder);
+        } catch (Throwable e) {
+            throw this.toRuntime(e);
+        }
+    }
+
+    /** 批量调用（目标 UDF 必须是 BatchUdf），返回的结果与 paramsList 一一对应 */
+    public List<DataModel> invokeBatch(List<Object[]> paramsList, Hints optionSet, Finder finder) throws DataQueryException {
+        try {
+            List<Object[]> objectsList = new ArrayList<>(paramsList.size());
+            for (Object[] paramArrays : paramsList) {
+                objectsList.add(this.unwrapParams(paramArrays));
             }
-            Object result = this.refCall.call(optionSet, objects);
-            if (result instanceof UdfSource) {
-                result = ((UdfSource) result).getUdfResource(finder).get();
+            List<Object> resultList = ((BatchUdf) this.refCall).batchCall(optionSet, objectsList);
+            if (resultList == null || resultList.size() != paramsList.size()) {
+                int resultSize = (resultList == null) ? 0 : resultList.size();
+                throw new QueryRuntimeException(location, "batch call results size " + resultSize + " mismatch with calls " + paramsList.size() + ".");
             }
-            return DomainHelper.convertTo(result);
+            List<DataModel> dataModels = new ArrayList<>(resultList.size());
+            for (Object result : resultList) {
+                dataModels.add(this.convertResult(result, optionSet, finder));
+            }
+            return dataModels;
         } catch (Throwable e) {
-            if (e instanceof DataQueryException) {
-                throw (DataQueryException) e;
+            throw this.toRuntime(e);
+        }
+    }
+
+    /**
+     * 并发调用：在当前线程中准备好参数，返回可以在其它线程中执行的调用。
+     * Lambda 会使用当前的执行上下文，不能在其它线程中执行，此时返回 null。Fragment 包装的 Lambda 只有 Fragment 调用会在其它线程中执行。
+     * 参数中含有 Lambda、UDF 时同样返回 null（被调用的 UDF 可能会回调它们）。
+     * 依赖当前线程的 Fragment（例如在事务中执行的 SQL）也返回 null，参考 FragmentProcess.isThreadBound。
+     */
+    public Callable<DataModel> prepareAsync(Object[] paramArrays, Hints optionSet, Finder finder) throws DataQueryException {
+        for (Object param : paramArrays) {
+            if (param instanceof Udf || param instanceof RefCall) {
+                return null;
+            }
+        }
+        if (this.refCall instanceof RefLambdaCall) {
+            RefLambdaCall lambdaCall = (RefLambdaCall) this.refCall;
+            if (!lambdaCall.isFragmentCall()) {
+                return null;
+            }
+            Object[] prepared;
+            try {
+                prepared = lambdaCall.prepareFragmentCall(this.unwrapParams(paramArrays));
+            } catch (Throwable e) {
+                throw this.toRuntime(e);
+            }
+            RefCall fragmentCall = (RefCall) prepared[0];
+            Udf fragmentTarget = fragmentCall.getTarget();
+            if (fragmentTarget instanceof RefFragmentCall && ((RefFragmentCall) fragmentTarget).isThreadBound(optionSet)) {
+                return null;
+            }
+            Object[] fragmentParams = new Object[] { prepared[1], prepared[2] };
+            return () -> (DataModel) fragmentCall.invokeMethod(fragmentParams, optionSet, finder);
+        }
+        Object[] params = this.unwrapParams(paramArrays);
+        return () -> {
+            try {
+                return this.convertResult(this.refCall.call(optionSet, params), optionSet, finder);
+            } catch (Throwable e) {
+                throw this.toRuntime(e);
+            }
+        };
+    }
+
+    private Object[] unwrapParams(Object[] paramArrays) {
+        Object[] objects = paramArrays.clone();
+        if (this.autoUnwrap) {
+            for (int i = 0; i < objects.length; i++) {
+                if (objects[i] instanceof DataModel) {
+                    objects[i] = ((DataModel) objects[i]).unwrap();
+                }
             }
-            throw ExceptionUtils.toRuntime(e, throwable -> {
-                String message = e.getClass().getName() + ": " + throwable.getLocalizedMessage();
-                return new QueryRuntimeException(location, message, throwable);
-            });
         }
+        return objects;
+    }
+
+    private DataModel convertResult(Object result, Hints optionSet, Finder finder) throws Throwable {
+        if (result instanceof UdfSource) {
+            result = ((UdfSource) result).getUdfResource(finder).get();
+        }
+        return DomainHelper.convertTo(result, optionSet);
+    }
+
+    private RuntimeException toRuntime(Throwable e) {
+        if (e instanceof DataQueryException) {
+            return (DataQueryException) e;
+        }
+        return ExceptionUtils.toRuntime(e, throwable -> {
+            String message = e.getClass().getName() + ": " + throwable.getLocalizedMessage();
+            return new QueryRuntimeException(location, message, throwable);
+        });
     }
 }
@@ -14,20 +14,20 @@
  * limitations under the License.
  */
 package net.hasor.dataql.runtime.mem;
+import net.hasor.dataql.BatchUdf;
 import net.hasor.dataql.FragmentProcess;
 import net.hasor.dataql.Hints;
-import net.hasor.dataql.Udf;
 import net.hasor.dataql.parser.location.RuntimeLocation;
 import net.hasor.dataql.runtime.QueryRuntimeException;
 
 import java.util.*;
 
 /**
- * 代理 Fragment 使其成为 UDF.
+ * 代理 Fragment 使其成为 UDF，集合转换中的逐个调用会通过 FragmentProcess.batchRunFragment 合并执行.
  * @author 赵永春 (zyc@hasor.net)
  * @version : 2017-03-23
  */
-public class RefFragmentCall implements Udf {
+public class RefFragmentCall implements BatchUdf {
     private final RuntimeLocation location;
     private final boolean         isBach;
     private final FragmentProcess fragmentProcess;
@@ -96,4 +96,46 @@ public class RefFragmentCall implements Udf {
             return this.fragmentProcess.runFragment(readOnly, fragmentParams, fragmentString);
         }
     }
+
+    /** 片段的执行是否依赖当前线程，参考 FragmentProcess.isThreadBound */
+    public boolean isThreadBound(Hints readOnly) {
+        return this.fragmentProcess.isThreadBound(readOnly);
+    }
+
+    @Override
+    public List<Object> batchCall(Hints readOnly, List<Object[]> paramsList) throws Throwable {
+        Object[] resultArrays = new Object[paramsList.size()];
+        if (this.isBach) {
+            for (int i = 0; i < paramsList.size(); i++) {
+                resultArrays[i] = this.call(readOnly, paramsList.get(i));
+            }
+            return Arrays.asList(resultArrays);
+        }
+        // .相同的代码片段合并为一次批量执行
+        Map<String, List<Integer>> fragmentGroup = new LinkedHashMap<>();
+        for (int i = 0; i < paramsList.size(); i++) {
+            String fragmentString = paramsList.get(i)[1].toString();
+            fragmentGroup.computeIfAbsent(fragmentString, key -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<String, List<Integer>> entry : fragmentGroup.entrySet()) {
+            List<Integer> indexList = entry.getValue();
+            List<Map<String, Object>> fragmentParams = new ArrayList<>(indexList.size());
+            for (int index : indexList) {
+                fragmentParams.add((Map<String, Object>) paramsList.get(index)[0]);
+            }
+            List<Object> resultList = this.fragmentProcess.batchRunFragment(readOnly, fragmentParams, entry.getKey());
+            if (resultList == null || resultList.size() != indexList.size()) {
+                throw new QueryRuntimeException(this.location, "batchRunFragment results size mismatch with params size.");
+            }
+            for (int i = 0; i < indexList.size(); i++) {
+                resultArrays[indexList.get(i)] = resultList.get(i);
+            }
+        }
+        return Arrays.asList(resultArrays);
+    }
+
+    @Override
+    public String toString() {
+        return "fragment@" + this.fragmentProcess.getClass().getSimpleName();
+    }
 }
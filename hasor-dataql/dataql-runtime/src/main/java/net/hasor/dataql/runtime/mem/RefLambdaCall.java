@@ -14,61 +14,195 @@
  * limitations under the License.
  */
 package net.hasor.dataql.runtime.mem;
+import net.hasor.dataql.BatchUdf;
 import net.hasor.dataql.Hints;
-import net.hasor.dataql.Udf;
+import net.hasor.dataql.compiler.qil.Instruction;
+import net.hasor.dataql.compiler.qil.Opcodes;
 import net.hasor.dataql.domain.DataModel;
 import net.hasor.dataql.domain.DomainHelper;
+import net.hasor.dataql.runtime.HintsReadOnly;
 import net.hasor.dataql.runtime.InsetProcessContext;
 import net.hasor.dataql.runtime.InstSequence;
 import net.hasor.dataql.runtime.inset.OpcodesPool;
+import net.hasor.dataql.runtime.jit.CompiledBlock;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 
 /**
  * 代理 Lambda 使其成为 UDF.
+ * 如果 Lambda 只是对 Fragment 的一层包装（例：var f = @@sql(id) <% ... %>），那么它支持批量调用。
  * @author 赵永春 (zyc@hasor.net)
  * @version : 2017-03-23
  */
-public class RefLambdaCall implements Udf {
-    private final InstSequence        instSequence;
-    private final DataHeap            dataHeap;
-    private final EnvStack            envStack;
-    private final InsetProcessContext context;
+public class RefLambdaCall implements BatchUdf {
+    private static final int                 MAX_POOLED_FRAMES = 8;
+    private final        InstSequence        instSequence;
+    private final        DataHeap            dataHeap;
+    private final        EnvStack            envStack;
+    private final        InsetProcessContext context;
+    private final        Deque<LambdaFrame>  framePool;              // 空闲的调用帧，会创建闭包的 Lambda 不复用调用帧（闭包会引用调用帧中的堆）
+    private              int                 fragmentCallIndex = -2; // Fragment 调用（CALL 指令）的位置，-1 表示不是 Fragment 包装，-2 表示尚未检测
 
     public RefLambdaCall(InstSequence instSequence, DataHeap dataHeap, EnvStack envStack, InsetProcessContext context) {
         this.instSequence = instSequence;
         this.dataHeap = dataHeap;
         this.envStack = envStack;
         this.context = context;
+        this.framePool = instSequence.hasClosure() ? null : new ArrayDeque<>();
     }
 
     @Override
     public Object call(Hints readOnly, Object... params) throws Throwable {
+        LambdaFrame frame = this.acquireFrame(params);
+        try {
+            InstSequence instSequence = frame.instSequence;
+            DataStack cloneStack = frame.dataStack;
+            OpcodesPool opcodesPool = OpcodesPool.defaultOpcodesPool();
+            CompiledBlock compiledBlock = this.context.findCompiledBlock(instSequence.getAddress());
+            while (instSequence.hasNext()) {
+                if (compiledBlock != null) {
+                    compiledBlock.doWork(instSequence, frame.dataHeap, cloneStack, this.envStack, this.context);
+                } else {
+                    opcodesPool.doWork(     //
+                            instSequence,   //
+                            frame.dataHeap, //
+                            cloneStack,     //
+                            this.envStack,  //
+                            this.context    //
+                    );
+                }
+                instSequence.doNext(1);
+            }
+            DataModel result = cloneStack.getResult();
+            if (cloneStack.getExitType() != ExitType.Throw) {
+                return (result != null) ? result.unwrap() : DomainHelper.nullDomain();
+            } else {
+                throw new RefLambdaCallException(       //
+                        instSequence.programLocation(), //
+                        cloneStack.getResultCode(),     //
+                        cloneStack.getResult()          //
+                );
+            }
+        } finally {
+            this.releaseFrame(frame);
+        }
+    }
+
+    /** 获取一个空闲的调用帧，没有时创建新的（递归调用时每一层使用各自的调用帧） */
+    private LambdaFrame acquireFrame(Object[] params) {
+        LambdaFrame frame = null;
+        if (this.framePool != null) {
+            synchronized (this.framePool) {
+                frame = this.framePool.pollFirst();
+            }
+        }
+        if (frame == null) {
+            frame = new LambdaFrame(this.instSequence.clone(), this.dataHeap);
+        }
+        frame.prepare(params);
+        return frame;
+    }
+
+    private void releaseFrame(LambdaFrame frame) {
+        if (this.framePool == null) {
+            return;
+        }
+        frame.clear();
+        synchronized (this.framePool) {
+            if (this.framePool.size() < MAX_POOLED_FRAMES) {
+                this.framePool.addFirst(frame);
+            }
+        }
+    }
+
+    /** 是否为 Fragment 的包装：指令序列以 M_FRAG 开始构建调用，以 CALL、RETURN 结束，并且不存在其它的调用或跳转 */
+    public boolean isFragmentCall() {
+        if (this.fragmentCallIndex == -2) {
+            this.fragmentCallIndex = findFragmentCall(this.instSequence.clone());
+        }
+        return this.fragmentCallIndex >= 0;
+    }
+
+    private static int findFragmentCall(InstSequence instSequence) {
+        List<Integer> instIndex = new ArrayList<>();
+        boolean hasFragment = false;
+        for (int i = 0; instSequence.peekInst(i) != null; i++) {
+            byte instCode = instSequence.peekInst(i).getInstCode();
+            if (instCode == Opcodes.LINE || instCode == Opcodes.LABEL) {
+                continue;
+            }
+            if (instCode == Opcodes.IF || instCode == Opcodes.GOTO || instCode == Opcodes.M_REF || instCode == Opcodes.M_DEF) {
+                return -1;
+            }
+            hasFragment = hasFragment || instCode == Opcodes.M_FRAG;
+            instIndex.add(i);
+        }
+        int size = instIndex.size();
+        if (!hasFragment || size < 2) {
+            return -1;
+        }
+        Instruction callInst = instSequence.peekInst(instIndex.get(size - 2));
+        Instruction returnInst = instSequence.peekInst(instIndex.get(size - 1));
+        if (callInst.getInstCode() != Opcodes.CALL || callInst.getInt(0) != 2 || returnInst.getInstCode() != Opcodes.RETURN) {
+            return -1;
+        }
+        for (int i = 0; i < size - 2; i++) {
+            if (instSequence.peekInst(instIndex.get(i)).getInstCode() == Opcodes.CALL) {
+                return -1;
+            }
+        }
+        return instIndex.get(size - 2);
+    }
+
+    /** 批量调用：Fragment 包装会执行到 Fragment 调用之前，然后将所有调用合并为一次 batchRunFragment；其它情况逐个调用 */
+    @Override
+    public List<Object> batchCall(Hints readOnly, List<Object[]> paramsList) throws Throwable {
+        List<Object> resultList = new ArrayList<>(paramsList.size());
+        if (!this.isFragmentCall()) {
+            for (Object[] params : paramsList) {
+                resultList.add(this.call(readOnly, params));
+            }
+            return resultList;
+        }
         //
-        DataStack cloneStack = new DataStack() {{
-            push(new RefLambdaCallStruts(params));
-        }};
-        //
-        InstSequence instSequence = this.instSequence.clone();
-        OpcodesPool opcodesPool = OpcodesPool.defaultOpcodesPool();
-        DataHeap dataHeap = new DataHeap(this.dataHeap);
-        while (instSequence.hasNext()) {
-            opcodesPool.doWork(     //
-                    instSequence,   //
-                    dataHeap,       //
-                    cloneStack,     //
-                    this.envStack,  //
-                    this.context    //
-            );
-            instSequence.doNext(1);
+        RefCall fragmentCall = null;
+        List<Object[]> fragmentParams = new ArrayList<>(paramsList.size());
+        for (Object[] params : paramsList) {
+            Object[] prepared = this.prepareFragmentCall(params);
+            fragmentCall = (RefCall) prepared[0];
+            fragmentParams.add(new Object[] { prepared[1], prepared[2] });
+        }
+        Hints optionSet = new HintsReadOnly(this.context.currentHints());
+        for (DataModel dataModel : fragmentCall.invokeBatch(fragmentParams, optionSet, this.context.getFinder())) {
+            resultList.add(dataModel.unwrap());
         }
-        DataModel result = cloneStack.getResult();
-        if (cloneStack.getExitType() != ExitType.Throw) {
-            return (result != null) ? result.unwrap() : DomainHelper.nullDomain();
-        } else {
-            throw new RefLambdaCallException(       //
-                    instSequence.programLocation(), //
-                    cloneStack.getResultCode(),     //
-                    cloneStack.getResult()          //
-            );
+        return resultList;
+    }
+
+    /** Fragment 包装：执行到 Fragment 调用之前，返回 { Fragment 调用(RefCall)、片段参数、片段内容 } */
+    Object[] prepareFragmentCall(Object[] params) {
+        OpcodesPool opcodesPool = OpcodesPool.defaultOpcodesPool();
+        LambdaFrame frame = this.acquireFrame(params);
+        try {
+            InstSequence instSequence = frame.instSequence;
+            while (instSequence.programPointer() < this.fragmentCallIndex) {
+                opcodesPool.doWork(instSequence, frame.dataHeap, frame.dataStack, this.envStack, this.context);
+                instSequence.doNext(1);
+            }
+            Object fragmentString = frame.dataStack.pop();
+            Object fragmentArgs = frame.dataStack.pop();
+            Object fragmentCall = frame.dataStack.pop();
+            return new Object[] { fragmentCall, fragmentArgs, fragmentString };
+        } finally {
+            this.releaseFrame(frame);
         }
     }
+
+    @Override
+    public String toString() {
+        return "lambda@" + this.instSequence.getAddress();
+    }
 }
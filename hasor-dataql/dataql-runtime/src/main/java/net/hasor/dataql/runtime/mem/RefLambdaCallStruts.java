@@ -26,6 +26,10 @@ public class RefLambdaCallStruts {
         this.params = params;
     }
 
+    void setParams(Object[] params) {
+        this.params = params;
+    }
+
     public Object[] getParams() {
         return params;
     }
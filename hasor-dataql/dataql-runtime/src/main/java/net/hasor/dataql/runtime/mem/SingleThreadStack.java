@@ -0,0 +1,78 @@
+/*
+ * Copyright 2008-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.hasor.dataql.runtime.mem;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.Stack;
+
+/**
+ * 执行引擎使用的栈，只会被单个线程使用。
+ * 覆盖了 Stack 中高频使用的 push/pop/peek 等方法，避免 Vector 同步方法带来的开销。
+ * @author 赵永春 (zyc@hasor.net)
+ * @version : 2020-10-17
+ */
+class SingleThreadStack extends Stack<Object> {
+    @Override
+    public Object push(Object item) {
+        if (this.elementCount == this.elementData.length) {
+            this.elementData = Arrays.copyOf(this.elementData, Math.max(this.elementCount << 1, 10));
+        }
+        this.modCount++;
+        this.elementData[this.elementCount++] = item;
+        return item;
+    }
+
+    @Override
+    public Object pop() {
+        if (this.elementCount == 0) {
+            throw new EmptyStackException();
+        }
+        this.modCount++;
+        Object item = this.elementData[--this.elementCount];
+        this.elementData[this.elementCount] = null;
+        return item;
+    }
+
+    @Override
+    public Object peek() {
+        if (this.elementCount == 0) {
+            throw new EmptyStackException();
+        }
+        return this.elementData[this.elementCount - 1];
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.elementData, 0, this.elementCount, null);
+        this.modCount++;
+        this.elementCount = 0;
+    }
+
+    @Override
+    public boolean empty() {
+        return this.elementCount == 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.elementCount == 0;
+    }
+
+    @Override
+    public int size() {
+        return this.elementCount;
+    }
+}
@@ -39,6 +39,11 @@ class DyadicProxyOperatorProcess implements OperatorMatch {
         return this.process.doProcess(location, operator, args, option);
     }
 
+    @Override
+    public OperatorProcess getProcess() {
+        return this.process;
+    }
+
     @Override
     public boolean testMatch(Class<?>... fstType) {
         if (!this.fstType.isAssignableFrom(fstType[0])) {
@@ -21,16 +21,21 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 /**
  * 一元二元运算符注册管理器。
+ * 查找结果会按照 运算符 + 操作数类型 缓存起来，同一个类型组合只会线性扫描一次，重新注册运算符时缓存失效。
  * @author 赵永春 (zyc@hasor.net)
  * @version : 2019-12-11
  */
 public class OperatorManager implements DyadicOperatorRegistry, UnaryOperatorRegistry {
-    private final Map<String, List<OperatorMatch>> unaryProcessMap  = new HashMap<>();
-    private final Map<String, List<OperatorMatch>> dyadicProcessMap = new HashMap<>();
+    private static final OperatorProcess                                           NOT_FOUND        = (location, operator, args, option) -> null;
+    private final        Map<String, List<OperatorMatch>>                          unaryProcessMap  = new HashMap<>();
+    private final        Map<String, List<OperatorMatch>>                          dyadicProcessMap = new HashMap<>();
+    private final        Map<String, Map<Class<?>, OperatorProcess>>               unaryCacheMap    = new ConcurrentHashMap<>();
+    private final        Map<String, Map<Class<?>, Map<Class<?>, OperatorProcess>>> dyadicCacheMap   = new ConcurrentHashMap<>();
 
     @Override
     public void registryOperator(String symbolName, Class<?> opeType, OperatorProcess process) {
@@ -38,6 +43,7 @@ public class OperatorManager implements DyadicOperatorRegistry, UnaryOperatorReg
             return new ArrayList<>();
         });
         matchList.add(0, new UnaryProxyOperatorProcess(opeType, process));
+        this.unaryCacheMap.clear();
     }
 
     @Override
@@ -46,35 +52,64 @@ public class OperatorManager implements DyadicOperatorRegistry, UnaryOperatorReg
             return new ArrayList<>();
         });
         matchList.add(0, new DyadicProxyOperatorProcess(fstType, secType, process));
+        this.dyadicCacheMap.clear();
     }
 
     public OperatorProcess findUnaryProcess(String symbolName, Class<?> fstType) {
         if (fstType == null) {
             return null;
         }
+        Map<Class<?>, OperatorProcess> typeCache = cacheOf(this.unaryCacheMap, symbolName);
+        OperatorProcess process = typeCache.get(fstType);
+        if (process == null) {
+            process = this.matchUnaryProcess(symbolName, fstType);
+            typeCache.put(fstType, (process == null) ? NOT_FOUND : process);
+        }
+        return (process == NOT_FOUND) ? null : process;
+    }
+
+    public OperatorProcess findDyadicProcess(String symbolName, Class<?> fstType, Class<?> secType) {
+        if (fstType == null || secType == null) {
+            return null;
+        }
+        Map<Class<?>, OperatorProcess> typeCache = cacheOf(cacheOf(this.dyadicCacheMap, symbolName), fstType);
+        OperatorProcess process = typeCache.get(secType);
+        if (process == null) {
+            process = this.matchDyadicProcess(symbolName, fstType, secType);
+            typeCache.put(secType, (process == null) ? NOT_FOUND : process);
+        }
+        return (process == NOT_FOUND) ? null : process;
+    }
+
+    private static <K, V> Map<Class<?>, V> cacheOf(Map<K, Map<Class<?>, V>> cacheMap, K key) {
+        Map<Class<?>, V> typeCache = cacheMap.get(key);
+        if (typeCache == null) {
+            typeCache = cacheMap.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+        }
+        return typeCache;
+    }
+
+    private OperatorProcess matchUnaryProcess(String symbolName, Class<?> fstType) {
         List<OperatorMatch> matchList = this.unaryProcessMap.get(symbolName);
         if (matchList == null || matchList.isEmpty()) {
             return null;
         }
         for (OperatorMatch item : matchList) {
             if (item.testMatch(fstType)) {
-                return item;
+                return item.getProcess();
             }
         }
         return null;
     }
 
-    public OperatorProcess findDyadicProcess(String symbolName, Class<?> fstType, Class<?> secType) {
-        if (fstType == null || secType == null) {
-            return null;
-        }
+    private OperatorProcess matchDyadicProcess(String symbolName, Class<?> fstType, Class<?> secType) {
         List<OperatorMatch> matchList = this.dyadicProcessMap.get(symbolName);
         if (matchList == null || matchList.isEmpty()) {
             return null;
         }
         for (OperatorMatch item : matchList) {
             if (item.testMatch(fstType, secType)) {
-                return item;
+                return item.getProcess();
             }
         }
         return null;
@@ -21,4 +21,9 @@ package net.hasor.dataql.runtime.operator;
  */
 public interface OperatorMatch extends OperatorProcess {
     public boolean testMatch(Class<?>... fstType);
+
+    /** 匹配成功之后真正执行运算的 OperatorProcess */
+    public default OperatorProcess getProcess() {
+        return this;
+    }
 }
\ No newline at end of file
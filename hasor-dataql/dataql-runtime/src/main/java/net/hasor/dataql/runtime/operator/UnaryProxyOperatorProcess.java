@@ -37,6 +37,11 @@ class UnaryProxyOperatorProcess implements OperatorMatch {
         return this.process.doProcess(location, operator, args, option);
     }
 
+    @Override
+    public OperatorProcess getProcess() {
+        return this.process;
+    }
+
     @Override
     public boolean testMatch(Class<?>... fstType) {
         return this.unaryType.isAssignableFrom(fstType[0]);
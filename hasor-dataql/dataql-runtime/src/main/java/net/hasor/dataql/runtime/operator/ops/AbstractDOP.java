@@ -26,6 +26,8 @@ import net.hasor.utils.StringUtils;
  * @version : 2017-03-23
  */
 abstract class AbstractDOP implements OperatorProcess {
+    private static final String[] DYADIC_OPERATORS = { "+", "-", "*", "/", "%", "\\", ">", ">=", "<", "<=", "==", "!=", "&", "|", "^", "<<", ">>", ">>>", "||", "&&" };
+
     /**执行运算*/
     @Override
     public Object doProcess(RuntimeLocation location, String operator, Object[] args, Hints option) throws QueryRuntimeException {
@@ -35,7 +37,7 @@ abstract class AbstractDOP implements OperatorProcess {
         if (args.length != 2) {
             throw new QueryRuntimeException(location, "dyadic operator error, args count expect 2 , but " + args.length);
         }
-        if (!testIn(new String[] { "+", "-", "*", "/", "%", "\\", ">", ">=", "<", "<=", "==", "!=", "&", "|", "^", "<<", ">>", ">>>", "||", "&&" }, operator)) {
+        if (!testIn(DYADIC_OPERATORS, operator)) {
             throw new QueryRuntimeException(location, "does not support dyadic Operator -> " + operator);
         }
         return this.doDyadicProcess(location, operator, args[0], args[1], option);
@@ -25,6 +25,8 @@ import net.hasor.dataql.runtime.operator.OperatorProcess;
  * @version : 2017-03-23
  */
 abstract class AbstractUOP implements OperatorProcess {
+    private static final String[] UNARY_OPERATORS = { "!", "-" };
+
     /**执行运算*/
     public Object doProcess(RuntimeLocation location, String operator, Object[] args, Hints option) throws QueryRuntimeException {
         if (args == null) {
@@ -33,7 +35,7 @@ abstract class AbstractUOP implements OperatorProcess {
         if (args.length != 1) {
             throw new QueryRuntimeException(location, "unary operator error, args count expect 1 , but " + args.length);
         }
-        if (!testIn(new String[] { "!", "-" }, operator)) {
+        if (!testIn(UNARY_OPERATORS, operator)) {
             throw new QueryRuntimeException(location, "does not support unary Operator -> " + operator);
         }
         //
@@ -31,6 +31,11 @@ public class CompareDOP extends AbstractDOP {
     @Override
     public Object doDyadicProcess(RuntimeLocation location, String operator, Object fstObject, Object secObject, Hints option) throws QueryRuntimeException {
         //
+        // .同为 int/long/double 的比较走原生类型计算
+        Boolean primitiveResult = primitiveCompare(operator, fstObject, secObject);
+        if (primitiveResult != null) {
+            return primitiveResult;
+        }
         // .Boolean 和 Number 混杂模式下，先统一成为 number 在做判断
         if (OperatorUtils.isBoolean(fstObject) && OperatorUtils.isBoolean(secObject)) {
             fstObject = Boolean.TRUE.equals(fstObject) ? BOOL_TRUE : BOOL_FALSE;
@@ -92,4 +97,40 @@ public class CompareDOP extends AbstractDOP {
         }
         throw throwError(location, operator, fstObject, secObject, "this operator nonsupport.");
     }
+
+    private static Boolean primitiveCompare(String operator, Object fstObject, Object secObject) {
+        if (fstObject == null || secObject == null || fstObject.getClass() != secObject.getClass()) {
+            return null;
+        }
+        int compare;
+        if (fstObject instanceof Integer) {
+            compare = Integer.compare((Integer) fstObject, (Integer) secObject);
+        } else if (fstObject instanceof Long) {
+            compare = Long.compare((Long) fstObject, (Long) secObject);
+        } else if (fstObject instanceof Double) {
+            double fst = (Double) fstObject, sec = (Double) secObject;
+            if (Double.isNaN(fst) || Double.isNaN(sec)) {
+                return null;
+            }
+            compare = (fst < sec) ? -1 : ((fst == sec) ? 0 : 1);
+        } else {
+            return null;
+        }
+        switch (operator) {
+            case ">":
+                return compare > 0;
+            case ">=":
+                return compare >= 0;
+            case "<":
+                return compare < 0;
+            case "<=":
+                return compare <= 0;
+            case "==":
+                return compare == 0;
+            case "!=":
+                return compare != 0;
+            default:
+                return null;
+        }
+    }
 }
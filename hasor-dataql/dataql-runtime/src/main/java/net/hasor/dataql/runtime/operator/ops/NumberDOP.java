@@ -53,29 +53,31 @@ public class NumberDOP extends AbstractDOP {
         fstObject = OperatorUtils.fixNumberWidth((Number) fstObject, decimalWidth, integerWidth);
         secObject = OperatorUtils.fixNumberWidth((Number) secObject, decimalWidth, integerWidth);
         //
-        // .数值计算
-        Number result = null;
-        switch (operator.charAt(0)) {
-            case '+':
-                result = OperatorUtils.add((Number) fstObject, (Number) secObject);
-                break;
-            case '-':
-                result = OperatorUtils.subtract((Number) fstObject, (Number) secObject);
-                break;
-            case '*':
-                result = OperatorUtils.multiply((Number) fstObject, (Number) secObject);
-                break;
-            case '/':
-                result = OperatorUtils.divide((Number) fstObject, (Number) secObject, maxDecimal, roundingMode);
-                break;
-            case '\\':
-                result = OperatorUtils.aliquot((Number) fstObject, (Number) secObject);
-                break;
-            case '%':
-                result = OperatorUtils.mod((Number) fstObject, (Number) secObject);
-                break;
-            default:
-                throw throwError(location, operator, fstObject, secObject, "this operator nonsupport.");
+        // .数值计算（同为 int/long/double 的加减乘走原生类型计算，结果与 OperatorUtils 一致）
+        Number result = primitiveCalculate(operator.charAt(0), (Number) fstObject, (Number) secObject);
+        if (result == null) {
+            switch (operator.charAt(0)) {
+                case '+':
+                    result = OperatorUtils.add((Number) fstObject, (Number) secObject);
+                    break;
+                case '-':
+                    result = OperatorUtils.subtract((Number) fstObject, (Number) secObject);
+                    break;
+                case '*':
+                    result = OperatorUtils.multiply((Number) fstObject, (Number) secObject);
+                    break;
+                case '/':
+                    result = OperatorUtils.divide((Number) fstObject, (Number) secObject, maxDecimal, roundingMode);
+                    break;
+                case '\\':
+                    result = OperatorUtils.aliquot((Number) fstObject, (Number) secObject);
+                    break;
+                case '%':
+                    result = OperatorUtils.mod((Number) fstObject, (Number) secObject);
+                    break;
+                default:
+                    throw throwError(location, operator, fstObject, secObject, "this operator nonsupport.");
+            }
         }
         if (result == null) {
             throw throwError(location, operator, fstObject, secObject, "evaluation result is empty.");
@@ -116,4 +118,51 @@ public class NumberDOP extends AbstractDOP {
         //
         return result;
     }
+
+    private static Number primitiveCalculate(char operator, Number fstObject, Number secObject) {
+        Class<?> numberType = fstObject.getClass();
+        if (numberType != secObject.getClass()) {
+            return null;
+        }
+        if (numberType == Integer.class) {
+            int fst = fstObject.intValue(), sec = secObject.intValue();
+            switch (operator) {
+                case '+':
+                    return fst + sec;
+                case '-':
+                    return fst - sec;
+                case '*':
+                    return fst * sec;
+                default:
+                    return null;
+            }
+        }
+        if (numberType == Long.class) {
+            long fst = fstObject.longValue(), sec = secObject.longValue();
+            switch (operator) {
+                case '+':
+                    return fst + sec;
+                case '-':
+                    return fst - sec;
+                case '*':
+                    return fst * sec;
+                default:
+                    return null;
+            }
+        }
+        if (numberType == Double.class) {
+            double fst = fstObject.doubleValue(), sec = secObject.doubleValue();
+            switch (operator) {
+                case '+':
+                    return fst + sec;
+                case '-':
+                    return fst - sec;
+                case '*':
+                    return fst * sec;
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
 }
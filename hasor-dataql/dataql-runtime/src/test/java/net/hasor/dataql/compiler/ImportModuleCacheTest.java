@@ -0,0 +1,177 @@
+package net.hasor.dataql.compiler;
+import net.hasor.dataql.AbstractTestResource;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.domain.ValueModel;
+import net.hasor.dataql.parser.QueryModel;
+import net.hasor.dataql.runtime.QueryHelper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+public class ImportModuleCacheTest extends AbstractTestResource {
+    private static class MemoryFinder implements Finder {
+        private final Map<String, String> resources = new HashMap<>();
+        private final Map<String, Long>   stamps    = new HashMap<>();
+        private final Map<String, URL>    urls      = new HashMap<>();
+        private final ImportModuleCache   cache     = new ImportModuleCache(16);
+        private       int                 readCount;
+
+        @Override
+        public InputStream findResource(String resourceName) {
+            this.readCount++;
+            String content = this.resources.get(resourceName);
+            return (content == null) ? null : new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public URL resourceUrl(String resourceName) {
+            return this.urls.get(resourceName);
+        }
+
+        @Override
+        public long resourceStamp(String resourceName) {
+            return this.stamps.getOrDefault(resourceName, -1L);
+        }
+
+        @Override
+        public ImportModuleCache importModuleCache() {
+            return this.cache;
+        }
+    }
+
+    @Test
+    public void stamp_1_Test() throws Exception {
+        ImportModuleCache moduleCache = new ImportModuleCache(16);
+        MemoryFinder finder = new MemoryFinder();
+        finder.resources.put("/a.ql", "return 1;");
+        finder.stamps.put("/a.ql", 100L);
+        //
+        QueryModel module = moduleCache.loadModule("/a.ql", finder);
+        assert moduleCache.loadModule("/a.ql", finder) == module;
+        assert moduleCache.getMissCount() == 1 && moduleCache.getHitCount() == 1;
+        assert finder.readCount == 1; // 修改标记相同时不读取资源
+        //
+        finder.resources.put("/a.ql", "return 2;");
+        finder.stamps.put("/a.ql", 200L);
+        QueryModel newModule = moduleCache.loadModule("/a.ql", finder);
+        assert newModule != module;
+        assert newModule.toQueryString().contains("2");
+        assert moduleCache.getMissCount() == 2;
+    }
+
+    @Test
+    public void content_1_Test() throws Exception {
+        ImportModuleCache moduleCache = new ImportModuleCache(16);
+        MemoryFinder finder = new MemoryFinder();
+        finder.resources.put("/a.ql", "return 1;");
+        //
+        QueryModel module = moduleCache.loadModule("/a.ql", finder);
+        assert moduleCache.loadModule("/a.ql", finder) == module;
+        assert moduleCache.getHitCount() == 1;
+        //
+        finder.resources.put("/a.ql", "return 3;");
+        assert moduleCache.loadModule("/a.ql", finder) != module;
+        assert moduleCache.getMissCount() == 2;
+        //
+        try {
+            moduleCache.loadModule("/b.ql", finder);
+            assert false;
+        } catch (NullPointerException e) {
+            assert e.getMessage().equals("import resource '/b.ql' not found.");
+        }
+    }
+
+    @Test
+    public void compiler_1_Test() throws Exception {
+        String resourceName = "/" + UUID.randomUUID() + ".ql";
+        MemoryFinder finder = new MemoryFinder();
+        finder.resources.put(resourceName, "return (a) -> { return a * 2; };");
+        finder.stamps.put(resourceName, 1L);
+        String queryString = "import @'" + resourceName + "' as m; return m()(21);";
+        //
+        for (int i = 0; i < 3; i++) {
+            Object data = QueryHelper.createQuery(queryString, finder).execute().getData();
+            assert ((ValueModel) data).asInt() == 42;
+        }
+        assert finder.cache.getHitCount() == 2;
+        assert finder.readCount == 1;
+        //
+        finder.resources.put(resourceName, "return (a) -> { return a * 3; };");
+        finder.stamps.put(resourceName, 2L);
+        Object data = QueryHelper.createQuery(queryString, finder).execute().getData();
+        assert ((ValueModel) data).asInt() == 63;
+    }
+
+    @Test
+    public void compiler_2_Test() throws Exception {
+        // .Finder 不提供缓存时每次编译都重新读取
+        MemoryFinder finder = new MemoryFinder() {
+            @Override
+            public ImportModuleCache importModuleCache() {
+                return null;
+            }
+        };
+        finder.resources.put("/a.ql", "return 5;");
+        finder.stamps.put("/a.ql", 1L);
+        for (int i = 0; i < 2; i++) {
+            Object data = QueryHelper.createQuery("import @'/a.ql' as m; return m();", finder).execute().getData();
+            assert ((ValueModel) data).asInt() == 5;
+        }
+        assert finder.readCount == 2;
+    }
+
+    @Test
+    public void url_1_Test() throws Exception {
+        // .同名资源位于不同位置时是不同的模块
+        ImportModuleCache moduleCache = new ImportModuleCache(16);
+        MemoryFinder finderA = new MemoryFinder();
+        finderA.resources.put("/a.ql", "return 1;");
+        finderA.stamps.put("/a.ql", 100L);
+        finderA.urls.put("/a.ql", new URL("http://a/a.ql"));
+        MemoryFinder finderB = new MemoryFinder();
+        finderB.resources.put("/a.ql", "return 2;");
+        finderB.stamps.put("/a.ql", 100L);
+        finderB.urls.put("/a.ql", new URL("http://b/a.ql"));
+        //
+        assert moduleCache.loadModule("/a.ql", finderA).toQueryString().contains("1");
+        assert moduleCache.loadModule("/a.ql", finderB).toQueryString().contains("2");
+        assert moduleCache.loadModule("/a.ql", finderA).toQueryString().contains("1");
+        assert moduleCache.size() == 2 && moduleCache.getHitCount() == 1;
+        moduleCache.invalidate("http://a/a.ql");
+        assert moduleCache.size() == 1;
+    }
+
+    @Test
+    public void file_1_Test() throws Exception {
+        // .修改时间来自文件，修改时间相同但长度不同时重新解析
+        File file = File.createTempFile("import", ".ql");
+        try {
+            Files.write(file.toPath(), "return 1;".getBytes(StandardCharsets.UTF_8));
+            file.setLastModified(1000000000000L);
+            ImportModuleCache moduleCache = new ImportModuleCache(16);
+            MemoryFinder finder = new MemoryFinder();
+            finder.resources.put("/f.ql", "return 1;");
+            finder.urls.put("/f.ql", file.toURI().toURL());
+            //
+            QueryModel module = moduleCache.loadModule("/f.ql", finder);
+            assert moduleCache.loadModule("/f.ql", finder) == module;
+            assert finder.readCount == 1;
+            //
+            Files.write(file.toPath(), "return 100;".getBytes(StandardCharsets.UTF_8));
+            finder.resources.put("/f.ql", "return 100;");
+            file.setLastModified(1000000000000L);
+            QueryModel newModule = moduleCache.loadModule("/f.ql", finder);
+            assert newModule != module && newModule.toQueryString().contains("100");
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package net.hasor.dataql.compiler;
+import net.hasor.dataql.parser.ParserMode;
+import net.hasor.dataql.runtime.QueryHelper;
+import org.antlr.v4.runtime.CharStreams;
+
+import java.util.List;
+
+/**
+ * 对测试语料做解析的微基准：比较 LL 与 SLL_LL 两种模式的平均耗时。
+ * 不属于单元测试（surefire 不会执行），需要时手动运行 main 方法。
+ */
+public class ParserModeBenchmark {
+    public static void main(String[] args) throws Exception {
+        List<String> corpus = new ParserModeTest().corpus();
+        int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 50;
+        ParserMode[] parserModes = { ParserMode.LL, ParserMode.SLL_LL };
+        // .预热
+        for (ParserMode parserMode : parserModes) {
+            run(corpus, parserMode, rounds);
+        }
+        for (ParserMode parserMode : parserModes) {
+            long costMicros = run(corpus, parserMode, rounds);
+            System.out.println("parser mode " + parserMode + " avg " + costMicros + "us per query.");
+        }
+    }
+
+    private static long run(List<String> corpus, ParserMode parserMode, int rounds) throws Exception {
+        long startTime = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (String query : corpus) {
+                QueryHelper.queryParser(CharStreams.fromString(query), parserMode);
+            }
+        }
+        return (System.nanoTime() - startTime) / 1000 / ((long) rounds * corpus.size());
+    }
+}
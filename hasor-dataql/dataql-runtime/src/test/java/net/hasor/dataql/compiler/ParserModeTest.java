@@ -0,0 +1,76 @@
+package net.hasor.dataql.compiler;
+import net.hasor.dataql.AbstractTestResource;
+import net.hasor.dataql.parser.ParserMetrics;
+import net.hasor.dataql.parser.ParserMode;
+import net.hasor.dataql.parser.QueryParseException;
+import net.hasor.dataql.runtime.QueryHelper;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ParserModeTest extends AbstractTestResource {
+    List<String> corpus() throws Exception {
+        File corpusDir = new File(getClass().getResource("/net_hasor_dataql_ast").toURI());
+        String[] caseNames = corpusDir.list();
+        Arrays.sort(caseNames);
+        List<String> queryList = new ArrayList<>();
+        for (String caseName : caseNames) {
+            if (new File(corpusDir, caseName + "/ast.ql").exists()) {
+                queryList.add(getScript("/net_hasor_dataql_ast/" + caseName + "/ast.ql"));
+            }
+        }
+        return queryList;
+    }
+
+    private static String parse(String query, ParserMode parserMode) throws Exception {
+        return QueryHelper.queryParser(CharStreams.fromString(query), parserMode).toQueryString();
+    }
+
+    private static String parseError(String query, ParserMode parserMode) {
+        try {
+            QueryHelper.queryParser(CharStreams.fromString(query), parserMode);
+            return null;
+        } catch (QueryParseException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Test
+    public void sameResult_1_Test() throws Exception {
+        List<String> corpus = corpus();
+        assert corpus.size() > 30;
+        for (String query : corpus) {
+            assert parse(query, ParserMode.LL).equals(parse(query, ParserMode.SLL_LL));
+        }
+    }
+
+    @Test
+    public void sameError_1_Test() {
+        String[] badQueries = { "return ${a} -1", "var a = ;", "return [1, 2", "if (a) return 1 else" };
+        for (String query : badQueries) {
+            String llError = parseError(query, ParserMode.LL);
+            assert llError != null;
+            assert llError.equals(parseError(query, ParserMode.SLL_LL));
+        }
+    }
+
+    @Test
+    public void metrics_1_Test() throws Exception {
+        // .统计数据是进程级的，其它线程可能同时在解析，因此只检查增量的下限
+        long parseCount = ParserMetrics.getParseCount();
+        long sllSuccessCount = ParserMetrics.getSllSuccessCount();
+        long llParseCount = ParserMetrics.getLlParseCount();
+        long parseNanos = ParserMetrics.getParseNanos();
+        parse("return 1 + 2;", ParserMode.SLL_LL);
+        parse("return 1 + 2;", ParserMode.LL);
+        parseError("var a = ;", ParserMode.SLL_LL);
+        assert ParserMetrics.getParseCount() - parseCount >= 3;
+        assert ParserMetrics.getSllSuccessCount() - sllSuccessCount >= 1;
+        assert ParserMetrics.getLlParseCount() - llParseCount >= 2;
+        assert ParserMetrics.getParseNanos() - parseNanos > 0;
+    }
+}
@@ -0,0 +1,116 @@
+package net.hasor.dataql.domain;
+import net.hasor.dataql.AbstractTestResource;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.runtime.QueryHelper;
+import org.junit.Test;
+
+import java.util.*;
+
+public class ShapedObjectTest extends AbstractTestResource {
+    @Test
+    public void shape_1_Test() {
+        ObjectShape rootShape = ObjectShape.newRoot();
+        ObjectModel obj1 = DomainHelper.newObject(rootShape);
+        ObjectModel obj2 = DomainHelper.newObject(rootShape);
+        for (ObjectModel obj : Arrays.asList(obj1, obj2)) {
+            obj.put("id", 1);
+            obj.put("name", "abc");
+        }
+        obj2.put("id", 2);
+        assert obj1.isShaped() && obj2.isShaped();
+        assert ((ShapedDataMap) obj1.asOri()).getShape() == ((ShapedDataMap) obj2.asOri()).getShape();
+        assert obj1.getValue("id").asInt() == 1 && obj2.getValue("id").asInt() == 2;
+        assert obj2.fieldNames().equals(Arrays.asList("id", "name"));
+        assert obj2.unwrap().toString().equals("{id=2, name=abc}");
+        //
+        // .Key 序列不同时使用 shape 树的另一个分支
+        ObjectModel obj3 = DomainHelper.newObject(rootShape);
+        obj3.put("name", "x");
+        obj3.put("id", 3);
+        assert obj3.isShaped();
+        assert obj3.fieldNames().equals(Arrays.asList("name", "id"));
+    }
+
+    @Test
+    public void fallback_1_Test() {
+        ObjectModel obj = DomainHelper.newObject(ObjectShape.newRoot());
+        obj.put("a", 1);
+        obj.put("b", 2);
+        obj.put("c", 3);
+        obj.asOri().remove("b");
+        assert !obj.isShaped();
+        assert obj.fieldNames().equals(Arrays.asList("a", "c"));
+        obj.put("d", 4);
+        assert obj.unwrap().toString().equals("{a=1, c=3, d=4}");
+        //
+        ObjectModel bigObj = DomainHelper.newObject(ObjectShape.newRoot());
+        for (int i = 0; i < ObjectShape.MAX_FIELDS + 10; i++) {
+            bigObj.put("k" + i, i);
+        }
+        assert !bigObj.isShaped();
+        assert bigObj.size() == ObjectShape.MAX_FIELDS + 10;
+        assert bigObj.getValue("k70").asInt() == 70;
+        assert bigObj.fieldNames().get(0).equals("k0");
+    }
+
+    @Test
+    public void fallback_2_Test() {
+        // .通过迭代器删除
+        ObjectModel obj = DomainHelper.newObject(ObjectShape.newRoot());
+        obj.put("a", 1);
+        obj.put("b", 2);
+        obj.put("c", 3);
+        obj.put("d", 4);
+        Iterator<Map.Entry<String, DataModel>> iterator = obj.asOri().entrySet().iterator();
+        List<String> visited = new ArrayList<>();
+        while (iterator.hasNext()) {
+            Map.Entry<String, DataModel> entry = iterator.next();
+            visited.add(entry.getKey());
+            if (entry.getKey().equals("b") || entry.getKey().equals("c")) {
+                iterator.remove();
+            }
+        }
+        assert visited.equals(Arrays.asList("a", "b", "c", "d"));
+        assert !obj.isShaped();
+        assert obj.fieldNames().equals(Arrays.asList("a", "d"));
+        //
+        ObjectModel obj2 = DomainHelper.newObject(ObjectShape.newRoot());
+        obj2.put("a", 1);
+        obj2.put("b", 2);
+        obj2.put("c", 3);
+        assert obj2.asOri().keySet().remove("a");
+        assert obj2.asOri().values().remove(obj2.getValue("c"));
+        obj2.put("d", 4);
+        obj2.asOri().entrySet().removeIf(entry -> entry.getKey().equals("d"));
+        assert obj2.fieldNames().equals(Collections.singletonList("b"));
+    }
+
+    @Test
+    public void fallback_3_Test() {
+        // .null Key 与 LinkedHashMap 一样可以放入
+        ObjectModel obj = DomainHelper.newObject(ObjectShape.newRoot());
+        obj.put("a", 1);
+        obj.asOri().put(null, DomainHelper.convertTo(2));
+        assert !obj.isShaped();
+        assert obj.asOri().get(null).unwrap().equals(2);
+        assert new ArrayList<>(obj.asOri().keySet()).equals(Arrays.asList("a", null));
+        assert ObjectShape.newRoot().transition(null) == null;
+    }
+
+    @Test
+    public void query_1_Test() throws Exception {
+        List<Integer> dataList = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            dataList.add(i);
+        }
+        ListModel listModel = (ListModel) QueryHelper.createQuery("return ${list} => [ { 'id' : #, 'name' : 'n' + #, 'sub' : { 'v' : # } } ]", new Finder() {
+        }).execute(Collections.singletonMap("list", dataList)).getData();
+        ObjectModel first = listModel.getObject(0);
+        ObjectModel last = listModel.getObject(99);
+        assert first.isShaped() && last.isShaped();
+        assert ((ShapedDataMap) first.asOri()).getShape() == ((ShapedDataMap) last.asOri()).getShape();
+        assert last.getValue("name").asString().equals("n99");
+        assert last.getObject("sub").getValue("v").asInt() == 99;
+        assert last.unwrap().keySet().equals(new LinkedHashSet<>(Arrays.asList("id", "name", "sub")));
+    }
+}
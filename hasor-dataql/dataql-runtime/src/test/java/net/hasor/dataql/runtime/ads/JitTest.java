@@ -0,0 +1,105 @@
+package net.hasor.dataql.runtime.ads;
+import com.alibaba.fastjson.JSON;
+import net.hasor.core.Hasor;
+import net.hasor.dataql.*;
+import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.runtime.QueryHelper;
+import net.hasor.dataql.runtime.QueryRuntimeException;
+import net.hasor.dataql.runtime.jit.CompiledBlock;
+import net.hasor.dataql.runtime.jit.QilJit;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+
+public class JitTest extends AbstractTestResource implements HintValue {
+    private DataQL dataQL = Hasor.create().build().getInstance(DataQL.class);
+
+    private void queryTest(String testCase) throws IOException {
+        Query query = this.dataQL.createQuery(getScript("/net_hasor_dataql_adv/" + testCase + ".ql"));
+        query.setHint(JIT_THRESHOLD, 1);
+        String queryResult = getScript("/net_hasor_dataql_adv/" + testCase + ".result");
+        // 第一次执行时完成编译，之后的执行都使用字节码
+        for (int i = 0; i < 3; i++) {
+            Object unwrap = query.execute().getData().unwrap();
+            String jsonData = JSON.toJSONString(unwrap, true);
+            assert jsonData.trim().equals(queryResult.trim());
+        }
+    }
+
+    @Test
+    public void jit_corpus_test() throws IOException {
+        String[] testCases = { "basic_fmt", "multi_dimensional", "hints", "special_a", "special_b", "special_c", "special_tree" };
+        for (String testCase : testCases) {
+            queryTest(testCase);
+        }
+    }
+
+    @Test
+    public void jit_branch_test() throws IOException {
+        String qlString = "" +//
+                "var fib = (n) -> { if (n < 2) return n; else return fib(n - 1) + fib(n - 2); };" +//
+                "var data = [1,2,3,4,5,6,7,8,9,10];" +//
+                "return data => [ fib(#) ];";
+        Query query = this.dataQL.createQuery(qlString);
+        Object expect = query.clone().execute().getData().unwrap();
+        query.setHint(JIT_THRESHOLD, 2);
+        for (int i = 0; i < 3; i++) {
+            assert JSON.toJSONString(query.execute().getData().unwrap()).equals(JSON.toJSONString(expect));
+        }
+    }
+
+    @Test
+    public void jit_error_location_test() throws IOException {
+        Query query = this.dataQL.createQuery("var a = 1;\nvar b = null / a;\nreturn b;");
+        String expectMessage = null;
+        try {
+            query.execute();
+            assert false;
+        } catch (QueryRuntimeException e) {
+            expectMessage = e.getMessage();
+        }
+        query.setHint(JIT_THRESHOLD, 1);
+        try {
+            query.execute();
+            assert false;
+        } catch (QueryRuntimeException e) {
+            assert e.getMessage().equals(expectMessage);
+        }
+    }
+
+    @Test
+    public void jit_object_test() throws IOException {
+        String qlString = "" +//
+                "hint MIN_DECIMAL_WIDTH = 'big';" +//
+                "var data = [1,2,3,4,5];" +//
+                "var obj = { 'sum' : 1 + 2 * 3, 'div' : 7 / 2, 'zero' : 1 / 0, 'str' : 'a' + 'b', 'num' : 1.5 };" +//
+                "return { 'obj' : obj, 'list' : data => [ { 'v' : # * 2 - 1, 'arr' : [#, # + 0.5] } ] };";
+        Query query = this.dataQL.createQuery(qlString);
+        String expect = JSON.toJSONString(query.clone().execute().getData().unwrap());
+        query.setHint(JIT_THRESHOLD, 1);
+        for (int i = 0; i < 3; i++) {
+            assert JSON.toJSONString(query.execute().getData().unwrap()).equals(expect);
+        }
+    }
+
+    private static WeakReference<?>[] compileAndDrop() throws IOException {
+        QIL qil = QueryHelper.queryCompiler("var a = 1 + 2; return { 'a' : a };", Finder.DEFAULT);
+        CompiledBlock compiledBlock = QilJit.of(qil).findCompiledBlock(qil, 0, 1);
+        assert compiledBlock != null;
+        return new WeakReference<?>[] { new WeakReference<>(qil), new WeakReference<>(compiledBlock.getClass().getClassLoader()) };
+    }
+
+    @Test
+    public void jit_unload_test() throws Exception {
+        WeakReference<?>[] refs = compileAndDrop();
+        QIL otherQil = QueryHelper.queryCompiler("return 1;", Finder.DEFAULT);
+        for (int i = 0; i < 50 && (refs[0].get() != null || refs[1].get() != null); i++) {
+            System.gc();
+            Thread.sleep(20);
+            QilJit.of(otherQil); // 清理弱引用表中已失效的条目
+        }
+        assert refs[0].get() == null;  // QIL 不被 QilJit 引用
+        assert refs[1].get() == null;  // 字节码类的 ClassLoader 随 QilJit 一起回收
+    }
+}
@@ -0,0 +1,146 @@
+package net.hasor.dataql.runtime.basic;
+import net.hasor.dataql.*;
+import net.hasor.dataql.domain.ListModel;
+import net.hasor.dataql.domain.ObjectModel;
+import net.hasor.dataql.runtime.QueryHelper;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchCallTest extends AbstractTestResource {
+    private static class ChildrenUdf implements BatchUdf {
+        private final AtomicInteger callCount  = new AtomicInteger();
+        private final AtomicInteger batchCount = new AtomicInteger();
+
+        @Override
+        public Object call(Hints readOnly, Object... params) {
+            this.callCount.incrementAndGet();
+            return children(params[0]);
+        }
+
+        @Override
+        public List<Object> batchCall(Hints readOnly, List<Object[]> paramsList) {
+            this.batchCount.incrementAndGet();
+            List<Object> resultList = new ArrayList<>();
+            for (Object[] params : paramsList) {
+                resultList.add(children(params[0]));
+            }
+            return resultList;
+        }
+
+        private static List<String> children(Object parentId) {
+            return Arrays.asList(parentId + "_a", parentId + "_b");
+        }
+    }
+
+    private static class CountFragment implements FragmentProcess {
+        private final AtomicInteger runCount   = new AtomicInteger();
+        private final AtomicInteger batchCount = new AtomicInteger();
+
+        @Override
+        public List<Object> batchRunFragment(Hints hint, List<Map<String, Object>> params, String fragmentString) throws Throwable {
+            this.batchCount.incrementAndGet();
+            return FragmentProcess.super.batchRunFragment(hint, params, fragmentString);
+        }
+
+        @Override
+        public Object runFragment(Hints hint, Map<String, Object> params, String fragmentString) {
+            this.runCount.incrementAndGet();
+            return fragmentString.trim() + ":" + params.get("id");
+        }
+    }
+
+    private static List<Integer> parentList(int size) {
+        List<Integer> parentList = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            parentList.add(i);
+        }
+        return parentList;
+    }
+
+    private static ListModel query(String queryString, ChildrenUdf udf, CountFragment fragment) throws Exception {
+        Query query = QueryHelper.createQuery(queryString, new Finder() {
+            @Override
+            public FragmentProcess findFragmentProcess(String fragmentType) {
+                return fragment;
+            }
+        });
+        Map<String, Object> envData = new HashMap<>();
+        envData.put("loadChildren", udf);
+        envData.put("parentList", parentList(100));
+        return (ListModel) query.execute(envData).getData();
+    }
+
+    @Test
+    public void batchUdf_1_Test() throws Exception {
+        ChildrenUdf udf = new ChildrenUdf();
+        String queryString = "hint AUTO_BATCH_CALL = true; return ${parentList} => [ { 'id' : #, 'children' : ${loadChildren}(#) } ]";
+        ListModel result = query(queryString, udf, null);
+        //
+        assert udf.batchCount.get() == 1;
+        assert udf.callCount.get() == 0;
+        assert result.size() == 100;
+        for (int i = 0; i < 100; i++) {
+            ObjectModel item = result.getObject(i);
+            assert item.getValue("id").asInt() == i;
+            assert item.getList("children").getValue(1).asString().equals(i + "_b");
+        }
+    }
+
+    @Test
+    public void batchUdf_2_Test() throws Exception {
+        ChildrenUdf udf = new ChildrenUdf();
+        String queryString = "hint AUTO_BATCH_CALL = true; var data = ${parentList} => [ ${loadChildren}(#) ]; return data => [ #[0] ]";
+        ListModel result = query(queryString, udf, null);
+        //
+        assert udf.batchCount.get() == 1;
+        assert result.size() == 100;
+        assert result.getValue(7).asString().equals("7_a");
+    }
+
+    @Test
+    public void batchUdf_3_Test() throws Exception {
+        ChildrenUdf udf = new ChildrenUdf();
+        String queryString = "hint AUTO_BATCH_CALL = false; return ${parentList} => [ { 'children' : ${loadChildren}(#) } ]";
+        ListModel result = query(queryString, udf, null);
+        //
+        assert udf.batchCount.get() == 0;
+        assert udf.callCount.get() == 100;
+        assert result.getObject(3).getList("children").getValue(0).asString().equals("3_a");
+    }
+
+    @Test
+    public void batchUdf_5_Test() throws Exception {
+        // .默认不合并调用，保持逐个调用的执行顺序
+        ChildrenUdf udf = new ChildrenUdf();
+        String queryString = "return ${parentList} => [ { 'children' : ${loadChildren}(#) } ]";
+        ListModel result = query(queryString, udf, null);
+        //
+        assert udf.batchCount.get() == 0;
+        assert udf.callCount.get() == 100;
+        assert result.getObject(5).getList("children").getValue(1).asString().equals("5_b");
+    }
+
+    @Test
+    public void batchUdf_4_Test() throws Exception {
+        ChildrenUdf udf = new ChildrenUdf();
+        String queryString = "hint AUTO_BATCH_CALL = true; return ${parentList} => [ ${loadChildren}(#)[1] ]";
+        ListModel result = query(queryString, udf, null);
+        //
+        assert udf.batchCount.get() == 0;
+        assert udf.callCount.get() == 100;
+        assert result.getValue(3).asString().equals("3_b");
+    }
+
+    @Test
+    public void batchFragment_1_Test() throws Exception {
+        CountFragment fragment = new CountFragment();
+        String queryString = "hint AUTO_BATCH_CALL = true; var f = @@test(id) <% frag %>; return ${parentList} => [ { 'id' : #, 'data' : f(#) } ]";
+        ListModel result = query(queryString, null, fragment);
+        //
+        assert fragment.batchCount.get() == 1;
+        assert fragment.runCount.get() == 100;
+        assert result.getObject(42).getValue("data").asString().equals("frag:42");
+    }
+}
@@ -0,0 +1,170 @@
+package net.hasor.dataql.runtime.basic;
+import net.hasor.dataql.AbstractTestResource;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.Query;
+import net.hasor.dataql.QueryResult;
+import net.hasor.dataql.Udf;
+import net.hasor.dataql.domain.DataCursor;
+import net.hasor.dataql.domain.ListModel;
+import net.hasor.dataql.domain.ObjectModel;
+import net.hasor.dataql.domain.ValueModel;
+import net.hasor.dataql.runtime.QueryHelper;
+import net.hasor.dataql.runtime.QueryRuntimeException;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.*;
+
+public class CursorListTest extends AbstractTestResource {
+    private static class RowCursor implements DataCursor {
+        private final int     rowCount;
+        private       int     readCount;
+        private       boolean closed;
+
+        public RowCursor(int rowCount) {
+            this.rowCount = rowCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            assert !this.closed;
+            return this.readCount < this.rowCount;
+        }
+
+        @Override
+        public Object next() {
+            assert !this.closed;
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", this.readCount);
+            row.put("name", "row_" + this.readCount);
+            this.readCount++;
+            return row;
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+    }
+
+    private static QueryResult query(String queryString, RowCursor cursor) throws Exception {
+        Query query = QueryHelper.createQuery(queryString, new Finder() {
+        });
+        Map<String, Object> envData = new HashMap<>();
+        envData.put("loadRows", (Udf) (readOnly, params) -> cursor);
+        envData.put("loadMap", (Udf) (readOnly, params) -> Collections.singletonMap("rows", cursor));
+        return query.execute(envData);
+    }
+
+    @Test
+    public void cursor_1_Test() throws Exception {
+        RowCursor cursor = new RowCursor(1000);
+        QueryResult result = query("return ${loadRows}() => [ #.id ]", cursor);
+        //
+        ListModel listModel = (ListModel) result.getData();
+        assert listModel.size() == 1000;
+        assert listModel.getValue(999).asInt() == 999;
+        assert cursor.readCount == 1000;
+        assert cursor.closed;
+    }
+
+    @Test
+    public void cursor_2_Test() throws Exception {
+        RowCursor cursor = new RowCursor(3);
+        QueryResult result = query("return ${loadRows}()", cursor);
+        //
+        ListModel listModel = (ListModel) result.getData();
+        assert listModel.isCursor();
+        assert cursor.readCount == 0 && !cursor.closed;
+        //
+        StringWriter writer = new StringWriter();
+        result.writeTo(writer);
+        assert writer.toString().equals("[{\"id\":0,\"name\":\"row_0\"},{\"id\":1,\"name\":\"row_1\"},{\"id\":2,\"name\":\"row_2\"}]");
+        assert cursor.closed;
+    }
+
+    @Test
+    public void cursor_3_Test() throws Exception {
+        RowCursor cursor = new RowCursor(10);
+        QueryResult result = query("var rows = ${loadRows}(); return 123", cursor);
+        //
+        assert ((ValueModel) result.getData()).asInt() == 123;
+        assert cursor.readCount == 0;
+        assert cursor.closed;
+    }
+
+    @Test
+    public void cursor_4_Test() throws Exception {
+        RowCursor cursor = new RowCursor(10);
+        QueryResult result = query("var rows = ${loadRows}(); return rows[2].name", cursor);
+        //
+        assert result.getData().unwrap().equals("row_2");
+        assert cursor.readCount == 10;
+        assert cursor.closed;
+    }
+
+    @Test
+    public void cursor_5_Test() throws Exception {
+        RowCursor cursor = new RowCursor(10);
+        try {
+            query("var rows = ${loadRows}(); var a = rows => [ # ]; return rows => [ # ]", cursor);
+            assert false;
+        } catch (QueryRuntimeException e) {
+            assert e.getMessage().contains("cursor has been consumed");
+        }
+        assert cursor.closed;
+    }
+
+    @Test
+    public void cursor_6_Test() throws Exception {
+        RowCursor cursor = new RowCursor(10);
+        try (QueryResult result = query("return { 'data' : ${loadRows}() }", cursor)) {
+            assert !cursor.closed;
+            assert result.getData() != null;
+        }
+        assert cursor.readCount == 0;
+        assert cursor.closed;
+    }
+
+    @Test
+    public void cursor_7_Test() throws Exception {
+        // .嵌套在结果深处的游标在 QueryResult.close 之前保持打开
+        RowCursor cursor = new RowCursor(2);
+        try (QueryResult result = query("return { 'a' : { 'b' : [ ${loadRows}() ] } }", cursor)) {
+            assert !cursor.closed;
+            StringWriter writer = new StringWriter();
+            result.writeTo(writer);
+            assert writer.toString().equals("{\"a\":{\"b\":[[{\"id\":0,\"name\":\"row_0\"},{\"id\":1,\"name\":\"row_1\"}]]}}");
+        }
+        assert cursor.closed;
+    }
+
+    @Test
+    public void cursor_8_Test() throws Exception {
+        // .转换 UDF 返回的 Map 时创建的游标同样会被登记
+        RowCursor cursor = new RowCursor(10);
+        QueryResult result = query("var data = ${loadMap}(); return 123", cursor);
+        assert ((ValueModel) result.getData()).asInt() == 123;
+        assert cursor.readCount == 0 && cursor.closed;
+        //
+        cursor = new RowCursor(10);
+        try (QueryResult mapResult = query("return ${loadMap}()", cursor)) {
+            assert !cursor.closed;
+            assert mapResult.getData() != null;
+        }
+        assert cursor.closed;
+    }
+
+    @Test
+    public void cursor_9_Test() throws Exception {
+        // .延迟转换模式下查询结束之后才转换出来的游标由 QueryResult.close 关闭
+        RowCursor cursor = new RowCursor(10);
+        try (QueryResult result = query("hint LAZY_DATA_MODEL = true; return ${loadMap}()", cursor)) {
+            ObjectModel objectModel = (ObjectModel) result.getData();
+            assert objectModel.isLazy();
+            assert ((ListModel) objectModel.get("rows")).isCursor();
+            assert !cursor.closed;
+        }
+        assert cursor.readCount == 0 && cursor.closed;
+    }
+}
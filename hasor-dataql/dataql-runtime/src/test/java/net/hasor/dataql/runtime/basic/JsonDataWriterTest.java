@@ -0,0 +1,77 @@
+package net.hasor.dataql.runtime.basic;
+import net.hasor.dataql.AbstractTestResource;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.QueryResult;
+import net.hasor.dataql.domain.DomainHelper;
+import net.hasor.dataql.domain.JsonDataWriter;
+import net.hasor.dataql.runtime.QueryHelper;
+import net.hasor.utils.json.JSON;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class JsonDataWriterTest extends AbstractTestResource {
+    private static class CountWriter extends StringWriter {
+        private int flushCount;
+
+        @Override
+        public void flush() {
+            this.flushCount++;
+            super.flush();
+        }
+    }
+
+    private static QueryResult query(String queryString) throws Exception {
+        return QueryHelper.createQuery(queryString, new Finder() {
+        }).execute();
+    }
+
+    @Test
+    public void writeResult_1_Test() throws Exception {
+        QueryResult result = query("var a = [1, 2.5, true, null, 'a\"b\\n']; return { 'list' : a, 'obj' : { 'k' : 'v' }, 'f' : () -> { return 1; } };");
+        StringWriter writer = new StringWriter();
+        result.writeTo(writer);
+        assert writer.toString().equals("{\"list\":[1,2.5,true,null,\"a\\\"b\\\\n\"],\"obj\":{\"k\":\"v\"},\"f\":null}");
+        //
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        query("return '中文';").writeTo(outputStream);
+        assert new String(outputStream.toByteArray(), StandardCharsets.UTF_8).equals("\"中文\"");
+    }
+
+    @Test
+    public void writeResult_3_Test() throws Exception {
+        List<Object> source = Arrays.asList(Double.NaN, Double.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, 1.5d, 2.5f);
+        StringWriter writer = new StringWriter();
+        new JsonDataWriter(writer).write(DomainHelper.convertTo(source));
+        assert writer.toString().equals("[null,null,null,1.5,2.5]");
+        //
+        StringWriter queryWriter = new StringWriter();
+        query("return { 'a' : 1 / 0, 'b' : -1 / 0 };").writeTo(queryWriter);
+        assert queryWriter.toString().equals("{\"a\":null,\"b\":null}");
+    }
+
+    @Test
+    public void writeResult_2_Test() throws Exception {
+        List<Object> source = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", i);
+            item.put("name", "n" + i);
+            item.put("time", new Date(i));
+            source.add(item);
+        }
+        String expect = JSON.toString(DomainHelper.convertTo(source).unwrap());
+        //
+        StringWriter eagerWriter = new StringWriter();
+        new JsonDataWriter(eagerWriter).write(DomainHelper.convertTo(source));
+        assert eagerWriter.toString().equals(expect);
+        //
+        CountWriter lazyWriter = new CountWriter();
+        new JsonDataWriter(lazyWriter, 100).write(DomainHelper.convertTo(source, true));
+        assert lazyWriter.toString().equals(expect);
+        assert lazyWriter.flushCount == 11;
+    }
+}
@@ -90,4 +90,35 @@ public class LambdaRuntimeTest extends AbstractTestResource implements HintValue
         assert dat.isValue();
         assert ((ValueModel) dat).asInt() == 10;
     }
+
+    @Test
+    public void lambdaFrame_1_Test() throws Exception {
+        // .递归调用时每一层使用各自的调用帧
+        Query compilerQL = compilerQL("var fib = (n) -> { if (n < 2) return n; else return fib(n - 1) + fib(n - 2); }; return [fib(10), fib(11)]");
+        ListModel dataModel = (ListModel) compilerQL.execute().getData();
+        assert dataModel.getValue(0).asInt() == 55;
+        assert dataModel.getValue(1).asInt() == 89;
+    }
+
+    @Test
+    public void lambdaFrame_2_Test() throws Exception {
+        // .创建闭包的 Lambda 不复用调用帧，闭包引用的堆不会被下一次调用覆盖
+        Query compilerQL = compilerQL("var mk = (a) -> { var b = a * 10; return () -> { return a + b; }; }; var f1 = mk(1); var f2 = mk(2); return [f1(), f2(), f1()]");
+        ListModel dataModel = (ListModel) compilerQL.execute().getData();
+        assert dataModel.getValue(0).asInt() == 11;
+        assert dataModel.getValue(1).asInt() == 22;
+        assert dataModel.getValue(2).asInt() == 11;
+    }
+
+    @Test
+    public void lambdaFrame_3_Test() throws Exception {
+        // .调用帧复用时，上一次调用的变量不会残留
+        Query compilerQL = compilerQL("var foo = (a) -> { var b = (a == 1) ? 'one' : null; return [a, b]; }; var data = [1, 2, 1, 3]; return data => [ foo(#) ]");
+        ListModel dataModel = (ListModel) compilerQL.execute().getData();
+        assert dataModel.size() == 4;
+        assert ((ListModel) dataModel.get(0)).getValue(1).asString().equals("one");
+        assert ((ListModel) dataModel.get(1)).getValue(1).isNull();
+        assert ((ListModel) dataModel.get(2)).getValue(1).asString().equals("one");
+        assert ((ListModel) dataModel.get(3)).getValue(0).asInt() == 3;
+    }
 }
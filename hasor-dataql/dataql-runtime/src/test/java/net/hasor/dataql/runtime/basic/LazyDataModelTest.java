@@ -0,0 +1,132 @@
+package net.hasor.dataql.runtime.basic;
+import net.hasor.dataql.AbstractTestResource;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.Query;
+import net.hasor.dataql.UdfSourceAssembly;
+import net.hasor.dataql.domain.*;
+import net.hasor.dataql.runtime.QueryHelper;
+import org.junit.Test;
+
+import java.util.*;
+
+public class LazyDataModelTest extends AbstractTestResource {
+    public static class DataUdf implements UdfSourceAssembly {
+        public static final Map<String, Object> DATA = new LinkedHashMap<>();
+
+        static {
+            for (int i = 0; i < 1000; i++) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("id", i);
+                item.put("tags", Arrays.asList("a" + i, "b" + i));
+                DATA.put("field_" + i, item);
+            }
+        }
+
+        public Map<String, Object> data() {
+            return DATA;
+        }
+    }
+
+    private static Object queryData(String queryString) throws Exception {
+        Query query = QueryHelper.createQuery(queryString, new Finder() {
+        });
+        return query.execute().getData();
+    }
+
+    @Test
+    public void lazyQuery_1_Test() throws Exception {
+        String body = "import '" + DataUdf.class.getName() + "' as d; var m = d.data(); return m.field_7.tags[1] + '_' + m.field_999.id;";
+        Object lazyData = queryData("hint LAZY_DATA_MODEL = true; " + body);
+        Object eagerData = queryData(body);
+        assert ((ValueModel) lazyData).asString().equals("b7_999");
+        assert ((ValueModel) eagerData).asString().equals("b7_999");
+    }
+
+    @Test
+    public void lazyQuery_2_Test() throws Exception {
+        String body = "import '" + DataUdf.class.getName() + "' as d; return d.data();";
+        DataModel lazyData = (DataModel) queryData("hint LAZY_DATA_MODEL = true; " + body);
+        DataModel eagerData = (DataModel) queryData(body);
+        assert lazyData instanceof ObjectModel && ((ObjectModel) lazyData).isLazy();
+        assert eagerData instanceof ObjectModel && !((ObjectModel) eagerData).isLazy();
+        assert lazyData.unwrap() == DataUdf.DATA;
+        assert lazyData.unwrap().equals(eagerData.unwrap());
+    }
+
+    @Test
+    public void lazyQuery_3_Test() throws Exception {
+        String body = "import '" + DataUdf.class.getName() + "' as d; return d.data().field_3.tags => [ # ];";
+        ListModel lazyData = (ListModel) queryData("hint LAZY_DATA_MODEL = true; " + body);
+        ListModel eagerData = (ListModel) queryData(body);
+        assert lazyData.size() == 2 && eagerData.size() == 2;
+        assert lazyData.getValue(0).asString().equals("a3");
+        assert lazyData.unwrap().equals(eagerData.unwrap());
+    }
+
+    @Test
+    public void lazyModel_1_Test() {
+        Map<String, Object> source = new LinkedHashMap<>();
+        source.put("a", 1);
+        source.put("b", Arrays.asList(1, 2, 3));
+        ObjectModel objectModel = (ObjectModel) DomainHelper.convertTo(source, true);
+        assert objectModel.isLazy();
+        assert objectModel.size() == 2;
+        assert objectModel.getValue("a").asInt() == 1;
+        assert objectModel.getList("b").size() == 3;
+        assert objectModel.getList("b").isLazy();
+        assert objectModel.unwrap() == source;
+        //
+        objectModel.put("c", "abc");
+        assert !objectModel.isLazy();
+        assert objectModel.size() == 3;
+        assert !source.containsKey("c");
+        assert objectModel.unwrap().get("c").equals("abc");
+    }
+
+    @Test
+    public void lazyModel_2_Test() {
+        List<Object> source = new ArrayList<>(Arrays.asList("a", "b"));
+        ListModel listModel = (ListModel) DomainHelper.convertTo(source, true);
+        assert listModel.isLazy();
+        assert listModel.unwrap() == source;
+        assert listModel.getValue(1).asString().equals("b");
+        //
+        listModel.add("c");
+        assert !listModel.isLazy();
+        assert listModel.size() == 3;
+        assert source.size() == 2;
+    }
+
+    @Test
+    public void lazyModel_3_Test() {
+        Map<Object, Object> source = new HashMap<>();
+        source.put(null, 1);
+        source.put("a", 2);
+        source.put(3, 4);
+        ObjectModel objectModel = (ObjectModel) DomainHelper.convertTo(source, true);
+        assert objectModel.isLazy();
+        int count = 0;
+        for (Map.Entry<String, DataModel> ignored : objectModel.asOri().entrySet()) {
+            count++;
+        }
+        assert count == 2; // 忽略 null Key
+        assert objectModel.size() == count;
+        assert objectModel.asOri().entrySet().size() == count;
+    }
+
+    @Test
+    public void lazyModel_4_Test() {
+        // .实现了 RandomAccess 但不是 List 的集合
+        Set<Object> source = new RandomAccessSet(Arrays.asList("a", "b"));
+        ListModel listModel = (ListModel) DomainHelper.convertTo(source, true);
+        assert listModel.isLazy();
+        assert listModel.size() == 2;
+        assert listModel.getValue(0).asString().equals("a");
+    }
+
+    private static class RandomAccessSet extends LinkedHashSet<Object> implements RandomAccess {
+        RandomAccessSet(Collection<?> values) {
+            super(values);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package net.hasor.dataql.runtime.basic;
+import net.hasor.dataql.*;
+import net.hasor.dataql.domain.ObjectModel;
+import net.hasor.dataql.runtime.QueryHelper;
+import net.hasor.dataql.runtime.QueryLimitException;
+import net.hasor.dataql.runtime.QueryRuntimeException;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelFieldsTest extends AbstractTestResource {
+    private static final long SLEEP_TIME = 300;
+
+    private static class SlowUdf implements Udf {
+        @Override
+        public Object call(Hints readOnly, Object... params) throws Throwable {
+            Thread.sleep(SLEEP_TIME);
+            if ("error".equals(params[0])) {
+                throw new IllegalStateException("slow udf failed.");
+            }
+            return params[0] + "@" + Thread.currentThread().getName();
+        }
+    }
+
+    /** 在调用线程中执行参数中的 Lambda */
+    private static class ApplyUdf implements Udf {
+        @Override
+        public Object call(Hints readOnly, Object... params) throws Throwable {
+            Object result = ((Udf) params[1]).call(readOnly, params[0]);
+            return result + "@" + Thread.currentThread().getName();
+        }
+    }
+
+    private static class SlowFragment implements FragmentProcess {
+        @Override
+        public Object runFragment(Hints hint, Map<String, Object> params, String fragmentString) throws Throwable {
+            Thread.sleep(SLEEP_TIME);
+            return fragmentString.trim() + ":" + params.get("id");
+        }
+    }
+
+    /** 依赖当前线程的片段（例如事务中的 SQL） */
+    private static class ThreadBoundFragment implements FragmentProcess {
+        @Override
+        public Object runFragment(Hints hint, Map<String, Object> params, String fragmentString) throws Throwable {
+            return params.get("id") + "@" + Thread.currentThread().getName();
+        }
+
+        @Override
+        public boolean isThreadBound(Hints hint) {
+            return true;
+        }
+    }
+
+    private static QueryResult query(String queryString, Finder finder) throws Exception {
+        Query query = QueryHelper.createQuery(queryString, finder);
+        Map<String, Object> envData = new HashMap<>();
+        envData.put("slow", new SlowUdf());
+        envData.put("apply", new ApplyUdf());
+        return query.execute(envData);
+    }
+
+    private static Finder finder(Executor executor) {
+        return new Finder() {
+            @Override
+            public FragmentProcess findFragmentProcess(String fragmentType) {
+                return new SlowFragment();
+            }
+
+            @Override
+            public Executor parallelExecutor() {
+                return executor;
+            }
+        };
+    }
+
+    @Test
+    public void parallel_1_Test() throws Exception {
+        String queryString = "hint PARALLEL_FIELDS = true; return { 'a' : ${slow}('a'), 'b' : ${slow}('b'), 'c' : ${slow}('c') }";
+        long startTime = System.currentTimeMillis();
+        ObjectModel result = (ObjectModel) query(queryString, finder(null)).getData();
+        long costTime = System.currentTimeMillis() - startTime;
+        //
+        assert costTime < SLEEP_TIME * 2;
+        assert result.getValue("a").asString().startsWith("a@dataql-parallel-");
+        assert result.getValue("c").asString().startsWith("c@dataql-parallel-");
+    }
+
+    @Test
+    public void parallel_2_Test() throws Exception {
+        String queryString = "return { 'a' : ${slow}('a'), 'b' : ${slow}('b') }";
+        ObjectModel result = (ObjectModel) query(queryString, finder(null)).getData();
+        //
+        String threadName = Thread.currentThread().getName();
+        assert result.getValue("a").asString().equals("a@" + threadName);
+        assert result.getValue("b").asString().equals("b@" + threadName);
+    }
+
+    @Test
+    public void parallel_3_Test() throws Exception {
+        AtomicInteger taskCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Executor countExecutor = command -> {
+            taskCount.incrementAndGet();
+            executor.execute(command);
+        };
+        String queryString = "hint PARALLEL_FIELDS = true; var f = @@test(id) <% frag %>; return { 'a' : f(1), 'b' : f(2), 'c' : 3 }";
+        long startTime = System.currentTimeMillis();
+        ObjectModel result = null;
+        try {
+            result = (ObjectModel) query(queryString, finder(countExecutor)).getData();
+        } finally {
+            executor.shutdown();
+        }
+        long costTime = System.currentTimeMillis() - startTime;
+        //
+        assert costTime < SLEEP_TIME * 2;
+        assert taskCount.get() == 2;
+        assert result.getValue("a").asString().equals("frag:1");
+        assert result.getValue("b").asString().equals("frag:2");
+        assert result.getValue("c").asInt() == 3;
+    }
+
+    @Test
+    public void parallel_4_Test() throws Exception {
+        String queryString = "hint PARALLEL_FIELDS = true; return { 'a' : ${slow}('a'), 'b' : ${slow}('error') }";
+        try {
+            query(queryString, finder(null));
+            assert false;
+        } catch (QueryRuntimeException e) {
+            assert e.getMessage().contains("slow udf failed.");
+        }
+    }
+
+    @Test
+    public void parallel_5_Test() throws Exception {
+        String queryString = "hint PARALLEL_FIELDS = true; var data = { 'a' : ${slow}('a'), 'b' : ${slow}('b') }; return data.b";
+        Object result = query(queryString, finder(null)).getData().unwrap();
+        //
+        assert result.toString().startsWith("b@dataql-parallel-");
+    }
+
+    @Test
+    public void parallel_6_Test() throws Exception {
+        // .参数中含有 Lambda 的调用不会被提交到线程池（Lambda 会使用查询线程的执行上下文）
+        String queryString = "hint PARALLEL_FIELDS = true; return { 'a' : ${apply}(1, (x) -> { return x + 1; }), 'b' : ${slow}('b') }";
+        ObjectModel result = (ObjectModel) query(queryString, finder(null)).getData();
+        //
+        assert result.getValue("a").asString().equals("2@" + Thread.currentThread().getName());
+        assert result.getValue("b").asString().startsWith("b@dataql-parallel-");
+    }
+
+    @Test
+    public void parallel_7_Test() throws Exception {
+        // .依赖当前线程的片段始终在查询线程中执行
+        AtomicInteger taskCount = new AtomicInteger();
+        Finder finder = new Finder() {
+            @Override
+            public FragmentProcess findFragmentProcess(String fragmentType) {
+                return new ThreadBoundFragment();
+            }
+
+            @Override
+            public Executor parallelExecutor() {
+                return command -> {
+                    taskCount.incrementAndGet();
+                    command.run();
+                };
+            }
+        };
+        String queryString = "hint PARALLEL_FIELDS = true; var f = @@test(id) <% frag %>; return { 'a' : f(1), 'b' : f(2) }";
+        ObjectModel result = (ObjectModel) query(queryString, finder).getData();
+        //
+        assert taskCount.get() == 0;
+        assert result.getValue("a").asString().equals("1@" + Thread.currentThread().getName());
+        assert result.getValue("b").asString().equals("2@" + Thread.currentThread().getName());
+    }
+
+    @Test
+    public void parallel_8_Test() throws Exception {
+        // .等待并发调用时同样受 EXECUTION_TIMEOUT 限制
+        Query query = QueryHelper.createQuery("hint PARALLEL_FIELDS = true; return { 'a' : ${slow}('a'), 'b' : ${slow}('b') }", finder(null));
+        query.setHint(Hints.EXECUTION_TIMEOUT, 50);
+        long startTime = System.currentTimeMillis();
+        try {
+            query.execute(Collections.singletonMap("slow", new SlowUdf()));
+            assert false;
+        } catch (QueryLimitException e) {
+            assert e.getLimitName().equals(Hints.EXECUTION_TIMEOUT);
+        }
+        assert System.currentTimeMillis() - startTime < SLEEP_TIME;
+    }
+}
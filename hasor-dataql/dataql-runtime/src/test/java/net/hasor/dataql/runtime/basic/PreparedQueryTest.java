@@ -0,0 +1,73 @@
+package net.hasor.dataql.runtime.basic;
+import net.hasor.dataql.*;
+import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.domain.ListModel;
+import net.hasor.dataql.domain.ValueModel;
+import net.hasor.dataql.runtime.CompilerArguments;
+import net.hasor.dataql.runtime.HintsSet;
+import net.hasor.dataql.runtime.QueryHelper;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+public class PreparedQueryTest extends AbstractTestResource {
+    private static QIL compiler(String queryString, String... compilerVar) throws Exception {
+        CompilerArguments arguments = new CompilerArguments(new HashSet<>(Arrays.asList(compilerVar)));
+        return QueryHelper.queryCompiler(QueryHelper.queryParser(queryString), arguments, Finder.DEFAULT);
+    }
+
+    @Test
+    public void concurrent_1_Test() throws Exception {
+        QIL qil = compiler("var f = (a) -> { return a * 2; }; return ${list} => [ f(#) + ${base} ]");
+        PreparedQuery preparedQuery = QueryHelper.createPreparedQuery(qil, Finder.DEFAULT);
+        //
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futureList = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final int base = i;
+                futureList.add(executorService.submit(() -> {
+                    Map<String, Object> envData = new HashMap<>();
+                    envData.put("list", Arrays.asList(1, 2, 3));
+                    envData.put("base", base);
+                    ListModel result = (ListModel) preparedQuery.execute(envData).getData();
+                    return result.getValue(0).asInt() == base + 2 && result.getValue(2).asInt() == base + 6;
+                }));
+            }
+            for (Future<Boolean> future : futureList) {
+                assert future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void shareVar_1_Test() throws Exception {
+        QIL qil = compiler("return abc + '_' + xyz;", "abc", "xyz");
+        Map<String, Supplier<?>> shareVar = new HashMap<>();
+        shareVar.put("abc", () -> "a");
+        shareVar.put("xyz", () -> "x");
+        PreparedQuery preparedQuery = QueryHelper.createPreparedQuery(qil, Finder.DEFAULT, null, shareVar);
+        shareVar.put("abc", () -> "changed");
+        //
+        assert ((ValueModel) preparedQuery.execute().getData()).asString().equals("a_x");
+        QueryResult result = preparedQuery.execute(symbol -> Collections.emptyMap(), Collections.singletonMap("xyz", "y"));
+        assert ((ValueModel) result.getData()).asString().equals("a_y");
+        assert ((ValueModel) preparedQuery.execute().getData()).asString().equals("a_x");
+    }
+
+    @Test
+    public void hints_1_Test() throws Exception {
+        QIL qil = compiler("return 1 / 3;");
+        HintsSet hintsSet = new HintsSet();
+        hintsSet.setHint(HintValue.MAX_DECIMAL_DIGITS, 2);
+        PreparedQuery preparedQuery = QueryHelper.createPreparedQuery(qil, Finder.DEFAULT, hintsSet, null);
+        hintsSet.setHint(HintValue.MAX_DECIMAL_DIGITS, 5);
+        //
+        assert preparedQuery.getHint(HintValue.MAX_DECIMAL_DIGITS).equals(2);
+        assert ((ValueModel) preparedQuery.execute().getData()).asString().equals("0.33");
+    }
+}
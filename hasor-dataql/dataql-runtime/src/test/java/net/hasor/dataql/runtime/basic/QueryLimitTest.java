@@ -0,0 +1,83 @@
+package net.hasor.dataql.runtime.basic;
+import net.hasor.dataql.*;
+import net.hasor.dataql.domain.ListModel;
+import net.hasor.dataql.runtime.QueryHelper;
+import net.hasor.dataql.runtime.QueryLimitException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class QueryLimitTest extends AbstractTestResource implements HintValue {
+    private static final String LOOP_QUERY = "var f = (a) -> { return a + 1; }; return ${list} => [ f(#) ]";
+
+    private static Query query(String queryString) throws Exception {
+        return QueryHelper.createQuery(queryString, new Finder() {
+        });
+    }
+
+    private static List<Integer> dataList(int size) {
+        List<Integer> dataList = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            dataList.add(i);
+        }
+        return dataList;
+    }
+
+    @Test
+    public void maxInstructions_1_Test() throws Exception {
+        Query query = query(LOOP_QUERY);
+        query.setHint(MAX_INSTRUCTIONS, 1000);
+        ListModel result = (ListModel) query.execute(Collections.singletonMap("list", dataList(10))).getData();
+        assert result.size() == 10;
+        //
+        try {
+            query.execute(Collections.singletonMap("list", dataList(1000)));
+            assert false;
+        } catch (QueryLimitException e) {
+            assert e.getLimitName().equals(MAX_INSTRUCTIONS);
+            assert e.getLimitValue() == 1000;
+            assert e.getMessage().contains("QIL ");
+        }
+    }
+
+    @Test
+    public void maxInstructions_2_Test() throws Exception {
+        // .脚本中的 hint 语句不能放宽执行限制
+        Query query = query("hint MAX_INSTRUCTIONS = 0; " + LOOP_QUERY);
+        query.setHint(MAX_INSTRUCTIONS, 100);
+        try {
+            query.execute(Collections.singletonMap("list", dataList(1000)));
+            assert false;
+        } catch (QueryLimitException e) {
+            assert e.getLimitName().equals(MAX_INSTRUCTIONS);
+        }
+    }
+
+    @Test
+    public void executionTimeout_1_Test() throws Exception {
+        Query query = query("return ${list} => [ { 'id' : #, 'v' : # + 1 } ]");
+        query.setHint(EXECUTION_TIMEOUT, 1);
+        try {
+            query.execute(Collections.singletonMap("list", dataList(200000)));
+            assert false;
+        } catch (QueryLimitException e) {
+            assert e.getLimitName().equals(EXECUTION_TIMEOUT);
+        }
+    }
+
+    @Test
+    public void maxStackSize_1_Test() throws Exception {
+        Query query = query("return [1, 2, [3, 4, [5, 6, [7, 8]]]]");
+        query.setHint(MAX_STACK_SIZE, 2);
+        try {
+            query.execute();
+            assert false;
+        } catch (QueryLimitException e) {
+            assert e.getLimitName().equals(MAX_STACK_SIZE);
+        }
+        query.setHint(MAX_STACK_SIZE, 100);
+        assert ((ListModel) query.execute().getData()).size() == 3;
+    }
+}
@@ -0,0 +1,79 @@
+package net.hasor.dataql.runtime.basic;
+import net.hasor.dataql.*;
+import net.hasor.dataql.runtime.QueryHelper;
+import net.hasor.dataql.runtime.QueryProfiler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class QueryProfilerTest extends AbstractTestResource implements HintValue {
+    public static class SlowUdf implements UdfSourceAssembly {
+        public int slow(int a) throws InterruptedException {
+            Thread.sleep(2);
+            return a;
+        }
+    }
+
+    private static final String QUERY_STRING = "" + //
+            "import '" + SlowUdf.class.getName() + "' as u;\n" + //
+            "var f = (a) -> { return a + 1; };\n" + //
+            "var data = ${list} => [ f(#) ];\n" + //
+            "return u.slow(data[0]);";
+
+    private static QueryResult execute(String profilerMode) throws Exception {
+        Query query = QueryHelper.createQuery(QUERY_STRING, new Finder() {
+        });
+        query.setHint(PROFILER_MODE, profilerMode);
+        List<Integer> dataList = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            dataList.add(i);
+        }
+        return query.execute(Collections.singletonMap("list", dataList));
+    }
+
+    @Test
+    public void profilerOff_1_Test() throws Exception {
+        QueryResult result = execute(PROFILER_MODE_OFF);
+        assert result.getProfiler() == null;
+    }
+
+    @Test
+    public void profilerFull_1_Test() throws Exception {
+        QueryResult result = execute(PROFILER_MODE_FULL);
+        QueryProfiler profiler = result.getProfiler();
+        assert profiler != null && !profiler.isSampled();
+        //
+        Map<String, QueryProfiler.ProfileItem> opcodeProfile = profiler.getOpcodeProfile();
+        assert opcodeProfile.get("CALL").getCount() == 1001;
+        assert opcodeProfile.get("RETURN").getCount() == 1001;
+        //
+        Map<Integer, QueryProfiler.ProfileItem> lineProfile = profiler.getLineProfile();
+        assert lineProfile.containsKey(3) && lineProfile.containsKey(4);
+        assert lineProfile.get(4).getTotalNanos() >= 2_000_000;
+        //
+        Map<String, QueryProfiler.ProfileItem> callProfile = profiler.getCallProfile();
+        assert callProfile.get("SlowUdf.slow").getCount() == 1;
+        assert callProfile.get("SlowUdf.slow").getTotalNanos() >= 2_000_000;
+        assert callProfile.get("lambda@1").getCount() == 1000;
+    }
+
+    @Test
+    public void profilerSample_1_Test() throws Exception {
+        QueryResult result = execute(PROFILER_MODE_SAMPLE);
+        QueryProfiler profiler = result.getProfiler();
+        assert profiler != null && profiler.isSampled();
+        assert profiler.getSampleInterval() == 64;
+        //
+        long totalCount = 0;
+        for (QueryProfiler.ProfileItem item : profiler.getOpcodeProfile().values()) {
+            totalCount += item.getCount();
+            assert item.getCount() % 64 == 0;
+        }
+        assert totalCount > 10000;
+        assert profiler.getCallProfile().get("SlowUdf.slow").getCount() == 1;
+        assert result.getData().unwrap().equals(1);
+    }
+}
@@ -0,0 +1,61 @@
+package net.hasor.dataql.runtime.basic;
+import net.hasor.dataql.AbstractTestResource;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.Hints;
+import net.hasor.dataql.Query;
+import net.hasor.dataql.UdfSourceAssembly;
+import net.hasor.dataql.domain.ValueModel;
+import net.hasor.dataql.runtime.QueryHelper;
+import net.hasor.dataql.runtime.QueryRuntimeException;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class UdfLinkageTest extends AbstractTestResource {
+    public static class MathUdf implements UdfSourceAssembly {
+        public int add(int a, long b) {
+            return (int) (a + b);
+        }
+
+        public static String join(Hints hints, UdfParams params) {
+            return String.valueOf(params.allParams().length);
+        }
+
+        public void fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private static class CountFinder implements Finder {
+        private final AtomicInteger findCount = new AtomicInteger();
+
+        @Override
+        public Object findBean(Class<?> beanType) {
+            this.findCount.incrementAndGet();
+            return Finder.super.findBean(beanType);
+        }
+    }
+
+    @Test
+    public void linkOnce_1_Test() throws Exception {
+        CountFinder finder = new CountFinder();
+        String queryString = "import '" + MathUdf.class.getName() + "' as m; return m.add('1', 2) + m.join(1, 2, 3);";
+        Query query = QueryHelper.createQuery(queryString, finder);
+        for (int i = 0; i < 3; i++) {
+            assert ((ValueModel) query.execute().getData()).asString().equals("33");
+            assert ((ValueModel) query.clone().execute().getData()).asString().equals("33");
+        }
+        assert finder.findCount.get() == 1;
+    }
+
+    @Test
+    public void invokeError_1_Test() throws Exception {
+        String queryString = "import '" + MathUdf.class.getName() + "' as m; return m.fail('abc');";
+        try {
+            QueryHelper.createQuery(queryString, new CountFinder()).execute();
+            assert false;
+        } catch (QueryRuntimeException e) {
+            assert e.getMessage().contains("abc");
+        }
+    }
+}
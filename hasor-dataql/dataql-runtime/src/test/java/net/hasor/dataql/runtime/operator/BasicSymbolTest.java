@@ -594,4 +594,64 @@ public class BasicSymbolTest extends AbstractTestResource {
         assert process.doProcess(LocationUtils.unknownLocation(), ">>>", bigInts1, optionSet).equals(new BigInteger("-8"));
         assert process.doProcess(LocationUtils.unknownLocation(), ">>>", bigInts2, optionSet).equals(new BigInteger("7"));
     }
+
+    @Test
+    public void lookupCache_test() throws Exception {
+        OperatorManager manager = new OperatorManager();
+        OperatorProcess numberProcess = (location, operator, args, option) -> "number";
+        manager.registryOperator("+", Number.class, Number.class, numberProcess);
+        assert manager.findDyadicProcess("+", Integer.class, Integer.class) == numberProcess;
+        assert manager.findDyadicProcess("+", Integer.class, Integer.class) == numberProcess;
+        assert manager.findDyadicProcess("+", String.class, Integer.class) == null;
+        assert manager.findDyadicProcess("+", String.class, Integer.class) == null;
+        //
+        // .重新注册之后缓存失效
+        OperatorProcess intProcess = (location, operator, args, option) -> "int";
+        manager.registryOperator("+", Integer.class, Integer.class, intProcess);
+        assert manager.findDyadicProcess("+", Integer.class, Integer.class) == intProcess;
+        assert manager.findDyadicProcess("+", Long.class, Integer.class) == numberProcess;
+    }
+
+    @Test
+    public void primitive_test() throws Exception {
+        Object[][] dataSet = new Object[][] {//
+                { Integer.MAX_VALUE, 1 }, { -7, 3 }, { Long.MAX_VALUE, 2L }, { 12L, -5L }, { 0.1d, 0.2d }, { -1.5d, 1.5d }, { Double.NaN, 1.0d }//
+        };
+        String[] numberOps = { "+", "-", "*" };
+        String[] compareOps = { ">", ">=", "<", "<=", "==", "!=" };
+        for (Object[] data : dataSet) {
+            Number fst = (Number) data[0];
+            Number sec = (Number) data[1];
+            for (String op : numberOps) {
+                Object result = om.findDyadicProcess(op, fst.getClass(), sec.getClass()).doProcess(LocationUtils.unknownLocation(), op, data, optionSet);
+                Number expect = "+".equals(op) ? OperatorUtils.add(fst, sec) : ("-".equals(op) ? OperatorUtils.subtract(fst, sec) : OperatorUtils.multiply(fst, sec));
+                assert result.getClass() == expect.getClass() || result instanceof String;
+                assert result.toString().equals(expect.toString());
+            }
+            for (String op : compareOps) {
+                Object result = om.findDyadicProcess(op, fst.getClass(), sec.getClass()).doProcess(LocationUtils.unknownLocation(), op, data, optionSet);
+                boolean expect;
+                switch (op) {
+                    case ">":
+                        expect = OperatorUtils.gt(fst, sec);
+                        break;
+                    case ">=":
+                        expect = OperatorUtils.gteq(fst, sec);
+                        break;
+                    case "<":
+                        expect = OperatorUtils.lt(fst, sec);
+                        break;
+                    case "<=":
+                        expect = OperatorUtils.lteq(fst, sec);
+                        break;
+                    case "==":
+                        expect = OperatorUtils.eq(fst, sec);
+                        break;
+                    default:
+                        expect = !OperatorUtils.eq(fst, sec);
+                }
+                assert result.equals(expect);
+            }
+        }
+    }
 }
@@ -0,0 +1,66 @@
+package net.hasor.dataql.runtime.qil;
+import net.hasor.dataql.AbstractTestResource;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.Query;
+import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.compiler.qil.QilFormat;
+import net.hasor.dataql.domain.DataModel;
+import net.hasor.dataql.domain.ValueModel;
+import net.hasor.dataql.runtime.CompilerArguments;
+import net.hasor.dataql.runtime.QueryHelper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+public class QilFormatTest extends AbstractTestResource {
+    private void roundTrip(String testCase) throws IOException {
+        String query = getScript("/net_hasor_dataql_ast/" + testCase + "/ast.ql");
+        QIL qil = QueryHelper.queryCompiler(QueryHelper.queryParser(query), CompilerArguments.DEBUG, Finder.DEFAULT);
+        QIL loadQil = QilFormat.fromBytes(QilFormat.toBytes(qil));
+        assert qil.toString().equals(loadQil.toString());
+        assert qil.getCompilerVar().equals(loadQil.getCompilerVar());
+    }
+
+    @Test
+    public void roundTrip_1_Test() throws IOException {
+        String[] testCases = { "basictype_1", "expr_1", "expr_2", "fmt_1", "fmt_8", "fragment_1", "hint_1",//
+                "import_2", "lambda_1", "lambda_2", "route_1", "route_5", "switch_1", "val_object_4" };
+        for (String testCase : testCases) {
+            roundTrip(testCase);
+        }
+    }
+
+    @Test
+    public void execute_1_Test() throws IOException {
+        CompilerArguments arguments = new CompilerArguments(Collections.singleton("abc"));
+        QIL qil = QueryHelper.queryCompiler(QueryHelper.queryParser("var a = 1.5; var b = 12345678901234; return a + b + abc;"), arguments, Finder.DEFAULT);
+        QIL loadQil = QilFormat.fromBytes(QilFormat.toBytes(qil));
+        assert loadQil.getCompilerVar().containsKey("abc");
+        //
+        Query query = QueryHelper.createQuery(loadQil, Finder.DEFAULT);
+        query.addShareVar("abc", 10);
+        DataModel dataModel = query.execute().getData();
+        assert ((ValueModel) dataModel).asDouble() == 12345678901245.5d;
+    }
+
+    @Test
+    public void optimized_1_Test() throws IOException {
+        String queryString = "var a = 1 + 2 * 3; if (true) { return a; } else { return 0; }";
+        QIL qil = QueryHelper.queryCompiler(QueryHelper.queryParser(queryString), CompilerArguments.FAST, Finder.DEFAULT);
+        assert qil.getOptimizedCount() > 0;
+        QIL loadQil = QilFormat.fromBytes(QilFormat.toBytes(qil));
+        assert loadQil.getOptimizedCount() == qil.getOptimizedCount();
+        assert loadQil.toString().equals(qil.toString());
+    }
+
+    @Test
+    public void badMagic_1_Test() {
+        try {
+            QilFormat.fromBytes(new byte[] { 1, 2, 3, 4, 0, 1 });
+            assert false;
+        } catch (IOException e) {
+            assert e.getMessage().startsWith("not a QIL binary stream");
+        }
+    }
+}
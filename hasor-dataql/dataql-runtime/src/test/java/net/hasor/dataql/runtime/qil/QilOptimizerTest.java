@@ -0,0 +1,77 @@
+package net.hasor.dataql.runtime.qil;
+import com.alibaba.fastjson.JSON;
+import net.hasor.core.Hasor;
+import net.hasor.dataql.AbstractTestResource;
+import net.hasor.dataql.DataQL;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.compiler.qil.Opcodes;
+import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.domain.ValueModel;
+import net.hasor.dataql.runtime.CompilerArguments;
+import net.hasor.dataql.runtime.QueryHelper;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class QilOptimizerTest extends AbstractTestResource implements Opcodes {
+    private static QIL compiler(String queryString, boolean optimize) throws IOException {
+        CompilerArguments arguments = CompilerArguments.DEFAULT.copyAsNew();
+        arguments.setOptimize(optimize);
+        return QueryHelper.queryCompiler(QueryHelper.queryParser(queryString), arguments, Finder.DEFAULT);
+    }
+
+    private static int instCount(QIL qil) {
+        int count = 0;
+        for (int i = 0; i < qil.iqlPoolSize(); i++) {
+            count += qil.iqlSize(i);
+        }
+        return count;
+    }
+
+    @Test
+    public void constantFolding_1_Test() throws IOException {
+        QIL qil = compiler("return (\"a\" + \"b\" == \"ab\") && !false;", true);
+        int ldcCount = 0;
+        for (int i = 0; i < qil.iqlSize(0); i++) {
+            byte instCode = qil.instOf(0, i).getInstCode();
+            assert instCode != DO && instCode != UO && instCode != LDC_S;
+            ldcCount = (instCode == LDC_B) ? ldcCount + 1 : ldcCount;
+        }
+        assert ldcCount == 1;
+        assert ((ValueModel) QueryHelper.createQuery(qil, Finder.DEFAULT).execute().getData()).asBoolean();
+    }
+
+    @Test
+    public void constantFolding_2_Test() throws IOException {
+        // 数值运算受运行期 Hint 影响，不做折叠
+        QIL qil = compiler("hint MIN_INTEGER_WIDTH = 'long'; return 1 + 2;", true);
+        assert qil.toString().contains("DO");
+        assert ((ValueModel) QueryHelper.createQuery(qil, Finder.DEFAULT).execute().getData()).asInt() == 3;
+    }
+
+    @Test
+    public void deadCode_1_Test() throws IOException {
+        String queryString = "var fun = () -> { return 1; };\nif (true) {\n return 2;\n} else {\n return 3;\n}\nreturn 4;";
+        QIL debugQil = compiler(queryString, false);
+        QIL fastQil = compiler(queryString, true);
+        //
+        assert debugQil.getOptimizedCount() == 0;
+        assert fastQil.getOptimizedCount() == instCount(debugQil) - instCount(fastQil);
+        assert fastQil.getOptimizedCount() > 0;
+        assert !fastQil.toString().contains("LABEL");
+        assert ((ValueModel) QueryHelper.createQuery(fastQil, Finder.DEFAULT).execute().getData()).asInt() == 2;
+    }
+
+    @Test
+    public void corpus_1_Test() throws IOException {
+        DataQL dataQL = Hasor.create().build().getInstance(DataQL.class);
+        dataQL.configOption(DataQL.ConfigOption.OPTIMIZE, true);
+        String[] testCases = { "basic_fmt", "multi_dimensional", "hints", "special_a", "special_b", "special_c", "special_tree" };
+        for (String testCase : testCases) {
+            String queryString = getScript("/net_hasor_dataql_adv/" + testCase + ".ql");
+            String queryResult = getScript("/net_hasor_dataql_adv/" + testCase + ".result");
+            Object unwrap = dataQL.createQuery(queryString).execute().getData().unwrap();
+            assert JSON.toJSONString(unwrap, true).trim().equals(queryResult.trim());
+        }
+    }
+}
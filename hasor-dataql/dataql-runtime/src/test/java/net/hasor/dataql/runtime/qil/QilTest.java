@@ -1,9 +1,16 @@
 package net.hasor.dataql.runtime.qil;
 import net.hasor.dataql.AbstractTestResource;
+import net.hasor.dataql.Finder;
 import net.hasor.dataql.HintValue;
 import net.hasor.dataql.Query;
+import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.domain.ValueModel;
+import net.hasor.dataql.runtime.CompilerArguments;
+import net.hasor.dataql.runtime.QueryHelper;
 import org.junit.Test;
 
+import java.io.IOException;
+
 public class QilTest extends AbstractTestResource implements HintValue {
     @Test
     public void errorLineTest_1() {
@@ -16,4 +23,44 @@ public class QilTest extends AbstractTestResource implements HintValue {
             assert e.getLocalizedMessage().equalsIgnoreCase("assert test failed.");
         }
     }
+
+    @Test
+    public void localSizeTest_1() throws IOException {
+        String queryString = "var a = 1; var b = 2; var f = (x) -> { var y = x + a; return (z) -> { return y + b + x + z; }; }; return f(3)(4);";
+        QIL qil = QueryHelper.queryCompiler(QueryHelper.queryParser(queryString), CompilerArguments.DEFAULT, Finder.DEFAULT);
+        assert qil.localSize(0) == 3;
+        assert qil.localSize(1) == 2;
+        assert qil.localSize(2) == 1;
+        assert qil.hasClosure(1) && !qil.hasClosure(2);
+        //
+        Query compilerQL = compilerQL(queryString);
+        assert ((ValueModel) compilerQL.execute().getData()).asInt() == 13;
+    }
+
+    @Test
+    public void parallelFieldTest_1() throws IOException {
+        String queryString = "return { 'a' : f(1), 'b' : (true ? g(2) : 3), 'c' : { 'x' : h(3) }, 'd' : k(4) }";
+        QIL qil = QueryHelper.queryCompiler(QueryHelper.queryParser(queryString), CompilerArguments.DEFAULT, Finder.DEFAULT);
+        int callCount = 0;
+        int joinIndex = -1;
+        for (int i = 0; i < qil.iqlSize(0); i++) {
+            callCount += qil.isParallelCall(0, i) ? 1 : 0;
+            joinIndex = qil.isParallelJoin(0, i) ? i : joinIndex;
+        }
+        assert callCount == 2; // 只有 a、d 两个字段的值直接来自调用
+        assert qil.instOf(0, joinIndex).getString(0).equals("d");
+    }
+
+    @Test
+    public void parallelFieldTest_2() throws IOException {
+        // 只有一个调用字段的对象、没有对象的 lambda 都不会产生并发调用
+        String queryString = "var f = (x) -> { return g(x) + h(x); }; return { 'a' : f(1), 'b' : 2 }";
+        QIL qil = QueryHelper.queryCompiler(QueryHelper.queryParser(queryString), CompilerArguments.DEFAULT, Finder.DEFAULT);
+        for (int address = 0; address < qil.iqlPoolSize(); address++) {
+            for (int i = 0; i < qil.iqlSize(address); i++) {
+                assert !qil.isParallelCall(address, i);
+                assert !qil.isParallelJoin(address, i);
+            }
+        }
+    }
 }
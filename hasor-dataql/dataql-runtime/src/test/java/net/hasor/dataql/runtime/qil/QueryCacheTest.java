@@ -0,0 +1,143 @@
+package net.hasor.dataql.runtime.qil;
+import net.hasor.dataql.AbstractTestResource;
+import net.hasor.dataql.Finder;
+import net.hasor.dataql.compiler.ImportModuleCache;
+import net.hasor.dataql.compiler.qil.QIL;
+import net.hasor.dataql.domain.DataModel;
+import net.hasor.dataql.domain.ValueModel;
+import net.hasor.dataql.runtime.CompilerArguments;
+import net.hasor.dataql.runtime.QueryCache;
+import net.hasor.dataql.runtime.QueryHelper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+public class QueryCacheTest extends AbstractTestResource {
+    private static class MemoryFinder implements Finder {
+        private final Map<String, String> resources = new HashMap<>();
+        private final ImportModuleCache   cache;
+
+        MemoryFinder(ImportModuleCache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public InputStream findResource(String resourceName) {
+            String content = this.resources.get(resourceName);
+            return (content == null) ? null : new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public ImportModuleCache importModuleCache() {
+            return this.cache;
+        }
+    }
+
+    private static int execute(QIL qil, Finder finder) throws Exception {
+        return ((ValueModel) QueryHelper.createQuery(qil, finder).execute().getData()).asInt();
+    }
+
+    @Test
+    public void cacheHit_1_Test() throws Exception {
+        QueryCache queryCache = new QueryCache(10);
+        QIL qil1 = queryCache.queryCompiler("return 1 + 2;", CompilerArguments.DEFAULT, Finder.DEFAULT);
+        QIL qil2 = queryCache.queryCompiler("return 1 + 2;", CompilerArguments.DEFAULT, Finder.DEFAULT);
+        //
+        assert qil1 == qil2;
+        assert queryCache.getHitCount() == 1;
+        assert queryCache.getMissCount() == 1;
+        DataModel dataModel = QueryHelper.createQuery(qil2, Finder.DEFAULT).execute().getData();
+        assert ((ValueModel) dataModel).asInt() == 3;
+    }
+
+    @Test
+    public void cacheKey_1_Test() throws Exception {
+        QueryCache queryCache = new QueryCache(10);
+        CompilerArguments argA = CompilerArguments.DEFAULT.copyAsNew();
+        CompilerArguments argB = CompilerArguments.DEFAULT.copyAsNew();
+        argB.getCompilerVar().add("abc");
+        CompilerArguments argC = CompilerArguments.FAST.copyAsNew();
+        //
+        QIL qil1 = queryCache.queryCompiler("return abc;", argA, Finder.DEFAULT);
+        QIL qil2 = queryCache.queryCompiler("return abc;", argB, Finder.DEFAULT);
+        QIL qil3 = queryCache.queryCompiler("return abc;", argC, Finder.DEFAULT);
+        //
+        assert qil1 != qil2 && qil2 != qil3 && qil1 != qil3;
+        assert queryCache.getMissCount() == 3;
+        assert queryCache.getHitCount() == 0;
+        assert queryCache.size() == 3;
+    }
+
+    @Test
+    public void eviction_1_Test() throws Exception {
+        QueryCache queryCache = new QueryCache(2);
+        QIL qil1 = queryCache.queryCompiler("return 1;", CompilerArguments.DEFAULT, Finder.DEFAULT);
+        queryCache.queryCompiler("return 2;", CompilerArguments.DEFAULT, Finder.DEFAULT);
+        queryCache.queryCompiler("return 1;", CompilerArguments.DEFAULT, Finder.DEFAULT); // touch 1
+        queryCache.queryCompiler("return 3;", CompilerArguments.DEFAULT, Finder.DEFAULT); // evict 2
+        //
+        assert queryCache.size() == 2;
+        assert queryCache.getEvictionCount() == 1;
+        assert queryCache.queryCompiler("return 1;", CompilerArguments.DEFAULT, Finder.DEFAULT) == qil1;
+        //
+        queryCache.setMaxSize(0);
+        assert queryCache.size() == 0;
+        assert queryCache.getEvictionCount() == 3;
+        queryCache.queryCompiler("return 1;", CompilerArguments.DEFAULT, Finder.DEFAULT);
+        assert queryCache.size() == 0;
+    }
+
+    @Test
+    public void import_1_Test() throws Exception {
+        // .导入的模块发生变化时重新编译
+        QueryCache queryCache = new QueryCache(10);
+        MemoryFinder finder = new MemoryFinder(new ImportModuleCache(10));
+        finder.resources.put("/a.ql", "return 1;");
+        String queryString = "import @'/a.ql' as a; return a();";
+        //
+        QIL qil1 = queryCache.queryCompiler(queryString, CompilerArguments.DEFAULT, finder);
+        assert queryCache.queryCompiler(queryString, CompilerArguments.DEFAULT, finder) == qil1;
+        assert execute(qil1, finder) == 1;
+        //
+        finder.resources.put("/a.ql", "return 2;");
+        QIL qil2 = queryCache.queryCompiler(queryString, CompilerArguments.DEFAULT, finder);
+        assert qil2 != qil1;
+        assert execute(qil2, finder) == 2;
+        assert queryCache.queryCompiler(queryString, CompilerArguments.DEFAULT, finder) == qil2;
+        assert queryCache.getHitCount() == 2 && queryCache.getMissCount() == 2;
+        assert queryCache.size() == 1;
+    }
+
+    @Test
+    public void import_2_Test() throws Exception {
+        // .间接导入的模块发生变化，Finder 没有提供模块缓存
+        QueryCache queryCache = new QueryCache(10);
+        MemoryFinder finder = new MemoryFinder(null);
+        finder.resources.put("/a.ql", "import @'/b.ql' as b; return b() + 10;");
+        finder.resources.put("/b.ql", "return 1;");
+        String queryString = "import @'/a.ql' as a; return a();";
+        //
+        QIL qil1 = queryCache.queryCompiler(queryString, CompilerArguments.DEFAULT, finder);
+        assert queryCache.queryCompiler(queryString, CompilerArguments.DEFAULT, finder) == qil1;
+        assert execute(qil1, finder) == 11;
+        //
+        finder.resources.put("/b.ql", "return 5;");
+        QIL qil2 = queryCache.queryCompiler(queryString, CompilerArguments.DEFAULT, finder);
+        assert qil2 != qil1;
+        assert execute(qil2, finder) == 15;
+        //
+        // .导入的资源不存在时不缓存
+        finder.resources.remove("/b.ql");
+        try {
+            queryCache.queryCompiler(queryString, CompilerArguments.DEFAULT, finder);
+            assert false;
+        } catch (Exception e) {
+            assert e.getMessage().contains("/b.ql");
+        }
+        assert queryCache.size() == 1;
+    }
+}